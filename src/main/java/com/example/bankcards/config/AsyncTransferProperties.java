@@ -0,0 +1,27 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for asynchronous transfers, bound from {@code app.transfer.async.*}.
+ *
+ * @param maxQueueDepth  Accepted transfers that may be queued or running on this node; more are refused with 429.
+ * @param maxConcurrency Transfers executing at the same time, well below the connection pool size.
+ * @param retention      How long completed transfers can be polled before the purge job deletes them.
+ * @param purgeInterval  Delay between two runs of the purge job.
+ * @param maxAttempts    Executions of a transfer that keeps failing transiently (busy card, unavailable engine,
+ *                       lost optimistic retries) before it is marked FAILED.
+ * @param retryBackoff   Wait before the second execution, doubled before each further one.
+ */
+@ConfigurationProperties(prefix = "app.transfer.async")
+public record AsyncTransferProperties(
+        @DefaultValue("1000") int maxQueueDepth,
+        @DefaultValue("8") int maxConcurrency,
+        @DefaultValue("24h") Duration retention,
+        @DefaultValue("PT1H") Duration purgeInterval,
+        @DefaultValue("8") int maxAttempts,
+        @DefaultValue("200ms") Duration retryBackoff
+) {}
@@ -0,0 +1,18 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for sub-balance sharding of hot cards, bound from {@code app.balance-slots.*}.
+ *
+ * @param maxSlots        Upper bound an admin may configure for a single card.
+ * @param refreshInterval How often each node reloads which cards are sharded.
+ */
+@ConfigurationProperties(prefix = "app.balance-slots")
+public record BalanceSlotProperties(
+        @DefaultValue("64") int maxSlots,
+        @DefaultValue("PT30S") Duration refreshInterval
+) {}
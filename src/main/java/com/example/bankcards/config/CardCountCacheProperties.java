@@ -0,0 +1,20 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the per-owner card counts behind the totals of {@code GET /api/v1/cards}, bound from
+ * {@code app.card-count-cache.*}.
+ *
+ * @param maxSize Owners whose count is kept; the least recently read are evicted first.
+ * @param ttl     How long a count is served before it is counted again. Bounds how long a card
+ *                created or deleted through another node is missing from the totals.
+ */
+@ConfigurationProperties(prefix = "app.card-count-cache")
+public record CardCountCacheProperties(
+        @DefaultValue("10000") int maxSize,
+        @DefaultValue("1m") Duration ttl
+) {}
@@ -0,0 +1,14 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the startup backfill of {@code cards.card_last4}, bound from {@code app.card-last4.*}.
+ *
+ * @param backfillChunkSize Cards decrypted and updated per transaction.
+ */
+@ConfigurationProperties(prefix = "app.card-last4")
+public record CardLast4Properties(
+        @DefaultValue("1000") int backfillChunkSize
+) {}
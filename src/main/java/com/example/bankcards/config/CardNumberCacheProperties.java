@@ -0,0 +1,24 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the cache of decrypted card numbers, bound from {@code app.card-number-cache.*}.
+ *
+ * @param enabled       Whether decrypted numbers are cached at all.
+ * @param maxSize       Card numbers kept; the least recently read are evicted first.
+ * @param ttl           How long a number stays cached after it was decrypted.
+ * @param stripes       Requested number of independently locked segments, rounded up to a power of two.
+ * @param purgeInterval How often expired numbers are wiped, whether or not they are read again.
+ */
+@ConfigurationProperties(prefix = "app.card-number-cache")
+public record CardNumberCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("10000") int maxSize,
+        @DefaultValue("5m") Duration ttl,
+        @DefaultValue("16") int stripes,
+        @DefaultValue("PT1M") Duration purgeInterval
+) {}
@@ -0,0 +1,18 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the job that re-encrypts card numbers with the active key, bound from {@code app.card-reencryption.*}.
+ *
+ * @param runOnStartup     Whether the job starts by itself after startup when cards use another key.
+ * @param chunkSize        Cards locked and re-encrypted per transaction.
+ * @param maxRowsPerSecond Throughput cap, enforced by pausing between chunks.
+ */
+@ConfigurationProperties(prefix = "app.card-reencryption")
+public record CardReencryptionProperties(
+        @DefaultValue("true") boolean runOnStartup,
+        @DefaultValue("200") int chunkSize,
+        @DefaultValue("2000") int maxRowsPerSecond
+) {}
@@ -0,0 +1,17 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the blind index behind the partial card-number search, bound from {@code app.card-search.*}.
+ *
+ * @param ngramLength       Digits per indexed n-gram, which is also the shortest query accepted.
+ *                          Changing it requires emptying {@code card_number_tokens} so the backfill rebuilds it.
+ * @param backfillChunkSize Cards decrypted and indexed per transaction by the startup backfill.
+ */
+@ConfigurationProperties(prefix = "app.card-search")
+public record CardSearchProperties(
+        @DefaultValue("4") int ngramLength,
+        @DefaultValue("500") int backfillChunkSize
+) {}
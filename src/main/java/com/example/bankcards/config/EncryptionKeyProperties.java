@@ -0,0 +1,21 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.Map;
+
+/**
+ * The keyring of the card-number encryption, bound from {@code app.security.*}.
+ *
+ * @param encryptionKey  Base64 AES key with key id 0, the one every card was encrypted with before key ids existed.
+ * @param encryptionKeys Further Base64 AES keys by key id (1-255). Keys stay configured as long as
+ *                       any card may still be encrypted with them.
+ * @param activeKeyId    Key new card numbers are encrypted with, and re-encryption moves old ones to.
+ */
+@ConfigurationProperties(prefix = "app.security")
+public record EncryptionKeyProperties(
+        String encryptionKey,
+        @DefaultValue Map<Integer, String> encryptionKeys,
+        @DefaultValue("0") int activeKeyId
+) {}
@@ -0,0 +1,41 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the in-memory transfer engine, bound from {@code app.engine.*}.
+ *
+ * @param enabled          Replaces {@code CardServiceImpl} with {@code InMemoryCardService}. Single node only.
+ * @param partitions       Number of single-writer partitions; each card belongs to exactly one.
+ * @param ringBufferSize   Capacity of each partition's command ring buffer (rounded up to a power of two).
+ * @param maxBatchSize     Commands a partition journals before forcing the journal and acknowledging them.
+ * @param journalDir       Directory of the memory-mapped journal segments.
+ * @param segmentSize      Size of one journal segment file.
+ * @param fsync            Force every journal batch to disk before acknowledging it.
+ * @param flushInterval    Delay between two write-behind flushes to PostgreSQL.
+ * @param flushBatchSize   Maximum journal records written to PostgreSQL per flush transaction.
+ * @param flushMaxAttempts Consecutive failed flushes after which the engine stops accepting transfers.
+ * @param ackTimeout       How long a request waits for its partition before giving up with 503.
+ * @param keyRetention     How long a journaled idempotency key stays in memory after its flush, for
+ *                         retries that looked the key up in the database before it got there.
+ */
+@ConfigurationProperties(prefix = "app.engine")
+public record EngineProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("4") int partitions,
+        @DefaultValue("8192") int ringBufferSize,
+        @DefaultValue("256") int maxBatchSize,
+        @DefaultValue("./data/journal") Path journalDir,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("true") boolean fsync,
+        @DefaultValue("100ms") Duration flushInterval,
+        @DefaultValue("10000") int flushBatchSize,
+        @DefaultValue("30") int flushMaxAttempts,
+        @DefaultValue("5s") Duration ackTimeout,
+        @DefaultValue("1m") Duration keyRetention
+) {}
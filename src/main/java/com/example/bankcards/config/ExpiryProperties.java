@@ -0,0 +1,20 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the sweep that expires cards past their validity date, bound from {@code app.expiry.*}.
+ *
+ * @param enabled   Whether this node runs the scheduled sweep; the admin endpoint works either way.
+ * @param chunkSize Cards expired per transaction.
+ * @param interval  Pause between the end of one sweep and the start of the next.
+ */
+@ConfigurationProperties(prefix = "app.expiry")
+public record ExpiryProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("500") int chunkSize,
+        @DefaultValue("PT1H") Duration interval
+) {}
@@ -0,0 +1,20 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the streaming NDJSON exports under {@code /api/v1/admin}, bound from {@code app.export.*}.
+ *
+ * @param fetchSize Rows the JDBC cursor fetches per round trip; also how many rows are written
+ *                  between two flushes of the response.
+ * @param timeout   How long an export request may stream before it is timed out. Applies to the
+ *                  exports only, every other async request keeps the container's default.
+ */
+@ConfigurationProperties(prefix = "app.export")
+public record ExportProperties(
+        @DefaultValue("1000") int fetchSize,
+        @DefaultValue("30m") Duration timeout
+) {}
@@ -0,0 +1,21 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Group commit window for {@code app.transfer.mode=GROUP_COMMIT}, bound from {@code app.transfer.group-commit.*}.
+ *
+ * @param maxSize     A group is closed as soon as it holds this many transfers.
+ * @param window      A group is closed this long after its first transfer arrived, however small it is.
+ *                    Zero only takes what is already queued.
+ * @param parallelism How many groups may be committing at the same time.
+ */
+@ConfigurationProperties(prefix = "app.transfer.group-commit")
+public record GroupCommitProperties(
+        @DefaultValue("64") int maxSize,
+        @DefaultValue("2ms") Duration window,
+        @DefaultValue("4") int parallelism
+) {}
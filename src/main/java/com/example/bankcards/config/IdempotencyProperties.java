@@ -0,0 +1,22 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for {@code Idempotency-Key} handling on transfers, bound from {@code app.idempotency.*}.
+ *
+ * @param cacheSize     Maximum number of outcomes kept in the in-memory LRU front cache.
+ * @param waitTimeout   How long a duplicate waits for the in-flight execution of the same key.
+ * @param retention     How long stored outcomes are kept before the purge job deletes them.
+ * @param purgeInterval Delay between two runs of the purge job.
+ */
+@ConfigurationProperties(prefix = "app.idempotency")
+public record IdempotencyProperties(
+        @DefaultValue("10000") int cacheSize,
+        @DefaultValue("10s") Duration waitTimeout,
+        @DefaultValue("24h") Duration retention,
+        @DefaultValue("PT1H") Duration purgeInterval
+) {}
@@ -0,0 +1,16 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for rebuilding {@code cards.balance} from the ledger, bound from {@code app.ledger.*}.
+ *
+ * @param rebuildChunkSize   Number of cards recomputed and locked per transaction.
+ * @param rebuildParallelism Number of chunks processed concurrently.
+ */
+@ConfigurationProperties(prefix = "app.ledger")
+public record LedgerProperties(
+        @DefaultValue("1000") int rebuildChunkSize,
+        @DefaultValue("4") int rebuildParallelism
+) {}
@@ -0,0 +1,20 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Retry policy for card writes that lose an optimistic version check, bound from {@code app.optimistic-retry.*}.
+ *
+ * @param maxAttempts    Executions in total, including the first one.
+ * @param initialBackoff Upper bound of the random pause before the first retry; doubled for each further retry.
+ * @param maxBackoff     Cap of the pause bound.
+ */
+@ConfigurationProperties(prefix = "app.optimistic-retry")
+public record OptimisticRetryProperties(
+        @DefaultValue("4") int maxAttempts,
+        @DefaultValue("5ms") Duration initialBackoff,
+        @DefaultValue("100ms") Duration maxBackoff
+) {}
@@ -0,0 +1,92 @@
+package com.example.bankcards.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Opt-in Hibernate second-level cache of clients (by id and by username) and cards, held in
+ * node-local Caffeine caches behind JCache.
+ * <p>
+ * Changes made through Hibernate update the caches on their own. Card rows written by plain SQL are
+ * evicted by {@link com.example.bankcards.util.CardCacheEvictor}. Changes made through other nodes
+ * show after at most the region's TTL.
+ * <p>
+ * Exported meters, tagged {@code cache=client|client-by-username|card}:
+ * <ul>
+ *     <li>{@code cache.size} - entries held.</li>
+ *     <li>{@code cache.gets{result=hit|miss}} - lookups, a miss costing one query.</li>
+ *     <li>{@code cache.evictions} - entries dropped for size or TTL.</li>
+ * </ul>
+ */
+@Configuration
+public class SecondLevelCacheConfig {
+
+    public static final String CLIENT_REGION = "client";
+    public static final String CLIENT_BY_USERNAME_REGION = "client-by-username";
+    public static final String CARD_REGION = "card";
+
+    private static final List<String> REGIONS = List.of(CLIENT_REGION, CLIENT_BY_USERNAME_REGION, CARD_REGION);
+
+    /**
+     * Switches the cache off explicitly when disabled, as Hibernate would otherwise pick up the
+     * JCache region factory from the classpath by itself.
+     */
+    @Bean
+    public HibernatePropertiesCustomizer secondLevelCacheCustomizer(SecondLevelCacheProperties properties,
+                                                                   ObjectProvider<CacheManager> cacheManager) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, properties.enabled());
+            if (properties.enabled()) {
+                hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, ConfigSettings.SIMPLE_FACTORY_NAME);
+                hibernateProperties.put(ConfigSettings.CACHE_MANAGER, cacheManager.getObject());
+                // Every region is created below; a typo in an entity mapping must not silently get a default cache
+                hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            }
+        };
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(prefix = "app.second-level-cache", name = "enabled", havingValue = "true")
+    public CacheManager secondLevelCacheManager(SecondLevelCacheProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName()).getCacheManager();
+        createRegion(cacheManager, CLIENT_REGION, properties.clientMaxSize(), properties.clientTtl());
+        createRegion(cacheManager, CLIENT_BY_USERNAME_REGION, properties.clientMaxSize(), properties.clientTtl());
+        createRegion(cacheManager, CARD_REGION, properties.cardMaxSize(), properties.cardTtl());
+        return cacheManager;
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "app.second-level-cache", name = "enabled", havingValue = "true")
+    public MeterBinder secondLevelCacheMetrics(CacheManager secondLevelCacheManager) {
+        return registry -> REGIONS.forEach(region -> CaffeineCacheMetrics.monitor(registry,
+                secondLevelCacheManager.getCache(region).unwrap(com.github.benmanes.caffeine.cache.Cache.class), region));
+    }
+
+    private static void createRegion(CacheManager cacheManager, String region, long maxSize, Duration ttl) {
+        if (cacheManager.getCache(region) != null) {
+            cacheManager.destroyCache(region);
+        }
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>()
+                .setMaximumSize(OptionalLong.of(maxSize))
+                .setExpireAfterWrite(OptionalLong.of(ttl.toNanos()))
+                // Hibernate stores disassembled state already, so entries need no copying on read
+                .setStoreByValue(false)
+                .setNativeStatisticsEnabled(true);
+        cacheManager.createCache(region, configuration);
+    }
+}
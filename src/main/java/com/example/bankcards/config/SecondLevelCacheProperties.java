@@ -0,0 +1,27 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings of the Hibernate second-level cache of clients and cards, bound from
+ * {@code app.second-level-cache.*}.
+ *
+ * @param enabled       Whether clients and cards are cached at all.
+ * @param clientMaxSize Clients kept, by id and separately by username.
+ * @param clientTtl     How long a cached client is served. Bounds how long a lock or delete made
+ *                      through another node goes unnoticed here.
+ * @param cardMaxSize   Cards kept.
+ * @param cardTtl       How long a cached card is served. Bounds how long a change made through
+ *                      another node goes unnoticed here.
+ */
+@ConfigurationProperties(prefix = "app.second-level-cache")
+public record SecondLevelCacheProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("10000") long clientMaxSize,
+        @DefaultValue("30s") Duration clientTtl,
+        @DefaultValue("50000") long cardMaxSize,
+        @DefaultValue("30s") Duration cardTtl
+) {}
@@ -0,0 +1,24 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for per-card spending limits, bound from {@code app.spending-limits.*}.
+ *
+ * @param enabled         Whether transfers are checked against the limits at all.
+ * @param window          Length of the sliding window the daily limit applies to.
+ * @param buckets         Buckets the window is split into; the window slides by {@code window / buckets}.
+ * @param stripes         Independently locked partitions of the in-memory counters (rounded up to a power of two).
+ * @param refreshInterval How often each node reloads the limits and drops cards with nothing spent in the window.
+ */
+@ConfigurationProperties(prefix = "app.spending-limits")
+public record SpendingLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("PT24H") Duration window,
+        @DefaultValue("24") int buckets,
+        @DefaultValue("64") int stripes,
+        @DefaultValue("PT30S") Duration refreshInterval
+) {}
@@ -0,0 +1,44 @@
+package com.example.bankcards.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Tuning knobs for the money transfer path, bound from {@code app.transfer.*}.
+ *
+ * @param mode               Which transfer strategy {@code CardServiceImpl} uses.
+ * @param lockStripes        Number of in-JVM lock stripes (rounded up to a power of two).
+ * @param lockTimeout        How long a request may queue on a stripe before giving up.
+ * @param maxDeadlockRetries How many times a transaction is replayed after losing a database deadlock.
+ */
+@ConfigurationProperties(prefix = "app.transfer")
+public record TransferProperties(
+        @DefaultValue("ORDERED_LOCKING") Mode mode,
+        @DefaultValue("1024") int lockStripes,
+        @DefaultValue("5s") Duration lockTimeout,
+        @DefaultValue("3") int maxDeadlockRetries
+) {
+
+    public enum Mode {
+        /**
+         * Plain read-modify-write of both cards. No row locks are taken.
+         */
+        PLAIN,
+        /**
+         * Both cards are locked with {@code SELECT ... FOR UPDATE} in ascending id order,
+         * behind a striped in-JVM lock so same-node contenders queue in memory.
+         */
+        ORDERED_LOCKING,
+        /**
+         * Checks, debit and credit run as one conditional SQL statement in a single round trip.
+         */
+        SINGLE_STATEMENT,
+        /**
+         * Concurrent transfers are collected into small groups that each run in one transaction,
+         * see {@code app.transfer.group-commit.*}.
+         */
+        GROUP_COMMIT
+    }
+}
@@ -1,20 +1,33 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.requests.BalanceAdjustmentRequestDto;
 import com.example.bankcards.dto.requests.CreateCardRequestDto;
+import com.example.bankcards.dto.requests.UpdateBalanceSlotsRequestDto;
 import com.example.bankcards.dto.requests.UpdateCardStatusRequestDto;
 import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.dto.response.ExpirySweepResponseDto;
+import com.example.bankcards.dto.response.LedgerRebuildResponseDto;
+import com.example.bankcards.dto.response.ReencryptionStatusResponseDto;
+import com.example.bankcards.service.interfaces.CardExpiryService;
+import com.example.bankcards.service.interfaces.CardReencryptionService;
 import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.service.interfaces.LedgerService;
+import com.example.bankcards.util.EntityTags;
+import com.example.bankcards.util.NdjsonExporter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import java.util.List;
 
@@ -27,6 +40,10 @@ import java.util.List;
 public class AdminCardController {
 
     private final CardService cardService;
+    private final LedgerService ledgerService;
+    private final CardExpiryService cardExpiryService;
+    private final CardReencryptionService cardReencryptionService;
+    private final NdjsonExporter ndjsonExporter;
 
     @PostMapping
     @Operation(summary = "Create Card", description = "Issue a new card for a specific user.")
@@ -47,14 +64,35 @@ public class AdminCardController {
         return ResponseEntity.ok(cardService.getAllCards());
     }
 
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @Operation(summary = "Export All Cards", description = "Stream every card as NDJSON, one JSON object per line, ordered by ID. "
+            + "Memory use does not depend on the number of cards. Compressed with gzip when the client accepts it.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Cards streamed")
+    })
+    public WebAsyncTask<Void> exportCards(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+        return ndjsonExporter.stream("cards.ndjson", acceptEncoding, response, cardService::exportAllCards);
+    }
+
     @GetMapping("/{cardId}")
     @Operation(summary = "Get Card by ID", description = "Retrieve details of a specific card by its ID.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Card details retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "The card did not change since the ETag sent in If-None-Match"),
             @ApiResponse(responseCode = "404", description = "Card not found")
     })
-    public ResponseEntity<CardResponseDto> getCardById(@PathVariable Long cardId) {
-        return ResponseEntity.ok(cardService.getCardById(cardId));
+    public ResponseEntity<CardResponseDto> getCardById(
+            @PathVariable Long cardId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // A match costs one primary-key lookup; the card is neither loaded nor serialized
+        String etag = cardService.getCardTag(cardId);
+        if (EntityTags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        // Taken before the body, so a concurrent change can only make the tag stale, never the body
+        return ResponseEntity.ok().eTag(etag).body(cardService.getCardById(cardId));
     }
 
     @PatchMapping("/{cardId}/status")
@@ -69,6 +107,42 @@ public class AdminCardController {
         return ResponseEntity.ok(cardService.updateCardStatus(cardId, request.status()));
     }
 
+    @PostMapping("/{cardId}/adjustments")
+    @Operation(summary = "Adjust Balance", description = "Credit (positive amount) or debit (negative amount) a card. The adjustment is recorded in the ledger.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Balance adjusted successfully"),
+            @ApiResponse(responseCode = "400", description = "Zero amount or the balance would become negative"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    public ResponseEntity<CardResponseDto> adjustBalance(
+            @PathVariable Long cardId,
+            @Valid @RequestBody BalanceAdjustmentRequestDto request) {
+        return ResponseEntity.ok(cardService.adjustBalance(cardId, request));
+    }
+
+    @PutMapping("/{cardId}/balance-slots")
+    @Operation(summary = "Update Balance Slots", description = "Spread credits to a hot card over N sub-balance slots (0 turns sharding off). Takes effect without a restart.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Slot count updated successfully"),
+            @ApiResponse(responseCode = "400", description = "Slot count out of range"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    public ResponseEntity<CardResponseDto> updateBalanceSlots(
+            @PathVariable Long cardId,
+            @Valid @RequestBody UpdateBalanceSlotsRequestDto request) {
+        return ResponseEntity.ok(cardService.updateBalanceSlots(cardId, request.slots()));
+    }
+
+    @PostMapping("/balances/rebuild")
+    @Operation(summary = "Rebuild Balances", description = "Recompute every card balance from the ledger and correct the ones that drifted.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Balances rebuilt"),
+            @ApiResponse(responseCode = "409", description = "A rebuild is already running")
+    })
+    public ResponseEntity<LedgerRebuildResponseDto> rebuildBalances() {
+        return ResponseEntity.ok(ledgerService.rebuildBalances());
+    }
+
     @DeleteMapping("/{cardId}")
     @Operation(summary = "Delete Card", description = "Delete a specific card by its ID.")
     @ApiResponses(value = {
@@ -79,4 +153,31 @@ public class AdminCardController {
         cardService.deleteCard(cardId);
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/expire")
+    @Operation(summary = "Expire Cards", description = "Move every active card past its validity date to EXPIRED now, instead of waiting for the scheduled sweep.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Sweep completed"),
+            @ApiResponse(responseCode = "409", description = "A sweep is already running on this node")
+    })
+    public ResponseEntity<ExpirySweepResponseDto> expireCards() {
+        return ResponseEntity.ok(cardExpiryService.expireDueCards());
+    }
+
+    @PostMapping("/reencryption")
+    @Operation(summary = "Re-encrypt Card Numbers", description = "Start re-encrypting, in the background, every card number not encrypted with the active key.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Re-encryption started"),
+            @ApiResponse(responseCode = "409", description = "A re-encryption is already running on this node")
+    })
+    public ResponseEntity<ReencryptionStatusResponseDto> startReencryption() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(cardReencryptionService.start());
+    }
+
+    @GetMapping("/reencryption")
+    @Operation(summary = "Re-encryption Status", description = "Progress of the running re-encryption, or the result of the last one run on this node.")
+    @ApiResponse(responseCode = "200", description = "Status returned")
+    public ResponseEntity<ReencryptionStatusResponseDto> getReencryptionStatus() {
+        return ResponseEntity.ok(cardReencryptionService.status());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.example.bankcards.controller;
+
+import com.example.bankcards.dto.requests.UpdateSpendingLimitsRequestDto;
+import com.example.bankcards.dto.response.CardLimitsResponseDto;
+import com.example.bankcards.dto.response.TierLimitsResponseDto;
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.service.interfaces.SpendingLimitService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/admin/limits")
+@RequiredArgsConstructor
+@Tag(name = "Admin Spending Limits", description = "Per-transaction and daily limits of cards and client tiers")
+@SecurityRequirement(name = "bearerAuth")
+@PreAuthorize("hasRole('ADMIN')")
+public class AdminSpendingLimitController {
+
+    private final SpendingLimitService spendingLimitService;
+
+    @GetMapping("/tiers")
+    @Operation(summary = "Get Tier Limits", description = "Retrieve the default limits of every client tier.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tier limits retrieved successfully")
+    })
+    public ResponseEntity<List<TierLimitsResponseDto>> getTierLimits() {
+        return ResponseEntity.ok(spendingLimitService.getTierLimits());
+    }
+
+    @PutMapping("/tiers/{tier}")
+    @Operation(summary = "Update Tier Limits", description = "Set the default limits of a client tier (null: unlimited). Takes effect without a restart.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Tier limits updated successfully"),
+            @ApiResponse(responseCode = "400", description = "Limit not positive or unknown tier")
+    })
+    public ResponseEntity<TierLimitsResponseDto> updateTierLimits(
+            @PathVariable ClientTier tier,
+            @Valid @RequestBody UpdateSpendingLimitsRequestDto request) {
+        return ResponseEntity.ok(spendingLimitService.updateTierLimits(tier, request));
+    }
+
+    @GetMapping("/cards/{cardId}")
+    @Operation(summary = "Get Card Limits", description = "Retrieve the override, the effective limits and the amount spent in the daily window of a card.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Card limits retrieved successfully"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    public ResponseEntity<CardLimitsResponseDto> getCardLimits(@PathVariable Long cardId) {
+        return ResponseEntity.ok(spendingLimitService.getCardLimits(cardId));
+    }
+
+    @PutMapping("/cards/{cardId}")
+    @Operation(summary = "Update Card Limits", description = "Override the limits of a card (null: inherited from the owner's tier). Takes effect without a restart.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Card limits updated successfully"),
+            @ApiResponse(responseCode = "400", description = "Limit not positive"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    public ResponseEntity<CardLimitsResponseDto> updateCardLimits(
+            @PathVariable Long cardId,
+            @Valid @RequestBody UpdateSpendingLimitsRequestDto request) {
+        return ResponseEntity.ok(spendingLimitService.updateCardLimits(cardId, request));
+    }
+}
@@ -1,18 +1,25 @@
 package com.example.bankcards.controller;
 
 import com.example.bankcards.dto.requests.UpdateUserLockRequestDto;
+import com.example.bankcards.dto.response.CursorPageResponseDto;
 import com.example.bankcards.dto.response.UserResponseDto;
+import com.example.bankcards.entity.enums.Role;
 import com.example.bankcards.service.interfaces.UserService;
+import com.example.bankcards.util.NdjsonExporter;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
 import java.util.List;
 
@@ -25,6 +32,7 @@ import java.util.List;
 public class AdminUserController {
 
     private final UserService userService;
+    private final NdjsonExporter ndjsonExporter;
 
     @GetMapping
     @Operation(summary = "Get All Users", description = "Retrieve a list of all registered users.")
@@ -35,6 +43,44 @@ public class AdminUserController {
         return ResponseEntity.ok(userService.getAllUsers());
     }
 
+    @GetMapping(value = "/export", produces = "application/x-ndjson")
+    @Operation(summary = "Export All Users", description = "Stream every user as NDJSON, one JSON object per line, ordered by ID. "
+            + "Memory use does not depend on the number of users. Compressed with gzip when the client accepts it.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users streamed")
+    })
+    public WebAsyncTask<Void> exportUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) {
+        return ndjsonExporter.stream("users.ndjson", acceptEncoding, response, userService::exportAllUsers);
+    }
+
+    @GetMapping("/search")
+    @Operation(summary = "Search Users", description = "Find users by username prefix, role and lock status, a page at a time. "
+            + "With a prefix the users are ordered by username, otherwise by ID. Pass the returned nextCursor, with the same filters, to fetch the following page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Users retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, role or page size")
+    })
+    public ResponseEntity<CursorPageResponseDto<UserResponseDto>> searchUsers(
+            @Parameter(description = "Case-sensitive start of the username")
+            @RequestParam(required = false) String username,
+
+            @Parameter(description = "Only users with this role")
+            @RequestParam(required = false) Role role,
+
+            @Parameter(description = "Only locked (true) or unlocked (false) users")
+            @RequestParam(required = false) Boolean locked,
+
+            @Parameter(description = "Opaque cursor from the previous page")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Page size (1-100)", example = "20")
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(userService.searchUsers(username, role, locked, cursor, size));
+    }
+
     @GetMapping("/{userId}")
     @Operation(summary = "Get User by ID", description = "Retrieve details of a specific user.")
     @ApiResponses(value = {
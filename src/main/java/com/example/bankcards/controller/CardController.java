@@ -1,10 +1,18 @@
 package com.example.bankcards.controller;
 
 
+import com.example.bankcards.dto.requests.BatchTransferRequestDto;
 import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.AsyncTransferResponseDto;
+import com.example.bankcards.dto.response.BatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.dto.response.CursorPageResponseDto;
 import com.example.bankcards.dto.response.PageResponseDto;
+import com.example.bankcards.dto.response.TransferHistoryItemDto;
+import com.example.bankcards.service.interfaces.AsyncTransferService;
 import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.service.interfaces.IdempotencyService;
+import com.example.bankcards.util.EntityTags;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -13,10 +21,15 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.net.URI;
 import java.util.List;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/cards")
@@ -26,11 +39,14 @@ import java.util.List;
 public class CardController {
 
     private final CardService cardService;
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferService asyncTransferService;
 
     @GetMapping
     @Operation(summary = "Get My Cards", description = "Retrieve a paged list of active cards belonging to the authenticated user. Supports optional search by partial card number.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "List of cards retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "None of the user's cards changed since the ETag sent in If-None-Match"),
             @ApiResponse(responseCode = "403", description = "Unauthorized access")
     })
     public ResponseEntity<PageResponseDto<CardResponseDto>> getMyCards(
@@ -40,10 +56,71 @@ public class CardController {
             @Parameter(description = "Page size", example = "10")
             @RequestParam(defaultValue = "10") int size,
 
-            @Parameter(description = "Partial card number to search for")
-            @RequestParam(required = false) String query
+            @Parameter(description = "Partial card number to search for: at least 4 consecutive digits by default, spaces and dashes are ignored")
+            @RequestParam(required = false) String query,
+
+            @Parameter(description = "ETag of the list the client already has")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
-        return ResponseEntity.ok(cardService.getMyCards(page, size, query));
+        String etag = cardService.getMyCardsTag();
+        if (EntityTags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(cardService.getMyCards(page, size, query));
+    }
+
+    @GetMapping(params = "cursor")
+    @Operation(summary = "Get My Cards by Cursor", description = "Retrieve the authenticated user's cards by ascending ID without counting them. "
+            + "Send an empty cursor for the first page, then the returned nextCursor. Supports the same search as the paged list.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "List of cards retrieved successfully"),
+            @ApiResponse(responseCode = "304", description = "None of the user's cards changed since the ETag sent in If-None-Match"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor, page size or search query"),
+            @ApiResponse(responseCode = "403", description = "Unauthorized access")
+    })
+    public ResponseEntity<CursorPageResponseDto<CardResponseDto>> getMyCardsByCursor(
+            @Parameter(description = "Opaque cursor from the previous page; empty for the first page")
+            @RequestParam String cursor,
+
+            @Parameter(description = "Page size (1-100)", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+
+            @Parameter(description = "Partial card number to search for: at least 4 consecutive digits by default, spaces and dashes are ignored")
+            @RequestParam(required = false) String query,
+
+            @Parameter(description = "Whether to return totalElements; without a query it may briefly lag cards created or deleted through another node")
+            @RequestParam(defaultValue = "false") boolean includeTotal,
+
+            @Parameter(description = "ETag of the list the client already has")
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
+    ) {
+        String etag = cardService.getMyCardsTag();
+        if (EntityTags.matches(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok().eTag(etag).body(cardService.getMyCards(cursor, size, query, includeTotal));
+    }
+
+    @GetMapping("/{cardId}/transfers")
+    @Operation(summary = "Get Card Transfers", description = "Retrieve the sent and received transfers of a card owned by the user, newest first. "
+            + "Pass the returned nextCursor to fetch the following page.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transfers retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Invalid cursor or page size"),
+            @ApiResponse(responseCode = "403", description = "You do not have permission to view this card"),
+            @ApiResponse(responseCode = "404", description = "Card not found")
+    })
+    public ResponseEntity<CursorPageResponseDto<TransferHistoryItemDto>> getCardTransfers(
+            @Parameter(description = "ID of the card")
+            @PathVariable Long cardId,
+
+            @Parameter(description = "Opaque cursor from the previous page")
+            @RequestParam(required = false) String cursor,
+
+            @Parameter(description = "Page size (1-100)", example = "20")
+            @RequestParam(defaultValue = "20") int size
+    ) {
+        return ResponseEntity.ok(cardService.getCardTransfers(cardId, cursor, size));
     }
 
     @PatchMapping("/{cardId}/block")
@@ -62,14 +139,67 @@ public class CardController {
     }
 
     @PostMapping("/transfer")
-    @Operation(summary = "Transfer Funds", description = "Transfer money between two cards owned by the user.")
+    @Operation(summary = "Transfer Funds", description = "Transfer money between two cards owned by the user. "
+            + "Send an Idempotency-Key header to make retries safe: a repeated key replays the first outcome.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Transfer successful"),
             @ApiResponse(responseCode = "400", description = "Invalid input or insufficient funds"),
-            @ApiResponse(responseCode = "404", description = "Card not found")
+            @ApiResponse(responseCode = "404", description = "Card not found"),
+            @ApiResponse(responseCode = "409", description = "A request with the same Idempotency-Key is still running"),
+            @ApiResponse(responseCode = "422", description = "Idempotency-Key was already used for a different transfer")
     })
-    public ResponseEntity<Void> transfer(@Valid @RequestBody TransferRequestDto request) {
-        cardService.transfer(request);
+    public ResponseEntity<Void> transfer(
+            @Parameter(description = "Client-generated key identifying this transfer across retries")
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+
+            @Valid @RequestBody TransferRequestDto request
+    ) {
+        if (StringUtils.hasText(idempotencyKey)) {
+            idempotencyService.transfer(idempotencyKey, request);
+        } else {
+            cardService.transfer(request);
+        }
         return ResponseEntity.ok().build();
     }
+
+    @PostMapping("/transfers/batch")
+    @Operation(summary = "Batch Transfer", description = "Execute up to 1000 transfers from the user's cards in one transaction. "
+            + "Each item succeeds or fails on its own; see the per-item results.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Batch processed"),
+            @ApiResponse(responseCode = "400", description = "Invalid input")
+    })
+    public ResponseEntity<BatchTransferResponseDto> transferBatch(@Valid @RequestBody BatchTransferRequestDto request) {
+        return ResponseEntity.ok(cardService.transferBatch(request));
+    }
+
+    @PostMapping("/transfers/async")
+    @Operation(summary = "Submit Transfer", description = "Accept a transfer from one of the user's cards and execute it in the background. "
+            + "Poll the returned Location until the status is SUCCEEDED or FAILED.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "202", description = "Transfer accepted as PENDING"),
+            @ApiResponse(responseCode = "400", description = "Invalid input"),
+            @ApiResponse(responseCode = "403", description = "Source card belongs to another user"),
+            @ApiResponse(responseCode = "404", description = "Source card not found"),
+            @ApiResponse(responseCode = "429", description = "Too many transfers are pending, retry later")
+    })
+    public ResponseEntity<AsyncTransferResponseDto> submitTransfer(@Valid @RequestBody TransferRequestDto request) {
+        AsyncTransferResponseDto transfer = asyncTransferService.submit(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/v1/cards/transfers/async/" + transfer.id()))
+                .body(transfer);
+    }
+
+    @GetMapping("/transfers/async/{transferId}")
+    @Operation(summary = "Get Transfer Status", description = "Retrieve a transfer submitted asynchronously by the user, with its result once it has run.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Transfer found"),
+            @ApiResponse(responseCode = "404", description = "Transfer not found")
+    })
+    public ResponseEntity<AsyncTransferResponseDto> getTransferStatus(
+            @Parameter(description = "ID returned when the transfer was submitted")
+            @PathVariable UUID transferId
+    ) {
+        return ResponseEntity.ok(asyncTransferService.getStatus(transferId));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.requests;
+
+import com.example.bankcards.util.Money;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+
+public record BalanceAdjustmentRequestDto(
+        @NotNull(message = "Amount is required")
+        Money amount, // Negative amounts are taken from the card
+
+        @NotBlank(message = "Reason is required")
+        @Size(max = 255, message = "Reason must not exceed 255 characters")
+        String reason
+) {}
@@ -0,0 +1,12 @@
+package com.example.bankcards.dto.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import java.util.List;
+
+public record BatchTransferRequestDto(
+        @NotEmpty(message = "At least one transfer is required")
+        @Size(max = 1000, message = "A batch may contain at most 1000 transfers")
+        List<@Valid TransferRequestDto> transfers
+) {}
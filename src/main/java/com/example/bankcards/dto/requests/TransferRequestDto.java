@@ -1,8 +1,12 @@
 package com.example.bankcards.dto.requests;
 
+import com.example.bankcards.util.Money;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 
 public record TransferRequestDto(
         @NotNull(message = "Source card ID is required")
@@ -13,5 +17,20 @@ public record TransferRequestDto(
 
         @NotNull(message = "Amount is required")
         @Positive(message = "Amount must be positive")
-        BigDecimal amount
-) {}
\ No newline at end of file
+        Money amount
+) {
+    /**
+     * SHA-256 of the normalized payload. Used to detect an Idempotency-Key that is
+     * replayed with a different transfer.
+     */
+    public String fingerprint() {
+        // Same canonical form as when amounts were BigDecimal, so stored fingerprints keep matching
+        String canonical = sourceCardId + ":" + targetCardId + ":" + amount.toBigDecimal().stripTrailingZeros().toPlainString();
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
\ No newline at end of file
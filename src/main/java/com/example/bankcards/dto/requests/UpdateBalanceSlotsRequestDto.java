@@ -0,0 +1,10 @@
+package com.example.bankcards.dto.requests;
+
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.PositiveOrZero;
+
+public record UpdateBalanceSlotsRequestDto(
+        @NotNull(message = "Slot count is required")
+        @PositiveOrZero(message = "Slot count cannot be negative")
+        Integer slots // 0 turns sharding off
+) {}
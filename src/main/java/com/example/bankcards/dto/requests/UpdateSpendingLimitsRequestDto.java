@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.requests;
+
+import com.example.bankcards.util.Money;
+import jakarta.validation.constraints.Positive;
+
+/**
+ * A {@code null} limit is unlimited for a tier and inherited from the owner's tier for a card.
+ */
+public record UpdateSpendingLimitsRequestDto(
+        @Positive(message = "Per-transaction limit must be positive")
+        Money perTransactionLimit,
+
+        @Positive(message = "Daily limit must be positive")
+        Money dailyLimit
+) {}
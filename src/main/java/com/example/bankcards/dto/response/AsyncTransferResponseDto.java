@@ -0,0 +1,38 @@
+package com.example.bankcards.dto.response;
+
+import com.example.bankcards.entity.AsyncTransfer;
+import com.example.bankcards.entity.enums.AsyncTransferStatus;
+import com.example.bankcards.util.Money;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * @param httpStatus Status the synchronous transfer endpoint would have answered; null while pending.
+ * @param message    Why the transfer failed; null unless it failed.
+ */
+public record AsyncTransferResponseDto(
+        UUID id,
+        AsyncTransferStatus status,
+        Long sourceCardId,
+        Long targetCardId,
+        Money amount,
+        Integer httpStatus,
+        String message,
+        LocalDateTime createdAt,
+        LocalDateTime completedAt
+) {
+    public static AsyncTransferResponseDto from(AsyncTransfer transfer) {
+        return new AsyncTransferResponseDto(
+                transfer.getId(),
+                transfer.getStatus(),
+                transfer.getSourceCardId(),
+                transfer.getTargetCardId(),
+                transfer.getAmount(),
+                transfer.getHttpStatus(),
+                transfer.getMessage(),
+                transfer.getCreatedAt(),
+                transfer.getCompletedAt()
+        );
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.bankcards.dto.response;
+
+import com.example.bankcards.entity.enums.TransferOutcome;
+
+import java.util.List;
+
+public record BatchTransferResponseDto(
+        int succeeded,
+        int failed,
+        List<Item> results
+) {
+    /**
+     * Result of one transfer of the batch, in request order.
+     */
+    public record Item(
+            int index,
+            TransferOutcome outcome,
+            int status,
+            String message
+    ) {
+        public static Item of(int index, TransferOutcome outcome) {
+            return new Item(index, outcome, outcome.getStatus().value(), outcome.getMessage());
+        }
+    }
+
+    public static BatchTransferResponseDto of(List<Item> results) {
+        int succeeded = (int) results.stream().filter(item -> item.outcome() == TransferOutcome.OK).count();
+        return new BatchTransferResponseDto(succeeded, results.size() - succeeded, results);
+    }
+}
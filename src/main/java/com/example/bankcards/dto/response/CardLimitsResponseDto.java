@@ -0,0 +1,14 @@
+package com.example.bankcards.dto.response;
+
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.util.Money;
+
+public record CardLimitsResponseDto(
+        Long cardId,
+        ClientTier ownerTier,
+        Money perTransactionLimit, // the card's own override, null: inherited from the tier
+        Money dailyLimit, // the card's own override, null: inherited from the tier
+        Money effectivePerTransactionLimit, // null: unlimited
+        Money effectiveDailyLimit, // null: unlimited
+        Money spentInWindow // as seen by the node that answered
+) {}
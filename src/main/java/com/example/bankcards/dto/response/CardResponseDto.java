@@ -2,14 +2,14 @@ package com.example.bankcards.dto.response;
 
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.Money;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 
 public record CardResponseDto(
    Long id,
    String maskCardNumber,
-   BigDecimal balance,
+   Money balance,
    CardStatus status,
    LocalDate validityDate
 ) {
@@ -19,11 +19,21 @@ public record CardResponseDto(
         }
         return "**** **** **** " + clearCardNumber.substring(clearCardNumber.length() - 4);
     }
+
+    /**
+     * For the projection queries of {@code CardRepository}. A card whose last four digits are not
+     * stored yet gets a {@code null} mask, to be filled in from the decrypted number.
+     */
+    public CardResponseDto(Long id, String cardLast4, Money balance, Money slotBalance, CardStatus status, LocalDate validityDate) {
+        this(id, cardLast4 == null ? null : "**** **** **** " + cardLast4,
+                slotBalance == null ? balance : balance.plus(slotBalance), status, validityDate);
+    }
+
     public static CardResponseDto from(Card card) {
         return new CardResponseDto(
                 card.getId(),
                 card.getMaskCardNumber(),
-                card.getBalance(),
+                card.getTotalBalance(),
                 card.getStatus(),
                 card.getValidityDate()
         );
@@ -0,0 +1,22 @@
+package com.example.bankcards.dto.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * A page of a keyset-paginated list.
+ *
+ * @param nextCursor    Pass as {@code cursor} to fetch the next page; {@code null} on the last page.
+ * @param totalElements Size of the whole list, only when the caller asked for it.
+ */
+public record CursorPageResponseDto<T>(
+        List<T> content,
+        int pageSize,
+        String nextCursor,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Long totalElements
+) {
+    public CursorPageResponseDto(List<T> content, int pageSize, String nextCursor) {
+        this(content, pageSize, nextCursor, null);
+    }
+}
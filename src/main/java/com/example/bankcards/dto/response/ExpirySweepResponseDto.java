@@ -0,0 +1,8 @@
+package com.example.bankcards.dto.response;
+
+public record ExpirySweepResponseDto(
+        int chunks,
+        long cardsExpired,
+        long durationMs,
+        double rowsPerSecond
+) {}
@@ -0,0 +1,7 @@
+package com.example.bankcards.dto.response;
+
+public record LedgerRebuildResponseDto(
+        int chunks,
+        long cardsCorrected,
+        long durationMs
+) {}
@@ -0,0 +1,13 @@
+package com.example.bankcards.dto.response;
+
+import java.time.LocalDateTime;
+
+public record ReencryptionStatusResponseDto(
+        boolean running,
+        int activeKeyId,
+        long cardsReencrypted,
+        long lastCardId,
+        LocalDateTime startedAt,
+        LocalDateTime finishedAt,
+        String error
+) {}
@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.response;
+
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.repository.SpendingLimitJdbcRepository;
+import com.example.bankcards.util.Money;
+
+public record TierLimitsResponseDto(
+        ClientTier tier,
+        Money perTransactionLimit, // null: unlimited
+        Money dailyLimit // null: unlimited
+) {
+    public static TierLimitsResponseDto from(ClientTier tier, SpendingLimitJdbcRepository.Limits limits) {
+        return new TierLimitsResponseDto(tier, limits.perTransaction(), limits.daily());
+    }
+}
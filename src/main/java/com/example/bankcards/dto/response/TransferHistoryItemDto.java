@@ -0,0 +1,15 @@
+package com.example.bankcards.dto.response;
+
+import com.example.bankcards.entity.enums.TransferDirection;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record TransferHistoryItemDto(
+        UUID transactionId,
+        TransferDirection direction,
+        Long counterpartyCardId,
+        BigDecimal amount,
+        LocalDateTime createdAt
+) {}
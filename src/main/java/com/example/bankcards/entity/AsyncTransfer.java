@@ -0,0 +1,55 @@
+package com.example.bankcards.entity;
+
+import com.example.bankcards.entity.enums.AsyncTransferStatus;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.MoneyAttributeConverter;
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * A transfer accepted by {@code POST /api/v1/cards/transfers/async} and its result once it has run.
+ */
+@Entity
+@Table(name = "async_transfers")
+@Getter
+@Setter
+@NoArgsConstructor
+public class AsyncTransfer {
+
+    @Id
+    private UUID id;
+
+    @Column(nullable = false, length = 50)
+    private String username;
+
+    @Column(name = "source_card_id", nullable = false)
+    private Long sourceCardId;
+
+    @Column(name = "target_card_id", nullable = false)
+    private Long targetCardId;
+
+    @Convert(converter = MoneyAttributeConverter.class)
+    @Column(nullable = false, precision = 19, scale = 2)
+    private Money amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private AsyncTransferStatus status;
+
+    @Column(name = "http_status")
+    private Integer httpStatus; // Status the synchronous endpoint would have answered, null while pending
+
+    @Column
+    private String message; // Error message of a failed transfer
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+}
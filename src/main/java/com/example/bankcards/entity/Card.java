@@ -1,16 +1,27 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.config.SecondLevelCacheConfig;
 import com.example.bankcards.entity.enums.CardStatus;
 import com.example.bankcards.security.CardNumberAttributeConverter;
+import com.example.bankcards.security.EncryptedCardNumber;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.MoneyAttributeConverter;
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
-import java.math.BigDecimal;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.Immutable;
+
 import java.time.LocalDate;
 
 @Entity
 @Table(name = "cards")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CARD_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -20,12 +31,36 @@ public class Card {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Decrypted only when getCardNumber() is called
     @Convert(converter = CardNumberAttributeConverter.class)
-    @Column(name = "card_number", nullable = false, length = 512)
-    private String cardNumber;
+    @Column(name = "card_number", nullable = false)
+    @Immutable
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private EncryptedCardNumber cardNumber;
+
+    // Plaintext, so masked numbers need no decryption; NULL until the startup backfill reaches an older card
+    @Column(name = "card_last4", length = 4)
+    @Setter(AccessLevel.NONE)
+    private String cardLast4;
 
+    @Convert(converter = MoneyAttributeConverter.class)
     @Column(nullable = false, precision = 19, scale = 2)
-    private BigDecimal balance = BigDecimal.ZERO;
+    private Money balance = Money.ZERO;
+
+    @Version
+    @Column(nullable = false)
+    private long version; // Also bumped by every SQL update of the row
+
+    @Column(name = "balance_slots", nullable = false)
+    private int balanceSlots; // 0 = not sharded, see card_balance_slots
+
+    // Sum of the sub-balance slots, only queried for sharded cards
+    @Formula("(CASE WHEN balance_slots = 0 THEN 0 " +
+            "ELSE (SELECT COALESCE(SUM(s.balance), 0) FROM card_balance_slots s WHERE s.card_id = id) END)")
+    @Convert(converter = MoneyAttributeConverter.class)
+    @Setter(AccessLevel.NONE)
+    private Money slotBalance;
 
     @Enumerated(EnumType.STRING)
     @Column(nullable = false, length = 20)
@@ -40,10 +75,31 @@ public class Card {
     @JoinColumn(name = "owner_id", nullable = false)
     private Client owner; //
 
+    /**
+     * @return The spendable balance: the card row plus, for a sharded card, all of its slots.
+     */
+    public Money getTotalBalance() {
+        return slotBalance == null ? balance : balance.plus(slotBalance);
+    }
+
+    /**
+     * @return The full card number, decrypted through the card-number cache.
+     */
+    public String getCardNumber() {
+        return cardNumber == null ? null : cardNumber.reveal();
+    }
+
+    public void setCardNumber(String number) {
+        this.cardNumber = number == null ? null : EncryptedCardNumber.of(number);
+        this.cardLast4 = number == null || number.length() < 4 ? null : number.substring(number.length() - 4);
+    }
+
     public String getMaskCardNumber() {
-        if (cardNumber == null || cardNumber.length() < 4) {
-            return "****";
+        String last4 = cardLast4;
+        if (last4 == null) {
+            String number = getCardNumber();
+            last4 = number == null || number.length() < 4 ? null : number.substring(number.length() - 4);
         }
-        return "**** **** **** " + cardNumber.substring(cardNumber.length() - 4);
+        return last4 == null ? "****" : "**** **** **** " + last4;
     }
 }
\ No newline at end of file
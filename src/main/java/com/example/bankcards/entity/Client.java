@@ -1,10 +1,16 @@
 package com.example.bankcards.entity;
 
+import com.example.bankcards.config.SecondLevelCacheConfig;
+import com.example.bankcards.entity.enums.ClientTier;
 import com.example.bankcards.entity.enums.Role;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
@@ -15,6 +21,9 @@ import java.util.List;
 
 @Entity
 @Table(name = "clients")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = SecondLevelCacheConfig.CLIENT_REGION)
+@NaturalIdCache(region = SecondLevelCacheConfig.CLIENT_BY_USERNAME_REGION)
 @Getter
 @Setter
 @NoArgsConstructor
@@ -24,6 +33,7 @@ public class Client implements UserDetails { //
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    @NaturalId
     @Column(nullable = false, unique = true, length = 50)
     private String username;
 
@@ -37,6 +47,14 @@ public class Client implements UserDetails { //
     @Column(nullable = false, length = 32)
     private Role role; //
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 32)
+    private ClientTier tier = ClientTier.STANDARD;
+
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @OneToMany(mappedBy = "owner", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<Card> cards = new ArrayList<>(); //
 
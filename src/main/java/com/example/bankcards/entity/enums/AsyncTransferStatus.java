@@ -0,0 +1,10 @@
+package com.example.bankcards.entity.enums;
+
+/**
+ * Lifecycle of a transfer submitted through the asynchronous endpoint.
+ */
+public enum AsyncTransferStatus {
+    PENDING,   // Accepted, queued or running
+    SUCCEEDED, // Money was moved
+    FAILED     // Rejected or aborted; nothing was moved
+}
@@ -0,0 +1,9 @@
+package com.example.bankcards.entity.enums;
+
+/**
+ * Selects the default spending limits of a client's cards ({@code tier_limits}).
+ */
+public enum ClientTier {
+    STANDARD,
+    PREMIUM
+}
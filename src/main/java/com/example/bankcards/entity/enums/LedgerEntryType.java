@@ -0,0 +1,11 @@
+package com.example.bankcards.entity.enums;
+
+/**
+ * Why a pair of ledger entries was written.
+ */
+public enum LedgerEntryType {
+    TRANSFER,
+    INITIAL_BALANCE,
+    ADJUSTMENT,
+    OPENING_BALANCE // Balance that existed before the ledger was introduced
+}
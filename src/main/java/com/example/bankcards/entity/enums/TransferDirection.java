@@ -0,0 +1,9 @@
+package com.example.bankcards.entity.enums;
+
+/**
+ * Side of a transfer as seen from one card's history.
+ */
+public enum TransferDirection {
+    OUT, // The card was debited
+    IN   // The card was credited
+}
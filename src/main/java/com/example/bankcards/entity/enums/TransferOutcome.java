@@ -0,0 +1,51 @@
+package com.example.bankcards.entity.enums;
+
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.RestException;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Verdict of a single transfer, as reported by the single-statement transfer in {@code CardRepository}
+ * and per item of a batch. The constant names are the literal strings produced by the SQL, so keep them in sync;
+ * the limit verdicts come from {@code SpendingLimiter} and never from the SQL.
+ */
+public enum TransferOutcome {
+    OK(HttpStatus.OK, null),
+    SOURCE_NOT_FOUND(HttpStatus.NOT_FOUND, "Source card not found"),
+    NOT_OWNER(HttpStatus.FORBIDDEN, "You can only transfer funds from your own cards"),
+    SOURCE_INACTIVE(HttpStatus.BAD_REQUEST, "Source card is not active"),
+    TARGET_NOT_FOUND(HttpStatus.NOT_FOUND, "Target card not found"),
+    TARGET_INACTIVE(HttpStatus.BAD_REQUEST, "Target card is not active"),
+    INSUFFICIENT_FUNDS(HttpStatus.BAD_REQUEST, "Insufficient funds"),
+    PER_TRANSACTION_LIMIT_EXCEEDED(HttpStatus.BAD_REQUEST, "Amount exceeds the per-transaction limit of the card"),
+    DAILY_LIMIT_EXCEEDED(HttpStatus.BAD_REQUEST, "Amount exceeds the daily limit of the card");
+
+    private final HttpStatus status;
+    private final String message;
+
+    TransferOutcome(HttpStatus status, String message) {
+        this.status = status;
+        this.message = message;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * @return The exception the entity-based transfer path throws for the same failure.
+     */
+    public RestException toException() {
+        return switch (this) {
+            case OK -> throw new IllegalStateException("Transfer succeeded");
+            case SOURCE_NOT_FOUND, TARGET_NOT_FOUND -> new CardNotFoundException(message);
+            case INSUFFICIENT_FUNDS -> new InsufficientFundsException(message);
+            default -> new RestException(message, status);
+        };
+    }
+}
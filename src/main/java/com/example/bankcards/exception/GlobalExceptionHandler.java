@@ -1,12 +1,16 @@
 package com.example.bankcards.exception;
 
 import com.example.bankcards.dto.response.ErrorResponseDto;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 import java.time.LocalDateTime;
 import java.util.stream.Collectors;
 
@@ -19,6 +23,12 @@ public class GlobalExceptionHandler {
         return buildResponse(ex.getStatus(), ex.getMessage());
     }
 
+    // Lost optimistic version check outside the retried card writes (e.g. two admins updating one user)
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ResponseEntity<ErrorResponseDto> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        return buildResponse(HttpStatus.CONFLICT, "The resource was modified concurrently, please retry");
+    }
+
     // Handle Validation Errors (e.g., @NotBlank, @Positive)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ErrorResponseDto> handleValidationExceptions(MethodArgumentNotValidException ex) {
@@ -30,6 +40,22 @@ public class GlobalExceptionHandler {
         return buildResponse(HttpStatus.BAD_REQUEST, errorMessage);
     }
 
+    // Path or query parameter that does not convert (e.g. an unknown tier in /admin/limits/tiers/{tier})
+    @ExceptionHandler(MethodArgumentTypeMismatchException.class)
+    public ResponseEntity<ErrorResponseDto> handleTypeMismatch(MethodArgumentTypeMismatchException ex) {
+        return buildResponse(HttpStatus.BAD_REQUEST, "Invalid value '" + ex.getValue() + "' for parameter " + ex.getName());
+    }
+
+    // Request body that does not parse (e.g. an amount with more than two decimals)
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorResponseDto> handleNotReadable(HttpMessageNotReadableException ex) {
+        if (ex.getCause() instanceof InvalidFormatException invalid && !invalid.getPath().isEmpty()) {
+            return buildResponse(HttpStatus.BAD_REQUEST,
+                    invalid.getPath().getLast().getFieldName() + ": " + invalid.getOriginalMessage());
+        }
+        return buildResponse(HttpStatus.BAD_REQUEST, "Malformed request body");
+    }
+
     // Fallback for unexpected errors
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponseDto> handleGlobalException(Exception ex) {
@@ -18,4 +18,12 @@ public class RestException extends RuntimeException {
     public HttpStatus getStatus() {
         return status;
     }
+
+    /**
+     * Whether the same request may succeed when retried: the server was unavailable (5xx), a concurrent
+     * change won (409) or the request was throttled (429). Any other status rejects the request itself.
+     */
+    public boolean isTransient() {
+        return status.is5xxServerError() || status == HttpStatus.CONFLICT || status == HttpStatus.TOO_MANY_REQUESTS;
+    }
 }
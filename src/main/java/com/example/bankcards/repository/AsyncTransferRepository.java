@@ -0,0 +1,44 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.AsyncTransfer;
+import com.example.bankcards.entity.enums.AsyncTransferStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AsyncTransferRepository extends JpaRepository<AsyncTransfer, UUID> {
+
+    Optional<AsyncTransfer> findByIdAndUsername(UUID id, String username);
+
+    List<AsyncTransfer> findAllByStatusOrderByCreatedAt(AsyncTransferStatus status);
+
+    /**
+     * Stores the result of a transfer, unless it was already completed.
+     */
+    @Transactional
+    @Modifying
+    @Query("""
+            update AsyncTransfer t
+            set t.status = :status, t.httpStatus = :httpStatus, t.message = :message, t.completedAt = :completedAt
+            where t.id = :id and t.status = com.example.bankcards.entity.enums.AsyncTransferStatus.PENDING
+            """)
+    int complete(@Param("id") UUID id,
+                 @Param("status") AsyncTransferStatus status,
+                 @Param("httpStatus") int httpStatus,
+                 @Param("message") String message,
+                 @Param("completedAt") LocalDateTime completedAt);
+
+    @Transactional
+    @Modifying
+    @Query("delete from AsyncTransfer t where t.completedAt < :threshold")
+    int deleteCompletedBefore(@Param("threshold") LocalDateTime threshold);
+}
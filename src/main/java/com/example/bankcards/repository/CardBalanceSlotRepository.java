@@ -0,0 +1,164 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.util.CardCacheEvictor;
+import com.example.bankcards.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sub-balance slots of hot cards ({@code card_balance_slots}).
+ * <p>
+ * A sharded card keeps part of its money in N slot rows next to {@code cards.balance}; its balance
+ * is the sum of both. Credits update a single slot row and never touch the card row, so concurrent
+ * credits to the same card only collide when they pick the same slot, and never lock the card row.
+ * Debits and resizing require the card row to be locked {@code FOR UPDATE} by the caller.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardBalanceSlotRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CardCacheEvictor cardCacheEvictor;
+
+    /**
+     * @return Slot count by card ID, for every sharded card.
+     */
+    public Map<Long, Integer> findSlotCounts() {
+        Map<Long, Integer> slotCounts = new HashMap<>();
+        jdbcTemplate.query("SELECT id, balance_slots FROM cards WHERE balance_slots > 0",
+                rs -> {
+                    slotCounts.put(rs.getLong("id"), rs.getInt("balance_slots"));
+                });
+        return slotCounts;
+    }
+
+    /**
+     * Reads the slots of the given cards. Call it after locking the cards {@code FOR UPDATE}, in a new
+     * statement, so the debits committed while waiting for the lock are seen.
+     *
+     * @return Slot count and total by card ID, for the cards that are sharded.
+     */
+    public Map<Long, SlotTotal> findSlotTotals(Collection<Long> cardIds) {
+        Map<Long, SlotTotal> totals = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT card_id, COUNT(*) AS slots, SUM(balance) AS balance
+                        FROM card_balance_slots
+                        WHERE card_id IN (:ids)
+                        GROUP BY card_id
+                        """,
+                new MapSqlParameterSource("ids", cardIds),
+                rs -> {
+                    totals.put(rs.getLong("card_id"), new SlotTotal(rs.getInt("slots"), Money.of(rs.getBigDecimal("balance"))));
+                });
+        return totals;
+    }
+
+    /**
+     * Credits one slot, without locking the card row.
+     *
+     * @return {@code false} if the slot does not exist (the card was resized meanwhile), in which case
+     *         the caller credits the card row instead.
+     */
+    public boolean deposit(long cardId, int slot, Money amount) {
+        int updated = jdbcTemplate.update("""
+                        UPDATE card_balance_slots
+                        SET balance = balance + :amount
+                        WHERE card_id = :cardId AND slot = :slot
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("cardId", cardId)
+                        .addValue("slot", slot)
+                        .addValue("amount", amount.toBigDecimal()));
+        // The cached card carries the slot total as a formula
+        cardCacheEvictor.evict(cardId);
+        return updated == 1;
+    }
+
+    /**
+     * Debits up to {@code amount} from the slots of a card: the preferred slot first, then a sweep
+     * over the others in slot order. The card row must already be locked {@code FOR UPDATE}.
+     *
+     * @return The part of {@code amount} the slots could not cover, to be taken from {@code cards.balance}.
+     */
+    public Money withdraw(long cardId, int preferredSlot, Money amount) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cardId", cardId)
+                .addValue("preferredSlot", preferredSlot);
+
+        List<MapSqlParameterSource> takes = new ArrayList<>();
+        Money[] remaining = {amount};
+        jdbcTemplate.query("""
+                        SELECT slot, balance
+                        FROM card_balance_slots
+                        WHERE card_id = :cardId AND balance > 0
+                        ORDER BY slot = :preferredSlot DESC, slot
+                        FOR UPDATE
+                        """,
+                params, rs -> {
+                    if (remaining[0].signum() > 0) {
+                        Money take = remaining[0].min(Money.of(rs.getBigDecimal("balance")));
+                        remaining[0] = remaining[0].minus(take);
+                        takes.add(new MapSqlParameterSource()
+                                .addValue("cardId", cardId)
+                                .addValue("slot", rs.getInt("slot"))
+                                .addValue("take", take.toBigDecimal()));
+                    }
+                });
+
+        if (!takes.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                            UPDATE card_balance_slots
+                            SET balance = balance - :take
+                            WHERE card_id = :cardId AND slot = :slot
+                            """,
+                    takes.toArray(MapSqlParameterSource[]::new));
+            cardCacheEvictor.evict(cardId);
+        }
+        return remaining[0];
+    }
+
+    /**
+     * Folds every slot back into {@code cards.balance} and recreates {@code slots} empty slots.
+     * The card row must already be locked {@code FOR UPDATE}; zero slots turns sharding off.
+     * <p>
+     * The slot rows are locked before they are summed, which waits for the credits in flight; a
+     * credit arriving later finds its slot deleted and falls back to the card row.
+     */
+    public void resize(long cardId, int slots) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cardId", cardId)
+                .addValue("slots", slots);
+
+        jdbcTemplate.query("SELECT slot FROM card_balance_slots WHERE card_id = :cardId FOR UPDATE",
+                params, rs -> {
+                });
+
+        jdbcTemplate.update("""
+                        UPDATE cards
+                        SET balance = balance + (SELECT COALESCE(SUM(s.balance), 0)
+                                                 FROM card_balance_slots s
+                                                 WHERE s.card_id = :cardId),
+                            balance_slots = :slots,
+                            version = version + 1
+                        WHERE id = :cardId
+                        """,
+                params);
+        jdbcTemplate.update("DELETE FROM card_balance_slots WHERE card_id = :cardId", params);
+        jdbcTemplate.update("""
+                        INSERT INTO card_balance_slots (card_id, slot)
+                        SELECT :cardId, generate_series(0, :slots - 1)
+                        """,
+                params);
+        cardCacheEvictor.evict(cardId);
+    }
+
+    public record SlotTotal(int slots, Money balance) {}
+}
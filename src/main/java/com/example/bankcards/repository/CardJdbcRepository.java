@@ -0,0 +1,302 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.util.CardCacheEvictor;
+import com.example.bankcards.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Set-based card access for bulk operations, where hydrating {@code Card} entities
+ * (and decrypting every card number) would cost more than the work itself.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CardCacheEvictor cardCacheEvictor;
+
+    /**
+     * Resolves the owner of each given card in one {@code IN} query.
+     *
+     * @param cardIds The cards to look up.
+     * @return Owner by card ID. Cards that do not exist are absent.
+     */
+    public Map<Long, CardOwner> findOwners(Collection<Long> cardIds) {
+        Map<Long, CardOwner> owners = new HashMap<>();
+        jdbcTemplate.query("""
+                        SELECT c.id, o.username, o.tier
+                        FROM cards c
+                        JOIN clients o ON o.id = c.owner_id
+                        WHERE c.id IN (:ids)
+                        """,
+                new MapSqlParameterSource("ids", cardIds),
+                rs -> {
+                    owners.put(rs.getLong("id"),
+                            new CardOwner(rs.getString("username"), ClientTier.valueOf(rs.getString("tier"))));
+                });
+        return owners;
+    }
+
+    /**
+     * Locks the given cards with {@code SELECT ... FOR UPDATE} in ascending id order
+     * and returns their balance and status.
+     *
+     * @param cardIds The cards to lock.
+     * @return The locked cards by ID, in id order. Cards that do not exist are absent.
+     */
+    public Map<Long, CardBalance> lockBalances(Collection<Long> cardIds) {
+        Map<Long, CardBalance> cards = new LinkedHashMap<>();
+        jdbcTemplate.query("""
+                        SELECT id, balance, status
+                        FROM cards
+                        WHERE id IN (:ids)
+                        ORDER BY id
+                        FOR UPDATE
+                        """,
+                new MapSqlParameterSource("ids", cardIds),
+                rs -> {
+                    cards.put(rs.getLong("id"), cardBalance(rs));
+                });
+        return cards;
+    }
+
+    /**
+     * Reads the balance and status of the given cards without locking them. Used for sharded
+     * targets, which are credited through a balance slot and never through their row.
+     *
+     * @param cardIds The cards to read.
+     * @return The cards by ID. Cards that do not exist are absent.
+     */
+    public Map<Long, CardBalance> findBalances(Collection<Long> cardIds) {
+        Map<Long, CardBalance> cards = new HashMap<>();
+        jdbcTemplate.query("SELECT id, balance, status FROM cards WHERE id IN (:ids)",
+                new MapSqlParameterSource("ids", cardIds),
+                rs -> {
+                    cards.put(rs.getLong("id"), cardBalance(rs));
+                });
+        return cards;
+    }
+
+    private static CardBalance cardBalance(ResultSet rs) throws SQLException {
+        return new CardBalance(
+                rs.getLong("id"),
+                Money.of(rs.getBigDecimal("balance")),
+                CardStatus.valueOf(rs.getString("status")));
+    }
+
+    /**
+     * Writes new balances as one JDBC batch.
+     *
+     * @param balances New balance by card ID.
+     */
+    public void updateBalances(Map<Long, Money> balances) {
+        List<MapSqlParameterSource> batch = balances.entrySet().stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("id", e.getKey())
+                        .addValue("balance", e.getValue().toBigDecimal()))
+                .toList();
+        jdbcTemplate.batchUpdate("UPDATE cards SET balance = :balance, version = version + 1 WHERE id = :id",
+                batch.toArray(MapSqlParameterSource[]::new));
+        cardCacheEvictor.evict(balances.keySet());
+    }
+
+    /**
+     * Credits a card row directly, without loading it.
+     */
+    public void creditBalance(long cardId, Money amount) {
+        jdbcTemplate.update("UPDATE cards SET balance = balance + :amount, version = version + 1 WHERE id = :id",
+                new MapSqlParameterSource()
+                        .addValue("id", cardId)
+                        .addValue("amount", amount.toBigDecimal()));
+        cardCacheEvictor.evict(cardId);
+    }
+
+    /**
+     * Expires up to {@code limit} active cards whose validity date has passed. Cards locked by a
+     * running transfer are skipped rather than waited for; the next chunk or sweep picks them up.
+     *
+     * @return Ids of the expired cards.
+     */
+    public List<Long> expireDueCards(int limit) {
+        List<Long> expired = jdbcTemplate.queryForList("""
+                        WITH due AS (
+                            SELECT id FROM cards
+                            WHERE status = 'ACTIVE' AND validity_date < CURRENT_DATE
+                            LIMIT :limit
+                            FOR UPDATE SKIP LOCKED
+                        )
+                        UPDATE cards c SET status = 'EXPIRED', version = c.version + 1
+                        FROM due
+                        WHERE c.id = due.id
+                        RETURNING c.id
+                        """,
+                new MapSqlParameterSource("limit", limit), Long.class);
+        cardCacheEvictor.evict(expired);
+        return expired;
+    }
+
+    /**
+     * @return Up to {@code limit} cards above {@code afterId} whose {@code card_last4} is not filled
+     * in yet, with their encrypted number, ascending.
+     */
+    public List<StoredNumber> findNumbersWithoutLast4(long afterId, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT id, card_number FROM cards
+                        WHERE card_last4 IS NULL AND id > :afterId
+                        ORDER BY id
+                        LIMIT :limit
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new StoredNumber(rs.getLong("id"), rs.getBytes("card_number")));
+    }
+
+    /**
+     * Fills in {@code card_last4} where it is still missing. The version is bumped so that an entity
+     * loaded before, which would write the column back as {@code NULL}, fails its version check instead.
+     */
+    public void updateLast4(Map<Long, String> last4ByCardId) {
+        List<MapSqlParameterSource> batch = new ArrayList<>();
+        last4ByCardId.forEach((id, last4) -> batch.add(new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("last4", last4)));
+        jdbcTemplate.batchUpdate("""
+                        UPDATE cards SET card_last4 = :last4, version = version + 1
+                        WHERE id = :id AND card_last4 IS NULL
+                        """,
+                batch.toArray(MapSqlParameterSource[]::new));
+        cardCacheEvictor.evict(last4ByCardId.keySet());
+    }
+
+    /**
+     * Claims up to {@code limit} cards above {@code afterId} whose number is not encrypted with
+     * {@code keyId}, ascending. Cards locked by a running transfer are skipped, not waited for.
+     */
+    public List<StoredNumber> lockNumbersNotEncryptedWith(int keyId, long afterId, int limit) {
+        return jdbcTemplate.query("""
+                        SELECT id, card_number FROM cards
+                        WHERE id > :afterId AND get_byte(card_number, 0) <> :keyId
+                        ORDER BY id
+                        LIMIT :limit
+                        FOR UPDATE SKIP LOCKED
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("keyId", keyId)
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                (rs, rowNum) -> new StoredNumber(rs.getLong("id"), rs.getBytes("card_number")));
+    }
+
+    public boolean existsNumberNotEncryptedWith(int keyId) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM cards WHERE get_byte(card_number, 0) <> :keyId)",
+                new MapSqlParameterSource("keyId", keyId), Boolean.class));
+    }
+
+    /**
+     * Replaces the encrypted numbers of the given cards. The version is bumped so that an entity
+     * loaded before, which would write its old ciphertext back, fails its version check instead.
+     */
+    public void updateNumbers(List<StoredNumber> numbers) {
+        jdbcTemplate.batchUpdate("UPDATE cards SET card_number = :number, version = version + 1 WHERE id = :id",
+                numbers.stream()
+                        .map(number -> new MapSqlParameterSource()
+                                .addValue("id", number.id())
+                                .addValue("number", number.ciphertext()))
+                        .toArray(MapSqlParameterSource[]::new));
+        cardCacheEvictor.evict(numbers.stream().map(StoredNumber::id).toList());
+    }
+
+    /**
+     * Reads what the entity tag of a card is derived from, by primary key and without loading the card.
+     *
+     * @return Empty if the card does not exist.
+     */
+    public Optional<CardVersion> findVersion(long cardId) {
+        return jdbcTemplate.query("""
+                        SELECT c.version, c.balance_slots,
+                               CASE WHEN c.balance_slots = 0 THEN 0
+                                    ELSE (SELECT COALESCE(SUM(s.balance), 0) FROM card_balance_slots s WHERE s.card_id = c.id)
+                               END AS slot_balance
+                        FROM cards c
+                        WHERE c.id = :id
+                        """,
+                new MapSqlParameterSource("id", cardId),
+                (rs, rowNum) -> new CardVersion(rs.getLong("version"), rs.getInt("balance_slots"),
+                        Money.of(rs.getBigDecimal("slot_balance"))))
+                .stream().findFirst();
+    }
+
+    /**
+     * Hashes the id and version of every card of an owner, plus the slot total of sharded cards, into
+     * one value that changes whenever any of the cards is created, changed or deleted, and counts the
+     * cards in the same pass. Uses the owner index; the versions themselves are read from the rows, as
+     * indexing them would turn every balance update into an index update.
+     *
+     * @return The aggregate version, empty if there is no such owner.
+     */
+    public Optional<OwnerCardsVersion> findOwnerCardsVersion(String username) {
+        return jdbcTemplate.query("""
+                        SELECT o.id AS owner_id, COUNT(c.id) AS cards,
+                               md5(COALESCE(string_agg(c.id || '.' || c.version || CASE WHEN c.balance_slots = 0 THEN ''
+                                    ELSE '.' || (SELECT COALESCE(SUM(s.balance), 0) FROM card_balance_slots s WHERE s.card_id = c.id)
+                               END, ',' ORDER BY c.id), '')) AS hash
+                        FROM clients o
+                        LEFT JOIN cards c ON c.owner_id = o.id
+                        WHERE o.username = :username
+                        GROUP BY o.id
+                        """,
+                new MapSqlParameterSource("username", username),
+                (rs, rowNum) -> new OwnerCardsVersion(rs.getLong("owner_id"), rs.getLong("cards"), rs.getString("hash")))
+                .stream().findFirst();
+    }
+
+    public record CardOwner(String username, ClientTier tier) {}
+
+    public record CardBalance(long id, Money balance, CardStatus status) {}
+
+    public record StoredNumber(long id, byte[] ciphertext) {}
+
+    /**
+     * @param cards Number of the owner's cards, read together with the hash.
+     */
+    public record OwnerCardsVersion(long ownerId, long cards, String hash) {
+
+        /**
+         * @return The entity tag of the owner's card list: the card count, then the hash over the cards.
+         */
+        public String tag() {
+            return cards + "-" + hash;
+        }
+    }
+
+    /**
+     * @param slotBalance Total of the balance slots, zero for a card that is not sharded.
+     */
+    public record CardVersion(long version, int balanceSlots, Money slotBalance) {
+
+        /**
+         * @return The card's entity tag: its row version, and for a sharded card the slot total, which
+         *         changes without the row.
+         */
+        public String tag() {
+            return balanceSlots == 0 ? "v" + version : "v" + version + "s" + slotBalance.minorUnits();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The blind index of card numbers ({@code card_number_tokens}), see
+ * {@link com.example.bankcards.security.CardNumberBlindIndex}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardNumberTokenJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Stores the tokens of the given cards; tokens already present are left as they are.
+     */
+    public void insert(Collection<CardTokens> cards) {
+        List<MapSqlParameterSource> batch = new ArrayList<>();
+        for (CardTokens card : cards) {
+            for (long token : card.tokens()) {
+                batch.add(new MapSqlParameterSource()
+                        .addValue("ownerId", card.ownerId())
+                        .addValue("token", token)
+                        .addValue("cardId", card.cardId()));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO card_number_tokens (owner_id, token, card_id)
+                        VALUES (:ownerId, :token, :cardId)
+                        ON CONFLICT DO NOTHING
+                        """,
+                batch.toArray(MapSqlParameterSource[]::new));
+    }
+
+    /**
+     * @param tokens Distinct tokens, at least one.
+     * @return The owner's cards that have every one of the tokens, by ascending ID.
+     */
+    public List<Long> findCardIdsWithAllTokens(long ownerId, long[] tokens) {
+        return jdbcTemplate.queryForList("""
+                        SELECT card_id
+                        FROM card_number_tokens
+                        WHERE owner_id = :ownerId AND token IN (:tokens)
+                        GROUP BY card_id
+                        HAVING COUNT(*) = :tokenCount
+                        ORDER BY card_id
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("ownerId", ownerId)
+                        .addValue("tokens", Arrays.stream(tokens).boxed().toList())
+                        .addValue("tokenCount", tokens.length),
+                Long.class);
+    }
+
+    /**
+     * @return Up to {@code limit} IDs above {@code afterId} of cards without any token, ascending.
+     */
+    public List<Long> findUnindexedCardIds(long afterId, int limit) {
+        return jdbcTemplate.queryForList("""
+                        SELECT c.id
+                        FROM cards c
+                        WHERE c.id > :afterId
+                          AND NOT EXISTS (SELECT 1 FROM card_number_tokens t WHERE t.card_id = c.id)
+                        ORDER BY c.id
+                        LIMIT :limit
+                        """,
+                new MapSqlParameterSource()
+                        .addValue("afterId", afterId)
+                        .addValue("limit", limit),
+                Long.class);
+    }
+
+    public record CardTokens(long cardId, long ownerId, long[] tokens) {}
+}
@@ -1,18 +1,38 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.response.CardResponseDto;
 import com.example.bankcards.entity.Card;
-import org.springframework.data.domain.Page;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.UUID;
 
 @Repository
 public interface CardRepository extends JpaRepository<Card, Long> {
 
+    /**
+     * Selects the response of a card straight from its columns: the stored last four digits instead
+     * of the encrypted number, no entity, nothing in the persistence context.
+     */
+    String CARD_RESPONSE = "new com.example.bankcards.dto.response.CardResponseDto("
+            + "c.id, c.cardLast4, c.balance, c.slotBalance, c.status, c.validityDate)";
+
+    /**
+     * Verdict of {@link #transferAtomically} for a sharded source that needs its balance slots.
+     */
+    String SHARDED_SOURCE = "SHARDED_SOURCE";
+
     // --- Existing Methods ---
 
     // Find all cards by Owner (using the owner's ID)
@@ -24,29 +44,133 @@ public interface CardRepository extends JpaRepository<Card, Long> {
     // --- Step 1: Pagination & Search Updates ---
 
     /**
-     * Retrieve a paged list of cards for a specific owner.
+     * Retrieve one page of a specific owner's cards by ID, without counting them.
      *
      * @param ownerId  The ID of the card owner.
-     * @param pageable Pagination information (page number, size, sort).
-     * @return A page of cards.
+     * @param pageable Page number and size.
+     * @return The cards of the page.
      */
-    Page<Card> findAllByOwnerId(Long ownerId, Pageable pageable);
+    @Query("select " + CARD_RESPONSE + " from Card c where c.owner.id = :ownerId order by c.id")
+    List<CardResponseDto> findResponsesByOwnerId(@Param("ownerId") Long ownerId, Pageable pageable);
 
     /**
-     * Search for cards by owner and a partial card number fragment.
+     * Keyset page of a specific owner's cards: seeks on {@code (owner_id, id)} in its index instead of
+     * skipping the rows of the previous pages.
+     *
+     * @param ownerId The ID of the card owner.
+     * @param afterId ID of the last card of the previous page, or 0 for the first page.
+     * @param limit   Maximum number of cards.
+     * @return The following cards, ordered by ID.
+     */
+    @Query("select " + CARD_RESPONSE + " from Card c where c.owner.id = :ownerId and c.id > :afterId order by c.id")
+    List<CardResponseDto> findResponsesByOwnerIdAfter(@Param("ownerId") Long ownerId, @Param("afterId") Long afterId, Limit limit);
+
+    @Query("select " + CARD_RESPONSE + " from Card c where c.id = :id")
+    Optional<CardResponseDto> findResponseById(@Param("id") Long id);
+
+    @Query("select " + CARD_RESPONSE + " from Card c order by c.id")
+    List<CardResponseDto> findAllResponses();
+
+    long countByOwnerId(Long ownerId);
+
+    /**
+     * Loads the given cards with {@code SELECT ... FOR UPDATE}.
+     * <p>
+     * PostgreSQL locks rows after sorting, so the locks are acquired in ascending id order
+     * and two transactions locking overlapping card sets cannot deadlock each other.
+     *
+     * @param ids The card IDs to lock.
+     * @return The locked cards, ordered by ID. Missing IDs are simply absent.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from Card c where c.id in :ids order by c.id")
+    List<Card> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Executes a whole transfer in one round trip.
+     * <p>
+     * Both rows are locked in ascending id order, then ownership, both statuses and the
+     * {@code balance >= amount} guard are evaluated into a single verdict. The debit and the
+     * credit are one {@code UPDATE} that only runs when the verdict is {@code OK}, together with
+     * the insert of the matching debit and credit ledger entries and the history rows of both cards.
+     * A transfer onto the same card is accepted and leaves the balance untouched.
      * <p>
-     * Note: Since the 'cardNumber' column is encrypted with a random IV (AES-GCM),
-     * a standard database 'LIKE' query cannot effectively match plaintext fragments
-     * against the stored ciphertext. This method is defined to meet the interface
-     * requirements but would require deterministic encryption or a hash column
-     * to function as expected in a production environment.
+     * The statement does not touch balance slots: a sharded source whose row alone does not cover
+     * the amount is reported as {@link #SHARDED_SOURCE} without any change, for the caller to pay
+     * from the slots as well. A sharded target would be locked and credited on its row, so callers
+     * send transfers to sharded targets through the slot path instead.
      *
-     * @param ownerId    The ID of the card owner.
-     * @param cardNumber The partial card number to search for.
-     * @param pageable   Pagination information.
-     * @return A page of matching cards.
+     * @param sourceId The card to debit.
+     * @param targetId The card to credit.
+     * @param username The user who must own the source card.
+     * @param amount   The amount to move.
+     * @param transactionId Ledger transaction id shared by the debit and credit entries.
+     * @return The name of a {@link com.example.bankcards.entity.enums.TransferOutcome} constant, or {@link #SHARDED_SOURCE}.
      */
-    Page<Card> findAllByOwnerIdAndCardNumberContaining(Long ownerId, String cardNumber, Pageable pageable);
+    @Transactional
+    @Query(value = """
+            WITH locked AS (
+                SELECT c.id, c.balance, c.balance_slots, c.status, c.owner_id
+                FROM cards c
+                WHERE c.id IN (:sourceId, :targetId)
+                ORDER BY c.id
+                FOR UPDATE
+            ),
+            verdict AS (
+                SELECT CASE
+                    WHEN s.id IS NULL THEN 'SOURCE_NOT_FOUND'
+                    WHEN NOT EXISTS (SELECT 1 FROM clients o WHERE o.id = s.owner_id AND o.username = :username)
+                        THEN 'NOT_OWNER'
+                    WHEN s.status <> 'ACTIVE' THEN 'SOURCE_INACTIVE'
+                    WHEN t.id IS NULL THEN 'TARGET_NOT_FOUND'
+                    WHEN t.status <> 'ACTIVE' THEN 'TARGET_INACTIVE'
+                    WHEN s.balance < :amount AND s.balance_slots > 0 THEN 'SHARDED_SOURCE'
+                    WHEN s.balance < :amount THEN 'INSUFFICIENT_FUNDS'
+                    ELSE 'OK'
+                END AS outcome
+                FROM (SELECT 1) AS one
+                LEFT JOIN locked s ON s.id = :sourceId
+                LEFT JOIN locked t ON t.id = :targetId
+            ),
+            moved AS (
+                UPDATE cards c
+                SET balance = c.balance + CASE
+                    WHEN :sourceId = :targetId THEN 0
+                    WHEN c.id = :sourceId THEN -CAST(:amount AS DECIMAL(19, 2))
+                    ELSE CAST(:amount AS DECIMAL(19, 2))
+                END,
+                    version = c.version + 1
+                FROM verdict v
+                WHERE v.outcome = 'OK'
+                  AND c.id IN (:sourceId, :targetId)
+                RETURNING c.id
+            ),
+            booked AS (
+                INSERT INTO ledger_entries (transaction_id, card_id, side, amount, entry_type)
+                SELECT CAST(:transactionId AS UUID), leg.card_id, leg.side, CAST(:amount AS DECIMAL(19, 2)), 'TRANSFER'
+                FROM verdict v
+                CROSS JOIN (VALUES (CAST(:sourceId AS BIGINT), 'DEBIT'),
+                                   (CAST(:targetId AS BIGINT), 'CREDIT')) AS leg (card_id, side)
+                WHERE v.outcome = 'OK'
+                RETURNING id
+            ),
+            recorded AS (
+                INSERT INTO card_transfers (card_id, transaction_id, direction, counterparty_card_id, amount)
+                SELECT leg.card_id, CAST(:transactionId AS UUID), leg.direction, leg.counterparty_card_id,
+                       CAST(:amount AS DECIMAL(19, 2))
+                FROM verdict v
+                CROSS JOIN (VALUES (CAST(:sourceId AS BIGINT), 'OUT', CAST(:targetId AS BIGINT)),
+                                   (CAST(:targetId AS BIGINT), 'IN', CAST(:sourceId AS BIGINT))) AS leg (card_id, direction, counterparty_card_id)
+                WHERE v.outcome = 'OK'
+                RETURNING id
+            )
+            SELECT v.outcome FROM verdict v
+            """, nativeQuery = true)
+    String transferAtomically(@Param("sourceId") Long sourceId,
+                              @Param("targetId") Long targetId,
+                              @Param("username") String username,
+                              @Param("amount") BigDecimal amount,
+                              @Param("transactionId") UUID transactionId);
 
     @Query(value = "select nextval('cards_number_seq') ",nativeQuery = true)
     Long getNextCardNumber();
@@ -0,0 +1,143 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.LedgerEntryType;
+import com.example.bankcards.entity.enums.TransferDirection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Access to {@code card_transfers}, the per-card transfer history.
+ * <p>
+ * Every transfer is stored twice, once for each card, so a card's history is a single range of
+ * the {@code (card_id, created_at, id)} index and is paged by keyset instead of by offset.
+ */
+@Repository
+@RequiredArgsConstructor
+public class CardTransferJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Records the transfer postings in the history as one JDBC batch, in the caller's transaction.
+     * Postings of any other type are ignored.
+     *
+     * @param postings The postings just appended to the ledger.
+     */
+    public void append(Collection<LedgerJdbcRepository.Posting> postings) {
+        List<MapSqlParameterSource> batch = new ArrayList<>(postings.size() * 2);
+        for (LedgerJdbcRepository.Posting posting : postings) {
+            if (posting.type() == LedgerEntryType.TRANSFER) {
+                batch.add(row(posting, posting.debitCardId(), TransferDirection.OUT, posting.creditCardId()));
+                batch.add(row(posting, posting.creditCardId(), TransferDirection.IN, posting.debitCardId()));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO card_transfers (card_id, transaction_id, direction, counterparty_card_id, amount)
+                        VALUES (:cardId, :transactionId, :direction, :counterpartyCardId, :amount)
+                        """,
+                batch.toArray(MapSqlParameterSource[]::new));
+    }
+
+    private MapSqlParameterSource row(LedgerJdbcRepository.Posting posting, Long cardId,
+                                      TransferDirection direction, Long counterpartyCardId) {
+        return new MapSqlParameterSource()
+                .addValue("cardId", cardId)
+                .addValue("transactionId", posting.transactionId())
+                .addValue("direction", direction.name())
+                .addValue("counterpartyCardId", counterpartyCardId)
+                .addValue("amount", posting.amount().toBigDecimal());
+    }
+
+    /**
+     * Reads one page of a card's history, newest first, together with the card's owner.
+     * <p>
+     * The history rows are only joined when the card belongs to {@code username}, so the
+     * ownership check costs no extra round trip and another user's history is never read.
+     *
+     * @param after The sort key of the last row of the previous page, or {@code null} for the first page.
+     * @param limit Maximum number of rows to return.
+     * @return Empty if the card does not exist.
+     */
+    public Optional<CardHistory> findPage(long cardId, String username, CardTransfer.SortKey after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("cardId", cardId)
+                .addValue("username", username)
+                .addValue("limit", limit);
+        String keyset = "";
+        if (after != null) {
+            keyset = "AND (t.created_at, t.id) < (:afterCreatedAt, :afterId)";
+            params.addValue("afterCreatedAt", after.createdAt()).addValue("afterId", after.id());
+        }
+
+        List<String> owner = new ArrayList<>(1);
+        List<CardTransfer> transfers = new ArrayList<>(limit);
+        jdbcTemplate.query("""
+                        SELECT o.username AS owner,
+                               t.id, t.transaction_id, t.direction, t.counterparty_card_id, t.amount, t.created_at
+                        FROM cards c
+                        JOIN clients o ON o.id = c.owner_id
+                        LEFT JOIN LATERAL (
+                            SELECT t.*
+                            FROM card_transfers t
+                            WHERE t.card_id = c.id
+                              AND o.username = :username
+                              %s
+                            ORDER BY t.created_at DESC, t.id DESC
+                            LIMIT :limit
+                        ) t ON true
+                        WHERE c.id = :cardId
+                        ORDER BY t.created_at DESC, t.id DESC
+                        """.formatted(keyset),
+                params,
+                rs -> {
+                    if (owner.isEmpty()) {
+                        owner.add(rs.getString("owner"));
+                    }
+                    long id = rs.getLong("id");
+                    if (!rs.wasNull()) {
+                        transfers.add(new CardTransfer(
+                                id,
+                                rs.getObject("transaction_id", UUID.class),
+                                TransferDirection.valueOf(rs.getString("direction")),
+                                rs.getLong("counterparty_card_id"),
+                                rs.getBigDecimal("amount"),
+                                rs.getObject("created_at", LocalDateTime.class)));
+                    }
+                });
+
+        return owner.isEmpty() ? Optional.empty() : Optional.of(new CardHistory(owner.get(0), transfers));
+    }
+
+    /**
+     * @param ownerUsername Owner of the card; {@code transfers} is empty unless it is the requesting user.
+     */
+    public record CardHistory(String ownerUsername, List<CardTransfer> transfers) {}
+
+    public record CardTransfer(
+            long id,
+            UUID transactionId,
+            TransferDirection direction,
+            long counterpartyCardId,
+            BigDecimal amount,
+            LocalDateTime createdAt
+    ) {
+        public SortKey sortKey() {
+            return new SortKey(createdAt, id);
+        }
+
+        public record SortKey(LocalDateTime createdAt, long id) {}
+    }
+}
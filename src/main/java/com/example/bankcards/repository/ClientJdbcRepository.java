@@ -0,0 +1,138 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.Role;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Admin search over {@code clients}, paged by keyset.
+ * <p>
+ * A username prefix is searched as a range of {@code idx_clients_username_prefix}, in byte order
+ * of the username, with the role and lock filters checked on the index entries. Without a prefix
+ * the clients are listed by ID from {@code idx_clients_locked_role_id}: a filter left open is
+ * expanded into its values, each {@code (is_locked, role)} pair is read as its own index range,
+ * and the ranges are merged, so no page ever sorts or skips more than it returns.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ClientJdbcRepository {
+
+    private static final RowMapper<ClientSummary> SUMMARY = (rs, rowNum) -> new ClientSummary(
+            rs.getLong("id"),
+            rs.getString("username"),
+            Role.valueOf(rs.getString("role")),
+            rs.getBoolean("is_locked"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * @param prefix        Non-empty username prefix, matched case-sensitively.
+     * @param afterUsername Username of the last client of the previous page, or {@code null} for the first page.
+     * @param role          Only clients with this role, or {@code null} for any.
+     * @param locked        Only clients with this lock status, or {@code null} for any.
+     * @param limit         Maximum number of clients.
+     * @return Matching clients ordered by the bytes of their username.
+     */
+    public List<ClientSummary> findByUsernamePrefix(String prefix, String afterUsername, Role role, Boolean locked, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("prefix", prefix)
+                .addValue("limit", limit);
+        StringBuilder where = new StringBuilder("username COLLATE \"C\" >= :prefix");
+        String upper = prefixUpperBound(prefix);
+        if (upper != null) {
+            where.append(" AND username COLLATE \"C\" < :upper");
+            params.addValue("upper", upper);
+        }
+        if (afterUsername != null) {
+            where.append(" AND username COLLATE \"C\" > :afterUsername");
+            params.addValue("afterUsername", afterUsername);
+        }
+        if (role != null) {
+            where.append(" AND role = :role");
+            params.addValue("role", role.name());
+        }
+        if (locked != null) {
+            where.append(" AND is_locked = :locked");
+            params.addValue("locked", locked);
+        }
+        return jdbcTemplate.query("""
+                        SELECT id, username COLLATE "C" AS username, role, is_locked
+                        FROM clients
+                        WHERE %s
+                        ORDER BY username COLLATE "C"
+                        LIMIT :limit
+                        """.formatted(where),
+                params, SUMMARY);
+    }
+
+    /**
+     * @param role    Only clients with this role, or {@code null} for any.
+     * @param locked  Only clients with this lock status, or {@code null} for any.
+     * @param afterId ID of the last client of the previous page, or 0 for the first page.
+     * @param limit   Maximum number of clients.
+     * @return Matching clients ordered by ID.
+     */
+    public List<ClientSummary> findByFilters(Role role, Boolean locked, long afterId, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("afterId", afterId)
+                .addValue("limit", limit);
+        if (role == null && locked == null) {
+            return jdbcTemplate.query("""
+                            SELECT id, username, role, is_locked
+                            FROM clients
+                            WHERE id > :afterId
+                            ORDER BY id
+                            LIMIT :limit
+                            """,
+                    params, SUMMARY);
+        }
+
+        List<String> ranges = new ArrayList<>();
+        for (boolean isLocked : locked != null ? new boolean[]{locked} : new boolean[]{false, true}) {
+            for (Role value : role != null ? new Role[]{role} : Role.values()) {
+                int i = ranges.size();
+                ranges.add("""
+                        (SELECT id, username, role, is_locked
+                         FROM clients
+                         WHERE is_locked = :locked%1$d AND role = :role%1$d AND id > :afterId
+                         ORDER BY id
+                         LIMIT :limit)""".formatted(i));
+                params.addValue("locked" + i, isLocked).addValue("role" + i, value.name());
+            }
+        }
+        return jdbcTemplate.query("""
+                        SELECT * FROM (
+                        %s
+                        ) ranges
+                        ORDER BY id
+                        LIMIT :limit
+                        """.formatted(String.join("\nUNION ALL\n", ranges)),
+                params, SUMMARY);
+    }
+
+    /**
+     * @return The smallest string greater than every string starting with {@code prefix} in code point
+     *         (and so UTF-8 byte) order, or {@code null} when there is none.
+     */
+    static String prefixUpperBound(String prefix) {
+        int[] codePoints = prefix.codePoints().toArray();
+        for (int i = codePoints.length - 1; i >= 0; i--) {
+            if (codePoints[i] < Character.MAX_CODE_POINT) {
+                int next = codePoints[i] + 1;
+                if (next >= Character.MIN_SURROGATE && next <= Character.MAX_SURROGATE) {
+                    next = Character.MAX_SURROGATE + 1;
+                }
+                return new String(codePoints, 0, i) + Character.toString(next);
+            }
+        }
+        return null;
+    }
+
+    public record ClientSummary(long id, String username, Role role, boolean locked) {}
+}
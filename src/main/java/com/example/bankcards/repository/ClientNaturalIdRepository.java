@@ -0,0 +1,14 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.Client;
+
+import java.util.Optional;
+
+/**
+ * Client lookups by the natural id {@code username}, which go through the second-level cache when it
+ * is enabled, unlike a derived query.
+ */
+public interface ClientNaturalIdRepository {
+
+    Optional<Client> findByUsername(String username);
+}
@@ -1,17 +1,32 @@
 package com.example.bankcards.repository;
 
+import com.example.bankcards.dto.response.UserResponseDto;
 import com.example.bankcards.entity.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface ClientRepository extends JpaRepository<Client, Long> {
+public interface ClientRepository extends JpaRepository<Client, Long>, ClientNaturalIdRepository {
 
-    // Find by username (used for Auth/Login)
-    Optional<Client> findByUsername(String username);
+    /**
+     * Selects the response of a client straight from its columns, without an entity.
+     */
+    String USER_RESPONSE = "new com.example.bankcards.dto.response.UserResponseDto(c.id, c.username, c.role, c.isLocked)";
 
     // Check if user exists (used for Registration validation)
     boolean existsByUsername(String username);
+
+    @Query("select c.id from Client c where c.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+
+    @Query("select " + USER_RESPONSE + " from Client c where c.id = :id")
+    Optional<UserResponseDto> findResponseById(@Param("id") Long id);
+
+    @Query("select " + USER_RESPONSE + " from Client c order by c.id")
+    List<UserResponseDto> findAllResponses();
 }
\ No newline at end of file
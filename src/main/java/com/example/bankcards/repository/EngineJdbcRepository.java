@@ -0,0 +1,107 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.CardCacheEvictor;
+import com.example.bankcards.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Persistence of the in-memory transfer engine: loading card balances into memory and writing
+ * its journal back to {@code cards}, {@code transfer_idempotency_keys} and {@code engine_checkpoints}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class EngineJdbcRepository {
+
+    private static final String CARD_SNAPSHOT = """
+            SELECT c.id, o.username, c.status, c.balance + COALESCE(s.balance, 0) AS balance
+            FROM cards c
+            JOIN clients o ON o.id = c.owner_id
+            LEFT JOIN (
+                SELECT card_id, SUM(balance) AS balance FROM card_balance_slots GROUP BY card_id
+            ) s ON s.card_id = c.id
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CardCacheEvictor cardCacheEvictor;
+
+    /**
+     * Streams every card with its total balance (row plus balance slots).
+     */
+    public void loadCards(Consumer<CardSnapshot> consumer) {
+        jdbcTemplate.query(CARD_SNAPSHOT, Map.of(), rs -> {
+            consumer.accept(new CardSnapshot(
+                    rs.getLong("id"),
+                    rs.getString("username"),
+                    CardStatus.valueOf(rs.getString("status")),
+                    Money.of(rs.getBigDecimal("balance"))));
+        });
+    }
+
+    public Optional<CardSnapshot> loadCard(long cardId) {
+        List<CardSnapshot> cards = jdbcTemplate.query(CARD_SNAPSHOT + "WHERE c.id = :id",
+                Map.of("id", cardId),
+                (rs, rowNum) -> new CardSnapshot(
+                        rs.getLong("id"),
+                        rs.getString("username"),
+                        CardStatus.valueOf(rs.getString("status")),
+                        Money.of(rs.getBigDecimal("balance"))));
+        return cards.stream().findFirst();
+    }
+
+    /**
+     * @return Last flushed journal sequence by partition.
+     */
+    public Map<Integer, Long> findCheckpoints() {
+        Map<Integer, Long> checkpoints = new HashMap<>();
+        jdbcTemplate.query("SELECT partition_id, journal_seq FROM engine_checkpoints", Map.of(), rs -> {
+            checkpoints.put(rs.getInt("partition_id"), rs.getLong("journal_seq"));
+        });
+        return checkpoints;
+    }
+
+    /**
+     * Adds the net balance change of every card as one JDBC batch. Relative updates leave
+     * the slot balances of a sharded card alone, so its total moves by exactly the delta.
+     *
+     * @param deltas Balance change by card ID.
+     */
+    public void applyBalanceDeltas(Map<Long, Money> deltas) {
+        MapSqlParameterSource[] batch = deltas.entrySet().stream()
+                .filter(e -> e.getValue().signum() != 0)
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("id", e.getKey())
+                        .addValue("delta", e.getValue().toBigDecimal()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("UPDATE cards SET balance = balance + :delta, version = version + 1 WHERE id = :id", batch);
+        cardCacheEvictor.evict(deltas.keySet());
+    }
+
+    /**
+     * @param checkpoints Last journal sequence written by this flush, by partition.
+     */
+    public void saveCheckpoints(Map<Integer, Long> checkpoints) {
+        MapSqlParameterSource[] batch = checkpoints.entrySet().stream()
+                .map(e -> new MapSqlParameterSource()
+                        .addValue("partition", e.getKey())
+                        .addValue("seq", e.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO engine_checkpoints (partition_id, journal_seq)
+                        VALUES (:partition, :seq)
+                        ON CONFLICT (partition_id) DO UPDATE SET journal_seq = GREATEST(engine_checkpoints.journal_seq, EXCLUDED.journal_seq)
+                        """,
+                batch);
+    }
+
+    public record CardSnapshot(long id, String ownerUsername, CardStatus status, Money balance) {}
+}
@@ -0,0 +1,58 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.config.ExportProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.entity.Client;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.CacheMode;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Repository;
+
+import java.util.stream.Stream;
+
+/**
+ * Forward-only reads of whole tables for the admin exports.
+ * <p>
+ * The streams are backed by a JDBC cursor that fetches {@code app.export.fetch-size} rows per round
+ * trip, which PostgreSQL only does inside a transaction, and load the entities read-only. The
+ * caller must close the stream and {@link #detach} every entity once it is written, so the
+ * persistence context does not grow with the table. The second-level cache is bypassed, as a whole
+ * table would only flush it.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ExportRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private final ExportProperties properties;
+
+    /**
+     * @return All cards, ordered by ID.
+     */
+    public Stream<Card> streamCards() {
+        return entityManager.createQuery("select c from Card c order by c.id", Card.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, properties.fetchSize())
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream();
+    }
+
+    /**
+     * @return All clients, ordered by ID.
+     */
+    public Stream<Client> streamClients() {
+        return entityManager.createQuery("select c from Client c order by c.id", Client.class)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, properties.fetchSize())
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .setHint(HibernateHints.HINT_CACHE_MODE, CacheMode.IGNORE)
+                .getResultStream();
+    }
+
+    public void detach(Object entity) {
+        entityManager.detach(entity);
+    }
+}
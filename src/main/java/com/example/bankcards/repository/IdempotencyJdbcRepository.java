@@ -0,0 +1,71 @@
+package com.example.bankcards.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.SqlArrayValue;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Batched access to {@code transfer_idempotency_keys} for the paths that store many keys in one
+ * transaction; single transfers use {@link IdempotencyRecordRepository}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class IdempotencyJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /**
+     * Claims the keys as successful transfers with one statement, in the caller's transaction.
+     * <p>
+     * A key that is already stored, or whose claim by a concurrent transaction commits while this
+     * one waits on it, is skipped instead of failing the whole batch. What was claimed is read from
+     * the returned rows rather than from update counts, which drivers may not report per row
+     * (e.g. pgjdbc with {@code reWriteBatchedInserts}). Of a key given twice, only the first is claimed.
+     *
+     * @return Whether each key was claimed, in the order given.
+     */
+    public boolean[] claimAll(List<IdempotencyKey> keys) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("usernames", new SqlArrayValue("text", keys.stream().map(IdempotencyKey::username).toArray()))
+                .addValue("idempotencyKeys", new SqlArrayValue("text", keys.stream().map(IdempotencyKey::idempotencyKey).toArray()))
+                .addValue("requestHashes", new SqlArrayValue("text", keys.stream().map(IdempotencyKey::requestHash).toArray()));
+        Set<List<String>> inserted = new HashSet<>(jdbcTemplate.query("""
+                        INSERT INTO transfer_idempotency_keys (username, idempotency_key, request_hash, status)
+                        SELECT k.username, k.idempotency_key, k.request_hash, 200
+                        FROM unnest(:usernames, :idempotencyKeys, :requestHashes) AS k(username, idempotency_key, request_hash)
+                        ON CONFLICT DO NOTHING
+                        RETURNING username, idempotency_key
+                        """,
+                params,
+                (rs, rowNum) -> List.of(rs.getString("username"), rs.getString("idempotency_key"))));
+        boolean[] claimed = new boolean[keys.size()];
+        for (int i = 0; i < claimed.length; i++) {
+            claimed[i] = inserted.remove(List.of(keys.get(i).username(), keys.get(i).idempotencyKey()));
+        }
+        return claimed;
+    }
+
+    /**
+     * Takes back claims made earlier in the same transaction for transfers that were then rejected,
+     * so their outcome can be stored as a failure like on the single-transfer path.
+     */
+    public void releaseAll(List<IdempotencyKey> keys) {
+        jdbcTemplate.batchUpdate("""
+                        DELETE FROM transfer_idempotency_keys
+                        WHERE username = :username AND idempotency_key = :idempotencyKey
+                        """,
+                keys.stream()
+                        .map(key -> new MapSqlParameterSource()
+                                .addValue("username", key.username())
+                                .addValue("idempotencyKey", key.idempotencyKey()))
+                        .toArray(MapSqlParameterSource[]::new));
+    }
+
+    public record IdempotencyKey(String username, String idempotencyKey, String requestHash) {}
+}
@@ -0,0 +1,53 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, IdempotencyRecord.Key> {
+
+    /**
+     * Claims a key as a successful transfer. Must run inside the transfer's own transaction:
+     * if the transfer fails, the claim is rolled back with it.
+     * <p>
+     * A concurrent duplicate on another node blocks on the primary key until the first
+     * transaction finishes and then fails with a
+     * {@link org.springframework.dao.DataIntegrityViolationException}, before it has touched any card.
+     */
+    @Modifying
+    @Query(value = """
+            INSERT INTO transfer_idempotency_keys (username, idempotency_key, request_hash, status)
+            VALUES (:username, :idempotencyKey, :requestHash, 200)
+            """, nativeQuery = true)
+    void claim(@Param("username") String username,
+               @Param("idempotencyKey") String idempotencyKey,
+               @Param("requestHash") String requestHash);
+
+    /**
+     * Records a rejected transfer, unless another execution already stored an outcome for the key.
+     */
+    @Transactional
+    @Modifying
+    @Query(value = """
+            INSERT INTO transfer_idempotency_keys (username, idempotency_key, request_hash, status, message)
+            VALUES (:username, :idempotencyKey, :requestHash, :status, :message)
+            ON CONFLICT DO NOTHING
+            """, nativeQuery = true)
+    void saveFailureIfAbsent(@Param("username") String username,
+                             @Param("idempotencyKey") String idempotencyKey,
+                             @Param("requestHash") String requestHash,
+                             @Param("status") int status,
+                             @Param("message") String message);
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyRecord r where r.createdAt < :threshold")
+    int deleteCreatedBefore(@Param("threshold") LocalDateTime threshold);
+}
@@ -0,0 +1,157 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.LedgerEntryType;
+import com.example.bankcards.util.CardCacheEvictor;
+import com.example.bankcards.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Append-only access to {@code ledger_entries}, the double-entry journal behind {@code cards.balance}.
+ * <p>
+ * Entries are never updated or deleted. Every {@link Posting} is written as one debit and one
+ * credit row sharing a transaction id, so the ledger always sums to zero.
+ */
+@Repository
+@RequiredArgsConstructor
+public class LedgerJdbcRepository {
+
+    private static final String BALANCE_OF_ENTRIES =
+            "COALESCE(SUM(CASE e.side WHEN 'CREDIT' THEN e.amount ELSE -e.amount END), 0)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final CardCacheEvictor cardCacheEvictor;
+
+    /**
+     * Writes both legs of every posting as one JDBC batch, in the caller's transaction.
+     *
+     * @param postings The balance movements to record.
+     */
+    public void append(Collection<Posting> postings) {
+        List<MapSqlParameterSource> batch = new ArrayList<>(postings.size() * 2);
+        for (Posting posting : postings) {
+            batch.add(entry(posting, posting.debitCardId(), "DEBIT"));
+            batch.add(entry(posting, posting.creditCardId(), "CREDIT"));
+        }
+        jdbcTemplate.batchUpdate("""
+                        INSERT INTO ledger_entries (transaction_id, card_id, side, amount, entry_type, description)
+                        VALUES (:transactionId, :cardId, :side, :amount, :entryType, :description)
+                        """,
+                batch.toArray(MapSqlParameterSource[]::new));
+    }
+
+    private MapSqlParameterSource entry(Posting posting, Long cardId, String side) {
+        return new MapSqlParameterSource()
+                .addValue("transactionId", posting.transactionId())
+                .addValue("cardId", cardId)
+                .addValue("side", side)
+                .addValue("amount", posting.amount().toBigDecimal())
+                .addValue("entryType", posting.type().name())
+                .addValue("description", posting.description());
+    }
+
+    /**
+     * Splits the card id space into chunks of roughly {@code chunkSize} existing cards.
+     *
+     * @param chunkSize Number of cards per chunk.
+     * @return The first card id of every chunk, ascending.
+     */
+    public List<Long> findChunkStarts(int chunkSize) {
+        return jdbcTemplate.queryForList("""
+                        SELECT id
+                        FROM (SELECT id, row_number() OVER (ORDER BY id) AS rn FROM cards) numbered
+                        WHERE (rn - 1) % :chunkSize = 0
+                        ORDER BY id
+                        """,
+                Map.of("chunkSize", chunkSize), Long.class);
+    }
+
+    /**
+     * Recomputes the balance of the cards in {@code [fromId, toId)} from their ledger entries.
+     * For a sharded card the row keeps whatever its balance slots do not hold.
+     * <p>
+     * The cards are locked first, in id order, so no transfer on them can commit in between and
+     * the recomputing statement (which takes a fresh snapshot) sees their complete ledger.
+     * Must be called inside a transaction.
+     *
+     * @return Number of cards whose stored balance differed from the ledger and was corrected.
+     */
+    public int rebuildBalances(long fromId, long toId) {
+        MapSqlParameterSource range = new MapSqlParameterSource()
+                .addValue("fromId", fromId)
+                .addValue("toId", toId);
+
+        jdbcTemplate.query("""
+                        SELECT id FROM cards
+                        WHERE id >= :fromId AND id < :toId
+                        ORDER BY id
+                        FOR UPDATE
+                        """,
+                range, rs -> {});
+
+        int corrected = jdbcTemplate.update("""
+                        UPDATE cards c
+                        SET balance = l.balance - COALESCE(s.balance, 0),
+                            version = c.version + 1
+                        FROM (
+                            SELECT c2.id, %s AS balance
+                            FROM cards c2
+                            LEFT JOIN ledger_entries e ON e.card_id = c2.id
+                            WHERE c2.id >= :fromId AND c2.id < :toId
+                            GROUP BY c2.id
+                        ) l
+                        LEFT JOIN (
+                            SELECT card_id, SUM(balance) AS balance
+                            FROM card_balance_slots
+                            WHERE card_id >= :fromId AND card_id < :toId
+                            GROUP BY card_id
+                        ) s ON s.card_id = l.id
+                        WHERE c.id = l.id
+                          AND c.balance <> l.balance - COALESCE(s.balance, 0)
+                        """.formatted(BALANCE_OF_ENTRIES),
+                range);
+        if (corrected > 0) {
+            cardCacheEvictor.evictAll();
+        }
+        return corrected;
+    }
+
+    /**
+     * One balanced movement of money. A {@code null} card id stands for the bank's external account.
+     *
+     * @param amount Always positive; the direction is given by which side each card is on.
+     */
+    public record Posting(
+            UUID transactionId,
+            LedgerEntryType type,
+            Long debitCardId,
+            Long creditCardId,
+            Money amount,
+            String description
+    ) {
+        public static Posting transfer(Long sourceCardId, Long targetCardId, Money amount) {
+            return new Posting(UUID.randomUUID(), LedgerEntryType.TRANSFER, sourceCardId, targetCardId, amount, null);
+        }
+
+        public static Posting initialBalance(Long cardId, Money amount) {
+            return new Posting(UUID.randomUUID(), LedgerEntryType.INITIAL_BALANCE, null, cardId, amount, null);
+        }
+
+        /**
+         * @param delta Signed change of the card balance; negative amounts are debited from the card.
+         */
+        public static Posting adjustment(Long cardId, Money delta, String reason) {
+            return delta.signum() >= 0
+                    ? new Posting(UUID.randomUUID(), LedgerEntryType.ADJUSTMENT, null, cardId, delta, reason)
+                    : new Posting(UUID.randomUUID(), LedgerEntryType.ADJUSTMENT, cardId, null, delta.negate(), reason);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.bankcards.repository;
+
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.util.Money;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Spending limits per client tier ({@code tier_limits}) and per card ({@code card_limits}),
+ * and the debits the in-memory daily windows are rebuilt from.
+ */
+@Repository
+@RequiredArgsConstructor
+public class SpendingLimitJdbcRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public Map<ClientTier, Limits> findTierLimits() {
+        Map<ClientTier, Limits> limits = new EnumMap<>(ClientTier.class);
+        jdbcTemplate.query("SELECT tier, per_transaction_limit, daily_limit FROM tier_limits",
+                rs -> {
+                    limits.put(ClientTier.valueOf(rs.getString("tier")), new Limits(
+                            money(rs, "per_transaction_limit"),
+                            money(rs, "daily_limit")));
+                });
+        return limits;
+    }
+
+    /**
+     * @return The overrides by card ID, for every card that has one.
+     */
+    public Map<Long, Limits> findCardLimits() {
+        Map<Long, Limits> limits = new HashMap<>();
+        jdbcTemplate.query("SELECT card_id, per_transaction_limit, daily_limit FROM card_limits",
+                rs -> {
+                    limits.put(rs.getLong("card_id"), new Limits(
+                            money(rs, "per_transaction_limit"),
+                            money(rs, "daily_limit")));
+                });
+        return limits;
+    }
+
+    public void saveTierLimits(ClientTier tier, Limits limits) {
+        jdbcTemplate.update("""
+                        INSERT INTO tier_limits (tier, per_transaction_limit, daily_limit)
+                        VALUES (:tier, :perTransaction, :daily)
+                        ON CONFLICT (tier) DO UPDATE
+                        SET per_transaction_limit = EXCLUDED.per_transaction_limit,
+                            daily_limit = EXCLUDED.daily_limit
+                        """,
+                params(limits).addValue("tier", tier.name()));
+    }
+
+    /**
+     * Stores the override of a card, or removes it when both limits are {@code null}.
+     */
+    public void saveCardLimits(long cardId, Limits limits) {
+        if (limits.perTransaction() == null && limits.daily() == null) {
+            jdbcTemplate.update("DELETE FROM card_limits WHERE card_id = :cardId",
+                    new MapSqlParameterSource("cardId", cardId));
+            return;
+        }
+        jdbcTemplate.update("""
+                        INSERT INTO card_limits (card_id, per_transaction_limit, daily_limit)
+                        VALUES (:cardId, :perTransaction, :daily)
+                        ON CONFLICT (card_id) DO UPDATE
+                        SET per_transaction_limit = EXCLUDED.per_transaction_limit,
+                            daily_limit = EXCLUDED.daily_limit
+                        """,
+                params(limits).addValue("cardId", cardId));
+    }
+
+    /**
+     * @return The tier of the card's owner; empty if the card does not exist.
+     */
+    public Optional<ClientTier> findOwnerTier(long cardId) {
+        return jdbcTemplate.query("""
+                        SELECT o.tier
+                        FROM cards c
+                        JOIN clients o ON o.id = c.owner_id
+                        WHERE c.id = :cardId
+                        """,
+                new MapSqlParameterSource("cardId", cardId),
+                (rs, rowNum) -> ClientTier.valueOf(rs.getString("tier"))).stream().findFirst();
+    }
+
+    /**
+     * Streams the outgoing transfers of the last {@code window}.
+     * <p>
+     * The age of each debit is computed by the database against its own clock, so the caller can
+     * place it on the application's clock without trusting the two to agree.
+     */
+    public void forEachDebitSince(Duration window, DebitHandler handler) {
+        jdbcTemplate.query("""
+                        SELECT card_id,
+                               amount,
+                               (EXTRACT(EPOCH FROM (localtimestamp - created_at)) * 1000)::BIGINT AS age_ms
+                        FROM card_transfers
+                        WHERE direction = 'OUT'
+                          AND created_at > localtimestamp - make_interval(secs => :windowSeconds)
+                        """,
+                new MapSqlParameterSource("windowSeconds", window.toSeconds()),
+                rs -> {
+                    handler.accept(rs.getLong("card_id"), Money.of(rs.getBigDecimal("amount")), rs.getLong("age_ms"));
+                });
+    }
+
+    private static MapSqlParameterSource params(Limits limits) {
+        return new MapSqlParameterSource()
+                .addValue("perTransaction", limits.perTransaction() != null ? limits.perTransaction().toBigDecimal() : null)
+                .addValue("daily", limits.daily() != null ? limits.daily().toBigDecimal() : null);
+    }
+
+    private static Money money(ResultSet rs, String column) throws SQLException {
+        BigDecimal amount = rs.getBigDecimal(column);
+        return amount != null ? Money.of(amount) : null;
+    }
+
+    /**
+     * @param perTransaction Largest single transfer; {@code null} for unlimited (tier) or inherited (card).
+     * @param daily          Largest sum over the daily window; {@code null} for unlimited (tier) or inherited (card).
+     */
+    public record Limits(Money perTransaction, Money daily) {}
+
+    @FunctionalInterface
+    public interface DebitHandler {
+        void accept(long cardId, Money amount, long ageMillis);
+    }
+}
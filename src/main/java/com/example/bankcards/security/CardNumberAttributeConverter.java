@@ -2,80 +2,47 @@ package com.example.bankcards.security;
 
 import jakarta.persistence.AttributeConverter;
 import jakarta.persistence.Converter;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import javax.crypto.Cipher;
-import javax.crypto.SecretKey;
-import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
-import java.util.Base64;
-
 @Component
 @Converter
-public class CardNumberAttributeConverter implements AttributeConverter<String, String> {
-
-    private static final String ALGORITHM = "AES/GCM/NoPadding";
-    private static final int TAG_LENGTH_BIT = 128; // Authentication Tag length
-    private static final int IV_LENGTH_BYTE = 12;  // Initialization Vector length
+public class CardNumberAttributeConverter implements AttributeConverter<EncryptedCardNumber, byte[]> {
 
-    private final SecretKey secretKey;
+    private final CardNumberCipher cardNumberCipher;
+    private final CardNumberCache cardNumberCache;
 
-    // Injects the key from application.yml
-    public CardNumberAttributeConverter(@Value("${app.security.encryption-key}") String base64Key) {
-        byte[] decodedKey = Base64.getDecoder().decode(base64Key);
-        this.secretKey = new SecretKeySpec(decodedKey, "AES");
+    public CardNumberAttributeConverter(CardNumberCipher cardNumberCipher, CardNumberCache cardNumberCache) {
+        this.cardNumberCipher = cardNumberCipher;
+        this.cardNumberCache = cardNumberCache;
     }
 
+    /**
+     * A number read from the database is written back with its ciphertext as it is; only a new number
+     * is encrypted, after which it keeps the ciphertext instead of its plaintext.
+     */
     @Override
-    public String convertToDatabaseColumn(String attribute) {
+    public byte[] convertToDatabaseColumn(EncryptedCardNumber attribute) {
         if (attribute == null) return null;
-        try {
-            // 1. Generate a unique IV for this record
-            byte[] iv = new byte[IV_LENGTH_BYTE];
-            new SecureRandom().nextBytes(iv);
-
-            // 2. Initialize Cipher
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
-
-            // 3. Encrypt
-            byte[] cipherText = cipher.doFinal(attribute.getBytes(StandardCharsets.UTF_8));
-
-            // 4. Prepend IV to CipherText (IV + CipherText) so we can decrypt later
-            byte[] ivAndCipherText = new byte[iv.length + cipherText.length];
-            System.arraycopy(iv, 0, ivAndCipherText, 0, iv.length);
-            System.arraycopy(cipherText, 0, ivAndCipherText, iv.length, cipherText.length);
-
-            // 5. Return as Base64 String
-            return Base64.getEncoder().encodeToString(ivAndCipherText);
-        } catch (Exception e) {
-            throw new RuntimeException("Error encrypting card number", e);
-        }
+        if (attribute.ciphertext() != null) return attribute.ciphertext();
+        // Stored as key id + IV + CipherText
+        byte[] encrypted = cardNumberCipher.encrypt(attribute.reveal());
+        attribute.seal(encrypted, this::decrypt);
+        return encrypted;
     }
 
+    /**
+     * Nothing is decrypted here: the number is decrypted when it is first revealed, if ever.
+     */
     @Override
-    public String convertToEntityAttribute(String dbData) {
+    public EncryptedCardNumber convertToEntityAttribute(byte[] dbData) {
         if (dbData == null) return null;
-        try {
-            // 1. Decode Base64
-            byte[] decoded = Base64.getDecoder().decode(dbData);
-
-            // 2. Extract IV (first 12 bytes)
-            GCMParameterSpec spec = new GCMParameterSpec(TAG_LENGTH_BIT, decoded, 0, IV_LENGTH_BYTE);
-
-            // 3. Initialize Cipher
-            Cipher cipher = Cipher.getInstance(ALGORITHM);
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, spec);
-
-            // 4. Decrypt (skip the IV bytes)
-            byte[] plainText = cipher.doFinal(decoded, IV_LENGTH_BYTE, decoded.length - IV_LENGTH_BYTE);
+        return EncryptedCardNumber.stored(dbData, this::decrypt);
+    }
 
-            return new String(plainText, StandardCharsets.UTF_8);
-        } catch (Exception e) {
-            throw new RuntimeException("Error decrypting card number", e);
-        }
+    /**
+     * Decrypts a stored value through {@link CardNumberCache}, so a number revealed again soon after skips the cipher.
+     */
+    public String decrypt(byte[] dbData) {
+        return cardNumberCache.get(dbData, cardNumberCipher::decrypt);
     }
 }
\ No newline at end of file
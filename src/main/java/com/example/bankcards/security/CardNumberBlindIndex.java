@@ -0,0 +1,94 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.CardSearchProperties;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * Turns card numbers and search queries into blind-index tokens.
+ * <p>
+ * A number is split into every run of {@code ngram-length} consecutive digits, and each distinct run
+ * becomes the first 8 bytes of an HMAC-SHA256 over the owner's ID and the digits. The owner is part
+ * of the input so equal digits of different clients give unrelated tokens, and the key keeps anyone
+ * who only has the database from computing the token of a guess. A query is tokenized the same way:
+ * a card holding all of its tokens is a candidate, every other card cannot match.
+ * <p>
+ * The key is {@code app.security.search-key}. Without one it is derived from the encryption key,
+ * which then cannot be replaced without rebuilding the index.
+ */
+@Component
+public class CardNumberBlindIndex {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final byte[] DERIVATION_LABEL = "card-number-search".getBytes(StandardCharsets.US_ASCII);
+
+    private final SecretKeySpec key;
+    private final int ngramLength;
+
+    public CardNumberBlindIndex(@Value("${app.security.search-key:}") String base64SearchKey,
+                                @Value("${app.security.encryption-key}") String base64EncryptionKey,
+                                CardSearchProperties properties) {
+        if (properties.ngramLength() < 1) {
+            throw new IllegalArgumentException("app.card-search.ngram-length must be positive");
+        }
+        this.ngramLength = properties.ngramLength();
+        if (StringUtils.hasText(base64SearchKey)) {
+            this.key = new SecretKeySpec(Base64.getDecoder().decode(base64SearchKey), ALGORITHM);
+        } else {
+            // A separate key for the index, so its tokens reveal nothing about the encryption key
+            Mac mac = newMac(new SecretKeySpec(Base64.getDecoder().decode(base64EncryptionKey), ALGORITHM));
+            this.key = new SecretKeySpec(mac.doFinal(DERIVATION_LABEL), ALGORITHM);
+        }
+    }
+
+    public int ngramLength() {
+        return ngramLength;
+    }
+
+    /**
+     * @param digits A card number or query, digits only.
+     * @return The distinct tokens of its n-grams; none if it is shorter than one n-gram.
+     */
+    public long[] tokens(long ownerId, String digits) {
+        int count = digits.length() - ngramLength + 1;
+        if (count <= 0) {
+            return new long[0];
+        }
+        Mac mac = newMac(key);
+        byte[] input = new byte[Long.BYTES + ngramLength];
+        for (int i = 0; i < Long.BYTES; i++) {
+            input[i] = (byte) (ownerId >>> (Long.SIZE - Byte.SIZE * (i + 1)));
+        }
+        long[] tokens = new long[count];
+        for (int start = 0; start < count; start++) {
+            for (int i = 0; i < ngramLength; i++) {
+                input[Long.BYTES + i] = (byte) digits.charAt(start + i);
+            }
+            byte[] hash = mac.doFinal(input);
+            long token = 0;
+            for (int i = 0; i < Long.BYTES; i++) {
+                token = (token << Byte.SIZE) | (hash[i] & 0xFF);
+            }
+            tokens[start] = token;
+        }
+        return Arrays.stream(tokens).distinct().toArray();
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Error initializing the card number index key", e);
+        }
+    }
+}
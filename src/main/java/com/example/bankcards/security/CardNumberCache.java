@@ -0,0 +1,232 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.CardNumberCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Decrypted card numbers, so a card read again shortly after skips the AES-GCM decryption.
+ * <p>
+ * Entries are keyed by the SHA-256 of the stored ciphertext: the cache keeps no ciphertext, and a
+ * column that changed can never be answered with the number of its old value. The plaintext is
+ * held as a {@code byte[]} rather than a String and overwritten with zeros as soon as it is
+ * evicted, expires, or the cache is cleared. The String handed to the entity is beyond its reach.
+ * <p>
+ * Entries expire {@code ttl} after they were decrypted. The cache is split into stripes, each an
+ * access-ordered {@link LinkedHashMap} under its own lock that evicts its least recently read
+ * number once it holds {@code max-size / stripes}.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.card.number.cache.gets{result=hit|miss}} - lookups, a miss costing one decryption.</li>
+ *     <li>{@code bank.card.number.cache.evictions} - numbers wiped because their stripe was full or they expired.</li>
+ *     <li>{@code bank.card.number.cache.size} - numbers currently cached.</li>
+ * </ul>
+ */
+@Component
+public class CardNumberCache {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final boolean enabled;
+    private final long ttlNanos;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public CardNumberCache(CardNumberCacheProperties properties, MeterRegistry meterRegistry) {
+        this.enabled = properties.enabled() && properties.maxSize() > 0;
+        this.ttlNanos = properties.ttl().toNanos();
+        int size = properties.stripes() <= 1 ? 1 : Integer.highestOneBit(properties.stripes() - 1) << 1;
+        int capacity = Math.max(1, (properties.maxSize() + size - 1) / size);
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+        this.mask = size - 1;
+
+        this.hits = Counter.builder("bank.card.number.cache.gets")
+                .description("Card number lookups in the decryption cache")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("bank.card.number.cache.gets")
+                .description("Card number lookups in the decryption cache")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("bank.card.number.cache.evictions")
+                .description("Decrypted card numbers wiped because the cache was full or they expired")
+                .register(meterRegistry);
+        Gauge.builder("bank.card.number.cache.size", this, CardNumberCache::size)
+                .description("Decrypted card numbers currently cached")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param ciphertext The stored value, IV and tag included.
+     * @param decrypt    Decrypts {@code ciphertext} into UTF-8 plaintext, which the cache then owns.
+     * @return The plaintext.
+     */
+    public String get(byte[] ciphertext, UnaryOperator<byte[]> decrypt) {
+        if (!enabled) {
+            byte[] plaintext = decrypt.apply(ciphertext);
+            try {
+                return new String(plaintext, StandardCharsets.UTF_8);
+            } finally {
+                Arrays.fill(plaintext, (byte) 0);
+            }
+        }
+        Key key = Key.of(ciphertext);
+        Stripe stripe = stripes[(int) key.h0() & mask];
+        long now = System.nanoTime();
+
+        stripe.lock.lock();
+        try {
+            Entry entry = stripe.entries.get(key);
+            if (entry != null) {
+                if (now - entry.expiresAt < 0) {
+                    hits.increment();
+                    return new String(entry.plaintext, StandardCharsets.UTF_8);
+                }
+                stripe.entries.remove(key);
+                entry.wipe();
+                evictions.increment();
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        // Decrypted outside the lock; racing misses of one number both decrypt and the first one is kept
+        misses.increment();
+        byte[] plaintext = decrypt.apply(ciphertext);
+        String value = new String(plaintext, StandardCharsets.UTF_8);
+        stripe.lock.lock();
+        try {
+            if (stripe.entries.putIfAbsent(key, new Entry(plaintext, now + ttlNanos)) != null) {
+                Arrays.fill(plaintext, (byte) 0);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+        return value;
+    }
+
+    /**
+     * Wipes the numbers past their TTL, so they do not linger in memory until they are read again.
+     */
+    @Scheduled(fixedDelayString = "${app.card-number-cache.purge-interval:PT1M}")
+    public void evictExpired() {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                for (Iterator<Entry> it = stripe.entries.values().iterator(); it.hasNext(); ) {
+                    Entry entry = it.next();
+                    if (now - entry.expiresAt >= 0) {
+                        it.remove();
+                        entry.wipe();
+                        evictions.increment();
+                    }
+                }
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Wipes every cached number.
+     */
+    @PreDestroy
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.entries.values().forEach(Entry::wipe);
+                stripe.entries.clear();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.entries.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * SHA-256 of a ciphertext as four longs, which compare and hash without touching an array.
+     */
+    private record Key(long h0, long h1, long h2, long h3) {
+
+        static Key of(byte[] ciphertext) {
+            try {
+                ByteBuffer hash = ByteBuffer.wrap(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(ciphertext));
+                return new Key(hash.getLong(), hash.getLong(), hash.getLong(), hash.getLong());
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("Error hashing card number ciphertext", e);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final byte[] plaintext;
+        final long expiresAt;
+
+        Entry(byte[] plaintext, long expiresAt) {
+            this.plaintext = plaintext;
+            this.expiresAt = expiresAt;
+        }
+
+        void wipe() {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    private final class Stripe {
+
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<Key, Entry> entries;
+
+        Stripe(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                    if (size() <= capacity) {
+                        return false;
+                    }
+                    eldest.getValue().wipe();
+                    evictions.increment();
+                    return true;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.EncryptionKeyProperties;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AES-GCM encryption of card numbers into {@code key id + IV + ciphertext + tag}.
+ * <p>
+ * The first byte names the key of {@link EncryptionKeyProperties the keyring} a value was
+ * encrypted with, so values of several keys can be decrypted side by side while a rotation
+ * re-encrypts them with the active key.
+ * <p>
+ * {@link Cipher} instances are expensive to look up and not thread-safe, so they are reused
+ * through a small pool rather than held per thread: with virtual threads a thread-local would
+ * create one per transfer, while the number of threads encrypting at the same moment is bounded
+ * by the carrier threads. A cipher is re-initialized with a fresh IV on every use. IVs come from
+ * one shared DRBG, which is thread-safe without a lock of its own around it. The output is encrypted
+ * straight into a buffer of its final size.
+ */
+@Component
+public class CardNumberCipher {
+
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final int TAG_LENGTH_BIT = 128; // Authentication Tag length
+    private static final int TAG_LENGTH_BYTE = TAG_LENGTH_BIT / 8;
+    private static final int IV_LENGTH_BYTE = 12;  // Initialization Vector length
+
+    private static final SecureRandom RANDOM = newRandom();
+
+    private static final int HEADER_LENGTH_BYTE = 1 + IV_LENGTH_BYTE; // Key id + IV
+
+    private final SecretKey[] keys = new SecretKey[256];
+    private final int activeKeyId;
+    private final int maxIdle = Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+    private final ConcurrentLinkedQueue<Cipher> idle = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+
+    public CardNumberCipher(EncryptionKeyProperties properties) {
+        keys[0] = new SecretKeySpec(Base64.getDecoder().decode(properties.encryptionKey()), "AES");
+        properties.encryptionKeys().forEach((id, base64Key) -> {
+            if (id < 1 || id > 255) {
+                throw new IllegalArgumentException("Encryption key ids must be between 1 and 255, got " + id);
+            }
+            keys[id] = new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+        });
+        if (properties.activeKeyId() < 0 || properties.activeKeyId() > 255 || keys[properties.activeKeyId()] == null) {
+            throw new IllegalArgumentException("No encryption key with the active key id " + properties.activeKeyId());
+        }
+        this.activeKeyId = properties.activeKeyId();
+    }
+
+    public int activeKeyId() {
+        return activeKeyId;
+    }
+
+    /**
+     * @return {@code key id + IV + ciphertext + tag} of the UTF-8 number, with the active key.
+     */
+    public byte[] encrypt(String number) {
+        byte[] plaintext = number.getBytes(StandardCharsets.UTF_8);
+        try {
+            return encrypt(plaintext);
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    /**
+     * @param stored {@code key id + IV + ciphertext + tag}, as returned by {@link #encrypt}.
+     * @return The UTF-8 number, owned by the caller.
+     */
+    public byte[] decrypt(byte[] stored) {
+        SecretKey key = stored.length > HEADER_LENGTH_BYTE ? keys[stored[0] & 0xFF] : null;
+        if (key == null) {
+            throw new RuntimeException("Error decrypting card number: unknown key id or truncated value");
+        }
+        Cipher cipher = borrow();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_LENGTH_BIT, stored, 1, IV_LENGTH_BYTE));
+            return cipher.doFinal(stored, HEADER_LENGTH_BYTE, stored.length - HEADER_LENGTH_BYTE);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error decrypting card number", e);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    /**
+     * @return {@code stored} encrypted again with the active key; the plaintext never leaves this method.
+     */
+    public byte[] reencrypt(byte[] stored) {
+        byte[] plaintext = decrypt(stored);
+        try {
+            return encrypt(plaintext);
+        } finally {
+            Arrays.fill(plaintext, (byte) 0);
+        }
+    }
+
+    private byte[] encrypt(byte[] plaintext) {
+        byte[] iv = new byte[IV_LENGTH_BYTE];
+        RANDOM.nextBytes(iv);
+        byte[] output = new byte[HEADER_LENGTH_BYTE + plaintext.length + TAG_LENGTH_BYTE];
+        output[0] = (byte) activeKeyId;
+        System.arraycopy(iv, 0, output, 1, IV_LENGTH_BYTE);
+
+        Cipher cipher = borrow();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, keys[activeKeyId], new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+            cipher.doFinal(plaintext, 0, plaintext.length, output, HEADER_LENGTH_BYTE);
+            return output;
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException("Error encrypting card number", e);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    private Cipher borrow() {
+        Cipher cipher = idle.poll();
+        if (cipher != null) {
+            idleCount.decrementAndGet();
+            return cipher;
+        }
+        try {
+            return Cipher.getInstance(ALGORITHM);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("AES-GCM is not available", e);
+        }
+    }
+
+    /**
+     * Keeps the cipher for the next caller unless enough are idle already.
+     * A cipher that failed is fine to reuse, since every use starts with {@code init}.
+     */
+    private void release(Cipher cipher) {
+        if (idleCount.incrementAndGet() <= maxIdle) {
+            idle.offer(cipher);
+        } else {
+            idleCount.decrementAndGet();
+        }
+    }
+
+    private static SecureRandom newRandom() {
+        try {
+            return SecureRandom.getInstance("DRBG");
+        } catch (NoSuchAlgorithmException e) {
+            return new SecureRandom();
+        }
+    }
+}
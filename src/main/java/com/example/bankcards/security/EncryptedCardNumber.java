@@ -0,0 +1,104 @@
+package com.example.bankcards.security;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A card number as the {@code Card} entity holds it: either a new plaintext number that has not
+ * been written yet, or the ciphertext read from the database, decrypted whenever the number is
+ * {@link #reveal() revealed}. Loading a card therefore costs no decryption, and writing one back
+ * unchanged re-uses its ciphertext instead of encrypting it again.
+ * <p>
+ * The second-level cache holds the instance itself, which Hibernate requires to be serializable; the
+ * caches store entries by reference, so it is never actually serialized. A stored number is therefore
+ * never memoized here, repeated reveals are served by {@link CardNumberCache} and its expiry, and a
+ * new number drops its plaintext once it has been encrypted for writing.
+ * <p>
+ * Changing a card's number replaces the instance.
+ */
+public final class EncryptedCardNumber implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private volatile byte[] ciphertext;
+    private transient volatile Function<byte[], String> decryptor;
+    private transient volatile String plaintext;
+
+    private EncryptedCardNumber(byte[] ciphertext, Function<byte[], String> decryptor, String plaintext) {
+        this.ciphertext = ciphertext;
+        this.decryptor = decryptor;
+        this.plaintext = plaintext;
+    }
+
+    /**
+     * @return A number to be encrypted when the card is written.
+     */
+    public static EncryptedCardNumber of(String plaintext) {
+        return new EncryptedCardNumber(null, null, Objects.requireNonNull(plaintext));
+    }
+
+    /**
+     * @param decryptor Turns the ciphertext into the number, called on every reveal.
+     */
+    static EncryptedCardNumber stored(byte[] ciphertext, Function<byte[], String> decryptor) {
+        return new EncryptedCardNumber(ciphertext, decryptor, null);
+    }
+
+    /**
+     * @return The plaintext number, decrypted unless it has not been written yet.
+     */
+    public String reveal() {
+        String value = plaintext;
+        return value != null ? value : decryptor.apply(ciphertext);
+    }
+
+    /**
+     * Turns a new number into a stored one once it has been encrypted for writing, so the instance
+     * the entity keeps, and the second-level cache with it, no longer holds the plaintext.
+     */
+    void seal(byte[] ciphertext, Function<byte[], String> decryptor) {
+        this.decryptor = decryptor;
+        this.ciphertext = ciphertext;
+        this.plaintext = null;
+    }
+
+    /**
+     * @return The stored ciphertext, {@code null} for a number not written yet.
+     */
+    byte[] ciphertext() {
+        return ciphertext;
+    }
+
+    /**
+     * Equal when they hold the same number. Two stored values with the same ciphertext are compared
+     * without decrypting; anything else is decrypted, as the random IV makes equal numbers encrypt differently.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        }
+        if (!(other instanceof EncryptedCardNumber number)) {
+            return false;
+        }
+        if (ciphertext != null && Arrays.equals(ciphertext, number.ciphertext)) {
+            return true;
+        }
+        return reveal().equals(number.reveal());
+    }
+
+    @Override
+    public int hashCode() {
+        return reveal().hashCode();
+    }
+
+    /**
+     * Never the number itself, so it cannot end up in a log.
+     */
+    @Override
+    public String toString() {
+        return "****";
+    }
+}
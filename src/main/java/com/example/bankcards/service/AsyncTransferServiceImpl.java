@@ -0,0 +1,245 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AsyncTransferProperties;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.AsyncTransferResponseDto;
+import com.example.bankcards.entity.AsyncTransfer;
+import com.example.bankcards.entity.enums.AsyncTransferStatus;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.AsyncTransferRepository;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.service.interfaces.AsyncTransferService;
+import com.example.bankcards.service.interfaces.IdempotencyService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Transfers that are accepted with {@code 202} and executed in the background.
+ * <p>
+ * Each accepted transfer is stored as PENDING and runs on its own virtual thread, so no request
+ * thread waits for the database. At most {@code max-concurrency} of them execute at a time; the
+ * others wait on a semaphore, which costs a parked virtual thread and no connection. Once
+ * {@code max-queue-depth} transfers are waiting or running, new ones are refused with {@code 429}.
+ * <p>
+ * A transfer runs through {@link IdempotencyService} with a key derived from its id, so one that
+ * was still PENDING when the node stopped can be resumed at the next start without moving the
+ * money twice, even if it had already been committed.
+ * <p>
+ * Transient failures (a busy card, an unavailable engine, lost optimistic retries) leave the
+ * transfer PENDING; it is executed again after a doubling backoff, without holding an execution
+ * slot while it waits, and only marked FAILED once {@code max-attempts} executions have failed.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.transfer.async.depth} - transfers accepted on this node and not yet completed.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class AsyncTransferServiceImpl implements AsyncTransferService, DisposableBean {
+
+    private static final String KEY_PREFIX = "async-";
+
+    private final IdempotencyService idempotencyService;
+    private final AsyncTransferRepository asyncTransferRepository;
+    private final CardJdbcRepository cardJdbcRepository;
+    private final AsyncTransferProperties properties;
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("async-transfer-", 0).factory());
+    private final Semaphore executing;
+    private final AtomicInteger depth = new AtomicInteger();
+
+    public AsyncTransferServiceImpl(IdempotencyService idempotencyService,
+                                    AsyncTransferRepository asyncTransferRepository,
+                                    CardJdbcRepository cardJdbcRepository,
+                                    AsyncTransferProperties properties,
+                                    MeterRegistry meterRegistry) {
+        this.idempotencyService = idempotencyService;
+        this.asyncTransferRepository = asyncTransferRepository;
+        this.cardJdbcRepository = cardJdbcRepository;
+        this.properties = properties;
+        this.executing = new Semaphore(Math.max(1, properties.maxConcurrency()));
+
+        Gauge.builder("bank.transfer.async.depth", depth, AtomicInteger::get)
+                .description("Asynchronous transfers accepted and not yet completed")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public AsyncTransferResponseDto submit(TransferRequestDto request) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        // 1. Reject what cannot succeed before anything is stored
+        CardJdbcRepository.CardOwner owner = cardJdbcRepository.findOwners(List.of(request.sourceCardId()))
+                .get(request.sourceCardId());
+        if (owner == null) {
+            throw TransferOutcome.SOURCE_NOT_FOUND.toException();
+        }
+        if (!owner.username().equals(username)) {
+            throw TransferOutcome.NOT_OWNER.toException();
+        }
+
+        // 2. Reserve a place in the queue
+        if (depth.incrementAndGet() > properties.maxQueueDepth()) {
+            depth.decrementAndGet();
+            throw new RestException("Too many transfers are pending, retry later", HttpStatus.TOO_MANY_REQUESTS);
+        }
+
+        AsyncTransfer transfer = new AsyncTransfer();
+        transfer.setId(UUID.randomUUID());
+        transfer.setUsername(username);
+        transfer.setSourceCardId(request.sourceCardId());
+        transfer.setTargetCardId(request.targetCardId());
+        transfer.setAmount(request.amount());
+        transfer.setStatus(AsyncTransferStatus.PENDING);
+        transfer.setCreatedAt(LocalDateTime.now());
+        try {
+            asyncTransferRepository.save(transfer);
+        } catch (RuntimeException e) {
+            depth.decrementAndGet();
+            throw e;
+        }
+
+        // 3. Hand it over to a virtual thread
+        try {
+            enqueue(transfer);
+        } catch (RejectedExecutionException e) {
+            complete(transfer, AsyncTransferStatus.FAILED, HttpStatus.SERVICE_UNAVAILABLE.value(), "Application is stopping");
+            throw new RestException("Transfers are not accepted while the application is stopping", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        return AsyncTransferResponseDto.from(transfer);
+    }
+
+    @Override
+    public AsyncTransferResponseDto getStatus(UUID transferId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        // Another user's transfer is reported as missing, so ids cannot be probed
+        return asyncTransferRepository.findByIdAndUsername(transferId, username)
+                .map(AsyncTransferResponseDto::from)
+                .orElseThrow(() -> new RestException("Transfer not found", HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Queues the transfers left PENDING by the previous run of the application. With several
+     * nodes this also picks up another node's unfinished transfers, which the idempotency key
+     * makes harmless.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        List<AsyncTransfer> pending = asyncTransferRepository.findAllByStatusOrderByCreatedAt(AsyncTransferStatus.PENDING);
+        if (!pending.isEmpty()) {
+            log.info("Resuming {} pending asynchronous transfers", pending.size());
+        }
+        for (AsyncTransfer transfer : pending) {
+            depth.incrementAndGet();
+            enqueue(transfer);
+        }
+    }
+
+    /**
+     * Deletes completed transfers older than the configured retention.
+     */
+    @Scheduled(fixedDelayString = "${app.transfer.async.purge-interval:PT1H}")
+    public void purgeCompleted() {
+        int deleted = asyncTransferRepository.deleteCompletedBefore(LocalDateTime.now().minus(properties.retention()));
+        if (deleted > 0) {
+            log.info("Purged {} completed asynchronous transfers", deleted);
+        }
+    }
+
+    /**
+     * Lets running and queued transfers finish for a while; whatever is interrupted stays PENDING
+     * and is resumed at the next start.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Stopping with {} asynchronous transfers still pending", depth.get());
+            executor.shutdownNow();
+        }
+    }
+
+    private void enqueue(AsyncTransfer transfer) {
+        try {
+            executor.execute(() -> {
+                try {
+                    Duration backoff = properties.retryBackoff();
+                    for (int attempt = 1; ; attempt++) {
+                        boolean completed;
+                        executing.acquire();
+                        try {
+                            completed = execute(transfer, attempt >= properties.maxAttempts());
+                        } finally {
+                            executing.release();
+                        }
+                        if (completed) {
+                            break;
+                        }
+                        Thread.sleep(backoff);
+                        backoff = backoff.multipliedBy(2);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    depth.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            depth.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * @return {@code false} if the transfer failed transiently and stays PENDING for another attempt.
+     */
+    private boolean execute(AsyncTransfer transfer, boolean lastAttempt) {
+        SecurityContextHolder.getContext().setAuthentication(
+                UsernamePasswordAuthenticationToken.authenticated(transfer.getUsername(), null, List.of()));
+        try {
+            idempotencyService.transfer(KEY_PREFIX + transfer.getId(), new TransferRequestDto(
+                    transfer.getSourceCardId(), transfer.getTargetCardId(), transfer.getAmount()));
+            complete(transfer, AsyncTransferStatus.SUCCEEDED, HttpStatus.OK.value(), null);
+        } catch (RestException e) {
+            if (e.isTransient() && !lastAttempt) {
+                log.debug("Asynchronous transfer {} will be retried: {}", transfer.getId(), e.getMessage());
+                return false;
+            }
+            complete(transfer, AsyncTransferStatus.FAILED, e.getStatus().value(), e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Asynchronous transfer {} failed", transfer.getId(), e);
+            complete(transfer, AsyncTransferStatus.FAILED, HttpStatus.INTERNAL_SERVER_ERROR.value(),
+                    "Transfer could not be completed");
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return true;
+    }
+
+    private void complete(AsyncTransfer transfer, AsyncTransferStatus status, int httpStatus, String message) {
+        asyncTransferRepository.complete(transfer.getId(), status, httpStatus, message, LocalDateTime.now());
+    }
+}
@@ -0,0 +1,129 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ExpiryProperties;
+import com.example.bankcards.dto.response.ExpirySweepResponseDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.service.engine.TransferEngine;
+import com.example.bankcards.service.interfaces.CardExpiryService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moves active cards past their {@code validity_date} to EXPIRED.
+ * <p>
+ * A sweep expires {@code app.expiry.chunk-size} cards per transaction until a chunk comes back
+ * short. Each chunk claims its rows with {@code FOR UPDATE SKIP LOCKED}, so it never waits for a
+ * transfer holding a card, and several nodes sweeping at the same time split the work instead of
+ * queueing behind each other. Finding due cards reads a partial index of the active cards only.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.card.expiry.run} - duration of each sweep.</li>
+ *     <li>{@code bank.card.expiry.expired} - cards expired by this node.</li>
+ *     <li>{@code bank.card.expiry.rate} - rows per second of the last sweep that expired anything.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class CardExpiryServiceImpl implements CardExpiryService {
+
+    private final CardJdbcRepository cardJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExpiryProperties properties;
+    private final ObjectProvider<TransferEngine> engine;
+
+    private final Timer runTimer;
+    private final Counter expiredCounter;
+    private final AtomicLong lastRate = new AtomicLong();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public CardExpiryServiceImpl(CardJdbcRepository cardJdbcRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 ExpiryProperties properties,
+                                 ObjectProvider<TransferEngine> engine,
+                                 MeterRegistry meterRegistry) {
+        this.cardJdbcRepository = cardJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.engine = engine;
+
+        this.runTimer = Timer.builder("bank.card.expiry.run")
+                .description("Duration of a card expiry sweep")
+                .register(meterRegistry);
+        this.expiredCounter = Counter.builder("bank.card.expiry.expired")
+                .description("Cards moved to EXPIRED")
+                .register(meterRegistry);
+        Gauge.builder("bank.card.expiry.rate", lastRate, AtomicLong::get)
+                .description("Rows per second of the last card expiry sweep")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ExpirySweepResponseDto expireDueCards() {
+        if (!sweeping.compareAndSet(false, true)) {
+            throw new RestException("An expiry sweep is already running", HttpStatus.CONFLICT);
+        }
+        try {
+            return sweep();
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.expiry.interval:PT1H}")
+    public void scheduledSweep() {
+        if (!properties.enabled() || !sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            // The next run starts over; whatever was committed stays expired
+            log.error("Card expiry sweep failed", e);
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    private ExpirySweepResponseDto sweep() {
+        long started = System.nanoTime();
+        int chunkSize = Math.max(1, properties.chunkSize());
+        int chunks = 0;
+        long expired = 0;
+        List<Long> ids;
+        do {
+            ids = transactionTemplate.execute(status -> cardJdbcRepository.expireDueCards(chunkSize));
+            chunks++;
+            expired += ids.size();
+            expiredCounter.increment(ids.size());
+            List<Long> chunk = ids;
+            engine.ifAvailable(e -> chunk.forEach(id -> e.updateStatus(id, CardStatus.EXPIRED)));
+        } while (ids.size() == chunkSize);
+
+        long durationNanos = System.nanoTime() - started;
+        runTimer.record(durationNanos, TimeUnit.NANOSECONDS);
+        long durationMs = durationNanos / 1_000_000;
+        double rowsPerSecond = expired * 1e9 / Math.max(1, durationNanos);
+        if (expired > 0) {
+            lastRate.set(Math.round(rowsPerSecond));
+            log.info("Expired {} cards in {} chunks in {} ms ({} rows/s)",
+                    expired, chunks, durationMs, Math.round(rowsPerSecond));
+        }
+        return new ExpirySweepResponseDto(chunks, expired, durationMs, rowsPerSecond);
+    }
+}
@@ -0,0 +1,184 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CardReencryptionProperties;
+import com.example.bankcards.dto.response.ReencryptionStatusResponseDto;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.security.CardNumberCipher;
+import com.example.bankcards.service.interfaces.CardReencryptionService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-encrypts card numbers with the active key of the keyring, so an old key can be retired.
+ * <p>
+ * The job runs on a virtual thread and walks {@code cards} by ascending ID in chunks of one short
+ * transaction each. A chunk claims its rows with {@code FOR UPDATE SKIP LOCKED}, so it never waits
+ * for a transfer and no lock is held longer than one chunk; rows skipped that way are picked up by
+ * another pass. Pauses between chunks keep the rate under {@code max-rows-per-second}.
+ * <p>
+ * Nothing but the card rows records the progress: a job that was stopped, or a node that went
+ * down, resumes by starting again, and only the cards still on another key are touched.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.card.reencryption.cards} - card numbers re-encrypted by this node.</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class CardReencryptionServiceImpl implements CardReencryptionService, DisposableBean {
+
+    private final CardJdbcRepository cardJdbcRepository;
+    private final CardNumberCipher cardNumberCipher;
+    private final TransactionTemplate transactionTemplate;
+    private final CardReencryptionProperties properties;
+
+    private final Counter reencryptedCounter;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong reencrypted = new AtomicLong();
+    private volatile long lastCardId;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile String error;
+    private volatile Thread worker;
+
+    public CardReencryptionServiceImpl(CardJdbcRepository cardJdbcRepository,
+                                       CardNumberCipher cardNumberCipher,
+                                       TransactionTemplate transactionTemplate,
+                                       CardReencryptionProperties properties,
+                                       MeterRegistry meterRegistry) {
+        this.cardJdbcRepository = cardJdbcRepository;
+        this.cardNumberCipher = cardNumberCipher;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+
+        this.reencryptedCounter = Counter.builder("bank.card.reencryption.cards")
+                .description("Card numbers re-encrypted with the active key")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public ReencryptionStatusResponseDto start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RestException("A re-encryption is already running", HttpStatus.CONFLICT);
+        }
+        launch();
+        return status();
+    }
+
+    @Override
+    public ReencryptionStatusResponseDto status() {
+        return new ReencryptionStatusResponseDto(running.get(), cardNumberCipher.activeKeyId(), reencrypted.get(),
+                lastCardId, startedAt, finishedAt, error);
+    }
+
+    /**
+     * Resumes or starts the job when cards are still encrypted with a key other than the active one.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void startIfNeeded() {
+        if (properties.runOnStartup()
+                && cardJdbcRepository.existsNumberNotEncryptedWith(cardNumberCipher.activeKeyId())
+                && running.compareAndSet(false, true)) {
+            launch();
+        }
+    }
+
+    /**
+     * Stops the job between two chunks; the next start picks up where it left off.
+     */
+    @Override
+    public void destroy() throws InterruptedException {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(Duration.ofSeconds(10));
+        }
+    }
+
+    private void launch() {
+        reencrypted.set(0);
+        lastCardId = 0;
+        error = null;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        worker = Thread.ofVirtual().name("card-reencryption").start(this::run);
+    }
+
+    void run() {
+        int keyId = cardNumberCipher.activeKeyId();
+        log.info("Re-encrypting card numbers with key {}", keyId);
+        try {
+            long passed;
+            do {
+                passed = reencryptPass(keyId);
+                // Cards skipped because a transfer held them are retried by another pass
+            } while (passed > 0 && cardJdbcRepository.existsNumberNotEncryptedWith(keyId));
+            log.info("Re-encrypted {} card numbers with key {}", reencrypted.get(), keyId);
+        } catch (InterruptedException e) {
+            log.info("Re-encryption stopped after {} card numbers", reencrypted.get());
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            log.error("Re-encryption failed after {} card numbers", reencrypted.get(), e);
+        } finally {
+            finishedAt = LocalDateTime.now();
+            worker = null;
+            running.set(false);
+        }
+    }
+
+    /**
+     * @return Cards re-encrypted by this pass.
+     */
+    private long reencryptPass(int keyId) throws InterruptedException {
+        int chunkSize = Math.max(1, properties.chunkSize());
+        long nanosPerRow = 1_000_000_000L / Math.max(1, properties.maxRowsPerSecond());
+        long afterId = 0;
+        long passed = 0;
+        List<CardJdbcRepository.StoredNumber> chunk;
+        do {
+            long chunkStarted = System.nanoTime();
+            long from = afterId;
+            chunk = transactionTemplate.execute(status -> {
+                List<CardJdbcRepository.StoredNumber> stored =
+                        cardJdbcRepository.lockNumbersNotEncryptedWith(keyId, from, chunkSize);
+                cardJdbcRepository.updateNumbers(stored.stream()
+                        .map(number -> new CardJdbcRepository.StoredNumber(number.id(),
+                                cardNumberCipher.reencrypt(number.ciphertext())))
+                        .toList());
+                return stored;
+            });
+            if (chunk.isEmpty()) {
+                break;
+            }
+            afterId = chunk.getLast().id();
+            lastCardId = afterId;
+            passed += chunk.size();
+            reencrypted.addAndGet(chunk.size());
+            reencryptedCounter.increment(chunk.size());
+
+            long pause = chunk.size() * nanosPerRow - (System.nanoTime() - chunkStarted);
+            if (pause > 0) {
+                Thread.sleep(Duration.ofNanos(pause));
+            } else if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        } while (chunk.size() == chunkSize);
+        return passed;
+    }
+}
@@ -1,98 +1,686 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.BalanceSlotProperties;
+import com.example.bankcards.config.TransferProperties;
+import com.example.bankcards.dto.requests.BalanceAdjustmentRequestDto;
+import com.example.bankcards.dto.requests.BatchTransferRequestDto;
 import com.example.bankcards.dto.requests.CreateCardRequestDto;
 import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.BatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.dto.response.CursorPageResponseDto;
 import com.example.bankcards.dto.response.PageResponseDto;
+import com.example.bankcards.dto.response.TransferHistoryItemDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Client;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferOutcome;
 import com.example.bankcards.exception.AppSecurityException;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardJdbcRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransferJdbcRepository;
 import com.example.bankcards.repository.ClientRepository;
+import com.example.bankcards.repository.ExportRepository;
+import com.example.bankcards.repository.IdempotencyJdbcRepository;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.repository.LedgerJdbcRepository;
 import com.example.bankcards.service.interfaces.CardNumberGenerator;
 import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.util.BalanceSlotRegistry;
+import com.example.bankcards.util.CardCacheEvictor;
+import com.example.bankcards.util.CardCountCache;
+import com.example.bankcards.util.CardLockManager;
+import com.example.bankcards.util.CardSearchIndex;
+import com.example.bankcards.util.KeysetCursor;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.OptimisticRetry;
+import com.example.bankcards.util.SpendingLimiter;
+import com.example.bankcards.util.TransferGroupCommitter;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StringUtils;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class CardServiceImpl implements CardService {
 
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final int MAX_CARDS_PAGE_SIZE = 100;
+
     private final CardRepository cardRepository;
     private final ClientRepository clientRepository;
     private final CardNumberGenerator cardNumberGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final TransferProperties transferProperties;
+    private final CardLockManager cardLockManager;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final CardJdbcRepository cardJdbcRepository;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final CardBalanceSlotRepository cardBalanceSlotRepository;
+    private final BalanceSlotRegistry balanceSlotRegistry;
+    private final BalanceSlotProperties balanceSlotProperties;
+    private final CardTransferJdbcRepository cardTransferJdbcRepository;
+    private final IdempotencyJdbcRepository idempotencyJdbcRepository;
+    private final TransferGroupCommitter transferGroupCommitter;
+    private final OptimisticRetry optimisticRetry;
+    private final SpendingLimiter spendingLimiter;
+    private final CardSearchIndex cardSearchIndex;
+    private final CardCountCache cardCountCache;
+    private final ExportRepository exportRepository;
+    private final CardCacheEvictor cardCacheEvictor;
 
     @Override
     @Transactional(readOnly = true)
     public PageResponseDto<CardResponseDto> getMyCards(int page, int size, String query) {
-        String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        Client client = clientRepository.findByUsername(username)
-                .orElseThrow(() -> new RestException("User not found", HttpStatus.NOT_FOUND));
+        long ownerId = currentOwnerId();
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<Card> cardPage;
+        List<CardResponseDto> content;
+        long total;
 
         if (StringUtils.hasText(query)) {
-            // Note: Partial search on encrypted data usually requires a blind index.
-            // This relies on the method signature added in Step 1.
-            cardPage = cardRepository.findAllByOwnerIdAndCardNumberContaining(client.getId(), query, pageable);
+            List<Card> matches = searchMyCards(ownerId, query);
+            int from = (int) Math.min(pageable.getOffset(), matches.size());
+            int to = Math.min(from + pageable.getPageSize(), matches.size());
+            content = matches.subList(from, to).stream()
+                    .map(CardResponseDto::from)
+                    .collect(Collectors.toList());
+            total = matches.size();
         } else {
-            cardPage = cardRepository.findAllByOwnerId(client.getId(), pageable);
+            content = withMaskedNumbers(cardRepository.findResponsesByOwnerId(ownerId, pageable));
+            total = cardCountCache.get(ownerId, () -> cardRepository.countByOwnerId(ownerId));
         }
 
-        List<CardResponseDto> content = cardPage.getContent().stream()
-                .map(CardResponseDto::from)
-                .collect(Collectors.toList());
-
         return new PageResponseDto<>(
                 content,
-                cardPage.getNumber(),
-                cardPage.getSize(),
-                cardPage.getTotalElements(),
-                cardPage.getTotalPages()
+                page,
+                size,
+                total,
+                (int) ((total + size - 1) / size)
         );
     }
+
     @Override
-    @Transactional
-    public void blockMyCard(Long cardId) {
+    @Transactional(readOnly = true)
+    public CursorPageResponseDto<CardResponseDto> getMyCards(String cursor, int size, String query, boolean includeTotal) {
+        if (size < 1 || size > MAX_CARDS_PAGE_SIZE) {
+            throw new RestException("Page size must be between 1 and " + MAX_CARDS_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        long afterId = StringUtils.hasText(cursor) ? decodeCardsCursor(cursor) : 0;
+        long ownerId = currentOwnerId();
+
+        // One extra card tells whether there is a next page
+        List<CardResponseDto> content;
+        Long total = null;
+        if (StringUtils.hasText(query)) {
+            List<Card> matches = searchMyCards(ownerId, query);
+            content = matches.stream()
+                    .filter(card -> card.getId() > afterId)
+                    .limit(size + 1L)
+                    .map(CardResponseDto::from)
+                    .toList();
+            if (includeTotal) {
+                total = (long) matches.size();
+            }
+        } else {
+            content = withMaskedNumbers(cardRepository.findResponsesByOwnerIdAfter(ownerId, afterId, Limit.of(size + 1)));
+            if (includeTotal) {
+                total = cardCountCache.get(ownerId, () -> cardRepository.countByOwnerId(ownerId));
+            }
+        }
+
+        String nextCursor = null;
+        if (content.size() > size) {
+            content = content.subList(0, size);
+            nextCursor = KeysetCursor.encode(content.get(size - 1).id());
+        }
+        return new CursorPageResponseDto<>(content, size, nextCursor, total);
+    }
+
+    /**
+     * The card count read with the tag replaces the cached one, so the total of the list served
+     * under this tag is the count the tag was computed with, not one lagging behind it.
+     */
+    @Override
+    public String getMyCardsTag() {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return cardJdbcRepository.findOwnerCardsVersion(username)
+                .map(version -> {
+                    cardCountCache.put(version.ownerId(), version.cards());
+                    return version.tag();
+                })
+                .orElse(null);
+    }
 
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardNotFoundException("Card not found"));
+    /**
+     * Resolves the current user's id alone, without loading the client.
+     */
+    private long currentOwnerId() {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        return clientRepository.findIdByUsername(username)
+                .orElseThrow(() -> new RestException("User not found", HttpStatus.NOT_FOUND));
+    }
+
+    /**
+     * Fills in the masks the projection queries leave empty, for cards the startup backfill has not
+     * given stored last four digits yet, by loading and decrypting just those cards in one query.
+     */
+    private List<CardResponseDto> withMaskedNumbers(List<CardResponseDto> cards) {
+        List<Long> unmasked = cards.stream()
+                .filter(card -> card.maskCardNumber() == null)
+                .map(CardResponseDto::id)
+                .toList();
+        if (unmasked.isEmpty()) {
+            return cards;
+        }
+        Map<Long, CardResponseDto> loaded = cardRepository.findAllById(unmasked).stream()
+                .collect(Collectors.toMap(Card::getId, CardResponseDto::from));
+        return cards.stream()
+                .map(card -> loaded.getOrDefault(card.id(), card))
+                .toList();
+    }
 
-        // Security Check: Ensure the card belongs to the authenticated user
-        if (!card.getOwner().getUsername().equals(username)) {
-            throw new AppSecurityException("You do not have permission to block this card");
+    private long decodeCardsCursor(String cursor) {
+        try {
+            return Long.parseLong(KeysetCursor.decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw KeysetCursor.invalid();
         }
+    }
 
-        card.setStatus(CardStatus.BLOCKED);
-        cardRepository.save(card);
+    /**
+     * @return The owner's cards whose number contains the query, ordered by ID.
+     */
+    private List<Card> searchMyCards(long ownerId, String query) {
+        // Only the cards the blind index offers are loaded and decrypted; checking their numbers
+        // drops the rare ones that hold every n-gram of the query, but not in a row
+        String digits = cardSearchIndex.normalize(query);
+        return cardRepository.findAllById(cardSearchIndex.findCandidates(ownerId, digits))
+                .stream()
+                .filter(card -> card.getCardNumber().contains(digits))
+                .sorted(Comparator.comparing(Card::getId))
+                .toList();
+    }
+
+    @Override
+    public void blockMyCard(Long cardId) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        optimisticRetry.run("blockMyCard", () -> transactionTemplate.executeWithoutResult(status -> {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new CardNotFoundException("Card not found"));
+
+            // Security Check: Ensure the card belongs to the authenticated user
+            if (!card.getOwner().getUsername().equals(username)) {
+                throw new AppSecurityException("You do not have permission to block this card");
+            }
+
+            card.setStatus(CardStatus.BLOCKED);
+            cardRepository.save(card);
+        }));
     }
 
     @Override
-    @Transactional
     public void transfer(TransferRequestDto request) {
+        transfer(request, null);
+    }
+
+    /**
+     * The requester must own the source card before its spending limits, those of the owner's tier,
+     * are checked in memory; the reserved amount is given back if the transfer then fails.
+     */
+    @Override
+    public void transfer(TransferRequestDto request, String idempotencyKey) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+
+        CardJdbcRepository.CardOwner owner = cardJdbcRepository.findOwners(List.of(request.sourceCardId()))
+                .get(request.sourceCardId());
+        TransferOutcome ownership = verifyOwner(owner, username);
+        if (ownership != TransferOutcome.OK) {
+            throw ownership.toException();
+        }
+
+        SpendingLimiter.Reservation reservation = spendingLimiter.reserve(
+                request.sourceCardId(), owner.tier(), request.amount());
+        if (reservation.outcome() != TransferOutcome.OK) {
+            throw reservation.outcome().toException();
+        }
+
+        try {
+            switch (transferProperties.mode()) {
+                case ORDERED_LOCKING -> transferWithOrderedLocking(username, request, idempotencyKey);
+                case SINGLE_STATEMENT -> transferInSingleStatement(username, request, idempotencyKey);
+                case GROUP_COMMIT -> transferInGroup(username, request, idempotencyKey);
+                // No row locks: a transfer that read a card another writer has changed since is replayed
+                default -> optimisticRetry.run("transfer", () -> transactionTemplate.executeWithoutResult(status -> {
+                    claimIdempotencyKey(username, request, idempotencyKey);
+                    executeTransfer(username, request, cardRepository::findById, true);
+                }));
+            }
+        } catch (RuntimeException e) {
+            reservation.cancel();
+            throw e;
+        }
+    }
+
+    /**
+     * Inserts the idempotency key as the first statement of the transfer transaction, so a
+     * duplicate running elsewhere is stopped on the key before it touches any card row.
+     */
+    private void claimIdempotencyKey(String username, TransferRequestDto request, String idempotencyKey) {
+        if (idempotencyKey != null) {
+            idempotencyRecordRepository.claim(username, idempotencyKey, request.fingerprint());
+        }
+    }
+
+    /**
+     * Runs the transfer as one conditional SQL statement and translates the reported
+     * verdict into the same exceptions the entity-based path throws.
+     * <p>
+     * A sharded source whose row alone does not cover the amount is handed to the ordered-locking
+     * path instead, which also pays from the card's balance slots. So is a transfer to a sharded
+     * target, which the statement would lock and credit on its row.
+     */
+    private void transferInSingleStatement(String username, TransferRequestDto request, String idempotencyKey) {
+        if (!request.sourceCardId().equals(request.targetCardId())
+                && balanceSlotRegistry.slotsOf(request.targetCardId()) > 0) {
+            transferWithOrderedLocking(username, request, idempotencyKey);
+            return;
+        }
+        boolean done = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            claimIdempotencyKey(username, request, idempotencyKey);
+
+            String verdict = cardRepository.transferAtomically(
+                    request.sourceCardId(), request.targetCardId(), username, request.amount().toBigDecimal(), UUID.randomUUID());
+            if (verdict.equals(CardRepository.SHARDED_SOURCE)) {
+                // Nothing was written but the claim, which is rolled back for the other path to take
+                status.setRollbackOnly();
+                return false;
+            }
+
+            // Throwing inside the callback also rolls back the idempotency claim
+            TransferOutcome outcome = TransferOutcome.valueOf(verdict);
+            if (outcome != TransferOutcome.OK) {
+                throw outcome.toException();
+            }
+            cardCacheEvictor.evict(List.of(request.sourceCardId(), request.targetCardId()));
+            return true;
+        }));
+        if (!done) {
+            transferWithOrderedLocking(username, request, idempotencyKey);
+        }
+    }
+
+    /**
+     * Runs the transfer with both card rows locked in ascending id order.
+     * <p>
+     * A sharded target is credited through one of its balance slots instead, so its row is neither
+     * striped nor locked: it is read plainly and concurrent credits only meet on their slot rows.
+     */
+    private void transferWithOrderedLocking(String username, TransferRequestDto request, String idempotencyKey) {
+        boolean shardedTarget = !request.sourceCardId().equals(request.targetCardId())
+                && balanceSlotRegistry.slotsOf(request.targetCardId()) > 0;
+        List<Long> cardIds = shardedTarget
+                ? List.of(request.sourceCardId())
+                : List.of(request.sourceCardId(), request.targetCardId());
+
+        inLockedTransaction(cardIds, status -> {
+            claimIdempotencyKey(username, request, idempotencyKey);
+
+            Map<Long, Card> lockedCards = cardLockManager
+                    .timeDatabaseLock(() -> cardRepository.findAllByIdInForUpdate(cardIds))
+                    .stream()
+                    .collect(Collectors.toMap(Card::getId, Function.identity()));
+
+            executeTransfer(username, request,
+                    id -> lockedCards.containsKey(id) ? Optional.of(lockedCards.get(id)) : cardRepository.findById(id),
+                    !shardedTarget);
+            return null;
+        });
+    }
+
+    /**
+     * Waits for the transfer's group to be committed and throws what the other paths throw for the same failure.
+     */
+    private void transferInGroup(String username, TransferRequestDto request, String idempotencyKey) {
+        TransferOutcome outcome = transferGroupCommitter.submit(
+                new TransferGroupCommitter.Item(username, request, idempotencyKey));
+        if (outcome == null) {
+            // Same signal as a lost claim on the other paths: the stored outcome is replayed
+            throw new DuplicateKeyException("Idempotency-Key " + idempotencyKey + " was already claimed");
+        }
+        if (outcome != TransferOutcome.OK) {
+            throw outcome.toException();
+        }
+    }
+
+    @PostConstruct
+    void startGroupCommit() {
+        if (transferProperties.mode() == TransferProperties.Mode.GROUP_COMMIT) {
+            transferGroupCommitter.start(this::executeGroup);
+        }
+    }
+
+    /**
+     * Items from cards the requester does not own or over a spending limit are rejected before the
+     * batch transaction; the reservations of the items the transaction rejects are given back afterwards.
+     */
+    @Override
+    public BatchTransferResponseDto transferBatch(BatchTransferRequestDto request) {
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        List<TransferRequestDto> transfers = request.transfers();
+        Map<Long, CardJdbcRepository.CardOwner> owners = cardJdbcRepository.findOwners(
+                transfers.stream().map(TransferRequestDto::sourceCardId).collect(Collectors.toSet()));
+
+        TransferOutcome[] outcomes = new TransferOutcome[transfers.size()];
+        SpendingLimiter.Reservation[] reservations = new SpendingLimiter.Reservation[transfers.size()];
+        List<Integer> accepted = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            TransferRequestDto transfer = transfers.get(i);
+            CardJdbcRepository.CardOwner owner = owners.get(transfer.sourceCardId());
+            outcomes[i] = verifyOwner(owner, username);
+            if (outcomes[i] != TransferOutcome.OK) {
+                continue;
+            }
+            reservations[i] = spendingLimiter.reserve(transfer.sourceCardId(), owner.tier(), transfer.amount());
+            outcomes[i] = reservations[i].outcome();
+            if (outcomes[i] == TransferOutcome.OK) {
+                accepted.add(i);
+            }
+        }
+
+        try {
+            if (!accepted.isEmpty()) {
+                TransferOutcome[] executed = executeGroup(accepted.stream()
+                        .map(i -> new TransferGroupCommitter.Item(username, transfers.get(i), null))
+                        .toList(), owners);
+                for (int k = 0; k < executed.length; k++) {
+                    outcomes[accepted.get(k)] = executed[k];
+                }
+            }
+        } catch (RuntimeException e) {
+            accepted.forEach(i -> reservations[i].cancel());
+            throw e;
+        }
+        accepted.stream()
+                .filter(i -> outcomes[i] != TransferOutcome.OK)
+                .forEach(i -> reservations[i].cancel());
+
+        List<BatchTransferResponseDto.Item> results = new ArrayList<>(outcomes.length);
+        for (int i = 0; i < outcomes.length; i++) {
+            results.add(BatchTransferResponseDto.Item.of(i, outcomes[i]));
+        }
+        return BatchTransferResponseDto.of(results);
+    }
+
+    /**
+     * Executes independent transfers, possibly of different users, in one transaction.
+     * <p>
+     * Every item gets its own verdict and only the accepted ones move money; a rejected item
+     * does not roll back the others. Items with an idempotency key claim it before any card is
+     * locked, and a rejected item gives its claim back before the commit.
+     * <p>
+     * A sharded target that is not also a source in the group is read without a lock and credited
+     * through one of its balance slots, like on the ordered-locking path.
+     *
+     * @return The outcome of each item, in order; {@code null} for an item whose idempotency key
+     * another execution has already stored.
+     */
+    private TransferOutcome[] executeGroup(List<TransferGroupCommitter.Item> items) {
+        // 1. Ownership of every source card in one IN query, before any lock is taken
+        return executeGroup(items, cardJdbcRepository.findOwners(
+                items.stream().map(item -> item.request().sourceCardId()).collect(Collectors.toSet())));
+    }
+
+    /**
+     * @param owners Owners of at least the source cards of the items.
+     */
+    private TransferOutcome[] executeGroup(List<TransferGroupCommitter.Item> items,
+                                           Map<Long, CardJdbcRepository.CardOwner> owners) {
+        TransferOutcome[] rejected = new TransferOutcome[items.size()];
+        Set<Long> cardIds = new TreeSet<>();
+        List<Long> targetIds = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            TransferRequestDto transfer = items.get(i).request();
+            TransferOutcome ownership = verifyOwner(owners.get(transfer.sourceCardId()), items.get(i).username());
+            if (ownership != TransferOutcome.OK) {
+                rejected[i] = ownership;
+            } else {
+                cardIds.add(transfer.sourceCardId());
+                targetIds.add(transfer.targetCardId());
+            }
+        }
+        // Sharded targets that are never debited here are credited through a slot, without a row lock
+        Set<Long> slotTargetIds = new HashSet<>();
+        for (Long targetId : targetIds) {
+            if (!cardIds.contains(targetId) && balanceSlotRegistry.slotsOf(targetId) > 0) {
+                slotTargetIds.add(targetId);
+            }
+        }
+        targetIds.stream().filter(id -> !slotTargetIds.contains(id)).forEach(cardIds::add);
 
+        return cardIds.isEmpty() ? rejected : inLockedTransaction(cardIds, status -> {
+            TransferOutcome[] attempt = rejected.clone();
+
+            // 2. Claim the idempotency keys of the remaining items; an item whose key is taken drops out
+            List<Integer> keyed = new ArrayList<>();
+            for (int i = 0; i < attempt.length; i++) {
+                if (attempt[i] == null && items.get(i).idempotencyKey() != null) {
+                    keyed.add(i);
+                }
+            }
+            boolean[] duplicate = new boolean[attempt.length];
+            if (!keyed.isEmpty()) {
+                boolean[] claimed = idempotencyJdbcRepository.claimAll(
+                        keyed.stream().map(i -> idempotencyKeyOf(items.get(i))).toList());
+                for (int k = 0; k < claimed.length; k++) {
+                    duplicate[keyed.get(k)] = !claimed[k];
+                }
+            }
+
+            // 3. Lock every other card once, in id order, then read the slots of the sharded ones
+            Map<Long, CardJdbcRepository.CardBalance> cards =
+                    cardLockManager.timeDatabaseLock(() -> cardJdbcRepository.lockBalances(cardIds));
+            Map<Long, CardBalanceSlotRepository.SlotTotal> slotTotals =
+                    cards.isEmpty() ? Map.of() : cardBalanceSlotRepository.findSlotTotals(cards.keySet());
+            Map<Long, CardJdbcRepository.CardBalance> slotTargets =
+                    slotTargetIds.isEmpty() ? Map.of() : cardJdbcRepository.findBalances(slotTargetIds);
+
+            // 4. Apply the items in order against running balances, including the slots like the entity path
+            Map<Long, Money> balances = new HashMap<>();
+            cards.values().forEach(card -> balances.put(card.id(), slotTotals.containsKey(card.id())
+                    ? card.balance().plus(slotTotals.get(card.id()).balance())
+                    : card.balance()));
+            Map<Long, Money> slotCredits = new HashMap<>();
+            Set<Long> changed = new HashSet<>();
+            List<LedgerJdbcRepository.Posting> postings = new ArrayList<>();
+
+            for (int i = 0; i < attempt.length; i++) {
+                if (attempt[i] == null && !duplicate[i]) {
+                    TransferRequestDto transfer = items.get(i).request();
+                    attempt[i] = applyBatchItem(transfer, cards, slotTargets, balances, slotCredits);
+                    if (attempt[i] == TransferOutcome.OK) {
+                        changed.add(transfer.sourceCardId());
+                        if (cards.containsKey(transfer.targetCardId())) {
+                            changed.add(transfer.targetCardId());
+                        }
+                        postings.add(LedgerJdbcRepository.Posting.transfer(
+                                transfer.sourceCardId(), transfer.targetCardId(), transfer.amount()));
+                    }
+                }
+            }
+
+            // 5. Give back the claims of rejected items, so their failure is stored like on the other paths
+            List<IdempotencyJdbcRepository.IdempotencyKey> released = keyed.stream()
+                    .filter(i -> !duplicate[i] && attempt[i] != TransferOutcome.OK)
+                    .map(i -> idempotencyKeyOf(items.get(i)))
+                    .toList();
+            if (!released.isEmpty()) {
+                idempotencyJdbcRepository.releaseAll(released);
+            }
+
+            // 6. One JDBC batch with the net balance of every locked card, one with the ledger entries
+            if (!changed.isEmpty()) {
+                Map<Long, Money> updates = new HashMap<>();
+                changed.forEach(id -> updates.put(id, rowBalanceAfter(cards.get(id), slotTotals.get(id), balances.get(id))));
+                cardJdbcRepository.updateBalances(updates);
+                slotCredits.forEach(this::creditSlot);
+                ledgerJdbcRepository.append(postings);
+                cardTransferJdbcRepository.append(postings);
+            }
+
+            for (int i = 0; i < attempt.length; i++) {
+                if (duplicate[i]) {
+                    attempt[i] = null;
+                }
+            }
+            return attempt;
+        });
+    }
+
+    /**
+     * @param owner Owner of the source card, {@code null} if the card does not exist.
+     */
+    private static TransferOutcome verifyOwner(CardJdbcRepository.CardOwner owner, String username) {
+        if (owner == null) {
+            return TransferOutcome.SOURCE_NOT_FOUND;
+        }
+        return owner.username().equals(username) ? TransferOutcome.OK : TransferOutcome.NOT_OWNER;
+    }
+
+    private static IdempotencyJdbcRepository.IdempotencyKey idempotencyKeyOf(TransferGroupCommitter.Item item) {
+        return new IdempotencyJdbcRepository.IdempotencyKey(
+                item.username(), item.idempotencyKey(), item.request().fingerprint());
+    }
+
+    /**
+     * @return The row balance that leaves a locked card with {@code total}. A sharded card pays a net
+     *         debit from its slots first, like on the entity path; a net credit goes to its row.
+     */
+    private Money rowBalanceAfter(CardJdbcRepository.CardBalance card, CardBalanceSlotRepository.SlotTotal slots, Money total) {
+        if (slots == null) {
+            return total;
+        }
+        Money delta = total.minus(card.balance().plus(slots.balance()));
+        if (delta.signum() >= 0) {
+            return card.balance().plus(delta);
+        }
+        Money fromRow = cardBalanceSlotRepository.withdraw(
+                card.id(), balanceSlotRegistry.pickSlot(slots.slots()), delta.negate());
+        return card.balance().minus(fromRow);
+    }
+
+    /**
+     * Credits a sharded target that was not locked through one of its slots, or through a relative
+     * update of its row when it is no longer sharded.
+     */
+    private void creditSlot(Long cardId, Money amount) {
+        int slots = balanceSlotRegistry.slotsOf(cardId);
+        if (slots == 0 || !cardBalanceSlotRepository.deposit(cardId, balanceSlotRegistry.pickSlot(slots), amount)) {
+            cardJdbcRepository.creditBalance(cardId, amount);
+        }
+    }
+
+    /**
+     * @param slotTargets Sharded targets read without a lock; their credits are summed into {@code slotCredits}.
+     */
+    private TransferOutcome applyBatchItem(TransferRequestDto transfer,
+                                           Map<Long, CardJdbcRepository.CardBalance> cards,
+                                           Map<Long, CardJdbcRepository.CardBalance> slotTargets,
+                                           Map<Long, Money> balances,
+                                           Map<Long, Money> slotCredits) {
+        CardJdbcRepository.CardBalance source = cards.get(transfer.sourceCardId());
+        if (source == null) {
+            return TransferOutcome.SOURCE_NOT_FOUND;
+        }
+        if (source.status() != CardStatus.ACTIVE) {
+            return TransferOutcome.SOURCE_INACTIVE;
+        }
+
+        CardJdbcRepository.CardBalance target = cards.containsKey(transfer.targetCardId())
+                ? cards.get(transfer.targetCardId())
+                : slotTargets.get(transfer.targetCardId());
+        if (target == null) {
+            return TransferOutcome.TARGET_NOT_FOUND;
+        }
+        if (target.status() != CardStatus.ACTIVE) {
+            return TransferOutcome.TARGET_INACTIVE;
+        }
+
+        if (balances.get(source.id()).isLessThan(transfer.amount())) {
+            return TransferOutcome.INSUFFICIENT_FUNDS;
+        }
+
+        balances.merge(source.id(), transfer.amount().negate(), Money::plus);
+        (cards.containsKey(target.id()) ? balances : slotCredits).merge(target.id(), transfer.amount(), Money::plus);
+        return TransferOutcome.OK;
+    }
+
+    /**
+     * Runs {@code work} in a transaction while holding the in-JVM stripes of the given cards.
+     * <p>
+     * Same-node contenders first queue on the stripes of {@link CardLockManager}, which are
+     * held until the transaction has finished, so PostgreSQL only sees cross-node contention.
+     * {@code work} is expected to lock its rows in ascending id order; a transaction that still
+     * loses a deadlock (e.g. against an admin update) is replayed.
+     */
+    private <T> T inLockedTransaction(Collection<Long> cardIds, TransactionCallback<T> work) {
+        try (CardLockManager.Lease ignored = cardLockManager.acquire(cardIds)) {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return transactionTemplate.execute(work);
+                } catch (PessimisticLockingFailureException e) {
+                    if (attempt >= transferProperties.maxDeadlockRetries()) {
+                        throw e;
+                    }
+                    cardLockManager.recordDeadlockRetry();
+                }
+            }
+        }
+    }
+
+    /**
+     * @param targetLocked Whether the target row is locked {@code FOR UPDATE} and may be credited through the entity.
+     */
+    private void executeTransfer(String username, TransferRequestDto request,
+                                 Function<Long, Optional<Card>> cardLoader, boolean targetLocked) {
         // 1. Fetch Source Card and validate ownership
-        Card sourceCard = cardRepository.findById(request.sourceCardId())
+        Card sourceCard = cardLoader.apply(request.sourceCardId())
                 .orElseThrow(() -> new CardNotFoundException("Source card not found"));
 
         if (!sourceCard.getOwner().getUsername().equals(username)) {
@@ -105,7 +693,7 @@ public class CardServiceImpl implements CardService {
         }
 
         // 2. Fetch Target Card
-        Card targetCard = cardRepository.findById(request.targetCardId())
+        Card targetCard = cardLoader.apply(request.targetCardId())
                 .orElseThrow(() -> new CardNotFoundException("Target card not found"));
 
         if (targetCard.getStatus().equals(CardStatus.BLOCKED) ||
@@ -113,17 +701,92 @@ public class CardServiceImpl implements CardService {
             throw new RestException("Target card is not active", HttpStatus.BAD_REQUEST);
         }
 
-        // 3. Validate Balance
-        if (sourceCard.getBalance().compareTo(request.amount()) < 0) {
+        // 3. Validate Balance (including the balance slots of a sharded card)
+        if (sourceCard.getTotalBalance().isLessThan(request.amount())) {
             throw new InsufficientFundsException("Insufficient funds");
         }
 
         // 4. Execute Transfer
-        sourceCard.setBalance(sourceCard.getBalance().subtract(request.amount()));
-        targetCard.setBalance(targetCard.getBalance().add(request.amount()));
+        debit(sourceCard, request.amount());
+        credit(targetCard, request.amount(), targetLocked);
 
         cardRepository.save(sourceCard);
         cardRepository.save(targetCard);
+
+        // 5. Record both legs in the ledger and the history of both cards, in the same transaction
+        List<LedgerJdbcRepository.Posting> postings = List.of(LedgerJdbcRepository.Posting.transfer(
+                sourceCard.getId(), targetCard.getId(), request.amount()));
+        ledgerJdbcRepository.append(postings);
+        cardTransferJdbcRepository.append(postings);
+    }
+
+    /**
+     * Debits a card locked {@code FOR UPDATE}. A sharded card pays from its slots first.
+     */
+    private void debit(Card card, Money amount) {
+        Money fromRow = amount;
+        if (card.getBalanceSlots() > 0) {
+            fromRow = cardBalanceSlotRepository.withdraw(
+                    card.getId(), balanceSlotRegistry.pickSlot(card.getBalanceSlots()), amount);
+        }
+        card.setBalance(card.getBalance().minus(fromRow));
+    }
+
+    /**
+     * Credits a card. A sharded card is credited through one of its slots; otherwise the row is
+     * credited through the entity when it is locked, or with a relative update when it is not.
+     */
+    private void credit(Card card, Money amount, boolean locked) {
+        if (card.getBalanceSlots() > 0 && cardBalanceSlotRepository.deposit(
+                card.getId(), balanceSlotRegistry.pickSlot(card.getBalanceSlots()), amount)) {
+            return;
+        }
+        if (locked) {
+            card.setBalance(card.getBalance().plus(amount));
+        } else {
+            // The registry still listed the card as sharded, but it no longer is
+            cardJdbcRepository.creditBalance(card.getId(), amount);
+        }
+    }
+
+    @Override
+    public CursorPageResponseDto<TransferHistoryItemDto> getCardTransfers(Long cardId, String cursor, int size) {
+        if (size < 1 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new RestException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        CardTransferJdbcRepository.CardTransfer.SortKey after = cursor != null ? decodeHistoryCursor(cursor) : null;
+
+        // One extra row tells whether there is a next page
+        CardTransferJdbcRepository.CardHistory history = cardTransferJdbcRepository
+                .findPage(cardId, username, after, size + 1)
+                .orElseThrow(() -> new CardNotFoundException("Card not found"));
+        if (!history.ownerUsername().equals(username)) {
+            throw new AppSecurityException("You do not have permission to view this card");
+        }
+
+        List<CardTransferJdbcRepository.CardTransfer> transfers = history.transfers();
+        String nextCursor = null;
+        if (transfers.size() > size) {
+            transfers = transfers.subList(0, size);
+            CardTransferJdbcRepository.CardTransfer last = transfers.get(size - 1);
+            nextCursor = KeysetCursor.encode(last.createdAt(), last.id());
+        }
+
+        List<TransferHistoryItemDto> content = transfers.stream()
+                .map(t -> new TransferHistoryItemDto(
+                        t.transactionId(), t.direction(), t.counterpartyCardId(), t.amount(), t.createdAt()))
+                .toList();
+        return new CursorPageResponseDto<>(content, size, nextCursor);
+    }
+
+    private CardTransferJdbcRepository.CardTransfer.SortKey decodeHistoryCursor(String cursor) {
+        String[] parts = KeysetCursor.decode(cursor, 2);
+        try {
+            return new CardTransferJdbcRepository.CardTransfer.SortKey(LocalDateTime.parse(parts[0]), Long.parseLong(parts[1]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw KeysetCursor.invalid();
+        }
     }
 
     @Override
@@ -135,47 +798,122 @@ public class CardServiceImpl implements CardService {
         Card card = new Card();
         card.setCardNumber(cardNumberGenerator.generate());
         card.setOwner(owner);
-        card.setBalance(request.initialBalance() != null ? request.initialBalance() : BigDecimal.ZERO);
+        card.setBalance(request.initialBalance() != null ? request.initialBalance() : Money.ZERO);
         card.setStatus(CardStatus.ACTIVE);
         card.setValidityDate(LocalDate.now().plusYears(3));
 
         Card savedCard = cardRepository.save(card);
+        cardSearchIndex.index(savedCard);
+        cardCountCache.invalidate(owner.getId());
+        if (savedCard.getBalance().signum() > 0) {
+            ledgerJdbcRepository.append(List.of(LedgerJdbcRepository.Posting.initialBalance(
+                    savedCard.getId(), savedCard.getBalance())));
+        }
         return CardResponseDto.from(savedCard);
     }
 
     @Override
-    @Transactional
+    public CardResponseDto adjustBalance(Long cardId, BalanceAdjustmentRequestDto request) {
+        if (request.amount().signum() == 0) {
+            throw new RestException("Adjustment amount must not be zero", HttpStatus.BAD_REQUEST);
+        }
+        List<Long> cardIds = List.of(cardId);
+
+        return inLockedTransaction(cardIds, status -> {
+            Card card = cardLockManager
+                    .timeDatabaseLock(() -> cardRepository.findAllByIdInForUpdate(cardIds))
+                    .stream()
+                    .findFirst()
+                    .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found"));
+
+            if (card.getTotalBalance().plus(request.amount()).signum() < 0) {
+                throw new InsufficientFundsException("Adjustment would make the balance negative");
+            }
+
+            if (request.amount().signum() < 0) {
+                debit(card, request.amount().negate());
+            } else {
+                credit(card, request.amount(), true);
+            }
+            Card updatedCard = cardRepository.save(card);
+            ledgerJdbcRepository.append(List.of(LedgerJdbcRepository.Posting.adjustment(
+                    cardId, request.amount(), request.reason())));
+            return CardResponseDto.from(updatedCard);
+        });
+    }
+
+    @Override
+    public CardResponseDto updateBalanceSlots(Long cardId, int slots) {
+        if (slots > balanceSlotProperties.maxSlots()) {
+            throw new RestException("A card can have at most " + balanceSlotProperties.maxSlots() + " balance slots",
+                    HttpStatus.BAD_REQUEST);
+        }
+        List<Long> cardIds = List.of(cardId);
+
+        inLockedTransaction(cardIds, status -> {
+            // In-flight slot credits are waited for by resize, on their slot rows
+            if (cardJdbcRepository.lockBalances(cardIds).isEmpty()) {
+                throw new CardNotFoundException("Card with ID " + cardId + " not found");
+            }
+            cardBalanceSlotRepository.resize(cardId, slots);
+            return null;
+        });
+        balanceSlotRegistry.update(cardId, slots);
+
+        return getCardById(cardId);
+    }
+
+    @Override
     public CardResponseDto updateCardStatus(Long cardId, CardStatus status) {
-        Card card = cardRepository.findById(cardId)
-                .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found"));
+        return optimisticRetry.execute("updateCardStatus", () -> transactionTemplate.execute(tx -> {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found"));
 
-        card.setStatus(status);
-        Card updatedCard = cardRepository.save(card);
-        return CardResponseDto.from(updatedCard);
+            card.setStatus(status);
+            Card updatedCard = cardRepository.save(card);
+            return CardResponseDto.from(updatedCard);
+        }));
     }
 
     @Override
     @Transactional(readOnly = true)
     public List<CardResponseDto> getAllCards() {
-        return cardRepository.findAll().stream()
-                .map(CardResponseDto::from)
-                .collect(Collectors.toList());
+        return withMaskedNumbers(cardRepository.findAllResponses());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllCards(Consumer<CardResponseDto> sink) {
+        try (Stream<Card> cards = exportRepository.streamCards()) {
+            cards.forEach(card -> {
+                sink.accept(CardResponseDto.from(card));
+                exportRepository.detach(card);
+            });
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
     public CardResponseDto getCardById(Long cardId) {
-        Card card = cardRepository.findById(cardId)
+        CardResponseDto card = cardRepository.findResponseById(cardId)
                 .orElseThrow(() -> new CardNotFoundException("Card not found"));
-        return CardResponseDto.from(card);
+        return withMaskedNumbers(List.of(card)).get(0);
+    }
+
+    @Override
+    public String getCardTag(Long cardId) {
+        return cardJdbcRepository.findVersion(cardId)
+                .map(CardJdbcRepository.CardVersion::tag)
+                .orElse(null);
     }
 
     @Override
-    @Transactional
     public void deleteCard(Long cardId) {
-        if (!cardRepository.existsById(cardId)) {
-            throw new CardNotFoundException("Card with ID " + cardId + " not found");
-        }
-        cardRepository.deleteById(cardId);
+        optimisticRetry.run("deleteCard", () -> transactionTemplate.executeWithoutResult(status -> {
+            Card card = cardRepository.findById(cardId)
+                    .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found"));
+            cardRepository.delete(card);
+            cardCountCache.invalidate(card.getOwner().getId());
+        }));
     }
 }
\ No newline at end of file
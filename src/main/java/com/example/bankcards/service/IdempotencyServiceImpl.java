@@ -0,0 +1,172 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.IdempotencyProperties;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.service.interfaces.IdempotencyService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Exactly-once transfers for clients that retry after a timeout.
+ * <p>
+ * Lookup order for a key: bounded in-memory LRU of recent outcomes, then an in-flight execution
+ * of the same key on this node (the duplicate waits for it), then the durable
+ * {@code transfer_idempotency_keys} table. Only when all three miss is the transfer executed;
+ * the key row is claimed inside the transfer's transaction, so a success is stored atomically
+ * with the balance change and duplicates on other nodes are stopped on the key's primary key.
+ */
+@Slf4j
+@Service
+public class IdempotencyServiceImpl implements IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private final CardService cardService;
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final IdempotencyProperties properties;
+
+    private final Map<String, Outcome> recentOutcomes;
+    private final ConcurrentMap<String, CompletableFuture<Outcome>> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyServiceImpl(CardService cardService,
+                                  IdempotencyRecordRepository idempotencyRecordRepository,
+                                  IdempotencyProperties properties) {
+        this.cardService = cardService;
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.properties = properties;
+        this.recentOutcomes = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Outcome> eldest) {
+                return size() > properties.cacheSize();
+            }
+        });
+    }
+
+    @Override
+    public void transfer(String idempotencyKey, TransferRequestDto request) {
+        if (idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new RestException("Idempotency-Key must not exceed " + MAX_KEY_LENGTH + " characters", HttpStatus.BAD_REQUEST);
+        }
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        String cacheKey = username + '\n' + idempotencyKey;
+        String requestHash = request.fingerprint();
+
+        // 1. Recent outcome on this node
+        Outcome cached = recentOutcomes.get(cacheKey);
+        if (cached != null) {
+            cached.replay(requestHash);
+            return;
+        }
+
+        // 2. Same key currently executing on this node
+        CompletableFuture<Outcome> execution = new CompletableFuture<>();
+        CompletableFuture<Outcome> running = inFlight.putIfAbsent(cacheKey, execution);
+        if (running != null) {
+            await(running).replay(requestHash);
+            return;
+        }
+
+        // 3. Durable store, then the transfer itself
+        Outcome outcome;
+        try {
+            outcome = execute(username, idempotencyKey, requestHash, request);
+            recentOutcomes.put(cacheKey, outcome);
+            execution.complete(outcome);
+        } catch (RuntimeException e) {
+            execution.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(cacheKey, execution);
+        }
+        outcome.replay(requestHash);
+    }
+
+    /**
+     * Deletes outcomes older than the configured retention. Keys are expected to be
+     * retried within minutes, so a day of history is plenty.
+     */
+    @Scheduled(fixedDelayString = "${app.idempotency.purge-interval:PT1H}")
+    public void purgeExpired() {
+        int deleted = idempotencyRecordRepository.deleteCreatedBefore(LocalDateTime.now().minus(properties.retention()));
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    private Outcome execute(String username, String idempotencyKey, String requestHash, TransferRequestDto request) {
+        IdempotencyRecord.Key key = new IdempotencyRecord.Key(username, idempotencyKey);
+
+        Outcome stored = idempotencyRecordRepository.findById(key).map(Outcome::of).orElse(null);
+        if (stored != null) {
+            return stored;
+        }
+
+        try {
+            cardService.transfer(request, idempotencyKey);
+            return new Outcome(requestHash, HttpStatus.OK.value(), null);
+        } catch (DataIntegrityViolationException e) {
+            // Another node committed this key while our claim was waiting on it
+            return idempotencyRecordRepository.findById(key).map(Outcome::of).orElseThrow(() -> e);
+        } catch (RestException e) {
+            if (e.isTransient()) {
+                // Busy cards, an unavailable engine or lost optimistic retries; the client's retry must run again
+                throw e;
+            }
+            // Business rejections rolled back, so they are stored separately and replayed as well
+            idempotencyRecordRepository.saveFailureIfAbsent(
+                    username, idempotencyKey, requestHash, e.getStatus().value(), e.getMessage());
+            return new Outcome(requestHash, e.getStatus().value(), e.getMessage());
+        }
+    }
+
+    private Outcome await(CompletableFuture<Outcome> running) {
+        try {
+            return running.get(properties.waitTimeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new RestException("A request with this Idempotency-Key is still being processed", HttpStatus.CONFLICT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestException(e, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RestException(e.getCause(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private record Outcome(String requestHash, int status, String message) {
+
+        static Outcome of(IdempotencyRecord record) {
+            return new Outcome(record.getRequestHash(), record.getStatus(), record.getMessage());
+        }
+
+        void replay(String requestHash) {
+            if (!this.requestHash.equals(requestHash)) {
+                throw new RestException("Idempotency-Key was already used for a different transfer", HttpStatus.UNPROCESSABLE_ENTITY);
+            }
+            if (status != HttpStatus.OK.value()) {
+                throw new RestException(message, HttpStatus.valueOf(status));
+            }
+        }
+    }
+}
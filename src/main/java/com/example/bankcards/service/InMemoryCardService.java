@@ -0,0 +1,249 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.requests.BalanceAdjustmentRequestDto;
+import com.example.bankcards.dto.requests.BatchTransferRequestDto;
+import com.example.bankcards.dto.requests.CreateCardRequestDto;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.BatchTransferResponseDto;
+import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.dto.response.CursorPageResponseDto;
+import com.example.bankcards.dto.response.PageResponseDto;
+import com.example.bankcards.dto.response.TransferHistoryItemDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.service.engine.TransferEngine;
+import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.SpendingLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * {@link CardService} backed by the in-memory {@link TransferEngine}, enabled with {@code app.engine.enabled=true}.
+ * <p>
+ * Money movements (transfers and adjustments) go through the engine; everything else is
+ * delegated to {@link CardServiceImpl}, with the balances in its responses replaced by the
+ * engine's, which may be ahead of the database by the write-behind delay.
+ */
+@Service
+@Primary
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "app.engine", name = "enabled", havingValue = "true")
+public class InMemoryCardService implements CardService {
+
+    private final CardServiceImpl delegate;
+    private final TransferEngine engine;
+    private final SpendingLimiter spendingLimiter;
+
+    @Override
+    public PageResponseDto<CardResponseDto> getMyCards(int page, int size, String query) {
+        PageResponseDto<CardResponseDto> cards = delegate.getMyCards(page, size, query);
+        return new PageResponseDto<>(
+                withEngineBalances(cards.content()),
+                cards.currentPage(),
+                cards.pageSize(),
+                cards.totalElements(),
+                cards.totalPages()
+        );
+    }
+
+    @Override
+    public CursorPageResponseDto<CardResponseDto> getMyCards(String cursor, int size, String query, boolean includeTotal) {
+        CursorPageResponseDto<CardResponseDto> cards = delegate.getMyCards(cursor, size, query, includeTotal);
+        return new CursorPageResponseDto<>(
+                withEngineBalances(cards.content()),
+                cards.pageSize(),
+                cards.nextCursor(),
+                cards.totalElements()
+        );
+    }
+
+    /**
+     * Not tagged: the engine moves balances without touching the rows the tag is computed from, and
+     * checking every card of the owner against it would cost more than the list.
+     */
+    @Override
+    public String getMyCardsTag() {
+        return null;
+    }
+
+    @Override
+    public void blockMyCard(Long cardId) {
+        delegate.blockMyCard(cardId);
+        engine.updateStatus(cardId, CardStatus.BLOCKED);
+    }
+
+    @Override
+    public void transfer(TransferRequestDto request) {
+        transfer(request, null);
+    }
+
+    /**
+     * The idempotency key is journaled with the transfer and stored when the journal is flushed,
+     * so it is durable as soon as the transfer is acknowledged; until it is in the database, the
+     * engine itself recognizes retries of the key.
+     */
+    @Override
+    public void transfer(TransferRequestDto request, String idempotencyKey) {
+        TransferOutcome outcome = execute(request, idempotencyKey);
+        if (outcome != TransferOutcome.OK) {
+            throw outcome.toException();
+        }
+    }
+
+    /**
+     * Items are executed one after the other, so an item sees the credits of the previous ones
+     * as it would in a single database transaction. Unlike there, the accepted items are durable
+     * individually and are not rolled back together.
+     */
+    @Override
+    public BatchTransferResponseDto transferBatch(BatchTransferRequestDto request) {
+        List<TransferRequestDto> transfers = request.transfers();
+        List<BatchTransferResponseDto.Item> results = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            results.add(BatchTransferResponseDto.Item.of(i, execute(transfers.get(i), null)));
+        }
+        return BatchTransferResponseDto.of(results);
+    }
+
+    /**
+     * History rows are written by the engine's flush, so the newest transfers appear after the write-behind delay.
+     */
+    @Override
+    public CursorPageResponseDto<TransferHistoryItemDto> getCardTransfers(Long cardId, String cursor, int size) {
+        return delegate.getCardTransfers(cardId, cursor, size);
+    }
+
+    /**
+     * Checks the ownership and then the spending limits first, like
+     * {@link CardServiceImpl#transfer(TransferRequestDto, String)}.
+     */
+    private TransferOutcome execute(TransferRequestDto request, String idempotencyKey) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String owner = engine.ownerOf(request.sourceCardId());
+        if (owner == null) {
+            return TransferOutcome.SOURCE_NOT_FOUND;
+        }
+        if (!owner.equals(authentication.getName())) {
+            return TransferOutcome.NOT_OWNER;
+        }
+
+        // The requester owns the card, so their tier is the owner's
+        SpendingLimiter.Reservation reservation = spendingLimiter.reserve(
+                request.sourceCardId(), spendingLimiter.tierOf(authentication), request.amount());
+        if (reservation.outcome() != TransferOutcome.OK) {
+            return reservation.outcome();
+        }
+
+        TransferOutcome outcome;
+        try {
+            outcome = engine.transfer(authentication.getName(), request.sourceCardId(), request.targetCardId(),
+                    request.amount().minorUnits(), idempotencyKey, idempotencyKey != null ? request.fingerprint() : null);
+        } catch (RuntimeException e) {
+            reservation.cancel();
+            throw e;
+        }
+        if (outcome != TransferOutcome.OK) {
+            reservation.cancel();
+        }
+        return outcome;
+    }
+
+    @Override
+    public CardResponseDto createCard(CreateCardRequestDto request) {
+        CardResponseDto card = delegate.createCard(request);
+        engine.register(card.id());
+        return card;
+    }
+
+    @Override
+    public CardResponseDto updateCardStatus(Long cardId, CardStatus status) {
+        CardResponseDto card = delegate.updateCardStatus(cardId, status);
+        engine.updateStatus(cardId, status);
+        return withEngineBalance(card);
+    }
+
+    @Override
+    public CardResponseDto adjustBalance(Long cardId, BalanceAdjustmentRequestDto request) {
+        if (request.amount().signum() == 0) {
+            throw new RestException("Adjustment amount must not be zero", HttpStatus.BAD_REQUEST);
+        }
+        switch (engine.adjust(cardId, request.amount().minorUnits(), request.reason())) {
+            case OK -> {
+                return getCardById(cardId);
+            }
+            case INSUFFICIENT_FUNDS -> throw new InsufficientFundsException("Adjustment would make the balance negative");
+            default -> throw new CardNotFoundException("Card with ID " + cardId + " not found");
+        }
+    }
+
+    /**
+     * Resizing folds slot balances into the card row without changing the total, and the
+     * engine only ever writes relative updates, so the two do not interfere.
+     */
+    @Override
+    public CardResponseDto updateBalanceSlots(Long cardId, int slots) {
+        return withEngineBalance(delegate.updateBalanceSlots(cardId, slots));
+    }
+
+    @Override
+    public List<CardResponseDto> getAllCards() {
+        return withEngineBalances(delegate.getAllCards());
+    }
+
+    @Override
+    public void exportAllCards(Consumer<CardResponseDto> sink) {
+        delegate.exportAllCards(card -> sink.accept(withEngineBalance(card)));
+    }
+
+    @Override
+    public CardResponseDto getCardById(Long cardId) {
+        return withEngineBalance(delegate.getCardById(cardId));
+    }
+
+    /**
+     * The row's tag with the engine's balance appended, which moves ahead of the row.
+     */
+    @Override
+    public String getCardTag(Long cardId) {
+        return withEngineBalance(cardId, delegate.getCardTag(cardId));
+    }
+
+    @Override
+    public void deleteCard(Long cardId) {
+        delegate.deleteCard(cardId);
+        engine.remove(cardId);
+    }
+
+    private List<CardResponseDto> withEngineBalances(List<CardResponseDto> cards) {
+        return cards.stream().map(this::withEngineBalance).toList();
+    }
+
+    private String withEngineBalance(long cardId, String etag) {
+        Money balance = engine.balanceOf(cardId);
+        if (etag == null || balance == null) {
+            return etag;
+        }
+        return etag + "e" + balance.minorUnits();
+    }
+
+    private CardResponseDto withEngineBalance(CardResponseDto card) {
+        Money balance = engine.balanceOf(card.id());
+        if (balance == null) {
+            return card;
+        }
+        return new CardResponseDto(card.id(), card.maskCardNumber(), balance, card.status(), card.validityDate());
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.LedgerProperties;
+import com.example.bankcards.dto.response.LedgerRebuildResponseDto;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.LedgerJdbcRepository;
+import com.example.bankcards.service.interfaces.LedgerService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Treats {@code cards.balance} as a projection of {@code ledger_entries}.
+ * <p>
+ * The rebuild splits the cards into chunks of {@code app.ledger.rebuild-chunk-size} and recomputes
+ * the chunks concurrently, each in its own short transaction. Only one chunk of cards is locked at a
+ * time per worker, so transfers on other cards keep running while the rebuild is in progress.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerServiceImpl implements LedgerService {
+
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LedgerProperties ledgerProperties;
+
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    @Override
+    public LedgerRebuildResponseDto rebuildBalances() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            throw new RestException("A balance rebuild is already running", HttpStatus.CONFLICT);
+        }
+        try {
+            long started = System.nanoTime();
+            List<Long> starts = ledgerJdbcRepository.findChunkStarts(ledgerProperties.rebuildChunkSize());
+
+            List<CompletableFuture<Integer>> chunks = new ArrayList<>(starts.size());
+            try (ExecutorService executor = Executors.newFixedThreadPool(ledgerProperties.rebuildParallelism())) {
+                for (int i = 0; i < starts.size(); i++) {
+                    long fromId = starts.get(i);
+                    long toId = i + 1 < starts.size() ? starts.get(i + 1) : Long.MAX_VALUE;
+                    chunks.add(CompletableFuture.supplyAsync(() -> transactionTemplate.execute(
+                            status -> ledgerJdbcRepository.rebuildBalances(fromId, toId)), executor));
+                }
+                CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+            }
+
+            long corrected = chunks.stream().mapToLong(CompletableFuture::join).sum();
+            long durationMs = (System.nanoTime() - started) / 1_000_000;
+            log.info("Rebuilt card balances from the ledger: {} chunks, {} cards corrected in {} ms",
+                    starts.size(), corrected, durationMs);
+            return new LedgerRebuildResponseDto(starts.size(), corrected, durationMs);
+        } finally {
+            rebuilding.set(false);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.requests.UpdateSpendingLimitsRequestDto;
+import com.example.bankcards.dto.response.CardLimitsResponseDto;
+import com.example.bankcards.dto.response.TierLimitsResponseDto;
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.exception.CardNotFoundException;
+import com.example.bankcards.repository.SpendingLimitJdbcRepository;
+import com.example.bankcards.service.interfaces.SpendingLimitService;
+import com.example.bankcards.util.SpendingLimiter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Administration of spending limits. Changes are stored first and then applied to this node's
+ * {@link SpendingLimiter}, so they take effect on the next transfer without a restart.
+ */
+@Service
+@RequiredArgsConstructor
+public class SpendingLimitServiceImpl implements SpendingLimitService {
+
+    private final SpendingLimitJdbcRepository spendingLimitJdbcRepository;
+    private final SpendingLimiter spendingLimiter;
+
+    @Override
+    public List<TierLimitsResponseDto> getTierLimits() {
+        return Arrays.stream(ClientTier.values())
+                .map(tier -> TierLimitsResponseDto.from(tier, spendingLimiter.tierLimits(tier)))
+                .toList();
+    }
+
+    @Override
+    public TierLimitsResponseDto updateTierLimits(ClientTier tier, UpdateSpendingLimitsRequestDto request) {
+        SpendingLimitJdbcRepository.Limits limits = limitsOf(request);
+        spendingLimitJdbcRepository.saveTierLimits(tier, limits);
+        spendingLimiter.updateTierLimits(tier, limits);
+        return TierLimitsResponseDto.from(tier, spendingLimiter.tierLimits(tier));
+    }
+
+    @Override
+    public CardLimitsResponseDto getCardLimits(Long cardId) {
+        ClientTier tier = spendingLimitJdbcRepository.findOwnerTier(cardId)
+                .orElseThrow(() -> new CardNotFoundException("Card with ID " + cardId + " not found"));
+
+        SpendingLimitJdbcRepository.Limits own = spendingLimiter.cardLimits(cardId);
+        SpendingLimitJdbcRepository.Limits inherited = spendingLimiter.tierLimits(tier);
+        return new CardLimitsResponseDto(
+                cardId,
+                tier,
+                own.perTransaction(),
+                own.daily(),
+                own.perTransaction() != null ? own.perTransaction() : inherited.perTransaction(),
+                own.daily() != null ? own.daily() : inherited.daily(),
+                spendingLimiter.spentInWindow(cardId)
+        );
+    }
+
+    @Override
+    public CardLimitsResponseDto updateCardLimits(Long cardId, UpdateSpendingLimitsRequestDto request) {
+        if (spendingLimitJdbcRepository.findOwnerTier(cardId).isEmpty()) {
+            throw new CardNotFoundException("Card with ID " + cardId + " not found");
+        }
+        SpendingLimitJdbcRepository.Limits limits = limitsOf(request);
+        spendingLimitJdbcRepository.saveCardLimits(cardId, limits);
+        spendingLimiter.updateCardLimits(cardId, limits);
+        return getCardLimits(cardId);
+    }
+
+    private static SpendingLimitJdbcRepository.Limits limitsOf(UpdateSpendingLimitsRequestDto request) {
+        return new SpendingLimitJdbcRepository.Limits(request.perTransactionLimit(), request.dailyLimit());
+    }
+}
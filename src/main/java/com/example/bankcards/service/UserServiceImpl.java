@@ -1,38 +1,95 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.dto.response.CursorPageResponseDto;
 import com.example.bankcards.dto.response.UserResponseDto;
 import com.example.bankcards.entity.Client;
+import com.example.bankcards.entity.enums.Role;
 import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.ClientJdbcRepository;
 import com.example.bankcards.repository.ClientRepository;
+import com.example.bankcards.repository.ExportRepository;
 import com.example.bankcards.service.interfaces.UserService;
+import com.example.bankcards.util.KeysetCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final ClientRepository clientRepository;
+    private final ExportRepository exportRepository;
+    private final ClientJdbcRepository clientJdbcRepository;
 
     @Override
     @Transactional(readOnly = true)
     public List<UserResponseDto> getAllUsers() {
-        return clientRepository.findAll().stream()
-                .map(UserResponseDto::from)
-                .collect(Collectors.toList());
+        return clientRepository.findAllResponses();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportAllUsers(Consumer<UserResponseDto> sink) {
+        try (Stream<Client> clients = exportRepository.streamClients()) {
+            clients.forEach(client -> {
+                sink.accept(UserResponseDto.from(client));
+                exportRepository.detach(client);
+            });
+        }
+    }
+
+    @Override
+    public CursorPageResponseDto<UserResponseDto> searchUsers(String usernamePrefix, Role role, Boolean locked,
+                                                              String cursor, int size) {
+        if (size < 1 || size > MAX_SEARCH_PAGE_SIZE) {
+            throw new RestException("Page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE, HttpStatus.BAD_REQUEST);
+        }
+
+        // One extra row tells whether there is a next page
+        List<ClientJdbcRepository.ClientSummary> clients;
+        boolean byUsername = StringUtils.hasLength(usernamePrefix);
+        if (byUsername) {
+            String afterUsername = cursor != null ? KeysetCursor.decode(cursor, 1)[0] : null;
+            clients = clientJdbcRepository.findByUsernamePrefix(usernamePrefix, afterUsername, role, locked, size + 1);
+        } else {
+            long afterId = cursor != null ? decodeIdCursor(cursor) : 0;
+            clients = clientJdbcRepository.findByFilters(role, locked, afterId, size + 1);
+        }
+
+        String nextCursor = null;
+        if (clients.size() > size) {
+            clients = clients.subList(0, size);
+            ClientJdbcRepository.ClientSummary last = clients.get(size - 1);
+            nextCursor = byUsername ? KeysetCursor.encode(last.username()) : KeysetCursor.encode(last.id());
+        }
+        List<UserResponseDto> content = clients.stream()
+                .map(client -> new UserResponseDto(client.id(), client.username(), client.role(), client.locked()))
+                .toList();
+        return new CursorPageResponseDto<>(content, size, nextCursor);
+    }
+
+    private long decodeIdCursor(String cursor) {
+        try {
+            return Long.parseLong(KeysetCursor.decode(cursor, 1)[0]);
+        } catch (NumberFormatException e) {
+            throw KeysetCursor.invalid();
+        }
     }
 
     @Override
     @Transactional(readOnly = true)
     public UserResponseDto getUserById(Long id) {
-        Client client = clientRepository.findById(id)
+        return clientRepository.findResponseById(id)
                 .orElseThrow(() -> new RestException("User not found", HttpStatus.NOT_FOUND));
-        return UserResponseDto.from(client);
     }
 
     @Override
@@ -0,0 +1,44 @@
+package com.example.bankcards.service.engine;
+
+/**
+ * One acknowledged balance movement, as written to a partition's journal.
+ * Amounts are in minor units (cents).
+ *
+ * @param seq            Position in the partition's journal; strictly increasing, never reused.
+ * @param sourceCardId   Debited card of a transfer, or the adjusted card.
+ * @param targetCardId   Credited card of a transfer; 0 for an adjustment.
+ * @param amount         Positive for a transfer, the signed balance change for an adjustment.
+ * @param idempotencyKey Key to store with the transfer, or {@code null}.
+ * @param description    Reason of an adjustment, or {@code null}.
+ */
+public record JournalRecord(
+        long seq,
+        Type type,
+        long sourceCardId,
+        long targetCardId,
+        long amount,
+        String username,
+        String idempotencyKey,
+        String requestHash,
+        String description
+) {
+    public enum Type {
+        TRANSFER,
+        ADJUSTMENT
+    }
+
+    public static JournalRecord transfer(long seq, long sourceCardId, long targetCardId, long amount,
+                                         String username, String idempotencyKey, String requestHash) {
+        return new JournalRecord(seq, Type.TRANSFER, sourceCardId, targetCardId, amount,
+                username, idempotencyKey, requestHash, null);
+    }
+
+    public static JournalRecord adjustment(long seq, long cardId, long delta, String reason) {
+        return new JournalRecord(seq, Type.ADJUSTMENT, cardId, 0, delta, null, null, null, reason);
+    }
+
+    JournalRecord withSeq(long seq) {
+        return new JournalRecord(seq, type, sourceCardId, targetCardId, amount,
+                username, idempotencyKey, requestHash, description);
+    }
+}
@@ -0,0 +1,704 @@
+package com.example.bankcards.service.engine;
+
+import com.example.bankcards.config.EngineProperties;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardTransferJdbcRepository;
+import com.example.bankcards.repository.EngineJdbcRepository;
+import com.example.bankcards.repository.IdempotencyJdbcRepository;
+import com.example.bankcards.repository.LedgerJdbcRepository;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.MpscRingBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer transfer engine: card balances live in memory and every card is owned by one
+ * partition thread, so a transfer never waits for a lock.
+ * <p>
+ * A transfer is routed to the partition of its source card, which validates it, debits the source
+ * and appends it to the partition's {@link TransferJournal}. Once the journal of the whole batch
+ * has been forced to disk the transfers are acknowledged and the credits are handed to the
+ * partitions owning the target cards. A flusher thread writes the journal behind to PostgreSQL
+ * ({@code cards}, {@code ledger_entries}, {@code card_transfers}, {@code transfer_idempotency_keys})
+ * in batches and records the flushed position per partition in {@code engine_checkpoints}.
+ * <p>
+ * On startup the unflushed tail of every journal is written to the database first, then the
+ * balances are loaded from it. The engine assumes it is the only writer of card balances, so it
+ * must run on a single node.
+ * <p>
+ * An idempotency key only reaches the database with the flush, so the engine remembers the keys it
+ * has journaled until {@code keyRetention} after their flush. A retry of a journaled transfer is
+ * acknowledged without being applied again, whether or not the key is in the database yet.
+ * <p>
+ * A flush that keeps failing stops the engine after {@code flushMaxAttempts}, rather than
+ * letting every later record queue behind it while the journal grows.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.engine.flush} - duration of one write-behind transaction.</li>
+ *     <li>{@code bank.engine.flush.backlog} - acknowledged journal records not yet in PostgreSQL.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "app.engine", name = "enabled", havingValue = "true")
+public class TransferEngine implements SmartLifecycle {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final EngineProperties properties;
+    private final EngineJdbcRepository engineJdbcRepository;
+    private final LedgerJdbcRepository ledgerJdbcRepository;
+    private final CardTransferJdbcRepository cardTransferJdbcRepository;
+    private final IdempotencyJdbcRepository idempotencyJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    private final ConcurrentMap<Long, CardState> cards = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Journaled> flushQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger flushBacklog = new AtomicInteger();
+    private final List<Journaled> pendingFlush = new ArrayList<>();
+    private final ConcurrentMap<String, String> claimedKeys = new ConcurrentHashMap<>();
+    private final ArrayDeque<FlushedKey> flushedKeys = new ArrayDeque<>();
+    private final Counter keyConflicts;
+    private int flushFailures;
+    private final Timer flushTimer;
+
+    private Partition[] partitions;
+    private ScheduledExecutorService flusher;
+    private volatile boolean running;
+    private volatile Throwable failure;
+
+    public TransferEngine(EngineProperties properties,
+                          EngineJdbcRepository engineJdbcRepository,
+                          LedgerJdbcRepository ledgerJdbcRepository,
+                          CardTransferJdbcRepository cardTransferJdbcRepository,
+                          IdempotencyJdbcRepository idempotencyJdbcRepository,
+                          TransactionTemplate transactionTemplate,
+                          MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.engineJdbcRepository = engineJdbcRepository;
+        this.ledgerJdbcRepository = ledgerJdbcRepository;
+        this.cardTransferJdbcRepository = cardTransferJdbcRepository;
+        this.idempotencyJdbcRepository = idempotencyJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+
+        this.flushTimer = Timer.builder("bank.engine.flush")
+                .description("Duration of one write-behind flush of the transfer journal")
+                .register(meterRegistry);
+        Gauge.builder("bank.engine.flush.backlog", flushBacklog, AtomicInteger::get)
+                .description("Acknowledged transfers not yet written to the database")
+                .register(meterRegistry);
+        this.keyConflicts = Counter.builder("bank.engine.idempotency.conflicts")
+                .description("Flushed transfers whose idempotency key was already stored")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Executes a transfer and waits until it is journaled.
+     *
+     * @param amount Amount in minor units.
+     * @return The verdict; {@link TransferOutcome#OK} means the transfer is durable, or that a
+     * transfer with the same idempotency key and request was journaled before.
+     * @throws RestException 503 if the engine is stopped, overloaded or does not take the command within the
+     * ack timeout; 409 if the command was taken but not acknowledged in time, or if its idempotency key was
+     * journaled for a different request.
+     */
+    public TransferOutcome transfer(String username, long sourceCardId, long targetCardId, long amount,
+                                    String idempotencyKey, String requestHash) {
+        return submit(sourceCardId, new Command(JournalRecord.transfer(
+                0, sourceCardId, targetCardId, amount, username, idempotencyKey, requestHash)));
+    }
+
+    /**
+     * Changes the balance of a card by a signed amount.
+     *
+     * @param delta Change in minor units.
+     * @return {@link TransferOutcome#SOURCE_NOT_FOUND} for an unknown card,
+     * {@link TransferOutcome#INSUFFICIENT_FUNDS} if the balance would become negative.
+     */
+    public TransferOutcome adjust(long cardId, long delta, String reason) {
+        return submit(cardId, new Command(JournalRecord.adjustment(0, cardId, delta, reason)));
+    }
+
+    /**
+     * @return The current balance of the card, or {@code null} if the engine does not know it.
+     */
+    public Money balanceOf(long cardId) {
+        CardState card = cards.get(cardId);
+        return card != null ? Money.ofMinor(card.balance) : null;
+    }
+
+    /**
+     * @return The username of the card's owner, or {@code null} if the engine does not know the card.
+     */
+    public String ownerOf(long cardId) {
+        CardState card = cards.get(cardId);
+        return card != null ? card.ownerUsername : null;
+    }
+
+    /**
+     * Loads a card created after startup. Its balance is read from the database, so it must be
+     * called after the creating transaction has committed and before the card is used.
+     */
+    public void register(long cardId) {
+        engineJdbcRepository.loadCard(cardId).ifPresent(snapshot -> cards.putIfAbsent(cardId, CardState.of(snapshot)));
+    }
+
+    public void updateStatus(long cardId, CardStatus status) {
+        CardState card = cards.get(cardId);
+        if (card != null) {
+            card.status = status;
+        }
+    }
+
+    public void remove(long cardId) {
+        cards.remove(cardId);
+    }
+
+    private TransferOutcome submit(long cardId, Command command) {
+        if (!running || failure != null) {
+            throw new RestException("Transfer engine is not available", HttpStatus.SERVICE_UNAVAILABLE);
+        }
+        Partition partition = partitions[partitionOf(cardId)];
+        long timeoutNanos = properties.ackTimeout().toNanos();
+        long deadline = System.nanoTime() + timeoutNanos;
+
+        while (!partition.commands.offer(command)) {
+            if (System.nanoTime() - deadline > 0) {
+                throw new RestException("Transfer engine is overloaded", HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            LockSupport.parkNanos(IDLE_PARK_NANOS);
+        }
+        LockSupport.unpark(partition.thread);
+
+        try {
+            try {
+                return command.result.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                if (command.taken.compareAndSet(false, true)) {
+                    // Still queued: the partition will skip it, so retrying cannot apply it twice
+                    throw new RestException("Transfer engine did not acknowledge the request in time", HttpStatus.SERVICE_UNAVAILABLE);
+                }
+                // Taken by its partition, which only has the journal force left
+                return command.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+            }
+        } catch (TimeoutException e) {
+            throw new RestException("The request is still being processed", HttpStatus.CONFLICT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (command.taken.compareAndSet(false, true)) {
+                throw new RestException(e, HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            throw new RestException("The request is still being processed", HttpStatus.CONFLICT);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RestException(e.getCause(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private int partitionOf(long cardId) {
+        return (int) Math.floorMod(cardId, (long) partitions.length);
+    }
+
+    // --- Lifecycle ---------------------------------------------------------------------------
+
+    @Override
+    public void start() {
+        Map<Integer, Long> checkpoints;
+        try {
+            checkpoints = recover();
+            partitions = new Partition[properties.partitions()];
+            for (int i = 0; i < partitions.length; i++) {
+                partitions[i] = new Partition(i, new TransferJournal(properties.journalDir(), i,
+                        properties.segmentSize().toBytes(), properties.fsync(), checkpoints.getOrDefault(i, 0L) + 1));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not open the transfer journal in " + properties.journalDir(), e);
+        }
+
+        for (Partition partition : partitions) {
+            partition.thread = Thread.ofPlatform().name("engine-partition-" + partition.id).start(partition);
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("engine-flusher").factory());
+        long interval = properties.flushInterval().toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+
+        running = true;
+        log.info("Transfer engine started with {} partitions and {} cards", partitions.length, cards.size());
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        for (Partition partition : partitions) {
+            partition.closing = true;
+            LockSupport.unpark(partition.thread);
+        }
+        try {
+            for (Partition partition : partitions) {
+                partition.thread.join();
+            }
+            flusher.shutdown();
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        flushQuietly();
+        for (Partition partition : partitions) {
+            try {
+                partition.journal.close();
+            } catch (IOException e) {
+                log.warn("Could not close the journal of partition {}", partition.id, e);
+            }
+        }
+        if (flushBacklog.get() > 0) {
+            log.warn("Transfer engine stopped with {} journal records not flushed; they are replayed on the next start",
+                    flushBacklog.get());
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts before the web server accepts requests and stops after it has drained them.
+     */
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    /**
+     * Writes the unflushed tail of every journal (including partitions that are no longer
+     * configured) to the database, deletes the journals and loads the card balances.
+     *
+     * @return Last journal sequence by partition.
+     */
+    private Map<Integer, Long> recover() throws IOException {
+        Map<Integer, Long> checkpoints = new HashMap<>(engineJdbcRepository.findCheckpoints());
+
+        for (int partition : TransferJournal.partitionsIn(properties.journalDir())) {
+            List<JournalRecord> records = TransferJournal.replay(
+                    properties.journalDir(), partition, checkpoints.getOrDefault(partition, 0L));
+            // The keys are in the database once persisted, but requests may still be checking it as the engine starts
+            long now = System.nanoTime();
+            for (JournalRecord record : records) {
+                if (record.idempotencyKey() != null) {
+                    claimedKeys.put(keyOf(record), record.requestHash());
+                    flushedKeys.add(new FlushedKey(keyOf(record), now));
+                }
+            }
+            for (int from = 0; from < records.size(); from += properties.flushBatchSize()) {
+                List<Journaled> chunk = records.subList(from, Math.min(records.size(), from + properties.flushBatchSize()))
+                        .stream()
+                        .map(record -> new Journaled(partition, record))
+                        .toList();
+                checkpoints.putAll(persist(chunk));
+            }
+            if (!records.isEmpty()) {
+                log.info("Replayed {} unflushed journal records of partition {}", records.size(), partition);
+            }
+            TransferJournal.deleteAll(properties.journalDir(), partition);
+        }
+
+        engineJdbcRepository.loadCards(snapshot -> cards.put(snapshot.id(), CardState.of(snapshot)));
+        return checkpoints;
+    }
+
+    // --- Write-behind ------------------------------------------------------------------------
+
+    private synchronized void flushQuietly() {
+        try {
+            flush();
+            flushFailures = 0;
+        } catch (RuntimeException e) {
+            if (++flushFailures >= properties.flushMaxAttempts()) {
+                fail(e);
+            }
+            log.warn("Write-behind flush failed {} times in a row, {} journal records will be retried",
+                    flushFailures, flushBacklog.get(), e);
+        }
+    }
+
+    /**
+     * Writes acknowledged records to the database, one transaction per {@code flushBatchSize}
+     * records, and deletes the journal segments that are no longer needed. A failed batch is
+     * kept and retried by the next run.
+     */
+    synchronized void flush() {
+        long now = System.nanoTime();
+        while (!flushedKeys.isEmpty() && now - flushedKeys.peek().flushedAt() > properties.keyRetention().toNanos()) {
+            claimedKeys.remove(flushedKeys.poll().key());
+        }
+
+        boolean full;
+        do {
+            Journaled item;
+            while (pendingFlush.size() < properties.flushBatchSize() && (item = flushQueue.poll()) != null) {
+                pendingFlush.add(item);
+            }
+            if (pendingFlush.isEmpty()) {
+                return;
+            }
+            full = pendingFlush.size() == properties.flushBatchSize();
+
+            Map<Integer, Long> checkpoints = flushTimer.record(() -> persist(pendingFlush));
+            long flushedAt = System.nanoTime();
+            for (Journaled flushed : pendingFlush) {
+                if (flushed.record().idempotencyKey() != null) {
+                    flushedKeys.add(new FlushedKey(keyOf(flushed.record()), flushedAt));
+                }
+            }
+            flushBacklog.addAndGet(-pendingFlush.size());
+            pendingFlush.clear();
+
+            checkpoints.forEach((partition, seq) -> {
+                try {
+                    partitions[partition].journal.deleteSegmentsUpTo(seq);
+                } catch (IOException e) {
+                    log.warn("Could not delete flushed journal segments of partition {}", partition, e);
+                }
+            });
+        } while (full);
+    }
+
+    /**
+     * Applies journal records to the database in one transaction. Card rows are updated in id
+     * order with relative updates, so the write is safe to combine with other writers' row locks.
+     *
+     * @return Highest sequence written, by partition.
+     */
+    private Map<Integer, Long> persist(List<Journaled> items) {
+        Map<Long, Money> deltas = new TreeMap<>();
+        List<LedgerJdbcRepository.Posting> postings = new ArrayList<>(items.size());
+        List<IdempotencyJdbcRepository.IdempotencyKey> keys = new ArrayList<>();
+        Map<Integer, Long> checkpoints = new HashMap<>();
+
+        for (Journaled item : items) {
+            JournalRecord record = item.record();
+            Money amount = Money.ofMinor(record.amount());
+            if (record.type() == JournalRecord.Type.TRANSFER) {
+                deltas.merge(record.sourceCardId(), amount.negate(), Money::plus);
+                deltas.merge(record.targetCardId(), amount, Money::plus);
+                postings.add(LedgerJdbcRepository.Posting.transfer(record.sourceCardId(), record.targetCardId(), amount));
+                if (record.idempotencyKey() != null) {
+                    keys.add(new IdempotencyJdbcRepository.IdempotencyKey(
+                            record.username(), record.idempotencyKey(), record.requestHash()));
+                }
+            } else {
+                deltas.merge(record.sourceCardId(), amount, Money::plus);
+                postings.add(LedgerJdbcRepository.Posting.adjustment(record.sourceCardId(), amount, record.description()));
+            }
+            checkpoints.merge(item.partition(), record.seq(), Math::max);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            engineJdbcRepository.applyBalanceDeltas(deltas);
+            ledgerJdbcRepository.append(postings);
+            cardTransferJdbcRepository.append(postings);
+            if (!keys.isEmpty()) {
+                boolean[] claimed = idempotencyJdbcRepository.claimAll(keys);
+                for (int i = 0; i < claimed.length; i++) {
+                    if (!claimed[i]) {
+                        // The money has moved and was acknowledged; the stored outcome wins for replays
+                        keyConflicts.increment();
+                        log.error("Idempotency-Key {} of {} was already stored when its transfer was flushed",
+                                keys.get(i).idempotencyKey(), keys.get(i).username());
+                    }
+                }
+            }
+            engineJdbcRepository.saveCheckpoints(checkpoints);
+        });
+        return checkpoints;
+    }
+
+    private void fail(Throwable cause) {
+        if (failure == null) {
+            failure = cause;
+            log.error("Transfer engine failed; it no longer accepts transfers", cause);
+        }
+    }
+
+    // --- Partitions --------------------------------------------------------------------------
+
+    /**
+     * Owns the balances of the cards whose id maps to it. Only its thread writes them.
+     */
+    private final class Partition implements Runnable {
+
+        private final int id;
+        private final TransferJournal journal;
+        private final MpscRingBuffer<Command> commands = new MpscRingBuffer<>(properties.ringBufferSize());
+        private final ConcurrentLinkedQueue<Credit> credits = new ConcurrentLinkedQueue<>();
+        private final List<Command> batch = new ArrayList<>();
+        private volatile Thread thread;
+        private volatile boolean closing;
+
+        Partition(int id, TransferJournal journal) {
+            this.id = id;
+            this.journal = journal;
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                boolean worked = applyCredits();
+                worked |= processBatch();
+                if (!worked) {
+                    if (closing && commands.isEmpty() && credits.isEmpty()) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        private void credit(long cardId, long amount) {
+            credits.add(new Credit(cardId, amount));
+            LockSupport.unpark(thread);
+        }
+
+        private boolean applyCredits() {
+            boolean applied = false;
+            Credit credit;
+            while ((credit = credits.poll()) != null) {
+                CardState card = cards.get(credit.cardId());
+                if (card != null) {
+                    card.balance += credit.amount();
+                }
+                applied = true;
+            }
+            return applied;
+        }
+
+        /**
+         * Applies up to {@code maxBatchSize} commands, journals the accepted ones with a single
+         * force and only then acknowledges them and forwards their credits.
+         */
+        private boolean processBatch() {
+            boolean worked = false;
+            Command command;
+            while (batch.size() < properties.maxBatchSize() && (command = commands.poll()) != null) {
+                worked = true;
+                if (!command.taken.compareAndSet(false, true)) {
+                    continue; // Its caller gave up waiting
+                }
+                if (failure != null) {
+                    command.result.completeExceptionally(
+                            new RestException("Transfer engine is not available", HttpStatus.SERVICE_UNAVAILABLE));
+                    continue;
+                }
+                if (!claimKey(command)) {
+                    continue;
+                }
+                TransferOutcome outcome = apply(command);
+                if (outcome == TransferOutcome.OK) {
+                    batch.add(command);
+                } else {
+                    releaseKey(command.record);
+                    command.result.complete(outcome);
+                }
+            }
+            if (batch.isEmpty()) {
+                return worked;
+            }
+
+            try {
+                for (Command accepted : batch) {
+                    accepted.record = journal.append(accepted.record);
+                }
+                journal.force();
+            } catch (IOException | RuntimeException e) {
+                for (int i = batch.size() - 1; i >= 0; i--) {
+                    undo(batch.get(i));
+                    releaseKey(batch.get(i).record);
+                }
+                fail(e);
+                batch.forEach(rejected -> rejected.result.completeExceptionally(
+                        new RestException("Transfer engine is not available", HttpStatus.SERVICE_UNAVAILABLE)));
+                batch.clear();
+                return true;
+            }
+
+            for (Command accepted : batch) {
+                if (accepted.target != null && partitionOf(accepted.target.id) != id) {
+                    partitions[partitionOf(accepted.target.id)].credit(accepted.target.id, accepted.record.amount());
+                }
+                flushQueue.add(new Journaled(id, accepted.record));
+                accepted.result.complete(TransferOutcome.OK);
+            }
+            flushBacklog.addAndGet(batch.size());
+            batch.clear();
+            return true;
+        }
+
+        /**
+         * Claims the command's idempotency key across all partitions. A duplicate is completed
+         * here: acknowledged if it repeats the journaled request, 409 otherwise, which is not
+         * stored as the key's outcome and is replayed as 422 once the key is in the database.
+         *
+         * @return Whether the command should be applied.
+         */
+        private boolean claimKey(Command command) {
+            JournalRecord record = command.record;
+            if (record.idempotencyKey() == null) {
+                return true;
+            }
+            String requestHash = claimedKeys.putIfAbsent(keyOf(record), record.requestHash());
+            if (requestHash == null) {
+                return true;
+            }
+            if (requestHash.equals(record.requestHash())) {
+                command.result.complete(TransferOutcome.OK);
+            } else {
+                command.result.completeExceptionally(new RestException(
+                        "A request with this Idempotency-Key is still being processed", HttpStatus.CONFLICT));
+            }
+            return false;
+        }
+
+        private void releaseKey(JournalRecord record) {
+            if (record.idempotencyKey() != null) {
+                claimedKeys.remove(keyOf(record), record.requestHash());
+            }
+        }
+
+        /**
+         * Validates a command in the same order as the database paths and applies it to the
+         * balances this partition owns.
+         */
+        private TransferOutcome apply(Command command) {
+            JournalRecord record = command.record;
+            CardState source = cards.get(record.sourceCardId());
+            if (source == null) {
+                return TransferOutcome.SOURCE_NOT_FOUND;
+            }
+
+            if (record.type() == JournalRecord.Type.ADJUSTMENT) {
+                if (source.balance + record.amount() < 0) {
+                    return TransferOutcome.INSUFFICIENT_FUNDS;
+                }
+                source.balance += record.amount();
+                command.source = source;
+                return TransferOutcome.OK;
+            }
+
+            if (!source.ownerUsername.equals(record.username())) {
+                return TransferOutcome.NOT_OWNER;
+            }
+            if (source.status != CardStatus.ACTIVE) {
+                return TransferOutcome.SOURCE_INACTIVE;
+            }
+            CardState target = cards.get(record.targetCardId());
+            if (target == null) {
+                return TransferOutcome.TARGET_NOT_FOUND;
+            }
+            if (target.status != CardStatus.ACTIVE) {
+                return TransferOutcome.TARGET_INACTIVE;
+            }
+            if (source.balance < record.amount()) {
+                return TransferOutcome.INSUFFICIENT_FUNDS;
+            }
+
+            source.balance -= record.amount();
+            if (partitionOf(target.id) == id) {
+                target.balance += record.amount();
+            }
+            command.source = source;
+            command.target = target;
+            return TransferOutcome.OK;
+        }
+
+        private void undo(Command command) {
+            if (command.record.type() == JournalRecord.Type.ADJUSTMENT) {
+                command.source.balance -= command.record.amount();
+                return;
+            }
+            command.source.balance += command.record.amount();
+            if (partitionOf(command.target.id) == id) {
+                command.target.balance -= command.record.amount();
+            }
+        }
+    }
+
+    /**
+     * In-memory state of one card. {@code balance} is in minor units and is written only by the
+     * thread of the partition owning the card; other threads may read it.
+     */
+    private static final class CardState {
+        private final long id;
+        private final String ownerUsername;
+        private volatile CardStatus status;
+        private volatile long balance;
+
+        private CardState(long id, String ownerUsername, CardStatus status, long balance) {
+            this.id = id;
+            this.ownerUsername = ownerUsername;
+            this.status = status;
+            this.balance = balance;
+        }
+
+        static CardState of(EngineJdbcRepository.CardSnapshot snapshot) {
+            return new CardState(snapshot.id(), snapshot.ownerUsername(), snapshot.status(),
+                    snapshot.balance().minorUnits());
+        }
+    }
+
+    private static String keyOf(JournalRecord record) {
+        return record.username() + '\n' + record.idempotencyKey();
+    }
+
+    private static final class Command {
+        private final CompletableFuture<TransferOutcome> result = new CompletableFuture<>();
+        // Set by the partition that applies the command, or by its caller to cancel it
+        private final AtomicBoolean taken = new AtomicBoolean();
+        private JournalRecord record;
+        private CardState source;
+        private CardState target;
+
+        Command(JournalRecord record) {
+            this.record = record;
+        }
+    }
+
+    private record Credit(long cardId, long amount) {}
+
+    private record Journaled(int partition, JournalRecord record) {}
+
+    private record FlushedKey(String key, long flushedAt) {}
+}
@@ -0,0 +1,277 @@
+package com.example.bankcards.service.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of one engine partition, stored in memory-mapped segment files.
+ * <p>
+ * A record is {@code [int length][payload][int crc32(payload)]}; a segment is zero-filled when it
+ * is created, so replay stops at the first zero length or checksum mismatch, which is where a torn
+ * write left off. Segments are named after the sequence of their first record and are deleted once
+ * every record in them has been flushed to PostgreSQL.
+ * <p>
+ * {@link #append} and {@link #force} are called by the partition thread only;
+ * {@link #deleteSegmentsUpTo} is called by the flusher.
+ */
+public class TransferJournal implements Closeable {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("partition-(\\d{2})-(\\d{20})\\.journal");
+    private static final int FRAME_OVERHEAD = 2 * Integer.BYTES;
+    private static final int MAX_PAYLOAD = 64 * 1024;
+
+    private final Path directory;
+    private final int partition;
+    private final long segmentSize;
+    private final boolean fsync;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private final ByteBuffer payload = ByteBuffer.allocate(MAX_PAYLOAD);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long nextSeq;
+
+    /**
+     * Opens a new, empty segment; existing segments of the partition must have been replayed and deleted.
+     *
+     * @param firstSeq Sequence of the first record to append.
+     */
+    public TransferJournal(Path directory, int partition, long segmentSize, boolean fsync, long firstSeq) throws IOException {
+        if (segmentSize < MAX_PAYLOAD + FRAME_OVERHEAD) {
+            throw new IllegalArgumentException("Journal segments must be at least " + (MAX_PAYLOAD + FRAME_OVERHEAD) + " bytes");
+        }
+        this.directory = directory;
+        this.partition = partition;
+        this.segmentSize = segmentSize;
+        this.fsync = fsync;
+        this.nextSeq = firstSeq;
+        Files.createDirectories(directory);
+        openSegment();
+    }
+
+    /**
+     * Writes a record into the mapped segment. It is not durable until {@link #force()} returns.
+     *
+     * @param record The record; its {@code seq} is ignored.
+     * @return The record with the sequence it was written under.
+     */
+    public synchronized JournalRecord append(JournalRecord record) throws IOException {
+        JournalRecord numbered = record.withSeq(nextSeq);
+        encode(numbered);
+        if (buffer.remaining() < payload.remaining() + FRAME_OVERHEAD + Integer.BYTES) {
+            // Keep a zero length after the last record, so replay knows where the segment ends
+            force();
+            openSegment();
+        }
+        crc.reset();
+        crc.update(payload.duplicate());
+        buffer.putInt(payload.remaining());
+        buffer.put(payload);
+        buffer.putInt((int) crc.getValue());
+        nextSeq++;
+        return numbered;
+    }
+
+    /**
+     * Makes every appended record durable. A no-op when fsync is disabled, in which case a
+     * record survives a process crash (the page cache is shared) but not a power loss.
+     */
+    public synchronized void force() {
+        if (fsync) {
+            buffer.force();
+        }
+    }
+
+    /**
+     * Deletes every segment that only holds records up to {@code seq}. The current segment is always kept.
+     */
+    public synchronized void deleteSegmentsUpTo(long seq) throws IOException {
+        while (segments.size() > 1) {
+            Segment oldest = segments.pollFirst();
+            Segment next = segments.peekFirst();
+            if (next.firstSeq() > seq + 1) {
+                segments.addFirst(oldest);
+                return;
+            }
+            Files.deleteIfExists(oldest.path());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private void openSegment() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+        Path path = directory.resolve(segmentName(partition, nextSeq));
+        channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segments.addLast(new Segment(nextSeq, path));
+    }
+
+    private void encode(JournalRecord record) {
+        payload.clear();
+        payload.putLong(record.seq());
+        payload.put((byte) record.type().ordinal());
+        payload.putLong(record.sourceCardId());
+        payload.putLong(record.targetCardId());
+        payload.putLong(record.amount());
+        putString(record.username());
+        putString(record.idempotencyKey());
+        putString(record.requestHash());
+        putString(record.description());
+        payload.flip();
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            payload.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        payload.putShort((short) bytes.length);
+        payload.put(bytes);
+    }
+
+    /**
+     * Reads the journal of a partition, in sequence order, up to the first torn or corrupt record.
+     *
+     * @param afterSeq Records up to and including this sequence are skipped.
+     */
+    public static List<JournalRecord> replay(Path directory, int partition, long afterSeq) throws IOException {
+        List<JournalRecord> records = new ArrayList<>();
+        for (Path path : segmentsOf(directory, partition)) {
+            try (FileChannel segment = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer in = segment.map(FileChannel.MapMode.READ_ONLY, 0, segment.size());
+                if (!readRecords(in, afterSeq, records)) {
+                    break;
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * @return {@code true} if the segment ended cleanly, {@code false} at a torn or corrupt record.
+     */
+    private static boolean readRecords(ByteBuffer in, long afterSeq, List<JournalRecord> records) {
+        CRC32 checksum = new CRC32();
+        while (in.remaining() >= Integer.BYTES) {
+            int length = in.getInt();
+            if (length == 0) {
+                return true;
+            }
+            if (length < 0 || length > MAX_PAYLOAD || in.remaining() < length + Integer.BYTES) {
+                return false;
+            }
+            ByteBuffer body = in.slice(in.position(), length);
+            in.position(in.position() + length);
+            checksum.reset();
+            checksum.update(body.duplicate());
+            if ((int) checksum.getValue() != in.getInt()) {
+                return false;
+            }
+            JournalRecord record = decode(body);
+            if (record.seq() > afterSeq) {
+                records.add(record);
+            }
+        }
+        return true;
+    }
+
+    private static JournalRecord decode(ByteBuffer in) {
+        return new JournalRecord(
+                in.getLong(),
+                JournalRecord.Type.values()[in.get()],
+                in.getLong(),
+                in.getLong(),
+                in.getLong(),
+                getString(in),
+                getString(in),
+                getString(in),
+                getString(in));
+    }
+
+    private static String getString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Deletes every segment of a partition, after its records have been replayed into the database.
+     */
+    public static void deleteAll(Path directory, int partition) throws IOException {
+        for (Path path : segmentsOf(directory, partition)) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    /**
+     * @return The partitions that have segments in the directory, including ones beyond the configured count.
+     */
+    public static Set<Integer> partitionsIn(Path directory) throws IOException {
+        Set<Integer> partitions = new TreeSet<>();
+        if (!Files.isDirectory(directory)) {
+            return partitions;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> SEGMENT_NAME.matcher(path.getFileName().toString()))
+                    .filter(Matcher::matches)
+                    .forEach(matcher -> partitions.add(Integer.parseInt(matcher.group(1))));
+        }
+        return partitions;
+    }
+
+    private static List<Path> segmentsOf(Path directory, int partition) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        String prefix = "partition-%02d-".formatted(partition);
+        try (Stream<Path> files = Files.list(directory)) {
+            // Zero-padded sequence numbers sort lexicographically
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix) && SEGMENT_NAME.matcher(name).matches();
+                    })
+                    .sorted()
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    static String segmentName(int partition, long firstSeq) {
+        return "partition-%02d-%020d.journal".formatted(partition, firstSeq);
+    }
+
+    private record Segment(long firstSeq, Path path) {}
+}
@@ -0,0 +1,24 @@
+package com.example.bankcards.service.interfaces;
+
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.AsyncTransferResponseDto;
+
+import java.util.UUID;
+
+public interface AsyncTransferService {
+    /**
+     * Checks that the source card belongs to the current user, stores the transfer as PENDING
+     * and queues it for execution without waiting for it.
+     * @param request Transfer details (source, target, amount).
+     * @return The pending transfer, with the id to poll.
+     * @throws com.example.bankcards.exception.RestException With 429 if the queue of this node is full.
+     */
+    AsyncTransferResponseDto submit(TransferRequestDto request);
+
+    /**
+     * Retrieves a transfer submitted by the current user.
+     * @param transferId ID returned by {@link #submit}.
+     * @return The transfer and, once it has run, its result.
+     */
+    AsyncTransferResponseDto getStatus(UUID transferId);
+}
@@ -0,0 +1,12 @@
+package com.example.bankcards.service.interfaces;
+
+import com.example.bankcards.dto.response.ExpirySweepResponseDto;
+
+public interface CardExpiryService {
+
+    /**
+     * Moves every active card past its validity date to EXPIRED, in chunks of one transaction each.
+     * @return How many cards were expired, in how many chunks and how fast.
+     */
+    ExpirySweepResponseDto expireDueCards();
+}
@@ -0,0 +1,17 @@
+package com.example.bankcards.service.interfaces;
+
+import com.example.bankcards.dto.response.ReencryptionStatusResponseDto;
+
+public interface CardReencryptionService {
+
+    /**
+     * Starts re-encrypting, in the background, every card number not encrypted with the active key.
+     * @return The status of the job just started.
+     */
+    ReencryptionStatusResponseDto start();
+
+    /**
+     * @return The status of the running job, or of the last one run on this node.
+     */
+    ReencryptionStatusResponseDto status();
+}
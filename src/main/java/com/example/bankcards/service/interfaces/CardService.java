@@ -1,23 +1,46 @@
 package com.example.bankcards.service.interfaces;
 
+import com.example.bankcards.dto.requests.BalanceAdjustmentRequestDto;
+import com.example.bankcards.dto.requests.BatchTransferRequestDto;
 import com.example.bankcards.dto.requests.CreateCardRequestDto;
 import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.BatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.dto.response.CursorPageResponseDto;
 import com.example.bankcards.dto.response.PageResponseDto;
+import com.example.bankcards.dto.response.TransferHistoryItemDto;
 import com.example.bankcards.entity.enums.CardStatus;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface CardService {
     /**
      * Retrieves all cards belonging to the current user with pagination and optional search.
      * @param page Page number (0-based).
      * @param size Page size.
-     * @param query Optional search query (partial card number).
+     * @param query Optional search query (partial card number, at least one n-gram of digits).
      * @return Paginated list of masked card details.
      */
     PageResponseDto<CardResponseDto> getMyCards(int page, int size, String query);
 
+    /**
+     * Retrieves the current user's cards by ascending ID, one keyset page at a time and without counting them.
+     * @param cursor {@code nextCursor} of the previous page, or {@code null} for the first page.
+     * @param size Page size.
+     * @param query Optional search query, as for {@link #getMyCards(int, int, String)}.
+     * @param includeTotal Whether to return the number of matching cards, from a cached count when there is no query.
+     * @return One page of masked card details.
+     */
+    CursorPageResponseDto<CardResponseDto> getMyCards(String cursor, int size, String query, boolean includeTotal);
+
+    /**
+     * Computes the entity tag of the current user's card list in one query, without loading any card.
+     * It changes whenever one of the user's cards is created, changed or deleted.
+     * @return The unquoted tag, or {@code null} if the list cannot be tagged.
+     */
+    String getMyCardsTag();
+
     /**
      * Blocks a card owned by the current user.
      * @param cardId The ID of the card to block.
@@ -29,6 +52,30 @@ public interface CardService {
      */
     void transfer(TransferRequestDto request);
 
+    /**
+     * Executes a fund transfer and claims the given idempotency key in the same transaction.
+     * @param request Transfer details (source, target, amount).
+     * @param idempotencyKey Key to record together with the balance change, or {@code null}.
+     */
+    void transfer(TransferRequestDto request, String idempotencyKey);
+
+    /**
+     * Executes many transfers in one transaction. Each item succeeds or fails on its own;
+     * rejected items move no money and do not affect the others.
+     * @param request The transfers, applied in request order.
+     * @return Per-item outcome, in request order.
+     */
+    BatchTransferResponseDto transferBatch(BatchTransferRequestDto request);
+
+    /**
+     * Retrieves the transfers of a card owned by the current user, newest first.
+     * @param cardId The ID of the card.
+     * @param cursor {@code nextCursor} of the previous page, or {@code null} for the first page.
+     * @param size Page size.
+     * @return One page of sent and received transfers.
+     */
+    CursorPageResponseDto<TransferHistoryItemDto> getCardTransfers(Long cardId, String cursor, int size);
+
     /**
      * Creates a new card for a specific user.
      * @param request Details including user ID and initial balance.
@@ -44,12 +91,35 @@ public interface CardService {
      */
     CardResponseDto updateCardStatus(Long cardId, CardStatus status);
 
+    /**
+     * Corrects the balance of a card by a signed amount and records it in the ledger.
+     * @param cardId The ID of the card.
+     * @param request The signed amount and the reason for the adjustment.
+     * @return The updated card details.
+     */
+    CardResponseDto adjustBalance(Long cardId, BalanceAdjustmentRequestDto request);
+
+    /**
+     * Changes how many sub-balance slots a card's credits are spread over. The money already held
+     * in slots is folded back into the card first, so the balance does not change.
+     * @param cardId The ID of the card.
+     * @param slots The new slot count; 0 turns sharding off.
+     * @return The card details.
+     */
+    CardResponseDto updateBalanceSlots(Long cardId, int slots);
+
     /**
      * Retrieves all cards existing in the system.
      * @return List of all cards.
      */
     List<CardResponseDto> getAllCards();
 
+    /**
+     * Streams all cards existing in the system, ordered by ID, without holding them in memory.
+     * @param sink Receives each card; called on the current thread before this method returns.
+     */
+    void exportAllCards(Consumer<CardResponseDto> sink);
+
     /**
      * Retrieves a specific card by its unique identifier.
      * @param cardId The card ID.
@@ -57,6 +127,13 @@ public interface CardService {
      */
     CardResponseDto getCardById(Long cardId);
 
+    /**
+     * Computes the entity tag of a card by primary key, without loading it.
+     * @param cardId The ID of the card.
+     * @return The unquoted tag, or {@code null} if the card does not exist.
+     */
+    String getCardTag(Long cardId);
+
     /**
      * Deletes a card from the database.
      * @param cardId The ID of the card to delete.
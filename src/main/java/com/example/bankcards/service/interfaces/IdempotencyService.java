@@ -0,0 +1,13 @@
+package com.example.bankcards.service.interfaces;
+
+import com.example.bankcards.dto.requests.TransferRequestDto;
+
+public interface IdempotencyService {
+    /**
+     * Executes a transfer at most once per user and key. Retries with the same key replay the
+     * outcome of the first execution (success or the original error) without touching any card.
+     * @param idempotencyKey Client-generated key from the {@code Idempotency-Key} header.
+     * @param request Transfer details (source, target, amount).
+     */
+    void transfer(String idempotencyKey, TransferRequestDto request);
+}
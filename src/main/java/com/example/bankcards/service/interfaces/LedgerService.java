@@ -0,0 +1,12 @@
+package com.example.bankcards.service.interfaces;
+
+import com.example.bankcards.dto.response.LedgerRebuildResponseDto;
+
+public interface LedgerService {
+
+    /**
+     * Recomputes every card balance from the ledger and overwrites balances that have drifted.
+     * @return How many chunks were processed and how many cards were corrected.
+     */
+    LedgerRebuildResponseDto rebuildBalances();
+}
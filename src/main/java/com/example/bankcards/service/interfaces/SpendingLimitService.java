@@ -0,0 +1,19 @@
+package com.example.bankcards.service.interfaces;
+
+import com.example.bankcards.dto.requests.UpdateSpendingLimitsRequestDto;
+import com.example.bankcards.dto.response.CardLimitsResponseDto;
+import com.example.bankcards.dto.response.TierLimitsResponseDto;
+import com.example.bankcards.entity.enums.ClientTier;
+
+import java.util.List;
+
+public interface SpendingLimitService {
+    List<TierLimitsResponseDto> getTierLimits();
+    TierLimitsResponseDto updateTierLimits(ClientTier tier, UpdateSpendingLimitsRequestDto request);
+    CardLimitsResponseDto getCardLimits(Long cardId);
+
+    /**
+     * Replaces the card's override; both limits {@code null} removes it.
+     */
+    CardLimitsResponseDto updateCardLimits(Long cardId, UpdateSpendingLimitsRequestDto request);
+}
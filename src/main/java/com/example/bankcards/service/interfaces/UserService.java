@@ -1,10 +1,30 @@
 package com.example.bankcards.service.interfaces;
 
+import com.example.bankcards.dto.response.CursorPageResponseDto;
 import com.example.bankcards.dto.response.UserResponseDto;
+import com.example.bankcards.entity.enums.Role;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     List<UserResponseDto> getAllUsers();
+
+    /**
+     * Streams all users, ordered by ID, without holding them in memory.
+     * @param sink Receives each user; called on the current thread before this method returns.
+     */
+    void exportAllUsers(Consumer<UserResponseDto> sink);
+
+    /**
+     * Searches users, one keyset page at a time: by username when a prefix is given, otherwise by ID.
+     * @param usernamePrefix Optional case-sensitive start of the username.
+     * @param role Optional role filter.
+     * @param locked Optional lock status filter.
+     * @param cursor {@code nextCursor} of the previous page, or {@code null} for the first page.
+     * @param size Page size.
+     * @return One page of matching users.
+     */
+    CursorPageResponseDto<UserResponseDto> searchUsers(String usernamePrefix, Role role, Boolean locked, String cursor, int size);
     UserResponseDto getUserById(Long id);
     void deleteUser(Long id);
     UserResponseDto updateUserLockStatus(Long id, boolean isLocked);
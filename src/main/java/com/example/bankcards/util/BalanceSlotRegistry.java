@@ -0,0 +1,58 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory view of which cards are sharded into balance slots.
+ * <p>
+ * Lets the transfer path decide, before taking any lock, whether a target card is credited
+ * through a slot (no row or stripe lock on the card) or through its row. A stale entry is harmless:
+ * the card row read inside the transaction is authoritative, and crediting either way keeps the
+ * total balance correct. Changes made on this node apply immediately, other nodes pick them up
+ * on the next refresh.
+ */
+@Component
+@RequiredArgsConstructor
+public class BalanceSlotRegistry {
+
+    private final CardBalanceSlotRepository cardBalanceSlotRepository;
+
+    private volatile Map<Long, Integer> slotCounts = Map.of();
+
+    /**
+     * @return The number of slots of the card, 0 if it is not sharded.
+     */
+    public int slotsOf(Long cardId) {
+        return slotCounts.getOrDefault(cardId, 0);
+    }
+
+    /**
+     * Picks the slot a credit or debit starts with by hashing the current thread. Concurrent writers
+     * run on different threads, so they spread over the slots and stay off each other's slot rows.
+     */
+    public int pickSlot(int slots) {
+        // Fibonacci hashing, so consecutive thread ids land on different slots
+        return Math.floorMod(Long.hashCode(Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L), slots);
+    }
+
+    public synchronized void update(Long cardId, int slots) {
+        Map<Long, Integer> copy = new HashMap<>(slotCounts);
+        if (slots > 0) {
+            copy.put(cardId, slots);
+        } else {
+            copy.remove(cardId);
+        }
+        slotCounts = Map.copyOf(copy);
+    }
+
+    @Scheduled(fixedDelayString = "${app.balance-slots.refresh-interval:PT30S}")
+    public synchronized void refresh() {
+        slotCounts = Map.copyOf(cardBalanceSlotRepository.findSlotCounts());
+    }
+}
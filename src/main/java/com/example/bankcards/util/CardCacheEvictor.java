@@ -0,0 +1,72 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.SecondLevelCacheProperties;
+import com.example.bankcards.entity.Card;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Drops cards from the second-level cache after plain SQL has written their rows past Hibernate.
+ * <p>
+ * A card is evicted at once and, inside a transaction, again once it has committed, so a concurrent
+ * reader cannot put back the row from before the change. Does nothing while the cache is disabled.
+ */
+@Component
+public class CardCacheEvictor {
+
+    /**
+     * For code that writes cards without a persistence unit, such as benchmarks.
+     */
+    public static final CardCacheEvictor NONE = new CardCacheEvictor((Cache) null);
+
+    private final Cache cache;
+
+    @Autowired
+    public CardCacheEvictor(EntityManagerFactory entityManagerFactory, SecondLevelCacheProperties properties) {
+        this(properties.enabled() ? entityManagerFactory.getCache() : null);
+    }
+
+    private CardCacheEvictor(Cache cache) {
+        this.cache = cache;
+    }
+
+    public void evict(long cardId) {
+        evict(List.of(cardId));
+    }
+
+    public void evict(Collection<Long> cardIds) {
+        if (cache == null || cardIds.isEmpty()) {
+            return;
+        }
+        List<Long> ids = List.copyOf(cardIds);
+        afterCommitToo(() -> ids.forEach(id -> cache.evict(Card.class, id)));
+    }
+
+    /**
+     * Drops every card, for statements that rewrite rows without naming them.
+     */
+    public void evictAll() {
+        if (cache != null) {
+            afterCommitToo(() -> cache.evict(Card.class));
+        }
+    }
+
+    private static void afterCommitToo(Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        }
+    }
+}
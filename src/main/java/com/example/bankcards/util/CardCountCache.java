@@ -0,0 +1,95 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CardCountCacheProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Number of cards per owner, so the totals of a card list do not cost a {@code COUNT(*)} per page.
+ * <p>
+ * A count is dropped when this node creates or deletes a card of its owner, and once more after
+ * that transaction commits, so a concurrent reader cannot put back the count from before the
+ * change. Changes made through other nodes show after at most {@code ttl}.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.card.count.cache.gets{result=hit|miss}} - lookups, a miss costing one count query.</li>
+ * </ul>
+ */
+@Component
+public class CardCountCache {
+
+    private final long ttlNanos;
+    private final Map<Long, Entry> counts;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public CardCountCache(CardCountCacheProperties properties, MeterRegistry meterRegistry) {
+        this.ttlNanos = properties.ttl().toNanos();
+        this.counts = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > properties.maxSize();
+            }
+        });
+
+        this.hits = Counter.builder("bank.card.count.cache.gets")
+                .description("Per-owner card count lookups")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("bank.card.count.cache.gets")
+                .description("Per-owner card count lookups")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param count Counts the owner's cards in the database; called on a miss.
+     */
+    public long get(long ownerId, LongSupplier count) {
+        long now = System.nanoTime();
+        Entry entry = counts.get(ownerId);
+        if (entry != null && now - entry.countedAt() < ttlNanos) {
+            hits.increment();
+            return entry.count();
+        }
+        misses.increment();
+        long counted = count.getAsLong();
+        counts.put(ownerId, new Entry(counted, now));
+        return counted;
+    }
+
+    /**
+     * Stores a count read along with other data, so the totals served next agree with that data.
+     */
+    public void put(long ownerId, long count) {
+        counts.put(ownerId, new Entry(count, System.nanoTime()));
+    }
+
+    /**
+     * Drops the owner's count now and, inside a transaction, again once it has committed.
+     */
+    public void invalidate(long ownerId) {
+        counts.remove(ownerId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    counts.remove(ownerId);
+                }
+            });
+        }
+    }
+
+    private record Entry(long count, long countedAt) {
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CardLast4Properties;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.security.CardNumberCipher;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills in {@code cards.card_last4} for the cards created before the column existed.
+ * <p>
+ * The cards are read in chunks by ascending ID, as bare IDs and ciphertexts without hydrating
+ * entities, and each chunk is written back in one batch. Numbers are decrypted with the cipher
+ * directly rather than through the card-number cache, which they would only flood, and are wiped
+ * once their last four digits are taken. A card whose number cannot be decrypted is logged and
+ * skipped, so it keeps being masked from its decrypted number.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardLast4Backfill {
+
+    private final CardJdbcRepository cardJdbcRepository;
+    private final CardNumberCipher cardNumberCipher;
+    private final CardLast4Properties properties;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long started = System.currentTimeMillis();
+        int chunkSize = Math.max(1, properties.backfillChunkSize());
+        long afterId = 0;
+        long filled = 0;
+        List<CardJdbcRepository.StoredNumber> chunk;
+        do {
+            chunk = cardJdbcRepository.findNumbersWithoutLast4(afterId, chunkSize);
+            Map<Long, String> last4ByCardId = new HashMap<>();
+            for (CardJdbcRepository.StoredNumber stored : chunk) {
+                try {
+                    byte[] number = cardNumberCipher.decrypt(stored.ciphertext());
+                    try {
+                        if (number.length >= 4) {
+                            last4ByCardId.put(stored.id(),
+                                    new String(number, number.length - 4, 4, StandardCharsets.UTF_8));
+                        }
+                    } finally {
+                        Arrays.fill(number, (byte) 0);
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("Card {} keeps no last four digits: {}", stored.id(), e.getMessage());
+                }
+            }
+            if (!last4ByCardId.isEmpty()) {
+                cardJdbcRepository.updateLast4(last4ByCardId);
+                filled += last4ByCardId.size();
+            }
+            if (!chunk.isEmpty()) {
+                afterId = chunk.getLast().id();
+            }
+        } while (chunk.size() == chunkSize);
+
+        if (filled > 0) {
+            log.info("Filled in the last four digits of {} cards in {} ms", filled, System.currentTimeMillis() - started);
+        }
+    }
+}
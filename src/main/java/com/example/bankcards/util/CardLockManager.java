@@ -0,0 +1,147 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.TransferProperties;
+import com.example.bankcards.exception.RestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-JVM lock table keyed by card id.
+ * <p>
+ * Transfers touching the same cards on this node queue here, in memory, before they ever
+ * issue {@code SELECT ... FOR UPDATE}. Stripes are always taken in ascending stripe order,
+ * so two requests locking the same pair of cards in opposite directions cannot deadlock.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.transfer.lock.wait{layer=jvm|db}} - time spent waiting for a stripe / for the row locks.</li>
+ *     <li>{@code bank.transfer.lock.contended} - stripe acquisitions that could not be granted immediately.</li>
+ *     <li>{@code bank.transfer.deadlock.retries} - transactions replayed after losing a database deadlock.</li>
+ * </ul>
+ */
+@Component
+public class CardLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+    private final long timeoutNanos;
+
+    private final Timer jvmLockWait;
+    private final Timer dbLockWait;
+    private final Counter contended;
+    private final Counter deadlockRetries;
+
+    public CardLockManager(TransferProperties properties, MeterRegistry meterRegistry) {
+        int size = Integer.highestOneBit(Math.max(1, properties.lockStripes() - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+        this.timeoutNanos = properties.lockTimeout().toNanos();
+
+        this.jvmLockWait = Timer.builder("bank.transfer.lock.wait")
+                .description("Time spent waiting for card locks")
+                .tag("layer", "jvm")
+                .register(meterRegistry);
+        this.dbLockWait = Timer.builder("bank.transfer.lock.wait")
+                .description("Time spent waiting for card locks")
+                .tag("layer", "db")
+                .register(meterRegistry);
+        this.contended = Counter.builder("bank.transfer.lock.contended")
+                .description("Stripe acquisitions that had to wait for another transfer")
+                .register(meterRegistry);
+        this.deadlockRetries = Counter.builder("bank.transfer.deadlock.retries")
+                .description("Transfer transactions replayed after a database deadlock")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Locks the stripes guarding the given cards. The returned lease must be closed
+     * after the surrounding transaction has committed or rolled back.
+     *
+     * @param cardIds The cards about to be modified.
+     * @return A lease releasing every acquired stripe on {@link Lease#close()}.
+     * @throws RestException 503 if the stripes cannot be acquired within the configured timeout.
+     */
+    public Lease acquire(Collection<Long> cardIds) {
+        int[] indexes = cardIds.stream()
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        long start = System.nanoTime();
+        try {
+            for (int index : indexes) {
+                ReentrantLock lock = stripes[index];
+                if (!lock.tryLock()) {
+                    contended.increment();
+                    long remaining = timeoutNanos - (System.nanoTime() - start);
+                    if (remaining <= 0 || !lock.tryLock(remaining, TimeUnit.NANOSECONDS)) {
+                        throw new RestException("Card is busy, please retry later", HttpStatus.SERVICE_UNAVAILABLE);
+                    }
+                }
+                acquired++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestException(e, HttpStatus.SERVICE_UNAVAILABLE);
+        } finally {
+            jvmLockWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (acquired < indexes.length) {
+                unlock(indexes, acquired);
+            }
+        }
+        return new Lease(indexes);
+    }
+
+    /**
+     * Runs the given row-locking query and records how long it waited on the database.
+     */
+    public <T> T timeDatabaseLock(Supplier<T> lockingQuery) {
+        return dbLockWait.record(lockingQuery);
+    }
+
+    public void recordDeadlockRetry() {
+        deadlockRetries.increment();
+    }
+
+    int stripeOf(Long cardId) {
+        long h = cardId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & mask;
+    }
+
+    private void unlock(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    public final class Lease implements AutoCloseable {
+
+        private final int[] indexes;
+        private boolean released;
+
+        private Lease(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            if (!released) {
+                released = true;
+                unlock(indexes, indexes.length);
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CardSearchProperties;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardNumberTokenJdbcRepository;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.security.CardNumberBlindIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Partial card-number search through the blind index of {@link CardNumberBlindIndex}.
+ * <p>
+ * A card is indexed in the transaction that creates it. Cards without tokens, i.e. those created
+ * before the index existed or inserted outside the application, are indexed by a backfill after
+ * startup, one chunk per transaction; it is the only place card numbers are decrypted in bulk.
+ * A search looks up the tokens of the query and returns the cards holding all of them, so cards
+ * that cannot match are never loaded.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class CardSearchIndex {
+
+    private final CardNumberBlindIndex blindIndex;
+    private final CardNumberTokenJdbcRepository cardNumberTokenJdbcRepository;
+    private final CardRepository cardRepository;
+    private final CardSearchProperties properties;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Indexes a new card; call it in the transaction that inserts the card.
+     */
+    public void index(Card card) {
+        cardNumberTokenJdbcRepository.insert(List.of(tokensOf(card)));
+    }
+
+    /**
+     * @return The digits of the query, without the spaces and dashes a card number is often written with.
+     * @throws RestException 400 if anything else is left, or fewer digits than one n-gram.
+     */
+    public String normalize(String query) {
+        String digits = query.replaceAll("[\\s-]", "");
+        if (!digits.chars().allMatch(c -> c >= '0' && c <= '9')) {
+            throw new RestException("Search query must contain digits only", HttpStatus.BAD_REQUEST);
+        }
+        if (digits.length() < blindIndex.ngramLength()) {
+            throw new RestException("Search query must contain at least " + blindIndex.ngramLength() + " digits",
+                    HttpStatus.BAD_REQUEST);
+        }
+        return digits;
+    }
+
+    /**
+     * @param digits A query returned by {@link #normalize}.
+     * @return IDs of the owner's cards holding every n-gram of the query, ascending. Their numbers
+     * are likely but not certain to contain the query, since the n-grams may be found apart; the
+     * caller checks the decrypted number.
+     */
+    public List<Long> findCandidates(long ownerId, String digits) {
+        return cardNumberTokenJdbcRepository.findCardIdsWithAllTokens(ownerId, blindIndex.tokens(ownerId, digits));
+    }
+
+    /**
+     * Indexes every card that has no tokens yet. With several nodes starting together the chunks
+     * may overlap, which only inserts the same tokens twice.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long started = System.currentTimeMillis();
+        int chunkSize = Math.max(1, properties.backfillChunkSize());
+        long afterId = 0;
+        long indexed = 0;
+        List<Long> cardIds;
+        do {
+            cardIds = cardNumberTokenJdbcRepository.findUnindexedCardIds(afterId, chunkSize);
+            if (cardIds.isEmpty()) {
+                break;
+            }
+            List<Long> chunk = cardIds;
+            transactionTemplate.executeWithoutResult(status -> cardNumberTokenJdbcRepository.insert(
+                    cardRepository.findAllById(chunk).stream().map(this::tokensOf).toList()));
+            afterId = cardIds.getLast();
+            indexed += cardIds.size();
+        } while (cardIds.size() == chunkSize);
+
+        if (indexed > 0) {
+            log.info("Indexed the card numbers of {} cards in {} ms", indexed, System.currentTimeMillis() - started);
+        }
+    }
+
+    private CardNumberTokenJdbcRepository.CardTokens tokensOf(Card card) {
+        long ownerId = card.getOwner().getId();
+        return new CardNumberTokenJdbcRepository.CardTokens(card.getId(), ownerId,
+                blindIndex.tokens(ownerId, card.getCardNumber()));
+    }
+}
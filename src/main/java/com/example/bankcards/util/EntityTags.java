@@ -0,0 +1,29 @@
+package com.example.bankcards.util;
+
+import org.springframework.http.ETag;
+
+/**
+ * Conditional GET support: deciding whether a client's cached copy is still current without building
+ * the response.
+ */
+public final class EntityTags {
+
+    private EntityTags() {
+    }
+
+    /**
+     * Compares weakly, as {@code If-None-Match} requires, so a tag a proxy marked weak still matches.
+     *
+     * @param ifNoneMatch The {@code If-None-Match} header, {@code null} if absent.
+     * @param etag        The current tag, unquoted; {@code null} if the resource cannot be tagged.
+     * @return Whether the client's copy is current and a {@code 304} can be returned.
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        ETag current = ETag.create(ETag.quoteETagIfNecessary(etag));
+        return ETag.parse(ifNoneMatch).stream()
+                .anyMatch(tag -> tag.isWildcard() || tag.compare(current, false));
+    }
+}
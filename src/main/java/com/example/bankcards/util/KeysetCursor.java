@@ -0,0 +1,55 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.exception.RestException;
+import org.springframework.http.HttpStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset-pagination cursors: the sort key of the last row of a page, encoded so that
+ * clients pass it back unchanged instead of building offsets.
+ */
+public final class KeysetCursor {
+
+    private static final char SEPARATOR = '|';
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * @param parts The sort key columns of the last returned row, in index order. Only the last may contain {@code '|'}.
+     */
+    public static String encode(Object... parts) {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                raw.append(SEPARATOR);
+            }
+            raw.append(parts[i]);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param expectedParts Number of sort key columns the cursor must contain.
+     * @return The sort key columns as strings; the caller parses them.
+     * @throws RestException 400 if the cursor was not produced by {@link #encode}.
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", expectedParts);
+            if (parts.length == expectedParts) {
+                return parts;
+            }
+        } catch (IllegalArgumentException e) {
+            // Falls through to the error below
+        }
+        throw invalid();
+    }
+
+    public static RestException invalid() {
+        return new RestException("Invalid cursor", HttpStatus.BAD_REQUEST);
+    }
+}
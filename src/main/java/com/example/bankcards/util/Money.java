@@ -0,0 +1,252 @@
+package com.example.bankcards.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money with two decimals, held as a {@code long} number of minor units (cents).
+ * <p>
+ * Comparing, adding and subtracting amounts allocates nothing beyond the result, unlike
+ * {@link BigDecimal}, and every operation that could overflow throws {@link ArithmeticException}
+ * instead of wrapping around. The range is about &plusmn;92 quadrillion, which covers the
+ * {@code DECIMAL(19,2)} columns for every balance the application can reach.
+ * <p>
+ * Amounts are written to JSON as plain numbers with exactly two decimals and read back without
+ * going through {@code double}; an amount with more than two decimals is rejected rather than rounded.
+ * The class extends {@link Number} so the Bean Validation sign constraints ({@code @Positive},
+ * {@code @PositiveOrZero}, ...) apply to it.
+ */
+@JsonSerialize(using = Money.Serializer.class)
+@JsonDeserialize(using = Money.Deserializer.class)
+public final class Money extends Number implements Comparable<Money> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public static final Money ZERO = new Money(0);
+
+    /**
+     * Longest text of an amount: sign, 17 whole digits, point and 2 decimals.
+     */
+    private static final int MAX_CHARS = 21;
+
+    private final long minorUnits;
+
+    private Money(long minorUnits) {
+        this.minorUnits = minorUnits;
+    }
+
+    public static Money ofMinor(long minorUnits) {
+        return minorUnits == 0 ? ZERO : new Money(minorUnits);
+    }
+
+    /**
+     * @throws ArithmeticException if the amount has more than two significant decimals or is out of range.
+     */
+    public static Money of(BigDecimal amount) {
+        return ofMinor(amount.setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+    }
+
+    /**
+     * Parses a decimal such as {@code 12}, {@code -0.5} or {@code 1234.56}. Plain decimals are
+     * parsed directly; anything else (e.g. an exponent) falls back to {@link BigDecimal}.
+     *
+     * @throws NumberFormatException if the text is not a number.
+     * @throws ArithmeticException   if it has more than two significant decimals or is out of range.
+     */
+    public static Money parse(String text) {
+        return parse(text.toCharArray(), 0, text.length());
+    }
+
+    /**
+     * {@link #parse(String)} over a slice of a character buffer, e.g. the one of a JSON parser.
+     */
+    public static Money parse(char[] chars, int offset, int length) {
+        int end = offset + length;
+        boolean negative = length > 0 && chars[offset] == '-';
+        int start = length > 0 && (negative || chars[offset] == '+') ? offset + 1 : offset;
+        long units = 0;
+        int decimals = -1;
+        int digits = 0;
+        for (int i = start; i < end; i++) {
+            char c = chars[i];
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+            } else if (c >= '0' && c <= '9' && decimals < 2 && digits < 18) {
+                units = units * 10 + (c - '0');
+                digits++;
+                if (decimals >= 0) {
+                    decimals++;
+                }
+            } else {
+                return of(new BigDecimal(chars, offset, length));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not an amount: '" + new String(chars, offset, length) + "'");
+        }
+        // Up to 18 digits fit a long, but not necessarily once scaled to minor units
+        for (int scale = Math.max(decimals, 0); scale < 2; scale++) {
+            units = Math.multiplyExact(units, 10);
+        }
+        return ofMinor(negative ? -units : units);
+    }
+
+    public long minorUnits() {
+        return minorUnits;
+    }
+
+    public Money plus(Money other) {
+        return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+    }
+
+    public Money minus(Money other) {
+        return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+    }
+
+    public Money negate() {
+        return ofMinor(Math.negateExact(minorUnits));
+    }
+
+    public int signum() {
+        return Long.signum(minorUnits);
+    }
+
+    public boolean isLessThan(Money other) {
+        return minorUnits < other.minorUnits;
+    }
+
+    public Money min(Money other) {
+        return minorUnits <= other.minorUnits ? this : other;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(minorUnits, 2);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money money && money.minorUnits == minorUnits;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minorUnits);
+    }
+
+    /**
+     * @return The amount with exactly two decimals, e.g. {@code 1234.50} or {@code -0.05}.
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[MAX_CHARS];
+        int start = format(chars);
+        return new String(chars, start, MAX_CHARS - start);
+    }
+
+    /**
+     * Writes the amount right-aligned into {@code chars}, which must hold {@link #MAX_CHARS}.
+     *
+     * @return Index of the first character.
+     */
+    private int format(char[] chars) {
+        // Unsigned, so that the magnitude of Long.MIN_VALUE (which abs() leaves negative) comes out right
+        long rest = Math.abs(minorUnits);
+        int pos = MAX_CHARS;
+        chars[--pos] = (char) ('0' + Long.remainderUnsigned(rest, 10));
+        rest = Long.divideUnsigned(rest, 10);
+        chars[--pos] = (char) ('0' + Long.remainderUnsigned(rest, 10));
+        rest = Long.divideUnsigned(rest, 10);
+        chars[--pos] = '.';
+        do {
+            chars[--pos] = (char) ('0' + Long.remainderUnsigned(rest, 10));
+            rest = Long.divideUnsigned(rest, 10);
+        } while (rest != 0);
+        if (minorUnits < 0) {
+            chars[--pos] = '-';
+        }
+        return pos;
+    }
+
+    @Override
+    public int intValue() {
+        return (int) longValue();
+    }
+
+    /**
+     * @return The whole units, truncated.
+     */
+    @Override
+    public long longValue() {
+        return minorUnits / 100;
+    }
+
+    @Override
+    public float floatValue() {
+        return (float) doubleValue();
+    }
+
+    @Override
+    public double doubleValue() {
+        return minorUnits / 100.0;
+    }
+
+    static final class Serializer extends StdScalarSerializer<Money> {
+
+        Serializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public void serialize(Money value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            char[] chars = new char[MAX_CHARS];
+            int start = value.format(chars);
+            generator.writeNumber(chars, start, MAX_CHARS - start);
+        }
+    }
+
+    static final class Deserializer extends StdScalarDeserializer<Money> {
+
+        Deserializer() {
+            super(Money.class);
+        }
+
+        @Override
+        public Money deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            JsonToken token = parser.currentToken();
+            if (token != JsonToken.VALUE_NUMBER_INT && token != JsonToken.VALUE_NUMBER_FLOAT
+                    && token != JsonToken.VALUE_STRING) {
+                return (Money) context.handleUnexpectedToken(Money.class, parser);
+            }
+            // The token text is the number as written, so no precision is lost to double
+            try {
+                return token == JsonToken.VALUE_STRING
+                        ? parse(parser.getText().trim())
+                        : parse(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            } catch (NumberFormatException e) {
+                throw InvalidFormatException.from(parser, "must be a decimal amount", parser.getText(), Money.class);
+            } catch (ArithmeticException e) {
+                throw InvalidFormatException.from(parser, "must have at most 2 decimal places and fit the balance range",
+                        parser.getText(), Money.class);
+            }
+        }
+    }
+}
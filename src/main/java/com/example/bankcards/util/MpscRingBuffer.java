@@ -0,0 +1,77 @@
+package com.example.bankcards.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock-free queue for many producers and exactly one consumer.
+ * <p>
+ * Producers claim a sequence with a CAS on {@code tail} and then publish their element into
+ * the claimed slot; the consumer treats an empty slot at {@code head} as "not published yet".
+ * Only the consumer thread may call {@link #poll()}.
+ *
+ * @param <E> Element type.
+ */
+public class MpscRingBuffer<E> {
+
+    private final AtomicReferenceArray<E> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    /**
+     * @param capacity Requested capacity, rounded up to the next power of two.
+     */
+    public MpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return {@code false} if the buffer is full.
+     */
+    public boolean offer(E element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+
+        slots.set((int) sequence & mask, element);
+        return true;
+    }
+
+    /**
+     * Consumer only.
+     *
+     * @return The oldest published element, or {@code null} if there is none.
+     */
+    public E poll() {
+        long sequence = head;
+        int index = (int) sequence & mask;
+        E element = slots.get(index);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(index, null);
+        head = sequence + 1;
+        return element;
+    }
+
+    /**
+     * @return Whether no element has been claimed beyond what the consumer has taken.
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+}
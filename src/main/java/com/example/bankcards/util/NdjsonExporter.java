@@ -0,0 +1,109 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.ExportProperties;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes a row source as NDJSON, one JSON object per line, straight into the response.
+ * <p>
+ * Rows are serialized as the source hands them over, so nothing but the current row and the
+ * output buffers is held, however many rows there are. The response is flushed every
+ * {@code app.export.fetch-size} rows. It is gzip-compressed when the client accepts it.
+ * <p>
+ * Controllers return {@link #stream}, which runs the export as an async task with its own
+ * {@code app.export.timeout}, so the long timeout an export needs does not apply to every request.
+ */
+@Component
+@RequiredArgsConstructor
+public class NdjsonExporter {
+
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    private final ObjectMapper objectMapper;
+    private final ExportProperties properties;
+
+    /**
+     * Produces the rows of an export by handing each one to the sink, in order.
+     */
+    @FunctionalInterface
+    public interface Source<T> {
+        void writeTo(Consumer<T> sink);
+    }
+
+    /**
+     * @param filename       Name suggested to the client for the uncompressed file.
+     * @param acceptEncoding {@code Accept-Encoding} header of the request, may be {@code null}.
+     */
+    public <T> ResponseEntity<StreamingResponseBody> export(String filename, String acceptEncoding, Source<T> source) {
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> write(gzip ? new GZIPOutputStream(out, true) : out, source));
+    }
+
+    /**
+     * Same export, written into {@code response} by an async task timed out after {@code app.export.timeout}.
+     * A {@link StreamingResponseBody} returned from a controller always runs with the global async timeout.
+     *
+     * @param response The response of the current request, which the task writes the rows into.
+     */
+    public <T> WebAsyncTask<Void> stream(String filename, String acceptEncoding, HttpServletResponse response, Source<T> source) {
+        ResponseEntity<StreamingResponseBody> export = export(filename, acceptEncoding, source);
+        response.setStatus(export.getStatusCode().value());
+        export.getHeaders().forEach((name, values) -> values.forEach(value -> response.addHeader(name, value)));
+        return new WebAsyncTask<>(properties.timeout().toMillis(), () -> {
+            export.getBody().writeTo(response.getOutputStream());
+            return null;
+        });
+    }
+
+    <T> void write(OutputStream out, Source<T> source) throws IOException {
+        int flushEvery = Math.max(1, properties.fetchSize());
+        // Flushing after every row would send a gzip block per row
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            int[] unflushed = {0};
+            try {
+                source.writeTo(row -> {
+                    try {
+                        writer.writeValue(generator, row);
+                        generator.writeRaw('\n');
+                        if (++unflushed[0] == flushEvery) {
+                            generator.flush();
+                            unflushed[0] = 0;
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
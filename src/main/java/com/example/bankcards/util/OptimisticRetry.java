@@ -0,0 +1,87 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.OptimisticRetryProperties;
+import com.example.bankcards.exception.RestException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Replays a transaction that lost an optimistic version check on {@code Card} or {@code Client}.
+ * A transaction the database picked as a deadlock victim (e.g. two unlocked transfers debiting
+ * the balance slots of a sharded card) is just as transient and is replayed the same way.
+ * <p>
+ * The work must open and commit its own transaction, since the version is only checked at
+ * flush time; a replay then reads the rows again. Between attempts the thread sleeps a random
+ * time below an exponentially growing bound ("full jitter"), so writers that collided once do not
+ * collide again in lockstep. When every attempt has lost, the caller gets {@code 409}.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.card.optimistic.conflicts{method}} - version checks and deadlocks lost, including the last one.</li>
+ *     <li>{@code bank.card.optimistic.retries{method}} - attempts replayed after a lost check or deadlock.</li>
+ * </ul>
+ */
+@Component
+public class OptimisticRetry {
+
+    private final OptimisticRetryProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    public OptimisticRetry(OptimisticRetryProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param method Name of the service method, used as the meter tag.
+     * @param work   A complete transaction.
+     */
+    public <T> T execute(String method, Supplier<T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return work.get();
+            } catch (ConcurrencyFailureException e) {
+                counter("bank.card.optimistic.conflicts", "Optimistic version checks lost", method).increment();
+                if (attempt >= properties.maxAttempts()) {
+                    throw new RestException("The card was modified concurrently, please retry", HttpStatus.CONFLICT);
+                }
+                counter("bank.card.optimistic.retries", "Transactions replayed after losing a version check", method).increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    public void run(String method, Runnable work) {
+        execute(method, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private void backOff(int attempt) {
+        long bound = Math.min(properties.maxBackoff().toNanos(), properties.initialBackoff().toNanos() << Math.min(attempt - 1, 20));
+        if (bound <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(ThreadLocalRandom.current().nextLong(bound));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestException(e, HttpStatus.SERVICE_UNAVAILABLE);
+        }
+    }
+
+    private Counter counter(String name, String description, String method) {
+        return Counter.builder(name)
+                .description(description)
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.bankcards.util;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-key sums over a sliding time window, e.g. the amount a card spent during the last 24 hours.
+ * <p>
+ * The window is split into fixed-size buckets kept in a ring per key; a bucket that has fallen
+ * out of the window is reused for the current one, so adding never allocates and a sum costs one
+ * pass over the ring. The window therefore slides by whole buckets: an amount counts for between
+ * {@code window - window / buckets} and {@code window}.
+ * <p>
+ * Keys are spread over independently locked stripes. Each stripe is an open-addressing table of
+ * primitive {@code long} keys whose bucket sums and bucket numbers live in two flat {@code long}
+ * arrays, so there is no boxing and no object per key. Keys must not be {@link Long#MIN_VALUE}.
+ */
+public class SlidingWindowCounters {
+
+    /**
+     * Returned by {@link #tryAdd} when the amount would exceed the limit.
+     */
+    public static final long REJECTED = -1;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    /**
+     * @param window  Length of the window.
+     * @param buckets Buckets the window is split into.
+     * @param stripes Requested stripe count, rounded up to the next power of two.
+     */
+    public SlidingWindowCounters(Duration window, int buckets, int stripes) {
+        if (buckets < 1 || window.toMillis() < buckets) {
+            throw new IllegalArgumentException("The window must be at least one millisecond per bucket");
+        }
+        this.buckets = buckets;
+        this.bucketMillis = window.toMillis() / buckets;
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Stripe[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Adds {@code amount} to the key's current bucket unless the key's sum over the window would
+     * then exceed {@code limit}. Check and add are atomic for the key.
+     *
+     * @param limit Upper bound of the sum, inclusive; negative for no bound.
+     * @return The bucket the amount was added to, to be passed to {@link #subtract}, or {@link #REJECTED}.
+     */
+    public long tryAdd(long key, long amount, long limit, long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(key);
+            if (limit >= 0) {
+                long sum = slot < 0 ? 0 : stripe.sum(slot, bucket);
+                if (amount > limit - sum) {
+                    return REJECTED;
+                }
+            }
+            if (slot < 0) {
+                slot = stripe.insert(key);
+            }
+            stripe.add(slot, bucket, amount);
+            return bucket;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Adds an amount recorded at the given time, without a limit; amounts older than the window are ignored.
+     * Used to rebuild the counters from persisted data.
+     */
+    public void add(long key, long amount, long atMillis, long nowMillis) {
+        long bucket = atMillis / bucketMillis;
+        if (bucket <= nowMillis / bucketMillis - buckets) {
+            return;
+        }
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(key);
+            if (slot < 0) {
+                slot = stripe.insert(key);
+            }
+            stripe.add(slot, bucket, amount);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Takes back an amount added by {@link #tryAdd}. Nothing happens once its bucket has left the window.
+     *
+     * @param bucket The value returned by {@link #tryAdd}.
+     */
+    public void subtract(long key, long amount, long bucket) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(key);
+            if (slot >= 0) {
+                stripe.add(slot, bucket, -amount);
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * @return The key's sum over the window ending now, 0 for an unknown key.
+     */
+    public long sum(long key, long nowMillis) {
+        Stripe stripe = stripeOf(key);
+        stripe.lock.lock();
+        try {
+            int slot = stripe.find(key);
+            return slot < 0 ? 0 : stripe.sum(slot, nowMillis / bucketMillis);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the keys with nothing left in the window, one stripe at a time.
+     *
+     * @return The number of keys still tracked.
+     */
+    public int evictExpired(long nowMillis) {
+        long bucket = nowMillis / bucketMillis;
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.compact(bucket);
+                size += stripe.size;
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Forgets every key.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.reset(INITIAL_CAPACITY);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    private Stripe stripeOf(long key) {
+        return stripes[(int) (mix(key) >>> 32) & mask];
+    }
+
+    private static long mix(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Linear-probing table; {@code sums} and {@code bucketIds} hold {@code buckets} entries per slot.
+     */
+    private final class Stripe {
+
+        final ReentrantLock lock = new ReentrantLock();
+        long[] keys;
+        long[] sums;
+        long[] bucketIds;
+        int size;
+
+        Stripe() {
+            reset(INITIAL_CAPACITY);
+        }
+
+        void reset(int capacity) {
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            sums = new long[capacity * buckets];
+            bucketIds = new long[capacity * buckets];
+            size = 0;
+        }
+
+        int find(long key) {
+            int last = keys.length - 1;
+            for (int slot = (int) mix(key) & last; ; slot = (slot + 1) & last) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                if (keys[slot] == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        int insert(long key) {
+            if ((size + 1) * 2 > keys.length) {
+                rehash(keys.length * 2, Long.MIN_VALUE);
+            }
+            int last = keys.length - 1;
+            int slot = (int) mix(key) & last;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & last;
+            }
+            // The ring of a free slot is all zeros: whatever bucket it claims to be, it adds nothing
+            keys[slot] = key;
+            size++;
+            return slot;
+        }
+
+        void add(int slot, long bucket, long amount) {
+            int index = slot * buckets + (int) Math.floorMod(bucket, (long) buckets);
+            if (bucketIds[index] != bucket) {
+                if (bucketIds[index] > bucket) {
+                    // Newer bucket in the same ring position: the amount is already out of the window
+                    return;
+                }
+                bucketIds[index] = bucket;
+                sums[index] = 0;
+            }
+            sums[index] += amount;
+        }
+
+        long sum(int slot, long currentBucket) {
+            return windowSum(sums, bucketIds, slot, currentBucket);
+        }
+
+        void compact(long currentBucket) {
+            int live = 0;
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (keys[slot] != EMPTY && sum(slot, currentBucket) != 0) {
+                    live++;
+                }
+            }
+            int capacity = INITIAL_CAPACITY;
+            while (live * 2 > capacity) {
+                capacity *= 2;
+            }
+            rehash(capacity, currentBucket);
+        }
+
+        /**
+         * @param currentBucket Keys with a zero sum in the window ending at this bucket are dropped;
+         *                      {@link Long#MIN_VALUE} keeps every key.
+         */
+        private void rehash(int capacity, long currentBucket) {
+            long[] oldKeys = keys;
+            long[] oldSums = sums;
+            long[] oldBucketIds = bucketIds;
+            reset(capacity);
+            int last = capacity - 1;
+            for (int old = 0; old < oldKeys.length; old++) {
+                long key = oldKeys[old];
+                if (key == EMPTY) {
+                    continue;
+                }
+                if (currentBucket != Long.MIN_VALUE && windowSum(oldSums, oldBucketIds, old, currentBucket) == 0) {
+                    continue;
+                }
+                int slot = (int) mix(key) & last;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & last;
+                }
+                keys[slot] = key;
+                System.arraycopy(oldSums, old * buckets, sums, slot * buckets, buckets);
+                System.arraycopy(oldBucketIds, old * buckets, bucketIds, slot * buckets, buckets);
+                size++;
+            }
+        }
+
+        private long windowSum(long[] sums, long[] bucketIds, int slot, long currentBucket) {
+            long oldest = currentBucket - buckets;
+            long sum = 0;
+            for (int index = slot * buckets, end = index + buckets; index < end; index++) {
+                if (bucketIds[index] > oldest) {
+                    sum += sums[index];
+                }
+            }
+            return sum;
+        }
+    }
+}
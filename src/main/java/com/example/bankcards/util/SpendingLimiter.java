@@ -0,0 +1,279 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.SpendingLimitProperties;
+import com.example.bankcards.entity.Client;
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.repository.ClientRepository;
+import com.example.bankcards.repository.SpendingLimitJdbcRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Enforces the per-transaction and daily spending limits of the source card of a transfer.
+ * <p>
+ * A card's limits are its own override if it has one, otherwise those of its owner's tier. Both
+ * are held in memory; changes made on this node apply immediately, other nodes pick them up on the
+ * next refresh. What each card spent is kept in {@link SlidingWindowCounters} in minor units, so
+ * checking the daily limit reads no transfer history. A transfer reserves its amount before it runs
+ * and gives it back if it fails, which keeps concurrent transfers of a card from overshooting the
+ * limit together.
+ * <p>
+ * The counters are rebuilt from {@code card_transfers} at startup and then only see the transfers
+ * executed on this node: with several nodes, the daily limit holds per node.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.transfer.limit.rejections{limit=per-transaction|daily}} - transfers refused by a limit.</li>
+ *     <li>{@code bank.transfer.limit.cards} - cards with spending in the window, as of the last refresh.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class SpendingLimiter {
+
+    private static final long UNSET = -1;
+
+    private final SpendingLimitProperties properties;
+    private final SpendingLimitJdbcRepository spendingLimitJdbcRepository;
+    private final ClientRepository clientRepository;
+    private final SlidingWindowCounters spent;
+
+    private final Counter perTransactionRejections;
+    private final Counter dailyRejections;
+    private final AtomicInteger trackedCards = new AtomicInteger();
+
+    private volatile Map<ClientTier, Limits> tierLimits = Map.of();
+    private volatile Map<Long, Limits> cardLimits = Map.of();
+
+    public SpendingLimiter(SpendingLimitProperties properties,
+                           SpendingLimitJdbcRepository spendingLimitJdbcRepository,
+                           ClientRepository clientRepository,
+                           MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.spendingLimitJdbcRepository = spendingLimitJdbcRepository;
+        this.clientRepository = clientRepository;
+        this.spent = new SlidingWindowCounters(properties.window(), properties.buckets(), properties.stripes());
+
+        this.perTransactionRejections = Counter.builder("bank.transfer.limit.rejections")
+                .description("Transfers refused by a spending limit")
+                .tag("limit", "per-transaction")
+                .register(meterRegistry);
+        this.dailyRejections = Counter.builder("bank.transfer.limit.rejections")
+                .description("Transfers refused by a spending limit")
+                .tag("limit", "daily")
+                .register(meterRegistry);
+        Gauge.builder("bank.transfer.limit.cards", trackedCards, AtomicInteger::get)
+                .description("Cards with spending in the daily window")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Loads the limits and replays the debits of the last window into the counters.
+     */
+    @PostConstruct
+    public void rebuild() {
+        if (!properties.enabled()) {
+            return;
+        }
+        reloadLimits();
+        long started = System.currentTimeMillis();
+        long[] debits = {0};
+        spent.clear();
+        spendingLimitJdbcRepository.forEachDebitSince(properties.window(), (cardId, amount, ageMillis) -> {
+            spent.add(cardId, amount.minorUnits(), started - ageMillis, started);
+            debits[0]++;
+        });
+        trackedCards.set(spent.evictExpired(started));
+        log.info("Rebuilt spending windows of {} cards from {} debits in {} ms",
+                trackedCards.get(), debits[0], System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Reloads the limits, which picks up other nodes' changes, and drops cards that spent nothing in the window.
+     */
+    @Scheduled(fixedDelayString = "${app.spending-limits.refresh-interval:PT30S}")
+    public void refresh() {
+        if (!properties.enabled()) {
+            return;
+        }
+        reloadLimits();
+        trackedCards.set(spent.evictExpired(System.currentTimeMillis()));
+    }
+
+    /**
+     * Checks a transfer of {@code amount} from the card against its limits and, if it fits, counts
+     * it as spent. The caller must have verified that the requester owns the card, and must
+     * {@link Reservation#cancel() cancel} the reservation if the transfer does not go through.
+     *
+     * @param tier Tier of the card's owner.
+     */
+    public Reservation reserve(long cardId, ClientTier tier, Money amount) {
+        if (!properties.enabled()) {
+            return Reservation.NONE;
+        }
+        Limits card = cardLimits.get(cardId);
+        Limits limits = card != null ? card.or(tierLimits.get(tier)) : tierLimits.get(tier);
+        long units = amount.minorUnits();
+
+        if (limits != null && limits.perTransaction() != UNSET && units > limits.perTransaction()) {
+            perTransactionRejections.increment();
+            return new Reservation(this, cardId, units, SlidingWindowCounters.REJECTED,
+                    TransferOutcome.PER_TRANSACTION_LIMIT_EXCEEDED);
+        }
+        // Spending is counted even without a daily limit, so a limit set later sees the whole window
+        long bucket = spent.tryAdd(cardId, units, limits != null ? limits.daily() : UNSET, System.currentTimeMillis());
+        if (bucket == SlidingWindowCounters.REJECTED) {
+            dailyRejections.increment();
+            return new Reservation(this, cardId, units, bucket, TransferOutcome.DAILY_LIMIT_EXCEEDED);
+        }
+        return new Reservation(this, cardId, units, bucket, TransferOutcome.OK);
+    }
+
+    /**
+     * @return The tier of the authenticated client. The principal set by the JWT filter is the
+     * {@link Client} itself; any other principal (e.g. a background transfer) is looked up by name.
+     */
+    public ClientTier tierOf(Authentication authentication) {
+        if (authentication.getPrincipal() instanceof Client client) {
+            return client.getTier();
+        }
+        return clientRepository.findByUsername(authentication.getName())
+                .map(Client::getTier)
+                .orElse(ClientTier.STANDARD);
+    }
+
+    /**
+     * @return The limits of the tier; {@code null} fields are unlimited.
+     */
+    public SpendingLimitJdbcRepository.Limits tierLimits(ClientTier tier) {
+        Limits limits = tierLimits.get(tier);
+        return limits != null ? limits.toAmounts() : new SpendingLimitJdbcRepository.Limits(null, null);
+    }
+
+    /**
+     * @return The override of the card; {@code null} fields are inherited from the tier.
+     */
+    public SpendingLimitJdbcRepository.Limits cardLimits(long cardId) {
+        Limits limits = cardLimits.get(cardId);
+        return limits != null ? limits.toAmounts() : new SpendingLimitJdbcRepository.Limits(null, null);
+    }
+
+    /**
+     * @return What the card spent in the window ending now, as seen by this node.
+     */
+    public Money spentInWindow(long cardId) {
+        return Money.ofMinor(spent.sum(cardId, System.currentTimeMillis()));
+    }
+
+    public synchronized void updateTierLimits(ClientTier tier, SpendingLimitJdbcRepository.Limits limits) {
+        Map<ClientTier, Limits> copy = new EnumMap<>(ClientTier.class);
+        copy.putAll(tierLimits);
+        copy.put(tier, Limits.of(limits));
+        tierLimits = Map.copyOf(copy);
+    }
+
+    /**
+     * @param limits Both {@code null} removes the override.
+     */
+    public synchronized void updateCardLimits(long cardId, SpendingLimitJdbcRepository.Limits limits) {
+        Map<Long, Limits> copy = new HashMap<>(cardLimits);
+        if (limits.perTransaction() == null && limits.daily() == null) {
+            copy.remove(cardId);
+        } else {
+            copy.put(cardId, Limits.of(limits));
+        }
+        cardLimits = Map.copyOf(copy);
+    }
+
+    private synchronized void reloadLimits() {
+        Map<ClientTier, Limits> tiers = new EnumMap<>(ClientTier.class);
+        spendingLimitJdbcRepository.findTierLimits().forEach((tier, limits) -> tiers.put(tier, Limits.of(limits)));
+        Map<Long, Limits> cards = new HashMap<>();
+        spendingLimitJdbcRepository.findCardLimits().forEach((cardId, limits) -> cards.put(cardId, Limits.of(limits)));
+        tierLimits = Map.copyOf(tiers);
+        cardLimits = Map.copyOf(cards);
+    }
+
+    /**
+     * Limits in minor units, {@link #UNSET} for a missing one.
+     */
+    private record Limits(long perTransaction, long daily) {
+
+        static Limits of(SpendingLimitJdbcRepository.Limits limits) {
+            return new Limits(
+                    limits.perTransaction() != null ? limits.perTransaction().minorUnits() : UNSET,
+                    limits.daily() != null ? limits.daily().minorUnits() : UNSET);
+        }
+
+        /**
+         * @return These limits, with the unset ones taken from {@code fallback}.
+         */
+        Limits or(Limits fallback) {
+            if (fallback == null) {
+                return this;
+            }
+            return new Limits(
+                    perTransaction != UNSET ? perTransaction : fallback.perTransaction,
+                    daily != UNSET ? daily : fallback.daily);
+        }
+
+        SpendingLimitJdbcRepository.Limits toAmounts() {
+            return new SpendingLimitJdbcRepository.Limits(
+                    perTransaction != UNSET ? Money.ofMinor(perTransaction) : null,
+                    daily != UNSET ? Money.ofMinor(daily) : null);
+        }
+    }
+
+    /**
+     * An amount counted against a card's daily window on behalf of one transfer.
+     */
+    public static final class Reservation {
+
+        static final Reservation NONE = new Reservation(null, 0, 0, SlidingWindowCounters.REJECTED, TransferOutcome.OK);
+
+        private final SpendingLimiter limiter;
+        private final long cardId;
+        private final long amount;
+        private final long bucket;
+        private final TransferOutcome outcome;
+        private boolean cancelled;
+
+        private Reservation(SpendingLimiter limiter, long cardId, long amount, long bucket, TransferOutcome outcome) {
+            this.limiter = limiter;
+            this.cardId = cardId;
+            this.amount = amount;
+            this.bucket = bucket;
+            this.outcome = outcome;
+        }
+
+        /**
+         * @return {@link TransferOutcome#OK}, or the limit the transfer exceeds.
+         */
+        public TransferOutcome outcome() {
+            return outcome;
+        }
+
+        /**
+         * Gives the amount back to the window, for a transfer that failed after the reservation.
+         * Does nothing for a rejected reservation or when called again.
+         */
+        public void cancel() {
+            if (!cancelled && bucket != SlidingWindowCounters.REJECTED) {
+                cancelled = true;
+                limiter.spent.subtract(cardId, amount, bucket);
+            }
+        }
+    }
+}
@@ -0,0 +1,253 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.GroupCommitProperties;
+import com.example.bankcards.config.TransferProperties;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.RestException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Group commit for single transfers ({@code app.transfer.mode=GROUP_COMMIT}).
+ * <p>
+ * Callers hand their transfer to {@link #submit} and block. A collector thread closes a group
+ * once it holds {@code max-size} transfers or {@code window} has passed since its first one, and
+ * passes it to one of {@code parallelism} workers, which executes the whole group in a single
+ * transaction, so the group pays for one commit. While every worker is busy the collector does
+ * not open a new group: under load groups grow on their own instead of queueing up.
+ * <p>
+ * If a group of several transfers fails as a whole (as opposed to per-item verdicts), its
+ * transfers are retried one by one, so a single bad item cannot fail its neighbours.
+ * <p>
+ * A caller waits at most {@code app.transfer.lock-timeout}, like a caller of the other modes
+ * queueing on a card lock, and then gets {@code 503}.
+ * <p>
+ * Exported meters:
+ * <ul>
+ *     <li>{@code bank.transfer.group.size} - transfers per executed group.</li>
+ *     <li>{@code bank.transfer.group.wait} - time a transfer spent queued before its group started.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class TransferGroupCommitter implements DisposableBean {
+
+    private final int maxSize;
+    private final long windowNanos;
+    private final int parallelism;
+    private final long timeoutNanos;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Semaphore idleWorkers;
+
+    private final DistributionSummary groupSize;
+    private final Timer queueWait;
+
+    private Function<List<Item>, TransferOutcome[]> handler;
+    private ExecutorService workers;
+    private Thread collector;
+    private volatile boolean running;
+
+    public TransferGroupCommitter(GroupCommitProperties properties, TransferProperties transferProperties,
+                                  MeterRegistry meterRegistry) {
+        this.maxSize = Math.max(1, properties.maxSize());
+        this.windowNanos = properties.window().toNanos();
+        this.parallelism = Math.max(1, properties.parallelism());
+        this.timeoutNanos = transferProperties.lockTimeout().toNanos();
+        this.idleWorkers = new Semaphore(parallelism);
+
+        this.groupSize = DistributionSummary.builder("bank.transfer.group.size")
+                .description("Transfers committed together in one transaction")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("bank.transfer.group.wait")
+                .description("Time a transfer waited for its group to start")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts collecting groups.
+     *
+     * @param handler Executes a group in one transaction and returns the outcome of each item, in order.
+     *                It may return {@code null} for an item, which is passed on to its caller as is.
+     */
+    public synchronized void start(Function<List<Item>, TransferOutcome[]> handler) {
+        if (running) {
+            throw new IllegalStateException("Group commit is already running");
+        }
+        this.handler = handler;
+        this.workers = Executors.newFixedThreadPool(parallelism, Thread.ofPlatform()
+                .name("transfer-group-", 0)
+                .daemon()
+                .factory());
+        this.collector = Thread.ofPlatform()
+                .name("transfer-group-collector")
+                .daemon()
+                .unstarted(this::collect);
+        running = true;
+        collector.start();
+    }
+
+    /**
+     * Queues a transfer for the next group and waits for the group to be committed.
+     *
+     * @return The transfer's own outcome.
+     * @throws RuntimeException Whatever failed the transfer's group, if the transfer was not retried alone.
+     * @throws RestException     {@code 503} if the transfer was not committed within the lock timeout.
+     */
+    public TransferOutcome submit(Item item) {
+        if (!running) {
+            throw new IllegalStateException("Group commit is not running");
+        }
+        Pending pending = new Pending(item, System.nanoTime(), new CompletableFuture<>());
+        queue.add(pending);
+        if (!running && queue.remove(pending)) {
+            // Stopped between the check and the add, after the queue was drained
+            throw shuttingDown();
+        }
+
+        try {
+            return pending.result().get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            if (queue.remove(pending)) {
+                throw new RestException("Transfer could not be committed in time, please retry", HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            // Already in a group, which may still commit it; a retry with the same Idempotency-Key tells
+            throw new RestException("Transfer did not complete in time, its outcome is unknown", HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RestException(e, HttpStatus.SERVICE_UNAVAILABLE);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new RestException(e.getCause(), HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    /**
+     * Stops collecting, lets the groups already handed to a worker finish and fails the transfers still queued.
+     */
+    @Override
+    public synchronized void destroy() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        collector.interrupt();
+        collector.join();
+        workers.shutdown();
+        if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Transfer groups still committing after 30s");
+        }
+
+        List<Pending> left = new ArrayList<>();
+        queue.drainTo(left);
+        left.forEach(pending -> pending.result().completeExceptionally(shuttingDown()));
+    }
+
+    private void collect() {
+        while (running) {
+            try {
+                idleWorkers.acquire();
+            } catch (InterruptedException e) {
+                return;
+            }
+            List<Pending> group = nextGroup();
+            if (group.isEmpty()) {
+                idleWorkers.release();
+                return;
+            }
+            workers.execute(() -> {
+                try {
+                    commit(group);
+                } finally {
+                    idleWorkers.release();
+                }
+            });
+        }
+    }
+
+    /**
+     * Waits for a first transfer, then adds more until the group is full or the window has passed.
+     *
+     * @return Empty only if interrupted before a first transfer arrived.
+     */
+    private List<Pending> nextGroup() {
+        List<Pending> group = new ArrayList<>(maxSize);
+        try {
+            group.add(queue.take());
+            long deadline = System.nanoTime() + windowNanos;
+            while (group.size() < maxSize) {
+                long remaining = deadline - System.nanoTime();
+                Pending next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                if (next == null) {
+                    break;
+                }
+                group.add(next);
+            }
+        } catch (InterruptedException e) {
+            // Stopping: what was already taken is still committed
+            Thread.currentThread().interrupt();
+        }
+        return group;
+    }
+
+    private void commit(List<Pending> group) {
+        long started = System.nanoTime();
+        group.forEach(pending -> queueWait.record(started - pending.submittedAt(), TimeUnit.NANOSECONDS));
+
+        try {
+            execute(group);
+        } catch (RuntimeException e) {
+            if (group.size() == 1) {
+                group.get(0).result().completeExceptionally(e);
+                return;
+            }
+            log.debug("Transfer group of {} failed, retrying its transfers one by one", group.size(), e);
+            for (Pending pending : group) {
+                try {
+                    execute(List.of(pending));
+                } catch (RuntimeException single) {
+                    pending.result().completeExceptionally(single);
+                }
+            }
+        }
+    }
+
+    private void execute(List<Pending> group) {
+        TransferOutcome[] outcomes = handler.apply(group.stream().map(Pending::item).toList());
+        groupSize.record(group.size());
+        for (int i = 0; i < group.size(); i++) {
+            group.get(i).result().complete(outcomes[i]);
+        }
+    }
+
+    private static RestException shuttingDown() {
+        return new RestException("Transfers are not accepted while the application is stopping", HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    /**
+     * @param idempotencyKey Optional; claimed in the group's transaction.
+     */
+    public record Item(String username, TransferRequestDto request, String idempotencyKey) {}
+
+    private record Pending(Item item, long submittedAt, CompletableFuture<TransferOutcome> result) {}
+}
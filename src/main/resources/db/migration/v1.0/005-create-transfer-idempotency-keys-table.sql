@@ -0,0 +1,15 @@
+--liquibase formatted sql
+
+--changeset elyzian:005-create-transfer-idempotency-keys-table.sql
+CREATE TABLE transfer_idempotency_keys
+(
+    username        VARCHAR(50)  NOT NULL,
+    idempotency_key VARCHAR(100) NOT NULL,
+    request_hash    VARCHAR(64)  NOT NULL,
+    status          INT          NOT NULL,
+    message         TEXT,
+    created_at      TIMESTAMP    NOT NULL DEFAULT now(),
+    CONSTRAINT pk_transfer_idempotency_keys PRIMARY KEY (username, idempotency_key)
+);
+
+CREATE INDEX idx_transfer_idempotency_keys_created_at ON transfer_idempotency_keys (created_at);
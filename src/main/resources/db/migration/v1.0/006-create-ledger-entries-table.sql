@@ -0,0 +1,33 @@
+--liquibase formatted sql
+
+--changeset elyzian:006-create-ledger-entries-table.sql
+-- Append-only: rows are only ever inserted, and there is no foreign key to cards, so an insert
+-- neither takes a key-share lock on the (hot) card row nor blocks card deletion.
+-- card_id IS NULL is the bank's external account, the counter leg of issuance and adjustments.
+CREATE TABLE ledger_entries
+(
+    id             BIGSERIAL PRIMARY KEY,
+    transaction_id UUID           NOT NULL,
+    card_id        BIGINT,
+    side           VARCHAR(6)     NOT NULL,
+    amount         DECIMAL(19, 2) NOT NULL,
+    entry_type     VARCHAR(20)    NOT NULL,
+    description    VARCHAR(255),
+    created_at     TIMESTAMP      NOT NULL DEFAULT now(),
+    CONSTRAINT ledger_entries_side_check CHECK (side IN ('DEBIT', 'CREDIT')),
+    CONSTRAINT ledger_entries_amount_check CHECK (amount > 0)
+);
+
+-- Covers the balance rebuild with an index-only scan per card
+CREATE INDEX idx_ledger_entries_card ON ledger_entries (card_id) INCLUDE (side, amount);
+
+-- Opening entries, so that rebuilding from the ledger reproduces the balances that existed before it
+WITH opening AS (
+    SELECT gen_random_uuid() AS transaction_id, id, balance
+    FROM cards
+    WHERE balance > 0
+)
+INSERT INTO ledger_entries (transaction_id, card_id, side, amount, entry_type)
+SELECT transaction_id, NULL, 'DEBIT', balance, 'OPENING_BALANCE' FROM opening
+UNION ALL
+SELECT transaction_id, id, 'CREDIT', balance, 'OPENING_BALANCE' FROM opening;
@@ -0,0 +1,23 @@
+--liquibase formatted sql
+
+--changeset elyzian:007-create-card-balance-slots-table.sql
+-- Number of sub-balance slots of a hot card; 0 means the whole balance lives in cards.balance.
+ALTER TABLE cards
+    ADD COLUMN balance_slots INT NOT NULL DEFAULT 0;
+
+ALTER TABLE cards
+    ADD CONSTRAINT cards_balance_slots_check CHECK (balance_slots >= 0);
+
+-- Lets every node reload the (few) sharded cards without scanning the table
+CREATE INDEX idx_cards_sharded ON cards (id) INCLUDE (balance_slots) WHERE balance_slots > 0;
+
+-- The balance of a sharded card is cards.balance plus the sum of its slots.
+CREATE TABLE card_balance_slots
+(
+    card_id BIGINT         NOT NULL,
+    slot    INT            NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL DEFAULT 0.00,
+    CONSTRAINT pk_card_balance_slots PRIMARY KEY (card_id, slot),
+    CONSTRAINT fk_card_balance_slots_card FOREIGN KEY (card_id) REFERENCES cards (id) ON DELETE CASCADE,
+    CONSTRAINT card_balance_slots_balance_check CHECK (balance >= 0)
+);
@@ -0,0 +1,9 @@
+--liquibase formatted sql
+
+--changeset elyzian:008-create-engine-checkpoints-table.sql
+-- Last journal sequence of each in-memory engine partition whose effects are stored in cards/ledger_entries.
+CREATE TABLE engine_checkpoints
+(
+    partition_id INT PRIMARY KEY,
+    journal_seq  BIGINT NOT NULL
+);
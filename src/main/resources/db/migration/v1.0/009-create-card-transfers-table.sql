@@ -0,0 +1,35 @@
+--liquibase formatted sql
+
+--changeset elyzian:009-create-card-transfers-table.sql
+-- Transfer history: one row per card and transfer, so the sent and the received transfers of a card
+-- are read from one index range. Like ledger_entries it has no foreign key to cards.
+CREATE TABLE card_transfers
+(
+    id                   BIGSERIAL PRIMARY KEY,
+    card_id              BIGINT         NOT NULL,
+    transaction_id       UUID           NOT NULL,
+    direction            VARCHAR(3)     NOT NULL,
+    counterparty_card_id BIGINT         NOT NULL,
+    amount               DECIMAL(19, 2) NOT NULL,
+    created_at           TIMESTAMP      NOT NULL DEFAULT now(),
+    CONSTRAINT card_transfers_direction_check CHECK (direction IN ('OUT', 'IN'))
+);
+
+-- Keyset pagination: WHERE card_id = ? AND (created_at, id) < (?, ?) ORDER BY created_at DESC, id DESC
+CREATE INDEX idx_card_transfers_card_created ON card_transfers (card_id, created_at, id);
+
+-- History of the transfers booked before this table existed
+INSERT INTO card_transfers (card_id, transaction_id, direction, counterparty_card_id, amount, created_at)
+SELECT leg.card_id, leg.transaction_id, leg.direction, leg.counterparty_card_id, leg.amount, leg.created_at
+FROM (
+    SELECT d.card_id, d.transaction_id, 'OUT' AS direction, c.card_id AS counterparty_card_id, d.amount, d.created_at, d.id
+    FROM ledger_entries d
+    JOIN ledger_entries c ON c.transaction_id = d.transaction_id AND c.side = 'CREDIT'
+    WHERE d.side = 'DEBIT' AND d.entry_type = 'TRANSFER'
+    UNION ALL
+    SELECT c.card_id, c.transaction_id, 'IN', d.card_id, c.amount, c.created_at, c.id
+    FROM ledger_entries c
+    JOIN ledger_entries d ON d.transaction_id = c.transaction_id AND d.side = 'DEBIT'
+    WHERE c.side = 'CREDIT' AND c.entry_type = 'TRANSFER'
+) leg
+ORDER BY leg.created_at, leg.id;
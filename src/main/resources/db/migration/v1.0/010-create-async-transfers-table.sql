@@ -0,0 +1,22 @@
+--liquibase formatted sql
+
+--changeset elyzian:010-create-async-transfers-table.sql
+-- Transfers submitted through POST /api/v1/cards/transfers/async, polled by id until they complete
+CREATE TABLE async_transfers
+(
+    id             UUID PRIMARY KEY,
+    username       VARCHAR(50)    NOT NULL,
+    source_card_id BIGINT         NOT NULL,
+    target_card_id BIGINT         NOT NULL,
+    amount         DECIMAL(19, 2) NOT NULL,
+    status         VARCHAR(20)    NOT NULL,
+    http_status    INT,
+    message        TEXT,
+    created_at     TIMESTAMP      NOT NULL DEFAULT now(),
+    completed_at   TIMESTAMP,
+    CONSTRAINT async_transfers_status_check CHECK (status IN ('PENDING', 'SUCCEEDED', 'FAILED'))
+);
+
+-- Resuming after a restart only looks at the few unfinished rows
+CREATE INDEX idx_async_transfers_pending ON async_transfers (created_at) WHERE status = 'PENDING';
+CREATE INDEX idx_async_transfers_completed_at ON async_transfers (completed_at);
@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+--changeset elyzian:011-add-version-columns.sql
+-- Optimistic locking for the JPA writers of cards and clients. The SQL writers of cards bump the
+-- version as well, so an entity read before their update can no longer be saved over it.
+ALTER TABLE cards ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE clients ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
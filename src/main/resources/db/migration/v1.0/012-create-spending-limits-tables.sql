@@ -0,0 +1,37 @@
+--liquibase formatted sql
+
+--changeset elyzian:012-create-spending-limits-tables.sql
+-- Client tier, which selects the default spending limits of the client's cards.
+ALTER TABLE clients
+    ADD COLUMN tier VARCHAR(32) NOT NULL DEFAULT 'STANDARD';
+
+ALTER TABLE clients
+    ADD CONSTRAINT clients_tier_check CHECK (tier IN ('STANDARD', 'PREMIUM'));
+
+-- Limits per tier. NULL means unlimited.
+CREATE TABLE tier_limits
+(
+    tier                  VARCHAR(32) PRIMARY KEY,
+    per_transaction_limit DECIMAL(19, 2),
+    daily_limit           DECIMAL(19, 2),
+    CONSTRAINT tier_limits_tier_check CHECK (tier IN ('STANDARD', 'PREMIUM')),
+    CONSTRAINT tier_limits_positive_check CHECK (per_transaction_limit > 0 AND daily_limit > 0)
+);
+
+INSERT INTO tier_limits (tier, per_transaction_limit, daily_limit)
+VALUES ('STANDARD', 5000.00, 10000.00),
+       ('PREMIUM', 50000.00, 100000.00);
+
+-- Per-card overrides. NULL falls back to the limit of the owner's tier.
+CREATE TABLE card_limits
+(
+    card_id               BIGINT PRIMARY KEY,
+    per_transaction_limit DECIMAL(19, 2),
+    daily_limit           DECIMAL(19, 2),
+    CONSTRAINT fk_card_limits_card FOREIGN KEY (card_id) REFERENCES cards (id) ON DELETE CASCADE,
+    CONSTRAINT card_limits_positive_check CHECK (per_transaction_limit > 0 AND daily_limit > 0)
+);
+
+-- Rebuilding the in-memory daily windows at startup reads the debits of the last day only
+CREATE INDEX idx_card_transfers_out_created ON card_transfers (created_at) INCLUDE (card_id, amount)
+    WHERE direction = 'OUT';
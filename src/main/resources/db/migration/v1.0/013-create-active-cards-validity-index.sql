@@ -0,0 +1,6 @@
+--liquibase formatted sql
+
+--changeset elyzian:013-create-active-cards-validity-index.sql
+-- Expiry sweeper: WHERE status = 'ACTIVE' AND validity_date < CURRENT_DATE LIMIT n FOR UPDATE SKIP LOCKED.
+-- Only active cards are indexed, so the index stays small and a sweep with nothing due reads one index page.
+CREATE INDEX idx_cards_active_validity ON cards (validity_date, id) WHERE status = 'ACTIVE';
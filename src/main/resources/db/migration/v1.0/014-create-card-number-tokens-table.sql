@@ -0,0 +1,17 @@
+--liquibase formatted sql
+
+--changeset elyzian:014-create-card-number-tokens-table.sql
+-- Blind index of card numbers for partial search: one row per distinct fixed-length digit n-gram
+-- of a card number, holding the first 8 bytes of a keyed HMAC of the owner and the n-gram.
+-- The encrypted card_number column itself cannot be searched.
+CREATE TABLE card_number_tokens
+(
+    owner_id BIGINT NOT NULL,
+    token    BIGINT NOT NULL,
+    card_id  BIGINT NOT NULL,
+    CONSTRAINT pk_card_number_tokens PRIMARY KEY (owner_id, token, card_id),
+    CONSTRAINT fk_card_number_tokens_card FOREIGN KEY (card_id) REFERENCES cards (id) ON DELETE CASCADE
+);
+
+-- Serves the cascade from cards and the backfill's lookup of cards without tokens
+CREATE INDEX idx_card_number_tokens_card ON card_number_tokens (card_id);
@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset elyzian:015-add-card-last4-column.sql
+-- Last four digits of the card number in plaintext, so masked numbers are shown without decrypting.
+-- Only the application holds the key, so it fills the column for existing cards at startup.
+ALTER TABLE cards
+    ADD COLUMN card_last4 VARCHAR(4);
+
+-- Lets the backfill find the cards still to fill without scanning the table
+CREATE INDEX idx_cards_last4_missing ON cards (id) WHERE card_last4 IS NULL;
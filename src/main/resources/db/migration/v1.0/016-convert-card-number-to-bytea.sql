@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset elyzian:016-convert-card-number-to-bytea.sql
+-- Card numbers as raw bytes instead of Base64 text: a key-id byte, then the IV, ciphertext and tag.
+-- Every existing value was encrypted with app.security.encryption-key, which is key id 0.
+-- The rewrite locks the table once, here; later key rotations re-encrypt online in small chunks.
+ALTER TABLE cards
+    ALTER COLUMN card_number TYPE BYTEA USING '\x00'::BYTEA || decode(card_number, 'base64');
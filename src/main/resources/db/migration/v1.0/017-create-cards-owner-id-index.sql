@@ -0,0 +1,10 @@
+--liquibase formatted sql
+
+--changeset elyzian:017-create-cards-owner-id-index.sql runInTransaction:false
+-- Card lists: WHERE owner_id = ? AND id > ? ORDER BY id LIMIT n reads the page straight off the index,
+-- however deep it is. The index also serves every lookup by owner alone, which replaces idx_cards_owner.
+-- Built concurrently, outside a transaction, so transfers keep writing to cards while it is built.
+CREATE INDEX CONCURRENTLY idx_cards_owner_id ON cards (owner_id, id);
+
+--changeset elyzian:017-drop-cards-owner-index.sql runInTransaction:false
+DROP INDEX CONCURRENTLY idx_cards_owner;
@@ -0,0 +1,12 @@
+--liquibase formatted sql
+
+--changeset elyzian:018-create-clients-search-indexes.sql runInTransaction:false
+-- Admin user search by username prefix: username COLLATE "C" >= prefix AND < next prefix, ordered the same way.
+-- Under the "C" collation a prefix is one contiguous range of the index whatever the database collation is.
+-- The included columns let the role and lock filters and the response be read from the index alone.
+-- Built concurrently, outside a transaction, so logins and sign-ups keep writing to clients while it is built.
+CREATE INDEX CONCURRENTLY idx_clients_username_prefix ON clients ((username COLLATE "C")) INCLUDE (id, role, is_locked);
+
+--changeset elyzian:018-create-clients-locked-role-index.sql runInTransaction:false
+-- Admin user search by lock status and role, ordered by id: one index range per (is_locked, role) pair.
+CREATE INDEX CONCURRENTLY idx_clients_locked_role_id ON clients (is_locked, role, id);
@@ -0,0 +1,134 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.repository.LedgerJdbcRepository;
+import com.example.bankcards.util.BalanceSlotRegistry;
+import com.example.bankcards.util.CardCacheEvictor;
+import com.example.bankcards.util.Money;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Credit throughput to a single hot card, with and without balance slots.
+ * <p>
+ * Each operation is one transaction shaped like the credit half of a transfer: lock the card
+ * {@code FOR UPDATE} and credit its row when unsharded, or read it without a lock and credit the
+ * slot {@link BalanceSlotRegistry#pickSlot} hashes the thread to when sharded, then append the
+ * ledger entries and commit. Without slots every credit queues on the card row until the previous
+ * one has committed; with N slots up to N credits commit concurrently.
+ * <p>
+ * Needs a PostgreSQL database migrated by the application:
+ * {@code BENCH_JDBC_URL=jdbc:postgresql://localhost:5432/bankdb mvn -Pbenchmark verify -DskipTests -Dbenchmark=BalanceSlotCreditBenchmark}
+ * ({@code BENCH_JDBC_USER} / {@code BENCH_JDBC_PASSWORD} default to the values in {@code application.yml}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(32)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class BalanceSlotCreditBenchmark {
+
+    private static final Money AMOUNT = Money.parse("0.01");
+
+    @Param({"0", "1", "4", "16"})
+    public int slots;
+
+    private HikariDataSource dataSource;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private CardJdbcRepository cardJdbcRepository;
+    private CardBalanceSlotRepository cardBalanceSlotRepository;
+    private LedgerJdbcRepository ledgerJdbcRepository;
+    private BalanceSlotRegistry balanceSlotRegistry;
+    private long cardId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(env("BENCH_JDBC_URL", "jdbc:postgresql://localhost:5432/bankdb"));
+        dataSource.setUsername(env("BENCH_JDBC_USER", "bankuser"));
+        dataSource.setPassword(env("BENCH_JDBC_PASSWORD", "bankpassword"));
+        dataSource.setMaximumPoolSize(32);
+
+        jdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+        transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        cardJdbcRepository = new CardJdbcRepository(jdbcTemplate, CardCacheEvictor.NONE);
+        cardBalanceSlotRepository = new CardBalanceSlotRepository(jdbcTemplate, CardCacheEvictor.NONE);
+        ledgerJdbcRepository = new LedgerJdbcRepository(jdbcTemplate, CardCacheEvictor.NONE);
+        balanceSlotRegistry = new BalanceSlotRegistry(cardBalanceSlotRepository);
+
+        Long ownerId = jdbcTemplate.queryForObject("""
+                        INSERT INTO clients (username, password, role)
+                        VALUES ('benchmark-merchant', '-', 'ROLE_USER')
+                        ON CONFLICT (username) DO UPDATE SET username = EXCLUDED.username
+                        RETURNING id
+                        """,
+                Map.of(), Long.class);
+        cardId = Objects.requireNonNull(jdbcTemplate.queryForObject("""
+                        INSERT INTO cards (card_number, status, validity_date, owner_id)
+                        VALUES ('benchmark', 'ACTIVE', CURRENT_DATE + 365, :ownerId)
+                        RETURNING id
+                        """,
+                Map.of("ownerId", ownerId), Long.class));
+        transactionTemplate.executeWithoutResult(status -> cardBalanceSlotRepository.resize(cardId, slots));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // Benchmark-only cleanup; the application never deletes ledger entries
+        jdbcTemplate.update("""
+                        DELETE FROM ledger_entries
+                        WHERE transaction_id IN (SELECT transaction_id FROM ledger_entries WHERE card_id = :id)
+                        """,
+                Map.of("id", cardId));
+        jdbcTemplate.update("DELETE FROM cards WHERE id = :id", Map.of("id", cardId));
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void credit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (slots == 0) {
+                cardJdbcRepository.lockBalances(List.of(cardId));
+                cardJdbcRepository.creditBalance(cardId, AMOUNT);
+            } else {
+                jdbcTemplate.query("SELECT balance_slots FROM cards WHERE id = :id",
+                        new MapSqlParameterSource("id", cardId), rs -> {});
+                if (!cardBalanceSlotRepository.deposit(cardId, balanceSlotRegistry.pickSlot(slots), AMOUNT)) {
+                    cardJdbcRepository.creditBalance(cardId, AMOUNT);
+                }
+            }
+            ledgerJdbcRepository.append(List.of(LedgerJdbcRepository.Posting.initialBalance(cardId, AMOUNT)));
+        });
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.config.EncryptionKeyProperties;
+import com.example.bankcards.security.CardNumberCipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encrypting and decrypting a card number to and from its column value with
+ * {@link CardNumberCipher} (pooled ciphers, shared DRBG, pre-sized output) against the converter
+ * code it replaced, which looked up a cipher and created a {@link SecureRandom} on every call.
+ * Four threads run at once, so the pool is contended. Nothing touches the database.
+ * <p>
+ * {@code mvn -Pbenchmark verify -DskipTests -Dbenchmark=CardNumberCipherBenchmark}; the default
+ * {@code gc} profiler reports the bytes allocated per operation ({@code gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(4)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CardNumberCipherBenchmark {
+
+    private static final String KEY = "MTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTI=";
+    private static final String NUMBER = "4000123456789010";
+
+    private final CardNumberCipher cipher = new CardNumberCipher(new EncryptionKeyProperties(KEY, Map.of(), 0));
+    private final LegacyConverter legacy = new LegacyConverter(KEY);
+
+    private final String legacyStored = legacy.encrypt(NUMBER);
+    private final byte[] stored = cipher.encrypt(NUMBER);
+
+    @Benchmark
+    public String encryptLegacy() {
+        return legacy.encrypt(NUMBER);
+    }
+
+    @Benchmark
+    public byte[] encryptPooled() {
+        return cipher.encrypt(NUMBER);
+    }
+
+    @Benchmark
+    public String decryptLegacy() {
+        return legacy.decrypt(legacyStored);
+    }
+
+    @Benchmark
+    public String decryptPooled() {
+        return new String(cipher.decrypt(stored), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The encryption of {@code CardNumberAttributeConverter} before {@link CardNumberCipher}.
+     */
+    static final class LegacyConverter {
+
+        private static final String ALGORITHM = "AES/GCM/NoPadding";
+        private static final int TAG_LENGTH_BIT = 128;
+        private static final int IV_LENGTH_BYTE = 12;
+
+        private final SecretKey secretKey;
+
+        LegacyConverter(String base64Key) {
+            this.secretKey = new SecretKeySpec(Base64.getDecoder().decode(base64Key), "AES");
+        }
+
+        String encrypt(String attribute) {
+            try {
+                byte[] iv = new byte[IV_LENGTH_BYTE];
+                new SecureRandom().nextBytes(iv);
+                Cipher cipher = Cipher.getInstance(ALGORITHM);
+                cipher.init(Cipher.ENCRYPT_MODE, secretKey, new GCMParameterSpec(TAG_LENGTH_BIT, iv));
+                byte[] cipherText = cipher.doFinal(attribute.getBytes(StandardCharsets.UTF_8));
+                byte[] ivAndCipherText = new byte[iv.length + cipherText.length];
+                System.arraycopy(iv, 0, ivAndCipherText, 0, iv.length);
+                System.arraycopy(cipherText, 0, ivAndCipherText, iv.length, cipherText.length);
+                return Base64.getEncoder().encodeToString(ivAndCipherText);
+            } catch (Exception e) {
+                throw new RuntimeException("Error encrypting card number", e);
+            }
+        }
+
+        String decrypt(String dbData) {
+            try {
+                byte[] decoded = Base64.getDecoder().decode(dbData);
+                GCMParameterSpec spec = new GCMParameterSpec(TAG_LENGTH_BIT, decoded, 0, IV_LENGTH_BYTE);
+                Cipher cipher = Cipher.getInstance(ALGORITHM);
+                cipher.init(Cipher.DECRYPT_MODE, secretKey, spec);
+                byte[] plainText = cipher.doFinal(decoded, IV_LENGTH_BYTE, decoded.length - IV_LENGTH_BYTE);
+                return new String(plainText, StandardCharsets.UTF_8);
+            } catch (Exception e) {
+                throw new RuntimeException("Error decrypting card number", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankApiApplication;
+import com.example.bankcards.dto.requests.CreateCardRequestDto;
+import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.entity.Card;
+import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.util.Money;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the card read endpoints with DTO projection queries ({@code mode=projection}) against
+ * loading the entities and mapping them ({@code mode=entity}), as the service did before: a single
+ * card by ID and a page of an owner's cards, each in its own read-only transaction like a request.
+ * <p>
+ * Run with the GC profiler to compare the allocations per read ({@code gc.alloc.rate.norm}): the
+ * projection neither decrypts the card number nor builds entities, their snapshots and
+ * persistence-context entries.
+ * <p>
+ * Needs a PostgreSQL database migrated by the application:
+ * {@code BENCH_JDBC_URL=jdbc:postgresql://localhost:5432/bankdb mvn -Pbenchmark verify -DskipTests -Dbenchmark=CardReadBenchmark -Dbenchmark.profiler=gc}
+ * ({@code BENCH_JDBC_USER} / {@code BENCH_JDBC_PASSWORD} default to the values in {@code application.yml}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class CardReadBenchmark {
+
+    private static final String USERNAME = "benchmark-reader";
+    private static final int CARDS = 20;
+
+    @Param({"entity", "projection"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private CardRepository cardRepository;
+    private EntityManager entityManager;
+    private TransactionTemplate readOnly;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private long ownerId;
+    private long cardId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Command-line arguments, so they take precedence over application.yml
+        context = new SpringApplicationBuilder(BankApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + env("BENCH_JDBC_URL", "jdbc:postgresql://localhost:5432/bankdb"),
+                        "--spring.datasource.username=" + env("BENCH_JDBC_USER", "bankuser"),
+                        "--spring.datasource.password=" + env("BENCH_JDBC_PASSWORD", "bankpassword"),
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--app.security.encryption-key=MTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTI=",
+                        "--app.security.jwt.secret=bXlTdXBlclNlY3JldEtleUZvckp3dFNpZ25pbmcxMjM0NTY3ODkw");
+        cardRepository = context.getBean(CardRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        jdbcTemplate = context.getBean(NamedParameterJdbcTemplate.class);
+
+        ownerId = jdbcTemplate.queryForObject("""
+                        INSERT INTO clients (username, password, role)
+                        VALUES (:username, '-', 'ROLE_USER')
+                        ON CONFLICT (username) DO UPDATE SET username = EXCLUDED.username
+                        RETURNING id
+                        """,
+                Map.of("username", USERNAME), Long.class);
+        CardService cardService = context.getBean(CardService.class);
+        CreateCardRequestDto request = new CreateCardRequestDto(ownerId, Money.parse("1000.00"));
+        for (int i = 0; i < CARDS; i++) {
+            cardId = cardService.createCard(request).id();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM cards WHERE owner_id = :ownerId", Map.of("ownerId", ownerId));
+        context.close();
+    }
+
+    @Benchmark
+    public CardResponseDto cardById() {
+        return readOnly.execute(status -> mode.equals("entity")
+                ? CardResponseDto.from(cardRepository.findById(cardId).orElseThrow())
+                : cardRepository.findResponseById(cardId).orElseThrow());
+    }
+
+    @Benchmark
+    public List<CardResponseDto> ownerCards() {
+        return readOnly.execute(status -> mode.equals("entity")
+                ? entityManager.createQuery("select c from Card c where c.owner.id = :ownerId order by c.id", Card.class)
+                        .setParameter("ownerId", ownerId)
+                        .setMaxResults(CARDS)
+                        .getResultList().stream()
+                        .map(CardResponseDto::from)
+                        .toList()
+                : cardRepository.findResponsesByOwnerId(ownerId, PageRequest.of(0, CARDS)));
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
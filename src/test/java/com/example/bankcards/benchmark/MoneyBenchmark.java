@@ -0,0 +1,115 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.util.Money;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-transfer money work with {@link Money} against the {@link BigDecimal} it replaced:
+ * the balance check and both legs of a transfer, writing a card as JSON and reading a transfer
+ * request. Nothing touches the database.
+ * <p>
+ * {@code mvn -Pbenchmark verify -DskipTests -Dbenchmark=MoneyBenchmark}; the default {@code gc}
+ * profiler reports the bytes allocated per operation ({@code gc.alloc.rate.norm}) next to the time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MoneyBenchmark {
+
+    private static final String TRANSFER_JSON = "{\"sourceCardId\":1,\"targetCardId\":2,\"amount\":125.40}";
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().addModule(new JavaTimeModule()).build();
+
+    private final BigDecimal decimalAmount = new BigDecimal("0.01");
+    private BigDecimal decimalSource = new BigDecimal("1000.00");
+    private BigDecimal decimalTarget = new BigDecimal("0.00");
+
+    private final Money moneyAmount = Money.parse("0.01");
+    private Money moneySource = Money.parse("1000.00");
+    private Money moneyTarget = Money.ZERO;
+
+    private static final LocalDate VALIDITY = LocalDate.of(2029, 1, 31);
+
+    private long balance = 9_876_543;
+
+    @Benchmark
+    public BigDecimal transferBigDecimal() {
+        if (decimalSource.compareTo(decimalAmount) < 0) {
+            // Swap the cards instead of running dry, so every call does the same work
+            BigDecimal empty = decimalSource;
+            decimalSource = decimalTarget;
+            decimalTarget = empty;
+        }
+        decimalSource = decimalSource.subtract(decimalAmount);
+        decimalTarget = decimalTarget.add(decimalAmount);
+        return decimalSource;
+    }
+
+    @Benchmark
+    public Money transferMoney() {
+        if (moneySource.isLessThan(moneyAmount)) {
+            Money empty = moneySource;
+            moneySource = moneyTarget;
+            moneyTarget = empty;
+        }
+        moneySource = moneySource.minus(moneyAmount);
+        moneyTarget = moneyTarget.plus(moneyAmount);
+        return moneySource;
+    }
+
+    /**
+     * The balance is a new value on every call, like one read from a row for each request
+     * (a reused {@link BigDecimal} would serialize from its cached string).
+     */
+    @Benchmark
+    public byte[] writeCardBigDecimal() throws IOException {
+        return objectMapper.writeValueAsBytes(new DecimalCardResponse(
+                1L, "**** **** **** 1234", BigDecimal.valueOf(++balance, 2), CardStatus.ACTIVE, VALIDITY));
+    }
+
+    @Benchmark
+    public byte[] writeCardMoney() throws IOException {
+        return objectMapper.writeValueAsBytes(new CardResponseDto(
+                1L, "**** **** **** 1234", Money.ofMinor(++balance), CardStatus.ACTIVE, VALIDITY));
+    }
+
+    @Benchmark
+    public DecimalTransferRequest readTransferBigDecimal() throws IOException {
+        return objectMapper.readValue(TRANSFER_JSON, DecimalTransferRequest.class);
+    }
+
+    @Benchmark
+    public TransferRequestDto readTransferMoney() throws IOException {
+        return objectMapper.readValue(TRANSFER_JSON, TransferRequestDto.class);
+    }
+
+    /**
+     * {@link CardResponseDto} and {@link TransferRequestDto} as they were with {@link BigDecimal} amounts.
+     */
+    public record DecimalCardResponse(Long id, String maskCardNumber, BigDecimal balance,
+                                      CardStatus status, LocalDate validityDate) {}
+
+    public record DecimalTransferRequest(Long sourceCardId, Long targetCardId, BigDecimal amount) {}
+}
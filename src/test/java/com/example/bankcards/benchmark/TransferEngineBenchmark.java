@@ -0,0 +1,137 @@
+package com.example.bankcards.benchmark;
+
+import com.example.bankcards.BankApiApplication;
+import com.example.bankcards.dto.requests.CreateCardRequestDto;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.util.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Transfer throughput of the in-memory engine ({@code app.engine.enabled=true}) against the
+ * default JPA path with ordered locking, through {@link CardService} in a full application context.
+ * <p>
+ * Every benchmark thread moves money back and forth between its own two cards, so the JPA path
+ * is measured without row contention; the engine's cost per transfer is one journal append,
+ * amortized over the partition's batch fsync.
+ * <p>
+ * Needs a PostgreSQL database migrated by the application:
+ * {@code BENCH_JDBC_URL=jdbc:postgresql://localhost:5432/bankdb mvn -Pbenchmark verify -DskipTests -Dbenchmark=TransferEngineBenchmark}
+ * ({@code BENCH_JDBC_USER} / {@code BENCH_JDBC_PASSWORD} default to the values in {@code application.yml}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class TransferEngineBenchmark {
+
+    private static final String USERNAME = "benchmark-payer";
+    private static final Money AMOUNT = Money.parse("0.01");
+
+    @Param({"jpa", "engine"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private NamedParameterJdbcTemplate jdbcTemplate;
+    private long ownerId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // Command-line arguments, so they take precedence over application.yml
+        context = new SpringApplicationBuilder(BankApiApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(
+                        "--spring.datasource.url=" + env("BENCH_JDBC_URL", "jdbc:postgresql://localhost:5432/bankdb"),
+                        "--spring.datasource.username=" + env("BENCH_JDBC_USER", "bankuser"),
+                        "--spring.datasource.password=" + env("BENCH_JDBC_PASSWORD", "bankpassword"),
+                        "--spring.datasource.hikari.maximum-pool-size=32",
+                        "--spring.jpa.show-sql=false",
+                        "--logging.level.root=WARN",
+                        "--app.security.encryption-key=MTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTI=",
+                        "--app.security.jwt.secret=bXlTdXBlclNlY3JldEtleUZvckp3dFNpZ25pbmcxMjM0NTY3ODkw",
+                        "--app.engine.enabled=" + path.equals("engine"),
+                        "--app.engine.journal-dir=" + Files.createTempDirectory("engine-benchmark"));
+        cardService = context.getBean(CardService.class);
+        jdbcTemplate = context.getBean(NamedParameterJdbcTemplate.class);
+
+        ownerId = jdbcTemplate.queryForObject("""
+                        INSERT INTO clients (username, password, role)
+                        VALUES (:username, '-', 'ROLE_USER')
+                        ON CONFLICT (username) DO UPDATE SET username = EXCLUDED.username
+                        RETURNING id
+                        """,
+                Map.of("username", USERNAME), Long.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // Stops the engine first, which flushes its journal, while the data source is still open
+        context.stop();
+        // Benchmark-only cleanup; the application never deletes ledger entries
+        jdbcTemplate.update("""
+                        DELETE FROM ledger_entries
+                        WHERE transaction_id IN (
+                            SELECT e.transaction_id FROM ledger_entries e JOIN cards c ON c.id = e.card_id
+                            WHERE c.owner_id = :ownerId)
+                        """,
+                Map.of("ownerId", ownerId));
+        jdbcTemplate.update("DELETE FROM cards WHERE owner_id = :ownerId", Map.of("ownerId", ownerId));
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class CardPair {
+        private long first;
+        private long second;
+        private boolean forward;
+
+        @Setup(Level.Trial)
+        public void setUp(TransferEngineBenchmark benchmark) {
+            CreateCardRequestDto request = new CreateCardRequestDto(benchmark.ownerId, Money.parse("1000.00"));
+            first = benchmark.cardService.createCard(request).id();
+            second = benchmark.cardService.createCard(request).id();
+            SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(USERNAME, null));
+        }
+    }
+
+    @Benchmark
+    public void transfer(CardPair pair) {
+        pair.forward = !pair.forward;
+        cardService.transfer(pair.forward
+                ? new TransferRequestDto(pair.first, pair.second, AMOUNT)
+                : new TransferRequestDto(pair.second, pair.first, AMOUNT));
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null ? value : defaultValue;
+    }
+}
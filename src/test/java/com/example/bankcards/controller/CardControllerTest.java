@@ -1,31 +1,51 @@
 package com.example.bankcards.controller;
 
+import com.example.bankcards.dto.requests.BatchTransferRequestDto;
 import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.AsyncTransferResponseDto;
+import com.example.bankcards.dto.response.BatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.dto.response.CursorPageResponseDto;
 import com.example.bankcards.dto.response.PageResponseDto;
+import com.example.bankcards.dto.response.TransferHistoryItemDto;
+import com.example.bankcards.entity.enums.AsyncTransferStatus;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferDirection;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.RestException;
 import com.example.bankcards.security.ClientDetailsServiceImpl;
 import com.example.bankcards.security.JwtAuthenticationFilter;
+import com.example.bankcards.service.interfaces.AsyncTransferService;
 import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.service.interfaces.IdempotencyService;
+import com.example.bankcards.util.Money;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.test.web.servlet.MockMvc;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.UUID;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -43,6 +63,12 @@ class CardControllerTest {
     @MockitoBean
     private CardService cardService;
 
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private AsyncTransferService asyncTransferService;
+
     // --- ИНФРАСТРУКТУРА SECURITY (Нужны чтобы поднять Context) ---
     @MockitoBean
     private JwtAuthenticationFilter jwtAuthenticationFilter;
@@ -57,7 +83,7 @@ class CardControllerTest {
         CardResponseDto cardDto = new CardResponseDto(
                 1L,
                 "1234****5678",
-                BigDecimal.TEN,
+                Money.ofMinor(1000),
                 CardStatus.ACTIVE,
                 LocalDate.now().plusYears(3)
         );
@@ -79,11 +105,76 @@ class CardControllerTest {
                 .andExpect(jsonPath("$.content[0].status").value("ACTIVE"));
     }
 
+    @Test
+    @DisplayName("GET /api/v1/cards?cursor= - Cursor mode returns nextCursor and the total only when asked")
+    void getMyCardsByCursor_ShouldReturnCursorPage() throws Exception {
+        CardResponseDto card = new CardResponseDto(1L, "**** **** **** 1234", Money.ofMinor(1000), CardStatus.ACTIVE, LocalDate.now());
+        when(cardService.getMyCards("", 10, null, true))
+                .thenReturn(new CursorPageResponseDto<>(List.of(card), 10, "next", 12L));
+        when(cardService.getMyCards("next", 10, null, false))
+                .thenReturn(new CursorPageResponseDto<>(List.of(card), 10, null));
+
+        mockMvc.perform(get("/api/v1/cards")
+                        .param("cursor", "")
+                        .param("includeTotal", "true"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].id").value(1L))
+                .andExpect(jsonPath("$.nextCursor").value("next"))
+                .andExpect(jsonPath("$.totalElements").value(12));
+        mockMvc.perform(get("/api/v1/cards")
+                        .param("cursor", "next"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/cards - A matching If-None-Match returns 304 without loading the cards")
+    void getMyCards_NotModified() throws Exception {
+        when(cardService.getMyCardsTag()).thenReturn("abc");
+
+        mockMvc.perform(get("/api/v1/cards")
+                        .param("cursor", "")
+                        .header("If-None-Match", "\"abc\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "\"abc\""));
+        verify(cardService, never()).getMyCards(any(), anyInt(), any(), anyBoolean());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/cards - A stale If-None-Match returns the list with the current ETag")
+    void getMyCards_Modified() throws Exception {
+        when(cardService.getMyCardsTag()).thenReturn("abc");
+        when(cardService.getMyCards(0, 10, null)).thenReturn(new PageResponseDto<>(List.of(), 0, 10, 0, 0));
+
+        mockMvc.perform(get("/api/v1/cards")
+                        .header("If-None-Match", "\"old\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc\""))
+                .andExpect(jsonPath("$.totalElements").value(0));
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/cards/{id}/transfers - Passes cursor and size, returns nextCursor")
+    void getCardTransfers_ShouldReturnCursorPage() throws Exception {
+        TransferHistoryItemDto item = new TransferHistoryItemDto(
+                UUID.randomUUID(), TransferDirection.IN, 2L, BigDecimal.TEN, LocalDateTime.now());
+        when(cardService.getCardTransfers(1L, "abc", 5))
+                .thenReturn(new CursorPageResponseDto<>(List.of(item), 5, "next"));
+
+        mockMvc.perform(get("/api/v1/cards/1/transfers")
+                        .param("cursor", "abc")
+                        .param("size", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].direction").value("IN"))
+                .andExpect(jsonPath("$.content[0].counterpartyCardId").value(2))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
     @Test
     @DisplayName("POST /api/v1/cards/transfer - Success")
     void transfer_ShouldReturn200_WhenTransferIsSuccessful() throws Exception {
         // Arrange
-        TransferRequestDto request = new TransferRequestDto(1L, 2L, BigDecimal.valueOf(100));
+        TransferRequestDto request = new TransferRequestDto(1L, 2L, Money.ofMinor(10000));
 
         doNothing().when(cardService).transfer(any(TransferRequestDto.class));
 
@@ -94,12 +185,29 @@ class CardControllerTest {
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("POST /api/v1/cards/transfer - Idempotency-Key routes through the idempotency service")
+    void transfer_WithIdempotencyKey_DelegatesToIdempotencyService() throws Exception {
+        // Arrange
+        TransferRequestDto request = new TransferRequestDto(1L, 2L, Money.ofMinor(10000));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/cards/transfer")
+                        .header("Idempotency-Key", "retry-42")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+
+        verify(idempotencyService).transfer(eq("retry-42"), any(TransferRequestDto.class));
+        verify(cardService, never()).transfer(any(TransferRequestDto.class));
+    }
+
     @Test
     @DisplayName("POST /api/v1/cards/transfer - Bad Request (Negative Amount)")
     void transfer_ShouldReturn400_WhenAmountIsNegative() throws Exception {
         // Arrange
         // Валидация (@Min / @Positive) должна сработать в DTO
-        TransferRequestDto request = new TransferRequestDto(1L, 2L, BigDecimal.valueOf(-100));
+        TransferRequestDto request = new TransferRequestDto(1L, 2L, Money.ofMinor(-10000));
 
         // Act & Assert
         mockMvc.perform(post("/api/v1/cards/transfer")
@@ -108,6 +216,81 @@ class CardControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("POST /api/v1/cards/transfers/batch - Per-item results")
+    void transferBatch_ShouldReturnPerItemResults() throws Exception {
+        // Arrange
+        BatchTransferRequestDto request = new BatchTransferRequestDto(List.of(
+                new TransferRequestDto(1L, 2L, Money.ofMinor(1000)),
+                new TransferRequestDto(1L, 3L, Money.ofMinor(1000))));
+        when(cardService.transferBatch(any(BatchTransferRequestDto.class))).thenReturn(BatchTransferResponseDto.of(List.of(
+                BatchTransferResponseDto.Item.of(0, TransferOutcome.OK),
+                BatchTransferResponseDto.Item.of(1, TransferOutcome.INSUFFICIENT_FUNDS))));
+
+        // Act & Assert
+        mockMvc.perform(post("/api/v1/cards/transfers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.succeeded").value(1))
+                .andExpect(jsonPath("$.failed").value(1))
+                .andExpect(jsonPath("$.results[1].outcome").value("INSUFFICIENT_FUNDS"))
+                .andExpect(jsonPath("$.results[1].status").value(400));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/cards/transfers/batch - Bad Request (Empty Batch)")
+    void transferBatch_ShouldReturn400_WhenEmpty() throws Exception {
+        mockMvc.perform(post("/api/v1/cards/transfers/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"transfers\":[]}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/cards/transfers/async - Accepted with the status location")
+    void submitTransfer_ShouldReturn202() throws Exception {
+        UUID id = UUID.randomUUID();
+        TransferRequestDto request = new TransferRequestDto(1L, 2L, Money.ofMinor(1000));
+        when(asyncTransferService.submit(any())).thenReturn(new AsyncTransferResponseDto(
+                id, AsyncTransferStatus.PENDING, 1L, 2L, Money.ofMinor(1000), null, null, LocalDateTime.now(), null));
+
+        mockMvc.perform(post("/api/v1/cards/transfers/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/v1/cards/transfers/async/" + id))
+                .andExpect(jsonPath("$.id").value(id.toString()))
+                .andExpect(jsonPath("$.status").value("PENDING"));
+    }
+
+    @Test
+    @DisplayName("POST /api/v1/cards/transfers/async - Too Many Requests (Queue Full)")
+    void submitTransfer_ShouldReturn429_WhenQueueFull() throws Exception {
+        when(asyncTransferService.submit(any()))
+                .thenThrow(new RestException("Too many transfers are pending, retry later", HttpStatus.TOO_MANY_REQUESTS));
+
+        mockMvc.perform(post("/api/v1/cards/transfers/async")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new TransferRequestDto(1L, 2L, Money.ofMinor(1000)))))
+                .andExpect(status().isTooManyRequests());
+    }
+
+    @Test
+    @DisplayName("GET /api/v1/cards/transfers/async/{id} - Completed transfer with its result")
+    void getTransferStatus_ShouldReturnResult() throws Exception {
+        UUID id = UUID.randomUUID();
+        when(asyncTransferService.getStatus(id)).thenReturn(new AsyncTransferResponseDto(
+                id, AsyncTransferStatus.FAILED, 1L, 2L, Money.ofMinor(1000), 400, "Insufficient funds",
+                LocalDateTime.now(), LocalDateTime.now()));
+
+        mockMvc.perform(get("/api/v1/cards/transfers/async/{id}", id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("FAILED"))
+                .andExpect(jsonPath("$.httpStatus").value(400))
+                .andExpect(jsonPath("$.message").value("Insufficient funds"));
+    }
+
     @Test
     @DisplayName("PATCH /api/v1/cards/{id}/block - Success")
     void blockCard_ShouldReturn200_WhenCardExists() throws Exception {
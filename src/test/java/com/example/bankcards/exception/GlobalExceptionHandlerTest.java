@@ -1,18 +1,26 @@
 package com.example.bankcards.exception;
 
+import com.example.bankcards.dto.requests.TransferRequestDto;
 import com.example.bankcards.dto.response.ErrorResponseDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
 import org.springframework.validation.BeanPropertyBindingResult;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
 
 
 class GlobalExceptionHandlerTest {
@@ -67,6 +75,42 @@ class GlobalExceptionHandlerTest {
         assertThat(response.getBody().message()).startsWith("An unexpected error occurred: Database connection failed");
     }
 
+    @Test
+    @DisplayName("Concurrency: A lost optimistic version check returns 409")
+    void handleOptimisticLockingFailure() {
+        ResponseEntity<ErrorResponseDto> response = exceptionHandler.handleOptimisticLockingFailure(
+                new OptimisticLockingFailureException("Row was updated or deleted by another transaction"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().status()).isEqualTo(409);
+    }
+
+    @Test
+    @DisplayName("Type Mismatch: An unconvertible path variable returns 400")
+    void handleTypeMismatch() {
+        ResponseEntity<ErrorResponseDto> response = exceptionHandler.handleTypeMismatch(
+                new MethodArgumentTypeMismatchException("GOLD", Object.class, "tier", null, null));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().message()).isEqualTo("Invalid value 'GOLD' for parameter tier");
+    }
+
+    @Test
+    @DisplayName("Unreadable Body: An amount with too many decimals returns 400 naming the field")
+    void handleNotReadable() {
+        InvalidFormatException cause = catchThrowableOfType(InvalidFormatException.class, () -> new ObjectMapper().readValue(
+                "{\"sourceCardId\":1,\"targetCardId\":2,\"amount\":0.001}", TransferRequestDto.class));
+
+        ResponseEntity<ErrorResponseDto> response = exceptionHandler.handleNotReadable(
+                new HttpMessageNotReadableException("JSON parse error", cause, new MockHttpInputMessage(new byte[0])));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().message()).startsWith("amount: must have at most 2 decimal places");
+    }
+
     @Test
     @DisplayName("Validation Exception: Returns 400 with field errors")
     void handleValidationExceptions() {
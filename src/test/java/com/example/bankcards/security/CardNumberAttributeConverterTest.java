@@ -1,19 +1,26 @@
 package com.example.bankcards.security;
 
+import com.example.bankcards.config.CardNumberCacheProperties;
+import com.example.bankcards.config.EncryptionKeyProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.crypto.KeyGenerator;
 import javax.crypto.SecretKey;
 import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
 import java.util.Base64;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 class CardNumberAttributeConverterTest {
 
     private CardNumberAttributeConverter converter;
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @BeforeEach
     void setUp() throws NoSuchAlgorithmException {
@@ -23,7 +30,9 @@ class CardNumberAttributeConverterTest {
         SecretKey secretKey = keyGen.generateKey();
         String base64Key = Base64.getEncoder().encodeToString(secretKey.getEncoded());
 
-        converter = new CardNumberAttributeConverter(base64Key);
+        converter = new CardNumberAttributeConverter(new CardNumberCipher(new EncryptionKeyProperties(base64Key, Map.of(), 0)), new CardNumberCache(
+                new CardNumberCacheProperties(true, 100, Duration.ofMinutes(5), 4, Duration.ofMinutes(1)),
+                meterRegistry));
     }
 
     @Test
@@ -31,10 +40,10 @@ class CardNumberAttributeConverterTest {
     void testEncryptionDecryptionSymmetry() {
         String originalCardNumber = "1234567812345678";
 
-        String encrypted = converter.convertToDatabaseColumn(originalCardNumber);
-        String decrypted = converter.convertToEntityAttribute(encrypted);
+        byte[] encrypted = converter.convertToDatabaseColumn(EncryptedCardNumber.of(originalCardNumber));
+        String decrypted = converter.convertToEntityAttribute(encrypted).reveal();
 
-        assertThat(encrypted).isNotEqualTo(originalCardNumber); // Ensure it actually changed
+        assertThat(encrypted).isNotEqualTo(originalCardNumber.getBytes()); // Ensure it actually changed
         assertThat(decrypted).isEqualTo(originalCardNumber);    // Ensure it came back
     }
 
@@ -43,16 +52,47 @@ class CardNumberAttributeConverterTest {
     void testIvRandomness() {
         String originalCardNumber = "1111222233334444";
 
-        String run1 = converter.convertToDatabaseColumn(originalCardNumber);
-        String run2 = converter.convertToDatabaseColumn(originalCardNumber);
+        byte[] run1 = converter.convertToDatabaseColumn(EncryptedCardNumber.of(originalCardNumber));
+        byte[] run2 = converter.convertToDatabaseColumn(EncryptedCardNumber.of(originalCardNumber));
 
         // If these are equal, the encryption is deterministic (bad for security)
         // or the IV is static.
         assertThat(run1).isNotEqualTo(run2);
 
         // However, both should decrypt to the same value
-        assertThat(converter.convertToEntityAttribute(run1)).isEqualTo(originalCardNumber);
-        assertThat(converter.convertToEntityAttribute(run2)).isEqualTo(originalCardNumber);
+        assertThat(converter.convertToEntityAttribute(run1).reveal()).isEqualTo(originalCardNumber);
+        assertThat(converter.convertToEntityAttribute(run2).reveal()).isEqualTo(originalCardNumber);
+        assertThat(converter.convertToEntityAttribute(run1)).isEqualTo(converter.convertToEntityAttribute(run2));
+    }
+
+    @Test
+    @DisplayName("Laziness: A loaded number is decrypted on first reveal, then served by the number cache, and written back with its own ciphertext")
+    void testLazyDecryption() {
+        byte[] stored = converter.convertToDatabaseColumn(EncryptedCardNumber.of("4000123456789010"));
+
+        EncryptedCardNumber loaded = converter.convertToEntityAttribute(stored);
+        assertThat(converter.convertToDatabaseColumn(loaded)).isEqualTo(stored);
+        assertThat(loaded.toString()).doesNotContain("9010");
+        assertThat(meterRegistry.find("bank.card.number.cache.gets").counters())
+                .allSatisfy(counter -> assertThat(counter.count()).isZero());
+
+        assertThat(loaded.reveal()).isEqualTo("4000123456789010");
+        assertThat(loaded.reveal()).isEqualTo("4000123456789010");
+        assertThat(meterRegistry.get("bank.card.number.cache.gets").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bank.card.number.cache.gets").tag("result", "hit").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Second-Level Cache: A written number keeps its ciphertext, not its plaintext")
+    void testWrittenNumberDropsPlaintext() {
+        EncryptedCardNumber number = EncryptedCardNumber.of("4000123456789010");
+
+        byte[] stored = converter.convertToDatabaseColumn(number);
+
+        assertThat(ReflectionTestUtils.getField(number, "plaintext")).isNull();
+        assertThat(converter.convertToDatabaseColumn(number)).isSameAs(stored);
+        assertThat(number.reveal()).isEqualTo("4000123456789010");
+        assertThat(ReflectionTestUtils.getField(number, "plaintext")).isNull();
     }
 
     @Test
@@ -0,0 +1,44 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.CardSearchProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardNumberBlindIndexTest {
+
+    private static final String ENCRYPTION_KEY = "MTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTI=";
+
+    private final CardNumberBlindIndex index = new CardNumberBlindIndex("", ENCRYPTION_KEY, new CardSearchProperties(4, 500));
+
+    @Test
+    @DisplayName("Tokens: One per distinct n-gram, none for less than one n-gram")
+    void tokens_DistinctNgrams() {
+        // 13 n-grams, of which "1111" comes twice
+        assertThat(index.tokens(1, "1111122223333444")).hasSize(12).doesNotHaveDuplicates();
+        assertThat(index.tokens(1, "123")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Search: Every token of a contained query is a token of the card number")
+    void tokens_QueryIsSubset() {
+        long[] card = index.tokens(7, "4000123456789010");
+
+        assertThat(card).contains(index.tokens(7, "23456"));
+        assertThat(card).contains(index.tokens(7, "9010"));
+        assertThat(card).doesNotContain(index.tokens(7, "5555"));
+    }
+
+    @Test
+    @DisplayName("Blinding: Tokens depend on the owner and on the key")
+    void tokens_KeyedPerOwner() {
+        long[] owner7 = index.tokens(7, "4000123456789010");
+        CardNumberBlindIndex otherKey = new CardNumberBlindIndex(
+                "c2VhcmNoLWtleS1mb3ItdGhlLWNhcmQtbnVtYmVyLWluZGV4", ENCRYPTION_KEY, new CardSearchProperties(4, 500));
+
+        assertThat(index.tokens(7, "4000123456789010")).isEqualTo(owner7);
+        assertThat(index.tokens(8, "4000123456789010")).doesNotContain(owner7);
+        assertThat(otherKey.tokens(7, "4000123456789010")).doesNotContain(owner7);
+    }
+}
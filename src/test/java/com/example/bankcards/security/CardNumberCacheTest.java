@@ -0,0 +1,105 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.CardNumberCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardNumberCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger decryptions = new AtomicInteger();
+    private final List<byte[]> plaintexts = new ArrayList<>();
+
+    // "Decrypts" by reversing the bytes, and remembers each plaintext handed to the cache
+    private final UnaryOperator<byte[]> decrypt = ciphertext -> {
+        decryptions.incrementAndGet();
+        byte[] plaintext = new byte[ciphertext.length];
+        for (int i = 0; i < ciphertext.length; i++) {
+            plaintext[i] = ciphertext[ciphertext.length - 1 - i];
+        }
+        plaintexts.add(plaintext);
+        return plaintext;
+    };
+
+    @Test
+    @DisplayName("Hit: A ciphertext read again is answered without decrypting, and counted")
+    void get_SecondRead_Hits() {
+        CardNumberCache cache = cache(100, Duration.ofMinutes(5));
+
+        assertThat(cache.get(bytes("4321"), decrypt)).isEqualTo("1234");
+        assertThat(cache.get(bytes("4321"), decrypt)).isEqualTo("1234");
+        assertThat(cache.get(bytes("8765"), decrypt)).isEqualTo("5678");
+
+        assertThat(decryptions).hasValue(2);
+        assertThat(meterRegistry.get("bank.card.number.cache.gets").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bank.card.number.cache.gets").tag("result", "miss").counter().count()).isEqualTo(2);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Size: The least recently read number is evicted and its plaintext zeroed")
+    void get_Full_EvictsLeastRecentlyRead() {
+        // One stripe of two entries
+        CardNumberCache cache = new CardNumberCache(
+                new CardNumberCacheProperties(true, 2, Duration.ofMinutes(5), 1, Duration.ofMinutes(1)), meterRegistry);
+
+        cache.get(bytes("1111"), decrypt);
+        cache.get(bytes("2222"), decrypt);
+        cache.get(bytes("1111"), decrypt);
+        cache.get(bytes("3333"), decrypt);
+
+        assertThat(plaintexts.get(1)).containsOnly(0);
+        assertThat(plaintexts.get(0)).containsOnly('1');
+        assertThat(cache.size()).isEqualTo(2);
+        cache.get(bytes("2222"), decrypt);
+        assertThat(decryptions).hasValue(4);
+    }
+
+    @Test
+    @DisplayName("TTL: An expired number is decrypted again, and the purge wipes expired numbers")
+    void get_Expired_Decrypts() throws InterruptedException {
+        CardNumberCache cache = cache(100, Duration.ofMillis(1));
+
+        cache.get(bytes("4321"), decrypt);
+        Thread.sleep(5);
+        cache.get(bytes("4321"), decrypt);
+        assertThat(decryptions).hasValue(2);
+        assertThat(plaintexts.get(0)).containsOnly(0);
+
+        Thread.sleep(5);
+        cache.evictExpired();
+        assertThat(cache.size()).isZero();
+        assertThat(plaintexts.get(1)).containsOnly(0);
+    }
+
+    @Test
+    @DisplayName("Disabled: Every read decrypts and the plaintext buffer is zeroed right away")
+    void get_Disabled_AlwaysDecrypts() {
+        CardNumberCache cache = new CardNumberCache(
+                new CardNumberCacheProperties(false, 100, Duration.ofMinutes(5), 4, Duration.ofMinutes(1)), meterRegistry);
+
+        assertThat(cache.get(bytes("4321"), decrypt)).isEqualTo("1234");
+        assertThat(cache.get(bytes("4321"), decrypt)).isEqualTo("1234");
+
+        assertThat(decryptions).hasValue(2);
+        assertThat(plaintexts).allSatisfy(plaintext -> assertThat(plaintext).containsOnly(0));
+    }
+
+    private CardNumberCache cache(int maxSize, Duration ttl) {
+        return new CardNumberCache(new CardNumberCacheProperties(true, maxSize, ttl, 4, Duration.ofMinutes(1)), meterRegistry);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.bankcards.security;
+
+import com.example.bankcards.config.EncryptionKeyProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardNumberCipherTest {
+
+    private static final String KEY_0 = "MTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTI=";
+    private static final String KEY_1 = "YWJjZGVmZ2hpamtsbW5vcHFyc3R1dnd4eXoxMjM0NTY=";
+
+    private final CardNumberCipher cipher = new CardNumberCipher(new EncryptionKeyProperties(KEY_0, Map.of(), 0));
+
+    @Test
+    @DisplayName("Format: Key id, IV, ciphertext and tag in one buffer, decrypted back to the number")
+    void encrypt_RoundTrip() {
+        byte[] stored = cipher.encrypt("4000123456789010");
+
+        assertThat(stored).hasSize(1 + 12 + 16 + 16);
+        assertThat(stored[0]).isZero();
+        assertThat(new String(cipher.decrypt(stored), StandardCharsets.UTF_8)).isEqualTo("4000123456789010");
+    }
+
+    @Test
+    @DisplayName("Integrity: A tampered ciphertext is rejected, and the pooled cipher keeps working")
+    void decrypt_Tampered_Fails() {
+        byte[] stored = cipher.encrypt("4000123456789010");
+        stored[20] ^= 1;
+
+        assertThatThrownBy(() -> cipher.decrypt(stored)).hasMessage("Error decrypting card number");
+        assertThat(new String(cipher.decrypt(cipher.encrypt("1111")), StandardCharsets.UTF_8)).isEqualTo("1111");
+    }
+
+    @Test
+    @DisplayName("Concurrency: Thousands of virtual threads share the pooled ciphers safely")
+    void encrypt_VirtualThreads() throws Exception {
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 5000; i++) {
+                String number = String.format("%016d", i);
+                results.add(executor.submit(() -> new String(cipher.decrypt(cipher.encrypt(number)), StandardCharsets.UTF_8)));
+            }
+        }
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).get()).isEqualTo(String.format("%016d", i));
+        }
+    }
+
+    @Test
+    @DisplayName("Rotation: Values of the old key still decrypt, and re-encryption moves them to the active key")
+    void reencrypt_SwitchesKey() {
+        CardNumberCipher rotated = new CardNumberCipher(new EncryptionKeyProperties(KEY_0, Map.of(1, KEY_1), 1));
+        byte[] old = cipher.encrypt("4000123456789010");
+
+        byte[] reencrypted = rotated.reencrypt(old);
+
+        assertThat(new String(rotated.decrypt(old), StandardCharsets.UTF_8)).isEqualTo("4000123456789010");
+        assertThat(reencrypted[0]).isEqualTo((byte) 1);
+        assertThat(new String(rotated.decrypt(reencrypted), StandardCharsets.UTF_8)).isEqualTo("4000123456789010");
+        assertThatThrownBy(() -> cipher.decrypt(reencrypted))
+                .hasMessage("Error decrypting card number: unknown key id or truncated value");
+    }
+
+    @Test
+    @DisplayName("Configuration: An active key id without a key is rejected at startup")
+    void constructor_UnknownActiveKey_Fails() {
+        assertThatThrownBy(() -> new CardNumberCipher(new EncryptionKeyProperties(KEY_0, Map.of(), 2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("No encryption key with the active key id 2");
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.AsyncTransferProperties;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.AsyncTransferResponseDto;
+import com.example.bankcards.entity.AsyncTransfer;
+import com.example.bankcards.entity.enums.AsyncTransferStatus;
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.AsyncTransferRepository;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.service.interfaces.IdempotencyService;
+import com.example.bankcards.util.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncTransferServiceImplTest {
+
+    @Mock
+    private IdempotencyService idempotencyService;
+
+    @Mock
+    private AsyncTransferRepository asyncTransferRepository;
+
+    @Mock
+    private CardJdbcRepository cardJdbcRepository;
+
+    private AsyncTransferServiceImpl asyncTransferService;
+
+    private final TransferRequestDto request = new TransferRequestDto(1L, 2L, Money.parse("10.00"));
+
+    @BeforeEach
+    void setUp() {
+        asyncTransferService = new AsyncTransferServiceImpl(
+                idempotencyService,
+                asyncTransferRepository,
+                cardJdbcRepository,
+                new AsyncTransferProperties(2, 1, Duration.ofHours(24), Duration.ofHours(1), 3, Duration.ofMillis(10)),
+                new SimpleMeterRegistry()
+        );
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user1", null));
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        asyncTransferService.destroy();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Submit: Stored as PENDING, executed in the background as its owner with an id-derived key")
+    void submit_RunsInBackground() {
+        when(cardJdbcRepository.findOwners(List.of(1L))).thenReturn(Map.of(1L, owner("user1")));
+        doAnswer(invocation -> {
+            assertThat(SecurityContextHolder.getContext().getAuthentication().getName()).isEqualTo("user1");
+            return null;
+        }).when(idempotencyService).transfer(any(), eq(request));
+
+        AsyncTransferResponseDto response = asyncTransferService.submit(request);
+
+        assertThat(response.status()).isEqualTo(AsyncTransferStatus.PENDING);
+        verify(asyncTransferRepository).save(argThat(t -> t.getId().equals(response.id()) && t.getUsername().equals("user1")));
+        verify(asyncTransferRepository, timeout(5000)).complete(
+                eq(response.id()), eq(AsyncTransferStatus.SUCCEEDED), eq(200), isNull(), any());
+        verify(idempotencyService).transfer("async-" + response.id(), request);
+    }
+
+    @Test
+    @DisplayName("Failure: The rejection is stored with the status the synchronous endpoint would answer")
+    void submit_Rejected_StoredAsFailed() {
+        when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(1L, owner("user1")));
+        doThrow(new InsufficientFundsException("Insufficient funds")).when(idempotencyService).transfer(any(), any());
+
+        AsyncTransferResponseDto response = asyncTransferService.submit(request);
+
+        verify(asyncTransferRepository, timeout(5000)).complete(
+                eq(response.id()), eq(AsyncTransferStatus.FAILED), eq(400), eq("Insufficient funds"), any());
+    }
+
+    @Test
+    @DisplayName("Retry: A transient failure leaves the transfer PENDING and it is executed again with the same key")
+    void submit_TransientFailure_Retried() {
+        when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(1L, owner("user1")));
+        doThrow(new RestException("Card is busy, please retry later", HttpStatus.SERVICE_UNAVAILABLE))
+                .doNothing()
+                .when(idempotencyService).transfer(any(), any());
+
+        AsyncTransferResponseDto response = asyncTransferService.submit(request);
+
+        verify(asyncTransferRepository, timeout(5000)).complete(
+                eq(response.id()), eq(AsyncTransferStatus.SUCCEEDED), eq(200), isNull(), any());
+        verify(idempotencyService, times(2)).transfer("async-" + response.id(), request);
+        verify(asyncTransferRepository, never()).complete(any(), eq(AsyncTransferStatus.FAILED), anyInt(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Retry: A transfer that keeps failing transiently is marked FAILED after the last attempt")
+    void submit_TransientFailure_GivesUp() {
+        when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(1L, owner("user1")));
+        doThrow(new RestException("The card was modified concurrently, please retry", HttpStatus.CONFLICT))
+                .when(idempotencyService).transfer(any(), any());
+
+        AsyncTransferResponseDto response = asyncTransferService.submit(request);
+
+        verify(asyncTransferRepository, timeout(5000)).complete(
+                eq(response.id()), eq(AsyncTransferStatus.FAILED), eq(409), any(), any());
+        verify(idempotencyService, times(3)).transfer("async-" + response.id(), request);
+    }
+
+    @Test
+    @DisplayName("Validation: Another user's source card is refused before anything is stored")
+    void submit_NotOwner_Forbidden() {
+        when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(1L, owner("otherUser")));
+
+        assertThatThrownBy(() -> asyncTransferService.submit(request))
+                .isInstanceOf(RestException.class)
+                .extracting(e -> ((RestException) e).getStatus())
+                .isEqualTo(HttpStatus.FORBIDDEN);
+        verify(asyncTransferRepository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("Backpressure: Once the queue depth is reached new transfers get 429, and are accepted again after it drains")
+    void submit_QueueFull_TooManyRequests() throws InterruptedException {
+        when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(1L, owner("user1")));
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(idempotencyService).transfer(any(), any());
+
+        asyncTransferService.submit(request);
+        asyncTransferService.submit(request);
+        assertThatThrownBy(() -> asyncTransferService.submit(request))
+                .isInstanceOf(RestException.class)
+                .extracting(e -> ((RestException) e).getStatus())
+                .isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+
+        release.countDown();
+        verify(asyncTransferRepository, timeout(5000).times(2))
+                .complete(any(), eq(AsyncTransferStatus.SUCCEEDED), anyInt(), any(), any());
+        // The depth is released right after the result is stored
+        Thread.sleep(100);
+        assertThat(asyncTransferService.submit(request).status()).isEqualTo(AsyncTransferStatus.PENDING);
+    }
+
+    @Test
+    @DisplayName("Restart: Transfers left PENDING are executed again under their original key")
+    void resumePending_ExecutesLeftovers() {
+        AsyncTransfer pending = new AsyncTransfer();
+        pending.setId(UUID.randomUUID());
+        pending.setUsername("user2");
+        pending.setSourceCardId(1L);
+        pending.setTargetCardId(2L);
+        pending.setAmount(Money.parse("10.00"));
+        pending.setStatus(AsyncTransferStatus.PENDING);
+        when(asyncTransferRepository.findAllByStatusOrderByCreatedAt(AsyncTransferStatus.PENDING)).thenReturn(List.of(pending));
+
+        asyncTransferService.resumePending();
+
+        verify(asyncTransferRepository, timeout(5000)).complete(
+                eq(pending.getId()), eq(AsyncTransferStatus.SUCCEEDED), eq(200), isNull(), any());
+        verify(idempotencyService).transfer("async-" + pending.getId(), request);
+    }
+
+    @Test
+    @DisplayName("Status: Another user's transfer is reported as not found")
+    void getStatus_OtherUser_NotFound() {
+        UUID id = UUID.randomUUID();
+        when(asyncTransferRepository.findByIdAndUsername(id, "user1")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> asyncTransferService.getStatus(id))
+                .isInstanceOf(RestException.class)
+                .hasMessage("Transfer not found");
+    }
+
+    private static CardJdbcRepository.CardOwner owner(String username) {
+        return new CardJdbcRepository.CardOwner(username, ClientTier.STANDARD);
+    }
+}
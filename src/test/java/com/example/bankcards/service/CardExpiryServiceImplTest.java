@@ -0,0 +1,120 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.ExpiryProperties;
+import com.example.bankcards.dto.response.ExpirySweepResponseDto;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.service.engine.TransferEngine;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardExpiryServiceImplTest {
+
+    @Mock
+    private CardJdbcRepository cardJdbcRepository;
+
+    @Mock
+    private ObjectProvider<TransferEngine> engineProvider;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CardExpiryServiceImpl cardExpiryService;
+
+    @BeforeEach
+    void setUp() {
+        cardExpiryService = new CardExpiryServiceImpl(
+                cardJdbcRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new ExpiryProperties(true, 2, Duration.ofHours(1)),
+                engineProvider,
+                meterRegistry
+        );
+    }
+
+    @Test
+    @DisplayName("Sweep: Chunks are expired until one comes back short, and every expired card is counted")
+    void expireDueCards_StopsAtShortChunk() {
+        when(cardJdbcRepository.expireDueCards(2)).thenReturn(List.of(1L, 2L), List.of(3L, 4L), List.of(5L));
+
+        ExpirySweepResponseDto response = cardExpiryService.expireDueCards();
+
+        assertThat(response.chunks()).isEqualTo(3);
+        assertThat(response.cardsExpired()).isEqualTo(5);
+        assertThat(response.rowsPerSecond()).isPositive();
+        verify(cardJdbcRepository, times(3)).expireDueCards(2);
+        assertThat(meterRegistry.get("bank.card.expiry.expired").counter().count()).isEqualTo(5);
+        assertThat(meterRegistry.get("bank.card.expiry.run").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Sweep: With nothing due a single chunk runs and nothing is reported to the engine")
+    void expireDueCards_NothingDue() {
+        when(cardJdbcRepository.expireDueCards(2)).thenReturn(List.of());
+
+        ExpirySweepResponseDto response = cardExpiryService.expireDueCards();
+
+        assertThat(response.chunks()).isEqualTo(1);
+        assertThat(response.cardsExpired()).isZero();
+    }
+
+    @Test
+    @DisplayName("Engine: Expired cards are marked EXPIRED in the in-memory engine when it is running")
+    @SuppressWarnings("unchecked")
+    void expireDueCards_UpdatesEngine() {
+        TransferEngine engine = mock(TransferEngine.class);
+        doAnswer(invocation -> {
+            ((Consumer<TransferEngine>) invocation.getArgument(0)).accept(engine);
+            return null;
+        }).when(engineProvider).ifAvailable(any());
+        when(cardJdbcRepository.expireDueCards(2)).thenReturn(List.of(7L));
+
+        cardExpiryService.expireDueCards();
+
+        verify(engine).updateStatus(7L, CardStatus.EXPIRED);
+    }
+
+    @Test
+    @DisplayName("Sweep: A second run while one is in progress is rejected with 409, the scheduled one is skipped")
+    void expireDueCards_AlreadyRunning_Rejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cardJdbcRepository.expireDueCards(2)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        CompletableFuture<ExpirySweepResponseDto> first = CompletableFuture.supplyAsync(cardExpiryService::expireDueCards);
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(cardExpiryService::expireDueCards)
+                .isInstanceOf(RestException.class)
+                .hasMessageContaining("already running");
+        cardExpiryService.scheduledSweep();
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).chunks()).isEqualTo(1);
+        verify(cardJdbcRepository, times(1)).expireDueCards(2);
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.CardReencryptionProperties;
+import com.example.bankcards.config.EncryptionKeyProperties;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardJdbcRepository;
+import com.example.bankcards.repository.CardJdbcRepository.StoredNumber;
+import com.example.bankcards.security.CardNumberCipher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CardReencryptionServiceImplTest {
+
+    private static final String KEY_0 = "MTIzNDU2Nzg5MDEyMzQ1Njc4OTAxMjM0NTY3ODkwMTI=";
+    private static final String KEY_1 = "YWJjZGVmZ2hpamtsbW5vcHFyc3R1dnd4eXoxMjM0NTY=";
+
+    @Mock
+    private CardJdbcRepository cardJdbcRepository;
+
+    private final CardNumberCipher oldCipher = new CardNumberCipher(new EncryptionKeyProperties(KEY_0, Map.of(), 0));
+    private final CardNumberCipher cipher = new CardNumberCipher(new EncryptionKeyProperties(KEY_0, Map.of(1, KEY_1), 1));
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private CardReencryptionServiceImpl cardReencryptionService;
+
+    @BeforeEach
+    void setUp() {
+        cardReencryptionService = new CardReencryptionServiceImpl(
+                cardJdbcRepository,
+                cipher,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new CardReencryptionProperties(true, 2, 1_000_000),
+                meterRegistry
+        );
+    }
+
+    @Test
+    @DisplayName("Job: Chunks are re-encrypted with the active key by ascending id until one comes back short")
+    @SuppressWarnings("unchecked")
+    void run_ReencryptsChunks() {
+        when(cardJdbcRepository.lockNumbersNotEncryptedWith(1, 0, 2))
+                .thenReturn(List.of(stored(3, "0000000000000003"), stored(5, "0000000000000005")));
+        when(cardJdbcRepository.lockNumbersNotEncryptedWith(1, 5, 2))
+                .thenReturn(List.of(stored(8, "0000000000000008")));
+
+        cardReencryptionService.run();
+
+        ArgumentCaptor<List<StoredNumber>> updates = ArgumentCaptor.forClass(List.class);
+        verify(cardJdbcRepository, times(2)).updateNumbers(updates.capture());
+        List<StoredNumber> updated = updates.getAllValues().stream().flatMap(List::stream).toList();
+        assertThat(updated).extracting(StoredNumber::id).containsExactly(3L, 5L, 8L);
+        assertThat(updated).allSatisfy(number -> assertThat(number.ciphertext()[0]).isEqualTo((byte) 1));
+        assertThat(new String(cipher.decrypt(updated.getLast().ciphertext()), StandardCharsets.UTF_8))
+                .isEqualTo("0000000000000008");
+
+        assertThat(cardReencryptionService.status().running()).isFalse();
+        assertThat(cardReencryptionService.status().cardsReencrypted()).isEqualTo(3);
+        assertThat(cardReencryptionService.status().lastCardId()).isEqualTo(8);
+        assertThat(meterRegistry.get("bank.card.reencryption.cards").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("Job: Cards skipped while locked by a transfer are picked up by another pass")
+    void run_SecondPassForSkippedCards() {
+        when(cardJdbcRepository.lockNumbersNotEncryptedWith(1, 0, 2))
+                .thenReturn(List.of(stored(3, "0000000000000003")), List.of(stored(4, "0000000000000004")), List.of());
+        when(cardJdbcRepository.existsNumberNotEncryptedWith(1)).thenReturn(true);
+
+        cardReencryptionService.run();
+
+        verify(cardJdbcRepository, times(3)).lockNumbersNotEncryptedWith(1, 0, 2);
+        assertThat(cardReencryptionService.status().cardsReencrypted()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Job: A second start while one is running is rejected with 409")
+    void start_AlreadyRunning_Rejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(cardJdbcRepository.lockNumbersNotEncryptedWith(1, 0, 2)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        assertThat(cardReencryptionService.start().running()).isTrue();
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(cardReencryptionService::start)
+                .isInstanceOf(RestException.class)
+                .hasMessageContaining("already running");
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (cardReencryptionService.status().running() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(cardReencryptionService.status().running()).isFalse();
+        assertThat(cardReencryptionService.status().error()).isNull();
+    }
+
+    private StoredNumber stored(long id, String number) {
+        return new StoredNumber(id, oldCipher.encrypt(number));
+    }
+}
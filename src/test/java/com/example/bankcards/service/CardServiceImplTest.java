@@ -1,17 +1,51 @@
 package com.example.bankcards.service;
 
+import com.example.bankcards.config.BalanceSlotProperties;
+import com.example.bankcards.config.OptimisticRetryProperties;
+import com.example.bankcards.config.SpendingLimitProperties;
+import com.example.bankcards.config.TransferProperties;
+import com.example.bankcards.dto.requests.BalanceAdjustmentRequestDto;
+import com.example.bankcards.dto.requests.BatchTransferRequestDto;
 import com.example.bankcards.dto.requests.CreateCardRequestDto;
 import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.dto.response.BatchTransferResponseDto;
 import com.example.bankcards.dto.response.CardResponseDto;
+import com.example.bankcards.dto.response.CursorPageResponseDto;
+import com.example.bankcards.dto.response.PageResponseDto;
+import com.example.bankcards.dto.response.TransferHistoryItemDto;
 import com.example.bankcards.entity.Card;
 import com.example.bankcards.entity.Client;
 import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.ClientTier;
+import com.example.bankcards.entity.enums.LedgerEntryType;
+import com.example.bankcards.entity.enums.TransferDirection;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.AppSecurityException;
 import com.example.bankcards.exception.CardNotFoundException;
 import com.example.bankcards.exception.InsufficientFundsException;
 import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardBalanceSlotRepository;
+import com.example.bankcards.repository.CardJdbcRepository;
 import com.example.bankcards.repository.CardRepository;
+import com.example.bankcards.repository.CardTransferJdbcRepository;
 import com.example.bankcards.repository.ClientRepository;
+import com.example.bankcards.repository.ExportRepository;
+import com.example.bankcards.repository.IdempotencyJdbcRepository;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.repository.LedgerJdbcRepository;
+import com.example.bankcards.repository.SpendingLimitJdbcRepository;
 import com.example.bankcards.service.interfaces.CardNumberGenerator;
+import com.example.bankcards.util.BalanceSlotRegistry;
+import com.example.bankcards.util.CardCacheEvictor;
+import com.example.bankcards.util.CardCountCache;
+import com.example.bankcards.util.CardLockManager;
+import com.example.bankcards.util.CardSearchIndex;
+import com.example.bankcards.util.KeysetCursor;
+import com.example.bankcards.util.Money;
+import com.example.bankcards.util.OptimisticRetry;
+import com.example.bankcards.util.SpendingLimiter;
+import com.example.bankcards.util.TransferGroupCommitter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -19,24 +53,47 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.data.domain.PageImpl;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,6 +105,42 @@ class CardServiceImplTest {
     @Mock
     private ClientRepository clientRepository;
 
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private CardJdbcRepository cardJdbcRepository;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private CardBalanceSlotRepository cardBalanceSlotRepository;
+
+    @Mock
+    private BalanceSlotRegistry balanceSlotRegistry;
+
+    @Mock
+    private CardTransferJdbcRepository cardTransferJdbcRepository;
+
+    @Mock
+    private IdempotencyJdbcRepository idempotencyJdbcRepository;
+
+    @Mock
+    private TransferGroupCommitter transferGroupCommitter;
+
+    @Mock
+    private CardSearchIndex cardSearchIndex;
+
+    @Mock
+    private CardCountCache cardCountCache;
+
+    @Mock
+    private ExportRepository exportRepository;
+
+    @Mock
+    private CardCacheEvictor cardCacheEvictor;
+
     @InjectMocks
     private CardServiceImpl cardService;
 
@@ -56,6 +149,31 @@ class CardServiceImplTest {
 
     @Mock private CardNumberGenerator cardNumberGenerator;
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Spy
+    private TransferProperties transferProperties =
+            new TransferProperties(TransferProperties.Mode.PLAIN, 16, Duration.ofSeconds(1), 2);
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @Spy
+    private BalanceSlotProperties balanceSlotProperties = new BalanceSlotProperties(8, Duration.ofSeconds(30));
+
+    @Spy
+    private CardLockManager cardLockManager = new CardLockManager(transferProperties, meterRegistry);
+
+    @Spy
+    private OptimisticRetry optimisticRetry = new OptimisticRetry(
+            new OptimisticRetryProperties(3, Duration.ZERO, Duration.ZERO), meterRegistry);
+
+    // No limits loaded: every transfer fits until a test sets some
+    @Spy
+    private SpendingLimiter spendingLimiter = new SpendingLimiter(
+            new SpendingLimitProperties(true, Duration.ofDays(1), 24, 4, Duration.ofSeconds(30)),
+            mock(SpendingLimitJdbcRepository.class), mock(ClientRepository.class), meterRegistry);
+
     @BeforeEach
     void setUp() {
         SecurityContextHolder.setContext(securityContext);
@@ -98,19 +216,43 @@ class CardServiceImplTest {
 
             assertThat(savedCard.getOwner()).isEqualTo(client);
             assertThat(savedCard.getStatus()).isEqualTo(CardStatus.ACTIVE);
-            assertThat(savedCard.getBalance()).isEqualByComparingTo(BigDecimal.ZERO);
+            assertThat(savedCard.getBalance()).isEqualByComparingTo(Money.ZERO);
             assertThat(savedCard.getValidityDate()).isAfter(LocalDate.now());
             assertThat(savedCard.getCardNumber()).hasSize(16); // Check random generation length
+            assertThat(savedCard.getCardLast4()).isEqualTo("4444");
+            verify(cardSearchIndex).index(savedCard);
 
             // Validate Response mapping
             assertThat(response.status()).isEqualTo(CardStatus.ACTIVE);
             assertThat(response.maskCardNumber()).contains("****"); // Ensure response is masked
+            verify(ledgerJdbcRepository, never()).append(any()); // Nothing to book for a zero balance
+        }
+
+        @Test
+        @DisplayName("Ledger: Initial balance is booked from the external account")
+        void createCard_InitialBalance_Booked() {
+            Client client = new Client();
+            client.setId(1L);
+            when(clientRepository.findById(1L)).thenReturn(Optional.of(client));
+            when(cardRepository.save(any(Card.class))).thenAnswer(i -> {
+                Card card = i.getArgument(0);
+                card.setId(10L);
+                return card;
+            });
+            when(cardNumberGenerator.generate()).thenReturn("1111222233334444");
+
+            cardService.createCard(new CreateCardRequestDto(1L, Money.parse("25.00")));
+
+            verify(ledgerJdbcRepository).append(argThat(postings -> postings.size() == 1
+                    && postings.iterator().next().type() == LedgerEntryType.INITIAL_BALANCE
+                    && postings.iterator().next().debitCardId() == null
+                    && postings.iterator().next().creditCardId().equals(10L)));
         }
 
         @Test
         @DisplayName("Fail: Throws Exception if User not found")
         void createCard_Fail_UserNotFound() {
-            CreateCardRequestDto request = new CreateCardRequestDto(999L, BigDecimal.TEN);
+            CreateCardRequestDto request = new CreateCardRequestDto(999L, Money.ofMinor(1000));
             when(clientRepository.findById(999L)).thenReturn(Optional.empty());
 
             assertThatThrownBy(() -> cardService.createCard(request))
@@ -136,21 +278,15 @@ class CardServiceImplTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getName()).thenReturn(username);
 
-            Client client = new Client();
-            client.setId(10L);
-            when(clientRepository.findByUsername(username)).thenReturn(Optional.of(client));
-
-            Card card = new Card();
-            card.setId(1L);
-            card.setCardNumber("1111222233334444"); // RAW DB Data
-            card.setOwner(client);
-            card.setBalance(new BigDecimal("100.00"));
-            card.setStatus(CardStatus.ACTIVE);
-            card.setValidityDate(LocalDate.now().plusYears(1));
+            when(clientRepository.findIdByUsername(username)).thenReturn(Optional.of(10L));
 
+            // Projected from the stored last four digits, the number itself is never read
+            CardResponseDto card = new CardResponseDto(1L, "4444", Money.parse("100.00"), null,
+                    CardStatus.ACTIVE, LocalDate.now().plusYears(1));
 
-            when(cardRepository.findAllByOwnerId(eq(10L), any(Pageable.class)))
-                    .thenReturn(new PageImpl<>(List.of(card)));
+            when(cardRepository.findResponsesByOwnerId(eq(10L), any(Pageable.class)))
+                    .thenReturn(List.of(card));
+            when(cardCountCache.get(eq(10L), any())).thenReturn(1L);
 
             // Act
             // NOTE: If this line fails compilation with "Expected 3 args", your local interface
@@ -165,6 +301,126 @@ class CardServiceImplTest {
             assertThat(dto.maskCardNumber()).doesNotContain("11112222");
             assertThat(dto.maskCardNumber()).contains("****");
             assertThat(dto.maskCardNumber()).endsWith("4444");
+            verify(cardRepository, never()).findById(anyLong());
+        }
+
+        @Test
+        @DisplayName("Projection: A card without stored last four digits is loaded to mask its decrypted number")
+        void getMyCards_Projection_MasksUnbackfilledCard() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("testuser");
+            when(clientRepository.findIdByUsername("testuser")).thenReturn(Optional.of(10L));
+            LocalDate validity = LocalDate.now().plusYears(1);
+            CardResponseDto stored = new CardResponseDto(1L, "4444", Money.ZERO, null, CardStatus.ACTIVE, validity);
+            CardResponseDto legacy = new CardResponseDto(2L, null, Money.ZERO, null, CardStatus.ACTIVE, validity);
+            when(cardRepository.findResponsesByOwnerId(eq(10L), any(Pageable.class))).thenReturn(List.of(stored, legacy));
+            Card legacyCard = createMockCard(2L, "testuser", "0.00", CardStatus.ACTIVE);
+            legacyCard.setCardNumber("4000123456785678");
+            when(cardRepository.findAllById(List.of(2L))).thenReturn(List.of(legacyCard));
+
+            List<CardResponseDto> results = cardService.getMyCards(0, 20, null).content();
+
+            assertThat(results).extracting(CardResponseDto::maskCardNumber)
+                    .containsExactly("**** **** **** 4444", "**** **** **** 5678");
+            verify(cardRepository, never()).findById(anyLong());
+        }
+
+        @Test
+        @DisplayName("Search: Loads only the index candidates and drops those whose number does not contain the query")
+        void getMyCards_Query_UsesBlindIndex() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("testuser");
+            Client client = new Client();
+            client.setId(10L);
+            when(clientRepository.findIdByUsername("testuser")).thenReturn(Optional.of(10L));
+
+            // Card 3 holds the n-grams 3456 and 4567 of the query, but not as one run
+            Card match = new Card();
+            match.setId(2L);
+            match.setCardNumber("4000123456789010");
+            Card apart = new Card();
+            apart.setId(3L);
+            apart.setCardNumber("3456000045670000");
+            for (Card card : List.of(match, apart)) {
+                card.setOwner(client);
+                card.setBalance(Money.ZERO);
+                card.setStatus(CardStatus.ACTIVE);
+                card.setValidityDate(LocalDate.now().plusYears(1));
+            }
+            when(cardSearchIndex.normalize("3456-7")).thenReturn("34567");
+            when(cardSearchIndex.findCandidates(10L, "34567")).thenReturn(List.of(2L, 3L));
+            when(cardRepository.findAllById(List.of(2L, 3L))).thenReturn(List.of(apart, match));
+
+            PageResponseDto<CardResponseDto> page = cardService.getMyCards(0, 20, "3456-7");
+
+            assertThat(page.content()).extracting(CardResponseDto::id).containsExactly(2L);
+            assertThat(page.totalElements()).isEqualTo(1);
+            verify(cardRepository, never()).findResponsesByOwnerId(anyLong(), any(Pageable.class));
+            verifyNoInteractions(cardCountCache);
+        }
+
+        @Test
+        @DisplayName("Cursor: Seeks past the cursor, returns the next cursor and counts nothing unless asked")
+        void getMyCards_Cursor_SeeksWithoutCounting() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("testuser");
+            Client client = new Client();
+            client.setId(10L);
+            when(clientRepository.findIdByUsername("testuser")).thenReturn(Optional.of(10L));
+            List<CardResponseDto> cards = new ArrayList<>();
+            for (long id = 6; id <= 8; id++) {
+                cards.add(new CardResponseDto(id, "901" + id, Money.ZERO, null, CardStatus.ACTIVE, LocalDate.now().plusYears(1)));
+            }
+            when(cardRepository.findResponsesByOwnerIdAfter(10L, 5L, Limit.of(3))).thenReturn(cards);
+
+            CursorPageResponseDto<CardResponseDto> page = cardService.getMyCards(KeysetCursor.encode(5L), 2, null, false);
+
+            assertThat(page.content()).extracting(CardResponseDto::id).containsExactly(6L, 7L);
+            assertThat(page.nextCursor()).isEqualTo(KeysetCursor.encode(7L));
+            assertThat(page.totalElements()).isNull();
+            verify(cardRepository, never()).countByOwnerId(anyLong());
+            verifyNoInteractions(cardCountCache);
+        }
+
+        @Test
+        @DisplayName("Cursor: The total comes from the per-owner count cache, and the last page has no next cursor")
+        void getMyCards_Cursor_TotalFromCache() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("testuser");
+            Client client = new Client();
+            client.setId(10L);
+            when(clientRepository.findIdByUsername("testuser")).thenReturn(Optional.of(10L));
+            when(cardRepository.findResponsesByOwnerIdAfter(10L, 0L, Limit.of(11))).thenReturn(List.of());
+            when(cardCountCache.get(eq(10L), any())).thenReturn(42L);
+
+            CursorPageResponseDto<CardResponseDto> page = cardService.getMyCards("", 10, null, true);
+
+            assertThat(page.content()).isEmpty();
+            assertThat(page.nextCursor()).isNull();
+            assertThat(page.totalElements()).isEqualTo(42);
+        }
+
+        @Test
+        @DisplayName("ETag: Carries the card count read with it, which replaces the cached total")
+        void getMyCardsTag_RefreshesCount() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("testuser");
+            when(cardJdbcRepository.findOwnerCardsVersion("testuser"))
+                    .thenReturn(Optional.of(new CardJdbcRepository.OwnerCardsVersion(10L, 3, "abc")));
+
+            assertThat(cardService.getMyCardsTag()).isEqualTo("3-abc");
+            verify(cardCountCache).put(10L, 3);
+        }
+
+        @Test
+        @DisplayName("Cursor: A malformed cursor or an out-of-range size is rejected with 400")
+        void getMyCards_Cursor_Invalid() {
+            assertThatThrownBy(() -> cardService.getMyCards("not a cursor!", 10, null, false))
+                    .isInstanceOf(RestException.class)
+                    .hasMessage("Invalid cursor");
+            assertThatThrownBy(() -> cardService.getMyCards("", 101, null, false))
+                    .isInstanceOf(RestException.class)
+                    .hasMessage("Page size must be between 1 and 100");
         }
     }
 
@@ -188,20 +444,25 @@ class CardServiceImplTest {
             // Target Card
             Card target = createMockCard(200L, "otherUser", "50.00", CardStatus.ACTIVE);
 
+            givenOwner(100L, currentUser);
             when(cardRepository.findById(100L)).thenReturn(Optional.of(source));
             when(cardRepository.findById(200L)).thenReturn(Optional.of(target));
 
-            TransferRequestDto request = new TransferRequestDto(100L, 200L, new BigDecimal("30.00"));
+            TransferRequestDto request = new TransferRequestDto(100L, 200L, Money.parse("30.00"));
 
             // Act
             cardService.transfer(request);
 
             // Assert Atomic Transaction
-            assertThat(source.getBalance()).isEqualByComparingTo("70.00");
-            assertThat(target.getBalance()).isEqualByComparingTo("80.00");
+            assertThat(source.getBalance()).isEqualTo(Money.parse("70.00"));
+            assertThat(target.getBalance()).isEqualTo(Money.parse("80.00"));
 
             verify(cardRepository).save(source);
             verify(cardRepository).save(target);
+            verify(ledgerJdbcRepository).append(argThat(postings -> postings.size() == 1
+                    && postings.iterator().next().debitCardId().equals(100L)
+                    && postings.iterator().next().creditCardId().equals(200L)
+                    && postings.iterator().next().amount().compareTo(Money.parse("30.00")) == 0));
         }
 
         @Test
@@ -215,18 +476,19 @@ class CardServiceImplTest {
             Card source = createMockCard(100L, currentUser, "10.00", CardStatus.ACTIVE);
             Card target = createMockCard(200L, "otherUser", "50.00", CardStatus.ACTIVE);
 
+            givenOwner(100L, currentUser);
             when(cardRepository.findById(100L)).thenReturn(Optional.of(source));
             when(cardRepository.findById(200L)).thenReturn(Optional.of(target));
 
-            TransferRequestDto request = new TransferRequestDto(100L, 200L, new BigDecimal("20.00"));
+            TransferRequestDto request = new TransferRequestDto(100L, 200L, Money.parse("20.00"));
 
             // Act & Assert
             assertThatThrownBy(() -> cardService.transfer(request))
                     .isInstanceOf(InsufficientFundsException.class);
 
             // Verify Balances Unchanged
-            assertThat(source.getBalance()).isEqualByComparingTo("10.00");
-            assertThat(target.getBalance()).isEqualByComparingTo("50.00");
+            assertThat(source.getBalance()).isEqualTo(Money.parse("10.00"));
+            assertThat(target.getBalance()).isEqualTo(Money.parse("50.00"));
             verify(cardRepository, never()).save(any());
         }
 
@@ -237,11 +499,9 @@ class CardServiceImplTest {
             when(securityContext.getAuthentication()).thenReturn(authentication);
             when(authentication.getName()).thenReturn("hacker"); // Current User
 
-            Card victimCard = createMockCard(100L, "victim", "1000.00", CardStatus.ACTIVE);
+            givenOwner(100L, "victim");
 
-            when(cardRepository.findById(100L)).thenReturn(Optional.of(victimCard));
-
-            TransferRequestDto request = new TransferRequestDto(100L, 200L, BigDecimal.TEN);
+            TransferRequestDto request = new TransferRequestDto(100L, 200L, Money.ofMinor(1000));
 
             // Act & Assert
             assertThatThrownBy(() -> cardService.transfer(request))
@@ -261,9 +521,10 @@ class CardServiceImplTest {
 
             Card source = createMockCard(100L, currentUser, "100.00", CardStatus.BLOCKED);
 
+            givenOwner(100L, currentUser);
             when(cardRepository.findById(100L)).thenReturn(Optional.of(source));
 
-            TransferRequestDto request = new TransferRequestDto(100L, 200L, BigDecimal.TEN);
+            TransferRequestDto request = new TransferRequestDto(100L, 200L, Money.ofMinor(1000));
 
             // Act & Assert
             // WARNING: This test will FAIL if 'sourceCard.getStatus().equals(CardStatus.BLOCKED.name())'
@@ -276,6 +537,663 @@ class CardServiceImplTest {
         }
     }
 
+    // ==================================================================================
+    // 3.3.1 Transfers with ordered row locking
+    // ==================================================================================
+    @Nested
+    @DisplayName("Ordered Locking Transfer")
+    class OrderedLockingTransferTests {
+
+        @BeforeEach
+        void lockingMode() {
+            when(transferProperties.mode()).thenReturn(TransferProperties.Mode.ORDERED_LOCKING);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+        }
+
+        @Test
+        @DisplayName("Locks both cards with one FOR UPDATE query and never falls back to findById")
+        void transfer_LocksBothCards() {
+            givenOwner(200L, "user1");
+            Card source = createMockCard(200L, "user1", "100.00", CardStatus.ACTIVE);
+            Card target = createMockCard(100L, "otherUser", "50.00", CardStatus.ACTIVE);
+            when(cardRepository.findAllByIdInForUpdate(List.of(200L, 100L))).thenReturn(List.of(target, source));
+
+            cardService.transfer(new TransferRequestDto(200L, 100L, Money.parse("30.00")));
+
+            assertThat(source.getBalance()).isEqualTo(Money.parse("70.00"));
+            assertThat(target.getBalance()).isEqualTo(Money.parse("80.00"));
+            verify(cardRepository, never()).findById(any());
+        }
+
+        @Test
+        @DisplayName("Idempotency: Key is claimed inside the transaction before the cards are locked")
+        void transfer_ClaimsIdempotencyKeyFirst() {
+            givenOwner(100L, "user1");
+            Card source = createMockCard(100L, "user1", "100.00", CardStatus.ACTIVE);
+            Card target = createMockCard(200L, "otherUser", "50.00", CardStatus.ACTIVE);
+            when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(source, target));
+            TransferRequestDto request = new TransferRequestDto(100L, 200L, Money.parse("30.00"));
+
+            cardService.transfer(request, "key-1");
+
+            InOrder inOrder = inOrder(idempotencyRecordRepository, cardRepository);
+            inOrder.verify(idempotencyRecordRepository).claim("user1", "key-1", request.fingerprint());
+            inOrder.verify(cardRepository).findAllByIdInForUpdate(any());
+        }
+
+        @Test
+        @DisplayName("Deadlock: Replays the transaction and counts the retry")
+        void transfer_RetriesAfterDeadlock() {
+            givenOwner(100L, "user1");
+            Card source = createMockCard(100L, "user1", "100.00", CardStatus.ACTIVE);
+            Card target = createMockCard(200L, "otherUser", "50.00", CardStatus.ACTIVE);
+            when(cardRepository.findAllByIdInForUpdate(any()))
+                    .thenThrow(new CannotAcquireLockException("deadlock detected"))
+                    .thenReturn(List.of(source, target));
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("30.00")));
+
+            assertThat(source.getBalance()).isEqualTo(Money.parse("70.00"));
+            assertThat(meterRegistry.counter("bank.transfer.deadlock.retries").count()).isEqualTo(1.0);
+        }
+
+        @Test
+        @DisplayName("Deadlock: Gives up after the configured number of retries")
+        void transfer_GivesUpAfterMaxRetries() {
+            givenOwner(100L, "user1");
+            when(cardRepository.findAllByIdInForUpdate(any()))
+                    .thenThrow(new CannotAcquireLockException("deadlock detected"));
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.ofMinor(1000))))
+                    .isInstanceOf(CannotAcquireLockException.class);
+
+            verify(cardRepository, times(3)).findAllByIdInForUpdate(any());
+            assertThat(meterRegistry.counter("bank.transfer.deadlock.retries").count()).isEqualTo(2.0);
+        }
+
+        @Test
+        @DisplayName("Missing target card is reported after both rows were locked")
+        void transfer_Fail_TargetNotFound() {
+            givenOwner(100L, "user1");
+            Card source = createMockCard(100L, "user1", "100.00", CardStatus.ACTIVE);
+            when(cardRepository.findAllByIdInForUpdate(any())).thenReturn(List.of(source));
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.ofMinor(1000))))
+                    .isInstanceOf(CardNotFoundException.class)
+                    .hasMessageContaining("Target card not found");
+
+            assertThat(source.getBalance()).isEqualTo(Money.parse("100.00"));
+        }
+    }
+
+    // ==================================================================================
+    // 3.3.2 Single-statement transfers
+    // ==================================================================================
+    @Nested
+    @DisplayName("Single Statement Transfer")
+    class SingleStatementTransferTests {
+
+        @BeforeEach
+        void singleStatementMode() {
+            when(transferProperties.mode()).thenReturn(TransferProperties.Mode.SINGLE_STATEMENT);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+            givenOwner(100L, "user1");
+        }
+
+        @Test
+        @DisplayName("Happy Path: One repository call, no entity is loaded or saved, both cards are evicted")
+        void transfer_Success() {
+            Money amount = Money.parse("30.00");
+            when(cardRepository.transferAtomically(eq(100L), eq(200L), eq("user1"), eq(amount.toBigDecimal()), any())).thenReturn("OK");
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, amount));
+
+            verify(cardRepository).transferAtomically(eq(100L), eq(200L), eq("user1"), eq(amount.toBigDecimal()), any());
+            verify(cardRepository, never()).findById(any());
+            verify(cardRepository, never()).save(any());
+            verify(cardCacheEvictor).evict(List.of(100L, 200L));
+        }
+
+        @Test
+        @DisplayName("Insufficient Funds: Verdict is mapped to InsufficientFundsException")
+        void transfer_Fail_InsufficientFunds() {
+            when(cardRepository.transferAtomically(any(), any(), any(), any(), any())).thenReturn("INSUFFICIENT_FUNDS");
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.ofMinor(1000))))
+                    .isInstanceOf(InsufficientFundsException.class);
+            verifyNoInteractions(cardCacheEvictor);
+        }
+
+        @Test
+        @DisplayName("Security (IDOR): NOT_OWNER verdict, for a card that changed hands since the check, is mapped to 403")
+        void transfer_Fail_NotOwner() {
+            when(cardRepository.transferAtomically(any(), any(), any(), any(), any())).thenReturn("NOT_OWNER");
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.ofMinor(1000))))
+                    .isInstanceOf(RestException.class)
+                    .hasMessageContaining("transfer funds from your own cards");
+        }
+
+        @Test
+        @DisplayName("Missing card: TARGET_NOT_FOUND verdict is mapped to CardNotFoundException")
+        void transfer_Fail_TargetNotFound() {
+            when(cardRepository.transferAtomically(any(), any(), any(), any(), any())).thenReturn("TARGET_NOT_FOUND");
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.ofMinor(1000))))
+                    .isInstanceOf(CardNotFoundException.class)
+                    .hasMessageContaining("Target card not found");
+        }
+
+        @Test
+        @DisplayName("Sharded Source: When the row alone cannot pay, the transfer is redone with ordered locking and the slots")
+        void transfer_ShardedSource_FallsBackToOrderedLocking() {
+            when(cardRepository.transferAtomically(any(), any(), any(), any(), any())).thenReturn(CardRepository.SHARDED_SOURCE);
+            when(transactionTemplate.getTransactionManager().getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+            Card source = createMockCard(100L, "user1", "10.00", CardStatus.ACTIVE);
+            source.setBalanceSlots(4);
+            ReflectionTestUtils.setField(source, "slotBalance", Money.parse("50.00"));
+            Card target = createMockCard(200L, "otherUser", "0.00", CardStatus.ACTIVE);
+            when(cardRepository.findAllByIdInForUpdate(List.of(100L, 200L))).thenReturn(List.of(source, target));
+            when(balanceSlotRegistry.pickSlot(4)).thenReturn(2);
+            when(cardBalanceSlotRepository.withdraw(100L, 2, Money.parse("30.00"))).thenReturn(Money.ZERO);
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("30.00")));
+
+            assertThat(source.getBalance()).isEqualTo(Money.parse("10.00"));
+            assertThat(target.getBalance()).isEqualTo(Money.parse("30.00"));
+            verify(transactionTemplate, times(2)).execute(any());
+        }
+
+        @Test
+        @DisplayName("Sharded Target: The statement is skipped, only the source is locked and a slot is credited")
+        void transfer_ShardedTarget_CreditsSlot() {
+            Card source = createMockCard(100L, "user1", "100.00", CardStatus.ACTIVE);
+            Card target = createMockCard(200L, "merchant", "0.00", CardStatus.ACTIVE);
+            target.setBalanceSlots(4);
+            when(balanceSlotRegistry.slotsOf(200L)).thenReturn(4);
+            when(balanceSlotRegistry.pickSlot(4)).thenReturn(1);
+            when(cardRepository.findAllByIdInForUpdate(List.of(100L))).thenReturn(List.of(source));
+            when(cardRepository.findById(200L)).thenReturn(Optional.of(target));
+            when(cardBalanceSlotRepository.deposit(200L, 1, Money.parse("30.00"))).thenReturn(true);
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("30.00")));
+
+            assertThat(source.getBalance()).isEqualTo(Money.parse("70.00"));
+            assertThat(target.getBalance()).isEqualTo(Money.parse("0.00"));
+            verify(cardRepository, never()).transferAtomically(any(), any(), any(), any(), any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Group Commit")
+    class GroupCommitTests {
+
+        private Function<List<TransferGroupCommitter.Item>, TransferOutcome[]> groupHandler;
+
+        @BeforeEach
+        @SuppressWarnings("unchecked")
+        void groupCommitMode() {
+            when(transferProperties.mode()).thenReturn(TransferProperties.Mode.GROUP_COMMIT);
+            cardService.startGroupCommit();
+
+            ArgumentCaptor<Function<List<TransferGroupCommitter.Item>, TransferOutcome[]>> handler =
+                    ArgumentCaptor.forClass(Function.class);
+            verify(transferGroupCommitter).start(handler.capture());
+            groupHandler = handler.getValue();
+        }
+
+        private TransferGroupCommitter.Item item(String username, long source, long target, String amount, String key) {
+            return new TransferGroupCommitter.Item(username, new TransferRequestDto(source, target, Money.parse(amount)), key);
+        }
+
+        @Test
+        @DisplayName("Transfer: Waits for its group and throws the exception of its own verdict")
+        void transfer_ThrowsOwnVerdict() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+            givenOwner(100L, "user1");
+            when(transferGroupCommitter.submit(any())).thenReturn(TransferOutcome.INSUFFICIENT_FUNDS);
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.ofMinor(1000)), "key-1"))
+                    .isInstanceOf(InsufficientFundsException.class);
+            verify(transferGroupCommitter).submit(new TransferGroupCommitter.Item(
+                    "user1", new TransferRequestDto(100L, 200L, Money.ofMinor(1000)), "key-1"));
+        }
+
+        @Test
+        @DisplayName("Idempotency: A key claimed elsewhere surfaces as a lost claim, like on the other paths")
+        void transfer_DuplicateKey() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+            givenOwner(100L, "user1");
+            when(transferGroupCommitter.submit(any())).thenReturn(null);
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.ofMinor(1000)), "key-1"))
+                    .isInstanceOf(DataIntegrityViolationException.class);
+        }
+
+        @Test
+        @DisplayName("Group: Users' transfers share one transaction, a failing item only fails itself")
+        @SuppressWarnings("unchecked")
+        void executeGroup_IsolatesFailures() {
+            when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(100L, owner("user1"), 300L, owner("user2")));
+            when(cardJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                    100L, new CardJdbcRepository.CardBalance(100L, Money.parse("50.00"), CardStatus.ACTIVE),
+                    200L, new CardJdbcRepository.CardBalance(200L, Money.parse("0.00"), CardStatus.ACTIVE),
+                    300L, new CardJdbcRepository.CardBalance(300L, Money.parse("20.00"), CardStatus.ACTIVE)));
+            // key-2 was already stored by another execution
+            when(idempotencyJdbcRepository.claimAll(any())).thenReturn(new boolean[]{true, false, true});
+
+            TransferOutcome[] outcomes = groupHandler.apply(List.of(
+                    item("user1", 100L, 200L, "30.00", "key-1"),
+                    item("user2", 300L, 200L, "10.00", "key-2"),
+                    item("user1", 100L, 300L, "30.00", "key-3"),
+                    item("user1", 300L, 200L, "5.00", null),
+                    item("user2", 300L, 100L, "20.00", null)));
+
+            assertThat(outcomes).containsExactly(
+                    TransferOutcome.OK,
+                    null,
+                    TransferOutcome.INSUFFICIENT_FUNDS,
+                    TransferOutcome.NOT_OWNER,
+                    TransferOutcome.OK);
+
+            // The rejected item gives its claim back; the duplicate never held one
+            verify(idempotencyJdbcRepository).releaseAll(List.of(
+                    new IdempotencyJdbcRepository.IdempotencyKey("user1", "key-3",
+                            new TransferRequestDto(100L, 300L, Money.parse("30.00")).fingerprint())));
+
+            ArgumentCaptor<Map<Long, Money>> updates = ArgumentCaptor.forClass(Map.class);
+            verify(cardJdbcRepository).updateBalances(updates.capture());
+            assertThat(updates.getValue())
+                    .containsEntry(100L, Money.parse("40.00"))
+                    .containsEntry(200L, Money.parse("30.00"))
+                    .containsEntry(300L, Money.parse("0.00"));
+            verify(ledgerJdbcRepository).append(argThat(postings -> postings.size() == 2));
+            verify(transactionTemplate).execute(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Spending Limits")
+    class SpendingLimitTests {
+
+        @BeforeEach
+        void authenticated() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+        }
+
+        @Test
+        @DisplayName("Daily Limit: A transfer that would exceed it is refused before any card is read")
+        void transfer_OverDailyLimit_Rejected() {
+            givenOwner(100L, "user1");
+            spendingLimiter.updateTierLimits(ClientTier.STANDARD,
+                    new SpendingLimitJdbcRepository.Limits(null, Money.parse("50.00")));
+            when(cardRepository.findById(100L)).thenReturn(Optional.of(createMockCard(100L, "user1", "100.00", CardStatus.ACTIVE)));
+            when(cardRepository.findById(200L)).thenReturn(Optional.of(createMockCard(200L, "otherUser", "0.00", CardStatus.ACTIVE)));
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("30.00")));
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("30.00"))))
+                    .isInstanceOf(RestException.class)
+                    .hasMessage(TransferOutcome.DAILY_LIMIT_EXCEEDED.getMessage());
+            verify(cardRepository, times(1)).findById(100L);
+            assertThat(spendingLimiter.spentInWindow(100L)).isEqualTo(Money.parse("30.00"));
+        }
+
+        @Test
+        @DisplayName("Card Override: Takes precedence over the tier, the missing limit is inherited")
+        void transfer_CardOverride_Applied() {
+            givenOwner(100L, "user1");
+            spendingLimiter.updateTierLimits(ClientTier.STANDARD,
+                    new SpendingLimitJdbcRepository.Limits(Money.parse("100.00"), Money.parse("1000.00")));
+            spendingLimiter.updateCardLimits(100L, new SpendingLimitJdbcRepository.Limits(Money.parse("20.00"), null));
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("20.01"))))
+                    .isInstanceOf(RestException.class)
+                    .hasMessage(TransferOutcome.PER_TRANSACTION_LIMIT_EXCEEDED.getMessage());
+            verifyNoInteractions(cardRepository);
+        }
+
+        @Test
+        @DisplayName("Failed Transfer: The reserved amount is given back")
+        void transfer_Failed_ReservationCancelled() {
+            givenOwner(100L, "user1");
+            spendingLimiter.updateTierLimits(ClientTier.STANDARD,
+                    new SpendingLimitJdbcRepository.Limits(null, Money.parse("50.00")));
+            when(cardRepository.findById(100L)).thenReturn(Optional.of(createMockCard(100L, "user1", "10.00", CardStatus.ACTIVE)));
+            when(cardRepository.findById(200L)).thenReturn(Optional.of(createMockCard(200L, "otherUser", "0.00", CardStatus.ACTIVE)));
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("40.00"))))
+                    .isInstanceOf(InsufficientFundsException.class);
+
+            assertThat(spendingLimiter.spentInWindow(100L)).isEqualTo(Money.parse("0.00"));
+        }
+
+        @Test
+        @DisplayName("Batch: Items over a limit are rejected on their own, rejected items give their amount back")
+        void transferBatch_LimitPerItem() {
+            spendingLimiter.updateTierLimits(ClientTier.STANDARD,
+                    new SpendingLimitJdbcRepository.Limits(Money.parse("50.00"), null));
+            when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(100L, owner("user1")));
+            when(cardJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                    100L, new CardJdbcRepository.CardBalance(100L, Money.parse("30.00"), CardStatus.ACTIVE),
+                    200L, new CardJdbcRepository.CardBalance(200L, Money.ZERO, CardStatus.ACTIVE)));
+
+            BatchTransferResponseDto response = cardService.transferBatch(new BatchTransferRequestDto(List.of(
+                    new TransferRequestDto(100L, 200L, Money.parse("60.00")),
+                    new TransferRequestDto(100L, 200L, Money.parse("20.00")),
+                    new TransferRequestDto(100L, 200L, Money.parse("20.00"))
+            )));
+
+            assertThat(response.results()).extracting(BatchTransferResponseDto.Item::outcome).containsExactly(
+                    TransferOutcome.PER_TRANSACTION_LIMIT_EXCEEDED,
+                    TransferOutcome.OK,
+                    TransferOutcome.INSUFFICIENT_FUNDS);
+            assertThat(spendingLimiter.spentInWindow(100L)).isEqualTo(Money.parse("20.00"));
+        }
+
+        @Test
+        @DisplayName("Not Owner: A transfer from another user's card is refused before it counts against the card's limits")
+        void transfer_NotOwner_NothingReserved() {
+            spendingLimiter.updateTierLimits(ClientTier.STANDARD,
+                    new SpendingLimitJdbcRepository.Limits(null, Money.parse("50.00")));
+            givenOwner(100L, "victim");
+
+            assertThatThrownBy(() -> cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("50.00"))))
+                    .isInstanceOf(RestException.class)
+                    .hasMessage(TransferOutcome.NOT_OWNER.getMessage());
+
+            assertThat(spendingLimiter.spentInWindow(100L)).isEqualTo(Money.parse("0.00"));
+            verifyNoInteractions(cardRepository);
+        }
+
+        @Test
+        @DisplayName("Owner's Tier: The limits are those of the card owner's tier")
+        void transferBatch_OwnersTier() {
+            spendingLimiter.updateTierLimits(ClientTier.STANDARD,
+                    new SpendingLimitJdbcRepository.Limits(Money.parse("10.00"), null));
+            spendingLimiter.updateTierLimits(ClientTier.PREMIUM,
+                    new SpendingLimitJdbcRepository.Limits(Money.parse("100.00"), null));
+            when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(
+                    100L, new CardJdbcRepository.CardOwner("user1", ClientTier.PREMIUM),
+                    300L, owner("victim")));
+            when(cardJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                    100L, new CardJdbcRepository.CardBalance(100L, Money.parse("100.00"), CardStatus.ACTIVE),
+                    200L, new CardJdbcRepository.CardBalance(200L, Money.ZERO, CardStatus.ACTIVE)));
+
+            BatchTransferResponseDto response = cardService.transferBatch(new BatchTransferRequestDto(List.of(
+                    new TransferRequestDto(100L, 200L, Money.parse("50.00")),
+                    new TransferRequestDto(300L, 200L, Money.parse("50.00"))
+            )));
+
+            assertThat(response.results()).extracting(BatchTransferResponseDto.Item::outcome)
+                    .containsExactly(TransferOutcome.OK, TransferOutcome.NOT_OWNER);
+            assertThat(spendingLimiter.spentInWindow(300L)).isEqualTo(Money.parse("0.00"));
+            verify(cardJdbcRepository).findOwners(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Batch Transfer")
+    class BatchTransferTests {
+
+        @BeforeEach
+        void authenticated() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+        }
+
+        private CardJdbcRepository.CardBalance balance(long id, String amount, CardStatus status) {
+            return new CardJdbcRepository.CardBalance(id, Money.parse(amount), status);
+        }
+
+        @Test
+        @DisplayName("Mixed Outcomes: Each item is judged on its own, later items see earlier debits")
+        @SuppressWarnings("unchecked")
+        void transferBatch_MixedOutcomes() {
+            when(cardJdbcRepository.findOwners(any()))
+                    .thenReturn(Map.of(100L, owner("user1"), 300L, owner("otherUser")));
+            when(cardJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                    100L, balance(100L, "100.00", CardStatus.ACTIVE),
+                    200L, balance(200L, "0.00", CardStatus.ACTIVE),
+                    400L, balance(400L, "0.00", CardStatus.BLOCKED)));
+
+            BatchTransferResponseDto response = cardService.transferBatch(new BatchTransferRequestDto(List.of(
+                    new TransferRequestDto(100L, 200L, Money.parse("60.00")),
+                    new TransferRequestDto(100L, 200L, Money.parse("60.00")),
+                    new TransferRequestDto(300L, 200L, Money.ofMinor(1000)),
+                    new TransferRequestDto(999L, 200L, Money.ofMinor(1000)),
+                    new TransferRequestDto(100L, 400L, Money.ofMinor(1000)),
+                    new TransferRequestDto(100L, 500L, Money.ofMinor(1000)),
+                    new TransferRequestDto(100L, 200L, Money.parse("40.00"))
+            )));
+
+            assertThat(response.results()).extracting(BatchTransferResponseDto.Item::outcome).containsExactly(
+                    TransferOutcome.OK,
+                    TransferOutcome.INSUFFICIENT_FUNDS,
+                    TransferOutcome.NOT_OWNER,
+                    TransferOutcome.SOURCE_NOT_FOUND,
+                    TransferOutcome.TARGET_INACTIVE,
+                    TransferOutcome.TARGET_NOT_FOUND,
+                    TransferOutcome.OK);
+            assertThat(response.succeeded()).isEqualTo(2);
+            assertThat(response.failed()).isEqualTo(5);
+
+            ArgumentCaptor<Map<Long, Money>> updates = ArgumentCaptor.forClass(Map.class);
+            verify(cardJdbcRepository).updateBalances(updates.capture());
+            assertThat(updates.getValue())
+                    .containsOnlyKeys(100L, 200L)
+                    .containsEntry(100L, Money.parse("0.00"))
+                    .containsEntry(200L, Money.parse("100.00"));
+            verify(cardRepository, never()).save(any());
+            verify(ledgerJdbcRepository).append(argThat(postings -> postings.size() == 2));
+        }
+
+        @Test
+        @DisplayName("Locking: Only cards of owned sources and their targets are locked, once each")
+        @SuppressWarnings("unchecked")
+        void transferBatch_LocksOwnedCardsOnly() {
+            when(cardJdbcRepository.findOwners(any()))
+                    .thenReturn(Map.of(100L, owner("user1"), 300L, owner("otherUser")));
+            when(cardJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                    100L, balance(100L, "100.00", CardStatus.ACTIVE),
+                    200L, balance(200L, "0.00", CardStatus.ACTIVE)));
+
+            cardService.transferBatch(new BatchTransferRequestDto(List.of(
+                    new TransferRequestDto(100L, 200L, Money.ofMinor(100)),
+                    new TransferRequestDto(300L, 400L, Money.ofMinor(100)),
+                    new TransferRequestDto(200L, 100L, Money.ofMinor(100))
+            )));
+
+            ArgumentCaptor<Collection<Long>> locked = ArgumentCaptor.forClass(Collection.class);
+            verify(cardJdbcRepository).lockBalances(locked.capture());
+            assertThat(locked.getValue()).containsExactly(100L, 200L);
+        }
+
+        @Test
+        @DisplayName("Sharded Source: Money in the slots counts, and a net debit is taken from the slots first")
+        @SuppressWarnings("unchecked")
+        void transferBatch_ShardedSource_PaysFromSlots() {
+            when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(100L, owner("user1")));
+            when(cardJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                    100L, balance(100L, "10.00", CardStatus.ACTIVE),
+                    200L, balance(200L, "0.00", CardStatus.ACTIVE)));
+            when(cardBalanceSlotRepository.findSlotTotals(any())).thenReturn(Map.of(
+                    100L, new CardBalanceSlotRepository.SlotTotal(4, Money.parse("50.00"))));
+            when(balanceSlotRegistry.pickSlot(4)).thenReturn(1);
+            // The slots cover 50.00 of the 55.00 debit, the row pays the rest
+            when(cardBalanceSlotRepository.withdraw(100L, 1, Money.parse("55.00"))).thenReturn(Money.parse("5.00"));
+
+            BatchTransferResponseDto response = cardService.transferBatch(new BatchTransferRequestDto(List.of(
+                    new TransferRequestDto(100L, 200L, Money.parse("55.00")),
+                    new TransferRequestDto(100L, 200L, Money.parse("10.00")))));
+
+            assertThat(response.results()).extracting(BatchTransferResponseDto.Item::outcome)
+                    .containsExactly(TransferOutcome.OK, TransferOutcome.INSUFFICIENT_FUNDS);
+            ArgumentCaptor<Map<Long, Money>> updates = ArgumentCaptor.forClass(Map.class);
+            verify(cardJdbcRepository).updateBalances(updates.capture());
+            assertThat(updates.getValue())
+                    .containsEntry(100L, Money.parse("5.00"))
+                    .containsEntry(200L, Money.parse("55.00"));
+        }
+
+        @Test
+        @DisplayName("Sharded Target: Read without a lock and credited once per batch through a slot")
+        @SuppressWarnings("unchecked")
+        void transferBatch_ShardedTarget_CreditsSlot() {
+            when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(100L, owner("user1")));
+            when(balanceSlotRegistry.slotsOf(200L)).thenReturn(4);
+            when(balanceSlotRegistry.pickSlot(4)).thenReturn(2);
+            when(cardJdbcRepository.lockBalances(any())).thenReturn(Map.of(
+                    100L, balance(100L, "100.00", CardStatus.ACTIVE)));
+            when(cardJdbcRepository.findBalances(Set.of(200L))).thenReturn(Map.of(
+                    200L, balance(200L, "0.00", CardStatus.ACTIVE)));
+            when(cardBalanceSlotRepository.deposit(200L, 2, Money.parse("50.00"))).thenReturn(true);
+
+            BatchTransferResponseDto response = cardService.transferBatch(new BatchTransferRequestDto(List.of(
+                    new TransferRequestDto(100L, 200L, Money.parse("20.00")),
+                    new TransferRequestDto(100L, 200L, Money.parse("30.00")))));
+
+            assertThat(response.succeeded()).isEqualTo(2);
+            ArgumentCaptor<Collection<Long>> locked = ArgumentCaptor.forClass(Collection.class);
+            verify(cardJdbcRepository).lockBalances(locked.capture());
+            assertThat(locked.getValue()).containsExactly(100L);
+            ArgumentCaptor<Map<Long, Money>> updates = ArgumentCaptor.forClass(Map.class);
+            verify(cardJdbcRepository).updateBalances(updates.capture());
+            assertThat(updates.getValue()).containsOnlyKeys(100L).containsEntry(100L, Money.parse("50.00"));
+            verify(cardBalanceSlotRepository).deposit(200L, 2, Money.parse("50.00"));
+            verify(cardJdbcRepository, never()).creditBalance(anyLong(), any());
+        }
+
+        @Test
+        @DisplayName("All Rejected: Nothing is locked or written")
+        void transferBatch_AllRejected() {
+            when(cardJdbcRepository.findOwners(any())).thenReturn(Map.of(300L, owner("otherUser")));
+
+            BatchTransferResponseDto response = cardService.transferBatch(new BatchTransferRequestDto(List.of(
+                    new TransferRequestDto(300L, 200L, Money.ofMinor(1000)))));
+
+            assertThat(response.failed()).isEqualTo(1);
+            assertThat(response.results().getFirst().status()).isEqualTo(403);
+            verify(cardJdbcRepository, never()).lockBalances(any());
+            verify(cardJdbcRepository, never()).updateBalances(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Balance Slots")
+    class BalanceSlotTests {
+
+        private void orderedLockingAs(String username) {
+            when(transferProperties.mode()).thenReturn(TransferProperties.Mode.ORDERED_LOCKING);
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn(username);
+            givenOwner(100L, username);
+        }
+
+        private Card shardedCard(Long id, String owner, String rowBalance, int slots, String slotBalance) {
+            Card card = createMockCard(id, owner, rowBalance, CardStatus.ACTIVE);
+            card.setBalanceSlots(slots);
+            ReflectionTestUtils.setField(card, "slotBalance", Money.parse(slotBalance));
+            return card;
+        }
+
+        @Test
+        @DisplayName("Projection: A sharded card is selected with its slot total, without loading the entity")
+        void getCardById_ShardedCard() {
+            when(cardRepository.findResponseById(200L)).thenReturn(Optional.of(new CardResponseDto(
+                    200L, "9012", Money.parse("10.00"), Money.parse("500.00"), CardStatus.ACTIVE, LocalDate.now().plusYears(1))));
+
+            CardResponseDto card = cardService.getCardById(200L);
+
+            assertThat(card.balance()).isEqualTo(Money.parse("510.00"));
+            assertThat(card.maskCardNumber()).isEqualTo("**** **** **** 9012");
+            verify(cardRepository, never()).findById(anyLong());
+        }
+
+        @Test
+        @DisplayName("Sharded Target: Only the source is locked, the credit goes to a slot")
+        void transfer_ShardedTarget_CreditsSlot() {
+            orderedLockingAs("user1");
+            Card source = createMockCard(100L, "user1", "100.00", CardStatus.ACTIVE);
+            Card target = shardedCard(200L, "merchant", "0.00", 4, "500.00");
+            when(balanceSlotRegistry.slotsOf(200L)).thenReturn(4);
+            when(balanceSlotRegistry.pickSlot(4)).thenReturn(3);
+            when(cardRepository.findAllByIdInForUpdate(List.of(100L))).thenReturn(List.of(source));
+            when(cardRepository.findById(200L)).thenReturn(Optional.of(target));
+            when(cardBalanceSlotRepository.deposit(200L, 3, Money.parse("30.00"))).thenReturn(true);
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("30.00")));
+
+            assertThat(source.getBalance()).isEqualTo(Money.parse("70.00"));
+            assertThat(target.getBalance()).isEqualTo(Money.parse("0.00")); // The row is untouched
+            verify(cardBalanceSlotRepository).deposit(200L, 3, Money.parse("30.00"));
+            verify(cardJdbcRepository, never()).creditBalance(anyLong(), any());
+        }
+
+        @Test
+        @DisplayName("Stale Registry: A card that is no longer sharded is credited on its row")
+        void transfer_StaleRegistry_CreditsRow() {
+            orderedLockingAs("user1");
+            Card source = createMockCard(100L, "user1", "100.00", CardStatus.ACTIVE);
+            Card target = createMockCard(200L, "merchant", "0.00", CardStatus.ACTIVE);
+            when(balanceSlotRegistry.slotsOf(200L)).thenReturn(4);
+            when(cardRepository.findAllByIdInForUpdate(List.of(100L))).thenReturn(List.of(source));
+            when(cardRepository.findById(200L)).thenReturn(Optional.of(target));
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("30.00")));
+
+            verify(cardJdbcRepository).creditBalance(200L, Money.parse("30.00"));
+            verify(cardBalanceSlotRepository, never()).deposit(anyLong(), anyInt(), any());
+        }
+
+        @Test
+        @DisplayName("Sharded Source: Balance check counts the slots, the debit draws from them first")
+        void transfer_ShardedSource_DrawsFromSlots() {
+            orderedLockingAs("merchant");
+            Card source = shardedCard(100L, "merchant", "10.00", 4, "90.00");
+            Card target = createMockCard(200L, "user1", "0.00", CardStatus.ACTIVE);
+            when(balanceSlotRegistry.pickSlot(4)).thenReturn(1);
+            when(cardRepository.findAllByIdInForUpdate(List.of(100L, 200L))).thenReturn(List.of(source, target));
+            // The slots only hold 35.00 of the requested 40.00 right now
+            when(cardBalanceSlotRepository.withdraw(100L, 1, Money.parse("40.00"))).thenReturn(Money.parse("5.00"));
+
+            cardService.transfer(new TransferRequestDto(100L, 200L, Money.parse("40.00")));
+
+            assertThat(source.getBalance()).isEqualTo(Money.parse("5.00"));
+            assertThat(target.getBalance()).isEqualTo(Money.parse("40.00"));
+        }
+
+        @Test
+        @DisplayName("Resize: Slots are rebuilt under the card lock and the registry is updated")
+        void updateBalanceSlots_Success() {
+            when(cardJdbcRepository.lockBalances(List.of(55L)))
+                    .thenReturn(Map.of(55L, new CardJdbcRepository.CardBalance(55L, Money.ofMinor(1000), CardStatus.ACTIVE)));
+            when(cardRepository.findResponseById(55L)).thenReturn(Optional.of(new CardResponseDto(
+                    55L, "5678", Money.parse("100.00"), Money.ZERO, CardStatus.ACTIVE, LocalDate.now().plusYears(1))));
+
+            cardService.updateBalanceSlots(55L, 8);
+
+            InOrder inOrder = inOrder(cardJdbcRepository, cardBalanceSlotRepository, balanceSlotRegistry);
+            inOrder.verify(cardJdbcRepository).lockBalances(List.of(55L));
+            inOrder.verify(cardBalanceSlotRepository).resize(55L, 8);
+            inOrder.verify(balanceSlotRegistry).update(55L, 8);
+        }
+
+        @Test
+        @DisplayName("Resize: Slot counts above the configured maximum are rejected")
+        void updateBalanceSlots_Fail_TooMany() {
+            assertThatThrownBy(() -> cardService.updateBalanceSlots(55L, 9))
+                    .isInstanceOf(RestException.class)
+                    .hasMessageContaining("at most 8");
+            verify(cardBalanceSlotRepository, never()).resize(anyLong(), anyInt());
+        }
+    }
+
     // ==================================================================================
     // 3.4 Admin Operations
     // ==================================================================================
@@ -283,6 +1201,30 @@ class CardServiceImplTest {
     @DisplayName("Admin Operations")
     class AdminTests {
 
+        @Test
+        @DisplayName("Export: Each card is handed to the sink and detached, and the stream is closed")
+        void exportAllCards_DetachesAndCloses() {
+            List<Card> cards = new ArrayList<>();
+            for (long id = 1; id <= 3; id++) {
+                Card card = new Card();
+                card.setId(id);
+                card.setCardNumber("400012345678901" + id);
+                card.setBalance(Money.ZERO);
+                card.setStatus(CardStatus.ACTIVE);
+                cards.add(card);
+            }
+            AtomicBoolean closed = new AtomicBoolean();
+            when(exportRepository.streamCards()).thenReturn(cards.stream().onClose(() -> closed.set(true)));
+            List<Long> exported = new ArrayList<>();
+
+            cardService.exportAllCards(card -> exported.add(card.id()));
+
+            assertThat(exported).containsExactly(1L, 2L, 3L);
+            InOrder inOrder = inOrder(exportRepository);
+            cards.forEach(card -> inOrder.verify(exportRepository).detach(card));
+            assertThat(closed).isTrue();
+        }
+
         @Test
         @DisplayName("Update Status: Successfully updates card status")
         void updateCardStatus_Success() {
@@ -302,17 +1244,162 @@ class CardServiceImplTest {
             assertThat(response.status()).isEqualTo(CardStatus.EXPIRED);
             verify(cardRepository).save(card);
         }
+
+        @Test
+        @DisplayName("Update Status: A lost version check re-reads the card in a new transaction")
+        void updateCardStatus_VersionConflict_Retried() {
+            Card card = new Card();
+            card.setId(55L);
+            card.setStatus(CardStatus.ACTIVE);
+
+            when(cardRepository.findById(55L)).thenReturn(Optional.of(card));
+            when(cardRepository.save(any(Card.class)))
+                    .thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 55L))
+                    .thenAnswer(i -> i.getArgument(0));
+
+            CardResponseDto response = cardService.updateCardStatus(55L, CardStatus.BLOCKED);
+
+            assertThat(response.status()).isEqualTo(CardStatus.BLOCKED);
+            verify(cardRepository, times(2)).findById(55L);
+            verify(transactionTemplate, times(2)).execute(any());
+            assertThat(meterRegistry.get("bank.card.optimistic.retries").tag("method", "updateCardStatus").counter().count())
+                    .isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Block: Gives up with 409 once every attempt has lost its version check")
+        void blockMyCard_VersionConflict_GivesUp() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+            Card card = createMockCard(100L, "user1", "10.00", CardStatus.ACTIVE);
+            when(cardRepository.findById(100L)).thenReturn(Optional.of(card));
+            when(cardRepository.save(any(Card.class))).thenThrow(new ObjectOptimisticLockingFailureException(Card.class, 100L));
+
+            assertThatThrownBy(() -> cardService.blockMyCard(100L))
+                    .isInstanceOf(RestException.class)
+                    .extracting(e -> ((RestException) e).getStatus())
+                    .isEqualTo(HttpStatus.CONFLICT);
+            verify(cardRepository, times(3)).save(card);
+            assertThat(meterRegistry.get("bank.card.optimistic.conflicts").tag("method", "blockMyCard").counter().count())
+                    .isEqualTo(3);
+        }
+
+        @Test
+        @DisplayName("Adjust Balance: Debit is applied under the row lock and booked to the ledger")
+        void adjustBalance_Success() {
+            Card card = createMockCard(55L, "user1", "100.00", CardStatus.ACTIVE);
+            when(cardRepository.findAllByIdInForUpdate(List.of(55L))).thenReturn(List.of(card));
+            when(cardRepository.save(any(Card.class))).thenAnswer(i -> i.getArgument(0));
+
+            CardResponseDto response = cardService.adjustBalance(55L,
+                    new BalanceAdjustmentRequestDto(Money.parse("-40.00"), "Chargeback"));
+
+            assertThat(response.balance()).isEqualTo(Money.parse("60.00"));
+            verify(ledgerJdbcRepository).append(argThat(postings -> {
+                LedgerJdbcRepository.Posting posting = postings.iterator().next();
+                return posting.type() == LedgerEntryType.ADJUSTMENT
+                        && posting.debitCardId().equals(55L)
+                        && posting.creditCardId() == null
+                        && posting.amount().compareTo(Money.parse("40.00")) == 0
+                        && posting.description().equals("Chargeback");
+            }));
+        }
+
+        @Test
+        @DisplayName("Adjust Balance: Rejected when the balance would become negative")
+        void adjustBalance_Fail_NegativeBalance() {
+            Card card = createMockCard(55L, "user1", "10.00", CardStatus.ACTIVE);
+            when(cardRepository.findAllByIdInForUpdate(List.of(55L))).thenReturn(List.of(card));
+
+            assertThatThrownBy(() -> cardService.adjustBalance(55L,
+                    new BalanceAdjustmentRequestDto(Money.parse("-40.00"), "Chargeback")))
+                    .isInstanceOf(InsufficientFundsException.class);
+
+            assertThat(card.getBalance()).isEqualTo(Money.parse("10.00"));
+            verify(ledgerJdbcRepository, never()).append(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("Transfer History")
+    class TransferHistoryTests {
+
+        private final LocalDateTime now = LocalDateTime.of(2026, 1, 15, 10, 30, 0, 123456000);
+
+        @BeforeEach
+        void setUp() {
+            when(securityContext.getAuthentication()).thenReturn(authentication);
+            when(authentication.getName()).thenReturn("user1");
+        }
+
+        @Test
+        @DisplayName("Keyset: One row more than the page is read; the cursor points at the last returned row")
+        void getCardTransfers_FullPage_ReturnsCursor() {
+            when(cardTransferJdbcRepository.findPage(1L, "user1", null, 3)).thenReturn(Optional.of(
+                    new CardTransferJdbcRepository.CardHistory("user1", List.of(
+                            transferRow(30L, now), transferRow(20L, now), transferRow(10L, now.minusMinutes(1))))));
+
+            CursorPageResponseDto<TransferHistoryItemDto> page = cardService.getCardTransfers(1L, null, 2);
+
+            assertThat(page.content()).hasSize(2);
+            assertThat(page.nextCursor()).isNotNull();
+
+            // The cursor decodes back to the sort key of the second row
+            when(cardTransferJdbcRepository.findPage(eq(1L), eq("user1"), any(), eq(3))).thenReturn(Optional.of(
+                    new CardTransferJdbcRepository.CardHistory("user1", List.of(transferRow(10L, now.minusMinutes(1))))));
+            CursorPageResponseDto<TransferHistoryItemDto> last = cardService.getCardTransfers(1L, page.nextCursor(), 2);
+
+            verify(cardTransferJdbcRepository).findPage(1L, "user1",
+                    new CardTransferJdbcRepository.CardTransfer.SortKey(now, 20L), 3);
+            assertThat(last.content()).hasSize(1);
+            assertThat(last.nextCursor()).isNull();
+        }
+
+        @Test
+        @DisplayName("Security (IDOR): Card of another user is rejected with 403")
+        void getCardTransfers_NotOwner_Forbidden() {
+            when(cardTransferJdbcRepository.findPage(1L, "user1", null, 21)).thenReturn(Optional.of(
+                    new CardTransferJdbcRepository.CardHistory("user2", List.of())));
+
+            assertThatThrownBy(() -> cardService.getCardTransfers(1L, null, 20))
+                    .isInstanceOf(AppSecurityException.class);
+        }
+
+        @Test
+        @DisplayName("Validation: Missing card is 404, a forged cursor is 400")
+        void getCardTransfers_Invalid() {
+            when(cardTransferJdbcRepository.findPage(1L, "user1", null, 21)).thenReturn(Optional.empty());
+
+            assertThatThrownBy(() -> cardService.getCardTransfers(1L, null, 20))
+                    .isInstanceOf(CardNotFoundException.class);
+            assertThatThrownBy(() -> cardService.getCardTransfers(1L, "bm90LWEtY3Vyc29y", 20))
+                    .isInstanceOf(RestException.class)
+                    .hasMessage("Invalid cursor");
+        }
+
+        private CardTransferJdbcRepository.CardTransfer transferRow(long id, LocalDateTime createdAt) {
+            return new CardTransferJdbcRepository.CardTransfer(
+                    id, UUID.randomUUID(), TransferDirection.OUT, 2L, BigDecimal.TEN, createdAt);
+        }
     }
 
     // Helper
     private Card createMockCard(Long id, String ownerUsername, String balance, CardStatus status) {
         Card card = new Card();
         card.setId(id);
-        card.setBalance(new BigDecimal(balance));
+        card.setBalance(Money.parse(balance));
         card.setStatus(status);
         Client owner = new Client();
         owner.setUsername(ownerUsername);
         card.setOwner(owner);
         return card;
     }
+
+    private void givenOwner(long cardId, String username) {
+        when(cardJdbcRepository.findOwners(List.of(cardId))).thenReturn(Map.of(cardId, owner(username)));
+    }
+
+    private static CardJdbcRepository.CardOwner owner(String username) {
+        return new CardJdbcRepository.CardOwner(username, ClientTier.STANDARD);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.IdempotencyProperties;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.entity.IdempotencyRecord;
+import com.example.bankcards.exception.InsufficientFundsException;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.IdempotencyRecordRepository;
+import com.example.bankcards.service.interfaces.CardService;
+import com.example.bankcards.util.Money;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyServiceImplTest {
+
+    @Mock
+    private CardService cardService;
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private IdempotencyServiceImpl idempotencyService;
+
+    private final TransferRequestDto request = new TransferRequestDto(1L, 2L, Money.parse("10.00"));
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new IdempotencyServiceImpl(
+                cardService,
+                idempotencyRecordRepository,
+                new IdempotencyProperties(100, Duration.ofSeconds(5), Duration.ofHours(24), Duration.ofHours(1))
+        );
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken("user1", null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Retry: Second call with the same key is answered from memory, money moves once")
+    void transfer_Retry_ServedFromCache() {
+        when(idempotencyRecordRepository.findById(any())).thenReturn(Optional.empty());
+
+        idempotencyService.transfer("key-1", request);
+        idempotencyService.transfer("key-1", request);
+
+        verify(cardService, times(1)).transfer(request, "key-1");
+        verify(idempotencyRecordRepository, times(1)).findById(any());
+    }
+
+    @Test
+    @DisplayName("Retry: Stored outcome from another node is replayed without executing")
+    void transfer_StoredOutcome_Replayed() {
+        when(idempotencyRecordRepository.findById(new IdempotencyRecord.Key("user1", "key-1")))
+                .thenReturn(Optional.of(record(request.fingerprint(), 200, null)));
+
+        idempotencyService.transfer("key-1", request);
+
+        verify(cardService, never()).transfer(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Failure: Business error is stored and replayed with the same status and message")
+    void transfer_Failure_StoredAndReplayed() {
+        when(idempotencyRecordRepository.findById(any())).thenReturn(Optional.empty());
+        doThrow(new InsufficientFundsException("Insufficient funds")).when(cardService).transfer(request, "key-1");
+
+        assertThatThrownBy(() -> idempotencyService.transfer("key-1", request))
+                .isInstanceOf(RestException.class)
+                .hasMessage("Insufficient funds");
+        assertThatThrownBy(() -> idempotencyService.transfer("key-1", request))
+                .isInstanceOf(RestException.class)
+                .hasMessage("Insufficient funds")
+                .satisfies(ex -> assertThat(((RestException) ex).getStatus()).isEqualTo(HttpStatus.BAD_REQUEST));
+
+        verify(cardService, times(1)).transfer(request, "key-1");
+        verify(idempotencyRecordRepository).saveFailureIfAbsent(
+                "user1", "key-1", request.fingerprint(), 400, "Insufficient funds");
+    }
+
+    @Test
+    @DisplayName("Failure: Transient errors are neither stored nor cached, so a retry with the same key executes")
+    void transfer_TransientFailure_NotStored() {
+        when(idempotencyRecordRepository.findById(any())).thenReturn(Optional.empty());
+        doThrow(new RestException("Card is busy, please retry later", HttpStatus.SERVICE_UNAVAILABLE))
+                .doThrow(new RestException("The card was modified concurrently, please retry", HttpStatus.CONFLICT))
+                .doNothing()
+                .when(cardService).transfer(request, "key-1");
+
+        assertThatThrownBy(() -> idempotencyService.transfer("key-1", request))
+                .satisfies(ex -> assertThat(((RestException) ex).getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThatThrownBy(() -> idempotencyService.transfer("key-1", request))
+                .satisfies(ex -> assertThat(((RestException) ex).getStatus()).isEqualTo(HttpStatus.CONFLICT));
+        idempotencyService.transfer("key-1", request);
+
+        verify(cardService, times(3)).transfer(request, "key-1");
+        verify(idempotencyRecordRepository, never()).saveFailureIfAbsent(any(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Misuse: Same key with a different payload is rejected with 422")
+    void transfer_DifferentPayload_Rejected() {
+        when(idempotencyRecordRepository.findById(any())).thenReturn(Optional.empty());
+        idempotencyService.transfer("key-1", request);
+
+        TransferRequestDto other = new TransferRequestDto(1L, 2L, Money.parse("99.00"));
+
+        assertThatThrownBy(() -> idempotencyService.transfer("key-1", other))
+                .isInstanceOf(RestException.class)
+                .satisfies(ex -> assertThat(((RestException) ex).getStatus()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY));
+        verify(cardService, times(1)).transfer(any(), anyString());
+    }
+
+    @Test
+    @DisplayName("Cross-node race: Losing the key claim replays the winner's outcome")
+    void transfer_LostClaim_ReplaysWinner() {
+        when(idempotencyRecordRepository.findById(any()))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(record(request.fingerprint(), 200, null)));
+        doThrow(new DataIntegrityViolationException("duplicate key")).when(cardService).transfer(request, "key-1");
+
+        idempotencyService.transfer("key-1", request);
+
+        verify(idempotencyRecordRepository, never()).saveFailureIfAbsent(any(), any(), any(), anyInt(), any());
+    }
+
+    @Test
+    @DisplayName("Concurrency: Duplicates wait for the in-flight execution instead of running again")
+    void transfer_ConcurrentDuplicates_ExecuteOnce() throws Exception {
+        when(idempotencyRecordRepository.findById(any())).thenReturn(Optional.empty());
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(cardService).transfer(eq(request), eq("key-1"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            var context = SecurityContextHolder.getContext();
+            Future<?> first = executor.submit(() -> {
+                SecurityContextHolder.setContext(context);
+                idempotencyService.transfer("key-1", request);
+            });
+            started.await(5, TimeUnit.SECONDS);
+            Future<?> duplicate = executor.submit(() -> {
+                SecurityContextHolder.setContext(context);
+                idempotencyService.transfer("key-1", request);
+            });
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            duplicate.get(5, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(cardService, times(1)).transfer(request, "key-1");
+    }
+
+    private IdempotencyRecord record(String requestHash, int status, String message) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setUsername("user1");
+        record.setIdempotencyKey("key-1");
+        record.setRequestHash(requestHash);
+        record.setStatus(status);
+        record.setMessage(message);
+        return record;
+    }
+}
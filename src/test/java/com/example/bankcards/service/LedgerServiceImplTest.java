@@ -0,0 +1,79 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.config.LedgerProperties;
+import com.example.bankcards.dto.response.LedgerRebuildResponseDto;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.LedgerJdbcRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LedgerServiceImplTest {
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    private LedgerServiceImpl ledgerService;
+
+    @BeforeEach
+    void setUp() {
+        ledgerService = new LedgerServiceImpl(
+                ledgerJdbcRepository,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                new LedgerProperties(2, 3)
+        );
+    }
+
+    @Test
+    @DisplayName("Rebuild: Chunks are contiguous half-open id ranges and corrections are summed")
+    void rebuildBalances_ChunksCoverAllCards() {
+        when(ledgerJdbcRepository.findChunkStarts(2)).thenReturn(List.of(1L, 101L, 201L));
+        when(ledgerJdbcRepository.rebuildBalances(1L, 101L)).thenReturn(1);
+        when(ledgerJdbcRepository.rebuildBalances(101L, 201L)).thenReturn(0);
+        when(ledgerJdbcRepository.rebuildBalances(201L, Long.MAX_VALUE)).thenReturn(2);
+
+        LedgerRebuildResponseDto response = ledgerService.rebuildBalances();
+
+        assertThat(response.chunks()).isEqualTo(3);
+        assertThat(response.cardsCorrected()).isEqualTo(3);
+        verify(ledgerJdbcRepository, times(3)).rebuildBalances(anyLong(), anyLong());
+    }
+
+    @Test
+    @DisplayName("Rebuild: A second run while one is in progress is rejected with 409")
+    void rebuildBalances_AlreadyRunning_Rejected() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(ledgerJdbcRepository.findChunkStarts(2)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        CompletableFuture<LedgerRebuildResponseDto> first = CompletableFuture.supplyAsync(ledgerService::rebuildBalances);
+        started.await(5, TimeUnit.SECONDS);
+
+        assertThatThrownBy(ledgerService::rebuildBalances)
+                .isInstanceOf(RestException.class)
+                .hasMessageContaining("already running");
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS).chunks()).isZero();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.bankcards.service;
+
+import com.example.bankcards.dto.response.CursorPageResponseDto;
+import com.example.bankcards.dto.response.UserResponseDto;
+import com.example.bankcards.entity.enums.Role;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.ClientJdbcRepository;
+import com.example.bankcards.repository.ClientJdbcRepository.ClientSummary;
+import com.example.bankcards.util.KeysetCursor;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserServiceImplTest {
+
+    @Mock
+    private ClientJdbcRepository clientJdbcRepository;
+
+    @InjectMocks
+    private UserServiceImpl userService;
+
+    @Test
+    @DisplayName("Search: A username prefix pages by username, and the cursor carries the last username")
+    void searchUsers_Prefix_PagesByUsername() {
+        when(clientJdbcRepository.findByUsernamePrefix("al", null, Role.ROLE_USER, false, 3)).thenReturn(List.of(
+                new ClientSummary(7, "al|ce", Role.ROLE_USER, false),
+                new ClientSummary(3, "alan", Role.ROLE_USER, false),
+                new ClientSummary(9, "albert", Role.ROLE_USER, false)));
+        when(clientJdbcRepository.findByUsernamePrefix("al", "alan", Role.ROLE_USER, false, 3)).thenReturn(List.of(
+                new ClientSummary(9, "albert", Role.ROLE_USER, false)));
+
+        CursorPageResponseDto<UserResponseDto> first = userService.searchUsers("al", Role.ROLE_USER, false, null, 2);
+        CursorPageResponseDto<UserResponseDto> last = userService.searchUsers("al", Role.ROLE_USER, false, first.nextCursor(), 2);
+
+        assertThat(first.content()).extracting(UserResponseDto::username).containsExactly("al|ce", "alan");
+        assertThat(first.nextCursor()).isEqualTo(KeysetCursor.encode("alan"));
+        assertThat(last.content()).extracting(UserResponseDto::id).containsExactly(9L);
+        assertThat(last.nextCursor()).isNull();
+    }
+
+    @Test
+    @DisplayName("Search: Without a prefix the users are paged by ID")
+    void searchUsers_Filters_PagesById() {
+        when(clientJdbcRepository.findByFilters(null, true, 40L, 2)).thenReturn(List.of(
+                new ClientSummary(51, "bob", Role.ROLE_ADMIN, true),
+                new ClientSummary(52, "carol", Role.ROLE_USER, true)));
+
+        CursorPageResponseDto<UserResponseDto> page = userService.searchUsers("", null, true, KeysetCursor.encode(40L), 1);
+
+        assertThat(page.content()).extracting(UserResponseDto::id).containsExactly(51L);
+        assertThat(page.nextCursor()).isEqualTo(KeysetCursor.encode(51L));
+        verify(clientJdbcRepository, never()).findByUsernamePrefix(any(), any(), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Search: A username cursor used without a prefix, or an out-of-range size, is rejected with 400")
+    void searchUsers_Invalid() {
+        assertThatThrownBy(() -> userService.searchUsers(null, null, null, KeysetCursor.encode("alan"), 20))
+                .isInstanceOf(RestException.class)
+                .hasMessage("Invalid cursor");
+        assertThatThrownBy(() -> userService.searchUsers("al", null, null, null, 0))
+                .isInstanceOf(RestException.class)
+                .hasMessage("Page size must be between 1 and 100");
+        verifyNoInteractions(clientJdbcRepository);
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.bankcards.service.engine;
+
+import com.example.bankcards.config.EngineProperties;
+import com.example.bankcards.entity.enums.CardStatus;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.repository.CardTransferJdbcRepository;
+import com.example.bankcards.repository.EngineJdbcRepository;
+import com.example.bankcards.repository.IdempotencyJdbcRepository;
+import com.example.bankcards.repository.LedgerJdbcRepository;
+import com.example.bankcards.util.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransferEngineTest {
+
+    @Mock
+    private EngineJdbcRepository engineJdbcRepository;
+
+    @Mock
+    private LedgerJdbcRepository ledgerJdbcRepository;
+
+    @Mock
+    private CardTransferJdbcRepository cardTransferJdbcRepository;
+
+    @Mock
+    private IdempotencyJdbcRepository idempotencyJdbcRepository;
+
+    @TempDir
+    Path journalDir;
+
+    private TransferEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        // Two partitions: cards 1 and 3 share partition 1, card 2 is on partition 0
+        lenient().doAnswer(invocation -> {
+            Consumer<EngineJdbcRepository.CardSnapshot> consumer = invocation.getArgument(0);
+            consumer.accept(snapshot(1, "alice", CardStatus.ACTIVE, "100.00"));
+            consumer.accept(snapshot(2, "bob", CardStatus.ACTIVE, "50.00"));
+            consumer.accept(snapshot(3, "alice", CardStatus.ACTIVE, "0.00"));
+            consumer.accept(snapshot(4, "bob", CardStatus.BLOCKED, "0.00"));
+            return null;
+        }).when(engineJdbcRepository).loadCards(any());
+        engine = newEngine();
+        engine.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (engine.isRunning()) {
+            engine.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Cross-partition transfer: source is debited on ack, target is credited by its own partition")
+    void transfer_CrossPartition_MovesMoney() {
+        TransferOutcome outcome = engine.transfer("alice", 1, 2, 1000, null, null);
+
+        assertThat(outcome).isEqualTo(TransferOutcome.OK);
+        assertThat(engine.balanceOf(1)).isEqualTo(Money.parse("90.00"));
+        awaitBalance(2, "60.00");
+    }
+
+    @Test
+    @DisplayName("Validation: Same verdicts and order as the database paths, nothing is journaled")
+    void transfer_Rejected_NotJournaled() {
+        assertThat(engine.transfer("alice", 99, 2, 100, null, null)).isEqualTo(TransferOutcome.SOURCE_NOT_FOUND);
+        assertThat(engine.transfer("bob", 1, 2, 100, null, null)).isEqualTo(TransferOutcome.NOT_OWNER);
+        assertThat(engine.transfer("alice", 1, 99, 100, null, null)).isEqualTo(TransferOutcome.TARGET_NOT_FOUND);
+        assertThat(engine.transfer("alice", 1, 4, 100, null, null)).isEqualTo(TransferOutcome.TARGET_INACTIVE);
+        assertThat(engine.transfer("alice", 1, 3, 10_001, null, null)).isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+        engine.updateStatus(1, CardStatus.BLOCKED);
+        assertThat(engine.transfer("alice", 1, 3, 100, null, null)).isEqualTo(TransferOutcome.SOURCE_INACTIVE);
+
+        engine.flush();
+
+        assertThat(engine.balanceOf(1)).isEqualTo(Money.parse("100.00"));
+        verify(engineJdbcRepository, never()).applyBalanceDeltas(anyMap());
+    }
+
+    @Test
+    @DisplayName("Adjustment: Cannot make the balance negative")
+    void adjust_Negative_Rejected() {
+        assertThat(engine.adjust(2, -5001, "Chargeback")).isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+        assertThat(engine.adjust(2, -5000, "Chargeback")).isEqualTo(TransferOutcome.OK);
+        assertThat(engine.balanceOf(2)).isEqualTo(Money.parse("0.00"));
+    }
+
+    @Test
+    @DisplayName("Write-behind: One transaction with net deltas, ledger postings, idempotency keys and checkpoints")
+    @SuppressWarnings("unchecked")
+    void flush_WritesNetDeltas() {
+        when(idempotencyJdbcRepository.claimAll(any())).thenReturn(new boolean[]{true});
+        engine.transfer("alice", 1, 2, 1000, "key-1", "hash-1");
+        engine.transfer("alice", 1, 3, 500, null, null);
+        engine.adjust(2, 250, "Refund");
+
+        engine.flush();
+
+        ArgumentCaptor<Map<Long, Money>> deltas = ArgumentCaptor.forClass(Map.class);
+        verify(engineJdbcRepository).applyBalanceDeltas(deltas.capture());
+        assertThat(deltas.getValue()).containsExactlyInAnyOrderEntriesOf(Map.of(
+                1L, Money.parse("-15.00"),
+                2L, Money.parse("12.50"),
+                3L, Money.parse("5.00")));
+        verify(ledgerJdbcRepository).append(argThat(postings -> postings.size() == 3));
+        verify(cardTransferJdbcRepository).append(argThat(postings -> postings.size() == 3));
+        verify(idempotencyJdbcRepository).claimAll(
+                List.of(new IdempotencyJdbcRepository.IdempotencyKey("alice", "key-1", "hash-1")));
+        verify(engineJdbcRepository).saveCheckpoints(Map.of(0, 1L, 1, 2L));
+    }
+
+    @Test
+    @DisplayName("Idempotency: A retry of a journaled key is acknowledged without moving money again, before and after the flush")
+    void transfer_DuplicateKey_NotAppliedTwice() {
+        when(idempotencyJdbcRepository.claimAll(any())).thenReturn(new boolean[]{true});
+        assertThat(engine.transfer("alice", 1, 3, 1000, "key-1", "hash-1")).isEqualTo(TransferOutcome.OK);
+
+        assertThat(engine.transfer("alice", 1, 3, 1000, "key-1", "hash-1")).isEqualTo(TransferOutcome.OK);
+        engine.flush();
+        assertThat(engine.transfer("alice", 1, 3, 1000, "key-1", "hash-1")).isEqualTo(TransferOutcome.OK);
+
+        assertThatThrownBy(() -> engine.transfer("alice", 1, 3, 2000, "key-1", "hash-2"))
+                .isInstanceOf(RestException.class)
+                .extracting(e -> ((RestException) e).getStatus())
+                .isEqualTo(HttpStatus.CONFLICT);
+        assertThat(engine.balanceOf(1)).isEqualTo(Money.parse("90.00"));
+    }
+
+    @Test
+    @DisplayName("Idempotency: A rejected transfer gives its key back, so the retry runs")
+    void transfer_RejectedKey_Released() {
+        assertThat(engine.transfer("alice", 1, 3, 10_001, "key-1", "hash-1")).isEqualTo(TransferOutcome.INSUFFICIENT_FUNDS);
+        engine.adjust(1, 1, "Top-up");
+
+        assertThat(engine.transfer("alice", 1, 3, 10_001, "key-1", "hash-1")).isEqualTo(TransferOutcome.OK);
+        assertThat(engine.balanceOf(1)).isEqualTo(Money.parse("0.00"));
+    }
+
+    @Test
+    @DisplayName("Write-behind: Flushes that keep failing stop the engine instead of queueing behind the failed batch")
+    void flush_KeepsFailing_StopsEngine() {
+        engine.stop();
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(engineJdbcRepository).applyBalanceDeltas(anyMap());
+        engine = newEngine(Duration.ofMillis(10), 2);
+        engine.start();
+
+        assertThat(engine.transfer("alice", 1, 2, 1000, null, null)).isEqualTo(TransferOutcome.OK);
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        RestException rejected = null;
+        while (rejected == null && System.nanoTime() < deadline) {
+            try {
+                engine.transfer("alice", 1, 2, 1, null, null);
+            } catch (RestException e) {
+                rejected = e;
+            }
+        }
+        assertThat(rejected).isNotNull();
+        assertThat(rejected.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        verify(engineJdbcRepository, atLeast(2)).applyBalanceDeltas(anyMap());
+    }
+
+    @Test
+    @DisplayName("Recovery: Records whose flush failed are written to the database on the next start")
+    void start_ReplaysUnflushedJournal() throws Exception {
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(engineJdbcRepository).applyBalanceDeltas(anyMap());
+        engine.transfer("alice", 1, 2, 1000, null, null);
+        engine.stop();
+        assertThat(countJournalFiles()).isPositive();
+
+        reset(engineJdbcRepository);
+        engine = newEngine();
+        engine.start();
+
+        verify(engineJdbcRepository).applyBalanceDeltas(Map.of(1L, Money.parse("-10.00"), 2L, Money.parse("10.00")));
+        verify(engineJdbcRepository).saveCheckpoints(Map.of(1, 1L));
+        // Only the fresh, empty segments of the new journals are left
+        assertThat(TransferJournal.replay(journalDir, 1, 0)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Recovery: Keys of the replayed records are still recognized after the restart")
+    void start_RebuildsClaimedKeys() {
+        doThrow(new DataAccessResourceFailureException("database down"))
+                .when(engineJdbcRepository).applyBalanceDeltas(anyMap());
+        engine.transfer("alice", 1, 2, 1000, "key-1", "hash-1");
+        engine.stop();
+
+        reset(engineJdbcRepository);
+        // The database now holds the replayed debit
+        doAnswer(invocation -> {
+            Consumer<EngineJdbcRepository.CardSnapshot> consumer = invocation.getArgument(0);
+            consumer.accept(snapshot(1, "alice", CardStatus.ACTIVE, "90.00"));
+            consumer.accept(snapshot(2, "bob", CardStatus.ACTIVE, "60.00"));
+            return null;
+        }).when(engineJdbcRepository).loadCards(any());
+        when(idempotencyJdbcRepository.claimAll(any())).thenReturn(new boolean[]{true});
+        engine = newEngine();
+        engine.start();
+
+        assertThat(engine.transfer("alice", 1, 2, 1000, "key-1", "hash-1")).isEqualTo(TransferOutcome.OK);
+        assertThat(engine.balanceOf(1)).isEqualTo(Money.parse("90.00"));
+    }
+
+    @Test
+    @DisplayName("Concurrency: Opposite transfers on many threads conserve money and never overdraw")
+    void transfer_Concurrent_ConservesMoney() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4000; i++) {
+                long source = i % 2 == 0 ? 1 : 3;
+                long target = i % 3 == 0 ? 2 : (source == 1 ? 3 : 1);
+                futures.add(CompletableFuture.runAsync(
+                        () -> engine.transfer("alice", source, target, 7, null, null), executor));
+                if (i % 5 == 0) {
+                    futures.add(CompletableFuture.runAsync(
+                            () -> engine.transfer("bob", 2, source, 3, null, null), executor));
+                }
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        Money total;
+        do {
+            total = engine.balanceOf(1).plus(engine.balanceOf(2)).plus(engine.balanceOf(3));
+        } while (total.compareTo(Money.parse("150.00")) != 0 && System.nanoTime() < deadline);
+
+        assertThat(total).isEqualTo(Money.parse("150.00"));
+        assertThat(Stream.of(1L, 2L, 3L).map(engine::balanceOf)).allMatch(balance -> balance.signum() >= 0);
+    }
+
+    private TransferEngine newEngine() {
+        return newEngine(Duration.ofHours(1), 30);
+    }
+
+    private TransferEngine newEngine(Duration flushInterval, int flushMaxAttempts) {
+        EngineProperties properties = new EngineProperties(true, 2, 64, 16, journalDir, DataSize.ofKilobytes(128),
+                false, flushInterval, 1000, flushMaxAttempts, Duration.ofSeconds(5), Duration.ofMinutes(1));
+        return new TransferEngine(properties, engineJdbcRepository, ledgerJdbcRepository, cardTransferJdbcRepository,
+                idempotencyJdbcRepository, new TransactionTemplate(mock(PlatformTransactionManager.class)), new SimpleMeterRegistry());
+    }
+
+    private void awaitBalance(long cardId, String expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (engine.balanceOf(cardId).compareTo(Money.parse(expected)) != 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertThat(engine.balanceOf(cardId)).isEqualTo(Money.parse(expected));
+    }
+
+    private long countJournalFiles() throws Exception {
+        try (Stream<Path> files = Files.list(journalDir)) {
+            return files.count();
+        }
+    }
+
+    private static EngineJdbcRepository.CardSnapshot snapshot(long id, String owner, CardStatus status, String balance) {
+        return new EngineJdbcRepository.CardSnapshot(id, owner, status, Money.parse(balance));
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.bankcards.service.engine;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TransferJournalTest {
+
+    private static final long SEGMENT_SIZE = 128 * 1024;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Replay: Records come back with their sequence, skipping those already flushed")
+    void replay_AfterCheckpoint() throws IOException {
+        try (TransferJournal journal = new TransferJournal(directory, 0, SEGMENT_SIZE, true, 10)) {
+            assertThat(journal.append(JournalRecord.transfer(0, 1, 2, 500, "alice", "key-1", "hash")).seq()).isEqualTo(10);
+            journal.append(JournalRecord.adjustment(0, 2, -100, "Chargeback"));
+            journal.append(JournalRecord.transfer(0, 2, 1, 50, "bob", null, null));
+            journal.force();
+        }
+
+        List<JournalRecord> records = TransferJournal.replay(directory, 0, 10);
+
+        assertThat(records).containsExactly(
+                JournalRecord.adjustment(11, 2, -100, "Chargeback"),
+                JournalRecord.transfer(12, 2, 1, 50, "bob", null, null));
+        assertThat(TransferJournal.partitionsIn(directory)).containsExactly(0);
+    }
+
+    @Test
+    @DisplayName("Torn write: Replay stops at the first record whose checksum does not match")
+    void replay_TornWrite_StopsAtCorruption() throws IOException {
+        try (TransferJournal journal = new TransferJournal(directory, 3, SEGMENT_SIZE, true, 1)) {
+            journal.append(JournalRecord.transfer(0, 1, 2, 500, "alice", null, null));
+            journal.append(JournalRecord.transfer(0, 1, 2, 700, "alice", null, null));
+        }
+        Path segment = directory.resolve(TransferJournal.segmentName(3, 1));
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            int firstRecord = channel.map(FileChannel.MapMode.READ_ONLY, 0, 4).getInt() + 8;
+            // Flip the last byte of the second record's amount
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), firstRecord + 4 + 8 + 1 + 8 + 8 + 7);
+        }
+
+        assertThat(TransferJournal.replay(directory, 3, 0))
+                .extracting(JournalRecord::amount)
+                .containsExactly(500L);
+    }
+
+    @Test
+    @DisplayName("Segments: Full segments roll over and are deleted once flushed")
+    void deleteSegmentsUpTo_KeepsUnflushed() throws IOException {
+        String description = "x".repeat(200);
+        long written;
+        try (TransferJournal journal = new TransferJournal(directory, 0, SEGMENT_SIZE, false, 1)) {
+            for (written = 0; countSegments() < 3; written++) {
+                journal.append(JournalRecord.adjustment(0, 1, 1, description));
+            }
+            assertThat(TransferJournal.replay(directory, 0, 0)).hasSize((int) written);
+
+            journal.deleteSegmentsUpTo(written - 1);
+            assertThat(countSegments()).isEqualTo(1);
+            assertThat(TransferJournal.replay(directory, 0, 0)).extracting(JournalRecord::seq).containsExactly(written);
+
+            journal.deleteSegmentsUpTo(written);
+            assertThat(countSegments()).isEqualTo(1);
+        }
+
+        TransferJournal.deleteAll(directory, 0);
+        assertThat(countSegments()).isZero();
+    }
+
+    private long countSegments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.SecondLevelCacheProperties;
+import com.example.bankcards.entity.Card;
+import jakarta.persistence.Cache;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+class CardCacheEvictorTest {
+
+    private final Cache cache = mock(Cache.class);
+    private final EntityManagerFactory entityManagerFactory = mock(EntityManagerFactory.class);
+
+    private CardCacheEvictor evictor(boolean enabled) {
+        when(entityManagerFactory.getCache()).thenReturn(cache);
+        return new CardCacheEvictor(entityManagerFactory, new SecondLevelCacheProperties(
+                enabled, 10, Duration.ofSeconds(30), 10, Duration.ofSeconds(30)));
+    }
+
+    @Test
+    @DisplayName("Eviction: Inside a transaction the cards are evicted at once and again after commit")
+    void evict_AgainAfterCommit() {
+        CardCacheEvictor evictor = evictor(true);
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            evictor.evict(List.of(1L, 2L));
+            verify(cache).evict(Card.class, 1L);
+            verify(cache).evict(Card.class, 2L);
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        verify(cache, times(2)).evict(Card.class, 1L);
+        verify(cache, times(2)).evict(Card.class, 2L);
+    }
+
+    @Test
+    @DisplayName("Eviction: Nothing is touched while the second-level cache is disabled")
+    void evict_Disabled() {
+        CardCacheEvictor evictor = evictor(false);
+
+        evictor.evict(1L);
+        evictor.evictAll();
+
+        verifyNoInteractions(cache);
+    }
+}
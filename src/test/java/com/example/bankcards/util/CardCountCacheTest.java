@@ -0,0 +1,80 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.CardCountCacheProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CardCountCacheTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CardCountCache cache = new CardCountCache(new CardCountCacheProperties(2, Duration.ofMinutes(1)), meterRegistry);
+    private final AtomicLong queries = new AtomicLong();
+
+    private long count() {
+        queries.incrementAndGet();
+        return 3;
+    }
+
+    @Test
+    @DisplayName("Cache: A count is queried once and then served until the owner is invalidated")
+    void get_CachesUntilInvalidated() {
+        assertThat(cache.get(1L, this::count)).isEqualTo(3);
+        assertThat(cache.get(1L, this::count)).isEqualTo(3);
+        assertThat(queries).hasValue(1);
+
+        cache.invalidate(1L);
+        cache.get(1L, this::count);
+
+        assertThat(queries).hasValue(2);
+        assertThat(meterRegistry.get("bank.card.count.cache.gets").tag("result", "hit").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("bank.card.count.cache.gets").tag("result", "miss").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Cache: Inside a transaction the count is dropped again after commit, undoing a concurrent reload")
+    void invalidate_AgainAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.invalidate(1L);
+            cache.get(1L, this::count); // A reader that counted before the commit
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        cache.get(1L, this::count);
+
+        assertThat(queries).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("Cache: A count put alongside other data is served instead of querying")
+    void put_ServedByGet() {
+        cache.put(1L, 7);
+
+        assertThat(cache.get(1L, this::count)).isEqualTo(7);
+        assertThat(queries).hasValue(0);
+    }
+
+    @Test
+    @DisplayName("Cache: The least recently read owner is evicted beyond max-size")
+    void get_EvictsEldest() {
+        cache.get(1L, this::count);
+        cache.get(2L, this::count);
+        cache.get(1L, this::count);
+        cache.get(3L, this::count);
+
+        cache.get(1L, this::count);
+        cache.get(2L, this::count);
+
+        assertThat(queries).hasValue(4);
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.TransferProperties;
+import com.example.bankcards.exception.RestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CardLockManagerTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private CardLockManager lockManager;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lockManager = new CardLockManager(
+                new TransferProperties(TransferProperties.Mode.ORDERED_LOCKING, 64, Duration.ofMillis(200), 3),
+                meterRegistry
+        );
+    }
+
+    @Test
+    @DisplayName("Opposite transfer directions (A->B, B->A) never deadlock on the stripes")
+    void acquire_OppositeDirections_NoDeadlock() throws Exception {
+        AtomicInteger inCriticalSection = new AtomicInteger();
+        AtomicInteger maxObserved = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            CompletableFuture<?>[] futures = new CompletableFuture[2000];
+            for (int i = 0; i < futures.length; i++) {
+                List<Long> ids = i % 2 == 0 ? List.of(1L, 2L) : List.of(2L, 1L);
+                futures[i] = CompletableFuture.runAsync(() -> {
+                    try (CardLockManager.Lease ignored = lockManager.acquire(ids)) {
+                        maxObserved.accumulateAndGet(inCriticalSection.incrementAndGet(), Math::max);
+                        inCriticalSection.decrementAndGet();
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(maxObserved.get()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Timeout: A second contender gets 503 once the lock timeout elapses")
+    void acquire_Timeout_Returns503() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            try (CardLockManager.Lease ignored = lockManager.acquire(List.of(7L))) {
+                held.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        holder.start();
+        held.await();
+
+        try {
+            assertThatThrownBy(() -> lockManager.acquire(List.of(7L, 8L)))
+                    .isInstanceOf(RestException.class)
+                    .satisfies(ex -> assertThat(((RestException) ex).getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+            assertThat(meterRegistry.counter("bank.transfer.lock.contended").count()).isEqualTo(1.0);
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+
+        // Stripes taken before the timeout must have been released again
+        try (CardLockManager.Lease lease = lockManager.acquire(List.of(7L, 8L))) {
+            assertThat(lease).isNotNull();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EntityTagsTest {
+
+    @Test
+    @DisplayName("If-None-Match: Any listed tag, a weak copy of the tag or a wildcard matches")
+    void matches() {
+        assertThat(EntityTags.matches("\"v7\"", "v7")).isTrue();
+        assertThat(EntityTags.matches("\"v6\", \"v7\"", "v7")).isTrue();
+        assertThat(EntityTags.matches("W/\"v7\"", "v7")).isTrue();
+        assertThat(EntityTags.matches("*", "v7")).isTrue();
+    }
+
+    @Test
+    @DisplayName("If-None-Match: A different tag, no header or an untagged resource never match")
+    void doesNotMatch() {
+        assertThat(EntityTags.matches("\"v6\"", "v7")).isFalse();
+        assertThat(EntityTags.matches(null, "v7")).isFalse();
+        assertThat(EntityTags.matches("*", null)).isFalse();
+    }
+}
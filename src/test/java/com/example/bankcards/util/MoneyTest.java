@@ -0,0 +1,89 @@
+package com.example.bankcards.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    @DisplayName("Parse: Plain decimals become minor units, extra decimals must be zeros")
+    void parse_Exact() {
+        assertThat(Money.parse("12").minorUnits()).isEqualTo(1200);
+        assertThat(Money.parse("0.5").minorUnits()).isEqualTo(50);
+        assertThat(Money.parse("-1234.56").minorUnits()).isEqualTo(-123456);
+        assertThat(Money.parse("+7.").minorUnits()).isEqualTo(700);
+        assertThat(Money.parse("10.500").minorUnits()).isEqualTo(1050);
+        assertThat(Money.parse("1.5E2").minorUnits()).isEqualTo(15000);
+
+        assertThatThrownBy(() -> Money.parse("0.001")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.parse("99999999999999999999")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.parse("200000000000000000")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.parse("99999999999999999")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.parse("-99999999999999999.9")).isInstanceOf(ArithmeticException.class);
+        assertThat(Money.parse("92233720368547758").minorUnits()).isEqualTo(9223372036854775800L);
+        assertThat(Money.parse("-92233720368547758.07").minorUnits()).isEqualTo(-9223372036854775807L);
+        assertThatThrownBy(() -> Money.parse("-")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> Money.parse("1,5")).isInstanceOf(NumberFormatException.class);
+    }
+
+    @Test
+    @DisplayName("Format: Always two decimals, including for the extremes of the range")
+    void toString_TwoDecimals() {
+        assertThat(Money.ofMinor(0)).hasToString("0.00");
+        assertThat(Money.ofMinor(5)).hasToString("0.05");
+        assertThat(Money.ofMinor(-5)).hasToString("-0.05");
+        assertThat(Money.ofMinor(123450)).hasToString("1234.50");
+        assertThat(Money.ofMinor(Long.MAX_VALUE)).hasToString("92233720368547758.07");
+        assertThat(Money.ofMinor(Long.MIN_VALUE)).hasToString("-92233720368547758.08");
+    }
+
+    @Test
+    @DisplayName("Arithmetic: Overflow throws instead of wrapping around")
+    void arithmetic_OverflowChecked() {
+        Money max = Money.ofMinor(Long.MAX_VALUE);
+
+        assertThat(Money.parse("10.25").plus(Money.parse("0.75"))).isEqualTo(Money.parse("11"));
+        assertThat(Money.parse("10").minus(Money.parse("10.01"))).isEqualTo(Money.parse("-0.01"));
+        assertThatThrownBy(() -> max.plus(Money.ofMinor(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofMinor(Long.MIN_VALUE).minus(Money.ofMinor(1))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofMinor(Long.MIN_VALUE).negate()).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    @DisplayName("BigDecimal: Conversion is exact in both directions and rejects what does not fit")
+    void bigDecimal_RoundTrip() {
+        MoneyAttributeConverter converter = new MoneyAttributeConverter();
+
+        assertThat(converter.convertToDatabaseColumn(Money.parse("19.90"))).isEqualTo(new BigDecimal("19.90"));
+        assertThat(converter.convertToEntityAttribute(new BigDecimal("19.9"))).isEqualTo(Money.ofMinor(1990));
+        assertThat(converter.convertToEntityAttribute(null)).isNull();
+        assertThatThrownBy(() -> converter.convertToEntityAttribute(new BigDecimal("0.005")))
+                .isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    @DisplayName("JSON: Written as a plain number with two decimals and read back without rounding")
+    void json_Exact() throws Exception {
+        assertThat(objectMapper.writeValueAsString(Map.of("amount", Money.parse("1000"))))
+                .isEqualTo("{\"amount\":1000.00}");
+        assertThat(objectMapper.readValue("12345678901234567.89", Money.class).minorUnits())
+                .isEqualTo(1234567890123456789L);
+        assertThat(objectMapper.readValue("\"0.10\"", Money.class)).isEqualTo(Money.ofMinor(10));
+
+        assertThatThrownBy(() -> objectMapper.readValue("0.001", Money.class))
+                .isInstanceOf(InvalidFormatException.class)
+                .hasMessageContaining("at most 2 decimal places");
+        assertThatThrownBy(() -> objectMapper.readValue("\"ten\"", Money.class))
+                .isInstanceOf(InvalidFormatException.class);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.ExportProperties;
+import com.example.bankcards.dto.response.UserResponseDto;
+import com.example.bankcards.entity.enums.Role;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NdjsonExporterTest {
+
+    private final NdjsonExporter exporter = new NdjsonExporter(new ObjectMapper(), new ExportProperties(2, Duration.ofMinutes(30)));
+
+    private final NdjsonExporter.Source<UserResponseDto> users = sink -> {
+        for (long id = 1; id <= 5; id++) {
+            sink.accept(new UserResponseDto(id, "user" + id, Role.ROLE_USER, false));
+        }
+    };
+
+    @Test
+    @DisplayName("Export: One JSON object per line, in source order, flushed every fetch-size rows")
+    void export_WritesLines() throws IOException {
+        List<Integer> flushedAt = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) {
+                bytes.write(b);
+            }
+
+            @Override
+            public void flush() {
+                flushedAt.add(bytes.toString(StandardCharsets.UTF_8).split("\n").length);
+            }
+        };
+
+        ResponseEntity<StreamingResponseBody> response = exporter.export("users.ndjson", null, users);
+        response.getBody().writeTo(out);
+
+        assertThat(response.getHeaders().getContentType()).isEqualTo(NdjsonExporter.APPLICATION_NDJSON);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isNull();
+        String[] lines = bytes.toString(StandardCharsets.UTF_8).split("\n", -1);
+        assertThat(lines).hasSize(6);
+        assertThat(lines[0]).isEqualTo("{\"id\":1,\"username\":\"user1\",\"role\":\"ROLE_USER\",\"isLocked\":false}");
+        assertThat(lines[4]).startsWith("{\"id\":5,");
+        assertThat(lines[5]).isEmpty();
+        assertThat(flushedAt).startsWith(2, 4);
+    }
+
+    @Test
+    @DisplayName("Export: Gzip-compressed when the client accepts it")
+    void export_Gzip() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        ResponseEntity<StreamingResponseBody> response = exporter.export("users.ndjson", "gzip, deflate, br", users);
+        response.getBody().writeTo(bytes);
+
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8).lines()).hasSize(5);
+        }
+    }
+
+    @Test
+    @DisplayName("Stream: Headers go on the response, the rows are written by a task with the export timeout")
+    void stream_WritesResponseWithExportTimeout() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        WebAsyncTask<Void> task = exporter.stream("users.ndjson", null, response, users);
+
+        assertThat(task.getTimeout()).isEqualTo(Duration.ofMinutes(30).toMillis());
+        assertThat(response.getContentType()).isEqualTo(NdjsonExporter.APPLICATION_NDJSON.toString());
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).contains("users.ndjson");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+
+        task.getCallable().call();
+
+        assertThat(response.getContentAsString(StandardCharsets.UTF_8).lines()).hasSize(5);
+    }
+}
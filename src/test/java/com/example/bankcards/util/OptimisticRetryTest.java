@@ -0,0 +1,91 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.OptimisticRetryProperties;
+import com.example.bankcards.exception.RestException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.PessimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OptimisticRetryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final OptimisticRetry retry = new OptimisticRetry(
+            new OptimisticRetryProperties(3, Duration.ofMillis(1), Duration.ofMillis(2)), meterRegistry);
+
+    @Test
+    @DisplayName("Conflict: The work is replayed until it wins, conflicts and retries are counted per method")
+    void execute_ReplaysUntilSuccess() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retry.execute("updateCardStatus", () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale");
+            }
+            return "done";
+        });
+
+        assertThat(result).isEqualTo("done");
+        assertThat(attempts).hasValue(3);
+        assertThat(count("bank.card.optimistic.conflicts", "updateCardStatus")).isEqualTo(2);
+        assertThat(count("bank.card.optimistic.retries", "updateCardStatus")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Exhausted: After the last attempt the caller gets 409, the last conflict is not retried")
+    void execute_GivesUpWith409() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.run("blockMyCard", () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale");
+        }))
+                .isInstanceOf(RestException.class)
+                .extracting(e -> ((RestException) e).getStatus())
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(count("bank.card.optimistic.conflicts", "blockMyCard")).isEqualTo(3);
+        assertThat(count("bank.card.optimistic.retries", "blockMyCard")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Deadlock: A transaction picked as deadlock victim is replayed like a lost version check")
+    void execute_Deadlock_Replayed() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        retry.run("transfer", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new PessimisticLockingFailureException("deadlock detected");
+            }
+        });
+
+        assertThat(attempts).hasValue(2);
+        assertThat(count("bank.card.optimistic.retries", "transfer")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Other failures: Business exceptions are not retried")
+    void execute_OtherExceptions_NotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> retry.run("deleteCard", () -> {
+            attempts.incrementAndGet();
+            throw new RestException("Card not found", HttpStatus.NOT_FOUND);
+        })).hasMessage("Card not found");
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    private double count(String name, String method) {
+        return meterRegistry.get(name).tag("method", method).counter().count();
+    }
+}
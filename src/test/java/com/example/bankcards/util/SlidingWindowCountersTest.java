@@ -0,0 +1,113 @@
+package com.example.bankcards.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCountersTest {
+
+    private static final long HOUR = Duration.ofHours(1).toMillis();
+    private static final long NOW = 1_000 * HOUR;
+
+    // A day in hourly buckets
+    private final SlidingWindowCounters counters = new SlidingWindowCounters(Duration.ofDays(1), 24, 4);
+
+    @Test
+    @DisplayName("Limit: Amounts are added until the next one would exceed the limit, which is inclusive")
+    void tryAdd_RespectsLimit() {
+        assertThat(counters.tryAdd(1, 600, 1000, NOW)).isNotEqualTo(SlidingWindowCounters.REJECTED);
+        assertThat(counters.tryAdd(1, 401, 1000, NOW)).isEqualTo(SlidingWindowCounters.REJECTED);
+        assertThat(counters.tryAdd(1, 400, 1000, NOW)).isNotEqualTo(SlidingWindowCounters.REJECTED);
+        assertThat(counters.tryAdd(2, 1000, 1000, NOW)).isNotEqualTo(SlidingWindowCounters.REJECTED);
+
+        assertThat(counters.sum(1, NOW)).isEqualTo(1000);
+        assertThat(counters.sum(2, NOW)).isEqualTo(1000);
+        assertThat(counters.sum(3, NOW)).isZero();
+    }
+
+    @Test
+    @DisplayName("Window: An amount stops counting once its bucket has slid out of the window")
+    void sum_Slides() {
+        counters.tryAdd(1, 500, -1, NOW);
+        counters.tryAdd(1, 300, -1, NOW + 12 * HOUR);
+
+        assertThat(counters.sum(1, NOW + 23 * HOUR)).isEqualTo(800);
+        assertThat(counters.sum(1, NOW + 24 * HOUR)).isEqualTo(300);
+        assertThat(counters.tryAdd(1, 700, 1000, NOW + 24 * HOUR)).isNotEqualTo(SlidingWindowCounters.REJECTED);
+        assertThat(counters.sum(1, NOW + 36 * HOUR)).isEqualTo(700);
+    }
+
+    @Test
+    @DisplayName("Subtract: Takes an amount back from its bucket, unless the bucket has been reused since")
+    void subtract_OwnBucketOnly() {
+        long bucket = counters.tryAdd(1, 500, -1, NOW);
+        counters.subtract(1, 200, bucket);
+        assertThat(counters.sum(1, NOW)).isEqualTo(300);
+
+        long stale = counters.tryAdd(2, 500, -1, NOW);
+        counters.tryAdd(2, 100, -1, NOW + 24 * HOUR);
+        counters.subtract(2, 500, stale);
+        assertThat(counters.sum(2, NOW + 24 * HOUR)).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("Rebuild: Amounts older than the window are ignored")
+    void add_IgnoresExpired() {
+        counters.add(1, 500, NOW - 25 * HOUR, NOW);
+        counters.add(1, 300, NOW - 2 * HOUR, NOW);
+
+        assertThat(counters.sum(1, NOW)).isEqualTo(300);
+    }
+
+    @Test
+    @DisplayName("Growth and eviction: Many keys survive rehashing, keys with nothing in the window are dropped")
+    void evictExpired_DropsIdleKeys() {
+        for (long key = 1; key <= 1000; key++) {
+            counters.tryAdd(key, key, -1, key % 2 == 0 ? NOW : NOW + 12 * HOUR);
+        }
+        for (long key = 1; key <= 1000; key++) {
+            assertThat(counters.sum(key, NOW + 12 * HOUR)).isEqualTo(key);
+        }
+
+        assertThat(counters.evictExpired(NOW + 30 * HOUR)).isEqualTo(500);
+        assertThat(counters.sum(999, NOW + 30 * HOUR)).isEqualTo(999);
+        assertThat(counters.sum(1000, NOW + 30 * HOUR)).isZero();
+    }
+
+    @Test
+    @DisplayName("Concurrency: Racing additions never push a key over its limit")
+    void tryAdd_Concurrent_NeverExceedsLimit() throws Exception {
+        AtomicInteger accepted = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<CompletableFuture<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 4000; i++) {
+                long key = i % 4;
+                futures.add(CompletableFuture.runAsync(() -> {
+                    if (counters.tryAdd(key, 7, 1000, NOW) != SlidingWindowCounters.REJECTED) {
+                        accepted.incrementAndGet();
+                    }
+                }, executor));
+            }
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(30, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 142 * 7 = 994 fits, a 143rd would not
+        assertThat(accepted).hasValue(4 * 142);
+        for (long key = 0; key < 4; key++) {
+            assertThat(counters.sum(key, NOW)).isEqualTo(994);
+        }
+    }
+}
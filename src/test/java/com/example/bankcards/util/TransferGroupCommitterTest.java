@@ -0,0 +1,171 @@
+package com.example.bankcards.util;
+
+import com.example.bankcards.config.GroupCommitProperties;
+import com.example.bankcards.config.TransferProperties;
+import com.example.bankcards.dto.requests.TransferRequestDto;
+import com.example.bankcards.entity.enums.TransferOutcome;
+import com.example.bankcards.exception.RestException;
+import com.example.bankcards.util.Money;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TransferGroupCommitterTest {
+
+    private final List<Integer> groupSizes = Collections.synchronizedList(new ArrayList<>());
+    private TransferGroupCommitter committer;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        committer.destroy();
+    }
+
+    @Test
+    @DisplayName("Count: A full group is committed without waiting for the rest of the window")
+    void submit_GroupClosedBySize() throws Exception {
+        committer = started(4, Duration.ofMinutes(1));
+
+        List<TransferOutcome> outcomes = submitConcurrently(8);
+
+        assertThat(outcomes).containsOnly(TransferOutcome.OK).hasSize(8);
+        assertThat(groupSizes).containsOnly(4);
+    }
+
+    @Test
+    @DisplayName("Time: A lone transfer is committed once the window has passed")
+    void submit_GroupClosedByWindow() {
+        committer = started(64, Duration.ofMillis(20));
+
+        long started = System.nanoTime();
+        assertThat(committer.submit(item(1))).isEqualTo(TransferOutcome.OK);
+
+        assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(groupSizes).containsExactly(1);
+    }
+
+    @Test
+    @DisplayName("Isolation: A group that fails as a whole is retried item by item, only the culprit fails")
+    void submit_FailedGroup_RetriedAlone() throws Exception {
+        committer = new TransferGroupCommitter(
+                new GroupCommitProperties(4, Duration.ofMinutes(1), 1), transferProperties(Duration.ofSeconds(5)), new SimpleMeterRegistry());
+        committer.start(items -> {
+            if (items.stream().anyMatch(item -> item.request().sourceCardId() == 3)) {
+                throw new DataIntegrityViolationException("balance_non_negative");
+            }
+            groupSizes.add(items.size());
+            return items.stream().map(item -> TransferOutcome.OK).toArray(TransferOutcome[]::new);
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            List<CompletableFuture<TransferOutcome>> results = new ArrayList<>();
+            for (int i = 1; i <= 4; i++) {
+                TransferGroupCommitter.Item item = item(i);
+                results.add(CompletableFuture.supplyAsync(() -> committer.submit(item), callers));
+            }
+
+            for (int i = 0; i < 4; i++) {
+                CompletableFuture<TransferOutcome> result = results.get(i);
+                if (i == 2) {
+                    assertThatThrownBy(() -> result.get(5, TimeUnit.SECONDS))
+                            .hasCauseInstanceOf(DataIntegrityViolationException.class);
+                } else {
+                    assertThat(result.get(5, TimeUnit.SECONDS)).isEqualTo(TransferOutcome.OK);
+                }
+            }
+            assertThat(groupSizes).containsExactly(1, 1, 1);
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Timeout: A caller whose group does not commit within the lock timeout gets 503 instead of waiting forever")
+    void submit_StalledGroup_TimesOut() {
+        CountDownLatch release = new CountDownLatch(1);
+        committer = new TransferGroupCommitter(
+                new GroupCommitProperties(1, Duration.ZERO, 1), transferProperties(Duration.ofMillis(50)), new SimpleMeterRegistry());
+        committer.start(items -> {
+            awaitQuietly(release);
+            return items.stream().map(item -> TransferOutcome.OK).toArray(TransferOutcome[]::new);
+        });
+
+        try {
+            assertThatThrownBy(() -> committer.submit(item(1)))
+                    .isInstanceOf(RestException.class)
+                    .extracting(e -> ((RestException) e).getStatus())
+                    .isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    @DisplayName("Shutdown: Transfers are refused once the committer is stopped")
+    void submit_AfterDestroy_Refused() throws InterruptedException {
+        committer = started(4, Duration.ZERO);
+        committer.destroy();
+
+        assertThatThrownBy(() -> committer.submit(item(1))).isInstanceOf(IllegalStateException.class);
+    }
+
+    private TransferGroupCommitter started(int maxSize, Duration window) {
+        TransferGroupCommitter started = new TransferGroupCommitter(
+                new GroupCommitProperties(maxSize, window, 2), transferProperties(Duration.ofSeconds(5)), new SimpleMeterRegistry());
+        started.start(items -> {
+            groupSizes.add(items.size());
+            return items.stream().map(item -> TransferOutcome.OK).toArray(TransferOutcome[]::new);
+        });
+        return started;
+    }
+
+    private List<TransferOutcome> submitConcurrently(int count) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(count);
+        try {
+            List<CompletableFuture<TransferOutcome>> results = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                TransferGroupCommitter.Item item = item(i);
+                results.add(CompletableFuture.supplyAsync(() -> committer.submit(item), callers));
+            }
+            List<TransferOutcome> outcomes = new ArrayList<>();
+            for (CompletableFuture<TransferOutcome> result : results) {
+                outcomes.add(result.get(5, TimeUnit.SECONDS));
+            }
+            return outcomes;
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    private static TransferProperties transferProperties(Duration lockTimeout) {
+        return new TransferProperties(TransferProperties.Mode.GROUP_COMMIT, 1024, lockTimeout, 3);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TransferGroupCommitter.Item item(long sourceCardId) {
+        return new TransferGroupCommitter.Item("alice", new TransferRequestDto(sourceCardId, 100L, Money.ofMinor(100)), null);
+    }
+}